@@ -17,20 +17,29 @@
 
 package org.kie.kogito.addon.cloudevents.quarkus;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import io.quarkus.runtime.Startup;
 import io.smallrye.mutiny.Multi;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.MessageBatch;
 import org.reactivestreams.Publisher;
 
 /**
  * Takes a @Channel event stream and re-exposes it as a Multi
- * (a subclass of {@link Publisher})
+ * (a subclass of {@link Publisher}), either of single messages acknowledged
+ * when received or of batches acknowledged once consumed
  */
 @Startup
 @ApplicationScoped
@@ -38,6 +47,14 @@ public class QuarkusCloudEventPublisher {
     @Channel(KogitoEventStreams.INCOMING)
     Multi<Message<String>> events;
 
+    @Inject
+    @ConfigProperty(name = "kogito.addon.cloudevents.batch-size")
+    Optional<Integer> batchSize;
+
+    @Inject
+    @ConfigProperty(name = "kogito.addon.cloudevents.batch-timeout")
+    Optional<Long> batchTimeout;
+
     @Produces
     @ApplicationScoped
     @Named(KogitoEventStreams.PUBLISHER)
@@ -46,5 +63,35 @@ public class QuarkusCloudEventPublisher {
                 .invoke(Message::ack)
                 .map(Message::getPayload)
                 .broadcast().toAllSubscribers();
-    }    
-}
\ No newline at end of file
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Named(KogitoEventStreams.BATCH_PUBLISHER)
+    public Multi<MessageBatch> makeBatchMulti() {
+        return events
+                .group().intoLists().of(batchSize.orElse(1), Duration.ofMillis(batchTimeout.orElse(100L)))
+                .map(QuarkusCloudEventPublisher::batch);
+    }
+
+    /**
+     * Failed messages are nacked, what happens to them depends on the failure strategy of the connector. The Kafka
+     * connector defaults to <code>fail</code>, which stops the incoming channel, so the addon defaults
+     * <code>mp.messaging.incoming.kogito_incoming_stream.failure-strategy</code> to <code>dead-letter-queue</code>:
+     * failed records are written to the <code>dead-letter-topic-kogito_incoming_stream</code> topic and the
+     * following ones are still consumed.
+     */
+    private static MessageBatch batch(List<Message<String>> messages) {
+        return new MessageBatch(messages.stream().map(Message::getPayload).collect(Collectors.toList()),
+                                failures -> {
+                                    for (int i = 0; i < messages.size(); i++) {
+                                        Throwable failure = failures.get(i);
+                                        if (failure == null) {
+                                            messages.get(i).ack();
+                                        } else {
+                                            messages.get(i).nack(failure);
+                                        }
+                                    }
+                                });
+    }
+}
@@ -17,15 +17,23 @@
 
 package org.kie.kogito.addon.cloudevents.spring;
 
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.MessageBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -33,10 +41,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Scope;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.ConnectableFlux;
 import reactor.core.publisher.Flux;
 import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverRecord;
 import reactor.kafka.receiver.ReceiverOffset;
 import reactor.kafka.receiver.ReceiverOptions;
 
@@ -45,16 +55,33 @@ public class SpringKafkaCloudEventPublisher {
 
     private static final Logger log = LoggerFactory.getLogger(SpringKafkaCloudEventPublisher.class.getName());
 
+    // same topic and header names as the dead letter queue of the Quarkus Kafka connector
+    private static final String DEAD_LETTER_TOPIC_PREFIX = "dead-letter-topic-";
+    private static final String DEAD_LETTER_REASON = "dead-letter-reason";
+
     private final ReceiverOptions<Integer, String> receiverOptions;
     private final SimpleDateFormat dateFormat;
 
     private final String topic;
+    private final int batchSize;
+    private final long batchTimeout;
+    private final String deadLetterTopic;
+    private final KafkaTemplate<String, String> deadLetters;
+    private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
 
     public SpringKafkaCloudEventPublisher(
             @Value(value = "${spring.kafka.bootstrap-servers}") String kafkaBootstrapAddress,
             @Value(value = "${spring.kafka.consumer.group-id}") String groupId,
-            @Value(value = "${kogito.addon.cloudevents.kafka." + KogitoEventStreams.INCOMING + ":" + KogitoEventStreams.INCOMING + "}") String kafkaTopicName) {
+            @Value(value = "${kogito.addon.cloudevents.kafka." + KogitoEventStreams.INCOMING + ":" + KogitoEventStreams.INCOMING + "}") String kafkaTopicName,
+            @Value(value = "${kogito.addon.cloudevents.batch-size:1}") int batchSize,
+            @Value(value = "${kogito.addon.cloudevents.batch-timeout:100}") long batchTimeout,
+            @Value(value = "${kogito.addon.cloudevents.kafka.dead-letter-topic:}") String deadLetterTopic,
+            KafkaTemplate<String, String> deadLetters) {
         this.topic = kafkaTopicName;
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+        this.deadLetterTopic = deadLetterTopic.isEmpty() ? DEAD_LETTER_TOPIC_PREFIX + kafkaTopicName : deadLetterTopic;
+        this.deadLetters = deadLetters;
 
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapAddress);
@@ -69,11 +96,7 @@ public class SpringKafkaCloudEventPublisher {
     @Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
     @Qualifier(KogitoEventStreams.PUBLISHER)
     public Flux<String> makeConsumer() {
-        ReceiverOptions<Integer, String> options = receiverOptions.subscription(Collections.singleton(topic))
-                .addAssignListener(partitions -> log.debug("onPartitionsAssigned {}", partitions))
-                .addRevokeListener(partitions -> log.debug("onPartitionsRevoked {}", partitions));
-
-        ConnectableFlux<String> broadcast = KafkaReceiver.create(options).receive().map(record -> {
+        ConnectableFlux<String> broadcast = KafkaReceiver.create(options()).receive().map(record -> {
             ReceiverOffset offset = record.receiverOffset();
             log.info("Received message: topic-partition={} offset={} timestamp={} key={} value={}\n",
                       offset.topicPartition(),
@@ -88,4 +111,65 @@ public class SpringKafkaCloudEventPublisher {
 
         return broadcast.autoConnect();
     }
+
+    /**
+     * Records received in batches, their offsets are acknowledged once the batch is consumed. Records a consumer
+     * failed to consume are not redelivered, as the other consumers of the batch already committed their changes:
+     * they are written to the <code>kogito.addon.cloudevents.kafka.dead-letter-topic</code> topic first.
+     */
+    @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+    @Qualifier(KogitoEventStreams.BATCH_PUBLISHER)
+    public Flux<MessageBatch> makeBatchConsumer() {
+        return KafkaReceiver.create(options()).receive()
+                .bufferTimeout(batchSize, Duration.ofMillis(batchTimeout))
+                .map(records -> new MessageBatch(records.stream().map(ReceiverRecord::value).collect(Collectors.toList()),
+                                                 failures -> complete(records, failures)));
+    }
+
+    /**
+     * Batches are acknowledged in the order they were received, so the offsets of a batch are not committed past
+     * failed records of a previous one that were not written to the dead letter topic yet. The writes are not
+     * awaited on the receiving thread.
+     */
+    private synchronized void complete(List<ReceiverRecord<Integer, String>> records, Map<Integer, Throwable> failures) {
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        if (!failures.isEmpty()) {
+            List<CompletableFuture<?>> sent = new ArrayList<>(failures.size());
+            failures.forEach((index, failure) -> sent.add(deadLetter(records.get(index), failure)));
+            written = CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).handle((result, error) -> {
+                if (error != null) {
+                    log.error("Unable to write failed records to topic {}, they are lost", deadLetterTopic, error);
+                }
+                return null;
+            });
+        }
+        acknowledged = acknowledged.thenCombine(written, (previous, current) -> current)
+                .thenRun(() -> records.forEach(record -> record.receiverOffset().acknowledge()))
+                .exceptionally(error -> {
+                    // the following batches are still acknowledged
+                    log.error("Unable to acknowledge batch of {} records", records.size(), error);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<?> deadLetter(ReceiverRecord<Integer, String> record, Throwable failure) {
+        ReceiverOffset offset = record.receiverOffset();
+        log.warn("Record of topic-partition={} offset={} failed, it is written to topic {}", offset.topicPartition(), offset.offset(), deadLetterTopic);
+        ProducerRecord<String, String> deadLetter = new ProducerRecord<>(deadLetterTopic, record.value());
+        deadLetter.headers().add(DEAD_LETTER_REASON, String.valueOf(failure.getMessage()).getBytes(StandardCharsets.UTF_8));
+        try {
+            return deadLetters.send(deadLetter).completable();
+        } catch (RuntimeException e) {
+            CompletableFuture<?> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private ReceiverOptions<Integer, String> options() {
+        return receiverOptions.subscription(Collections.singleton(topic))
+                .addAssignListener(partitions -> log.debug("onPartitionsAssigned {}", partitions))
+                .addRevokeListener(partitions -> log.debug("onPartitionsRevoked {}", partitions));
+    }
 }
@@ -15,15 +15,24 @@
 
 package org.kie.kogito.events.rm;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.kie.kogito.event.BatchingEventQueue;
+import org.kie.kogito.event.BatchingEventQueue.OverflowPolicy;
+import org.kie.kogito.event.BinaryCloudEventCodec;
 import org.kie.kogito.event.DataEvent;
 import org.kie.kogito.event.EventPublisher;
 import org.slf4j.Logger;
@@ -44,17 +53,18 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
     private static final Logger logger = LoggerFactory.getLogger(ReactiveMessagingEventPublisher.class);
     private ObjectMapper json = new ObjectMapper();
     
+    // payloads are String for events encoded in JSON and byte[] for the ones encoded in CBOR
     @Inject
     @Channel(PI_TOPIC_NAME)
-    Emitter<String> processInstancesEventsEmitter;
+    Emitter<Object> processInstancesEventsEmitter;
     
     @Inject
     @Channel(UI_TOPIC_NAME)
-    Emitter<String> userTasksEventsEmitter;
+    Emitter<Object> userTasksEventsEmitter;
     
     @Inject
     @Channel(VI_TOPIC_NAME)
-    Emitter<String> variablesEventsEmitter;
+    Emitter<Object> variablesEventsEmitter;
     
     @Inject
     @ConfigProperty(name = "kogito.events.processinstances.enabled")
@@ -68,26 +78,66 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
     @ConfigProperty(name = "kogito.events.variables.enabled")
     Optional<Boolean> variablesEvents;
     
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.async")
+    Optional<Boolean> async;
+    
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.queue-size")
+    Optional<Integer> queueSize;
+    
+    // batches are compressed by the connector, e.g. mp.messaging.outgoing.<channel>.compression.type=lz4,
+    // compressing the payload here would break consumers reading plain cloud events
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.batch-size")
+    Optional<Integer> batchSize;
+    
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.overflow-policy")
+    Optional<String> overflowPolicy;
+    
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.max-retries")
+    Optional<Integer> maxRetries;
+    
+    @Inject
+    @ConfigProperty(name = "kogito.events.publisher.format")
+    Optional<String> format;
+    
+    private BatchingEventQueue queue;
+    
+    private BinaryCloudEventCodec codec;
+    
     @PostConstruct
     public void configure() {
         json.setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+        if ("cbor".equalsIgnoreCase(format.orElse("json"))) {
+            codec = new BinaryCloudEventCodec(json);
+        }
+        if (async.orElse(false)) {
+            queue = new BatchingEventQueue("reactive-messaging",
+                                           queueSize.orElse(1024),
+                                           batchSize.orElse(100),
+                                           OverflowPolicy.valueOf(overflowPolicy.orElse("block").toUpperCase(Locale.ROOT).replace('-', '_')),
+                                           maxRetries.orElse(BatchingEventQueue.DEFAULT_MAX_RETRIES),
+                                           topic -> emitterFor(topic).hasRequests(),
+                                           this::publishBatch);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (queue != null) {
+            queue.close();
+        }
     }
     
     @Override
     public void publish(DataEvent<?> event) {
-        if (event.getType().equals("ProcessInstanceEvent") && processInstancesEvents.orElse(true)) {
-            
-            publishToTopic(event, processInstancesEventsEmitter, PI_TOPIC_NAME);
-        } else if (event.getType().equals("UserTaskInstanceEvent") && userTasksEvents.orElse(true)) {
-            
-            publishToTopic(event, userTasksEventsEmitter, UI_TOPIC_NAME);
-        } else if (event.getType().equals("VariableInstanceEvent") && variablesEvents.orElse(true)) {
-            
-            publishToTopic(event, variablesEventsEmitter, VI_TOPIC_NAME);
-        } else {
-            logger.warn("Unknown type of event '{}', ignoring", event.getType());
+        String topic = topicOf(event);
+        if (topic != null) {
+            publish(event, topic);
         }
-        
     }
 
     @Override
@@ -97,21 +147,119 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
         }
     }
 
+    /**
+     * Sends the events directly, bypassing the event queue, and completes once the emitters acknowledged all of them.
+     */
+    @Override
+    public CompletionStage<Void> publishAndConfirm(Collection<DataEvent<?>> events) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(events.size());
+        for (DataEvent<?> event : events) {
+            String topic = topicOf(event);
+            if (topic != null) {
+                sent.add(sendToTopic(event, emitterFor(topic), topic).toCompletableFuture());
+            }
+        }
+        return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return number of events waiting to be published, always 0 when publishing synchronously
+     */
+    public int queueDepth() {
+        return queue == null ? 0 : queue.queueDepth();
+    }
+
+    /**
+     * @return time in milliseconds the most recently published events waited in the queue
+     */
+    public long publishLag() {
+        return queue == null ? 0 : queue.publishLag();
+    }
+
+    public long droppedEvents() {
+        return queue == null ? 0 : queue.droppedEvents();
+    }
+
+    protected void publish(DataEvent<?> event, String topic) {
+        if (queue == null) {
+            publishToTopic(event, emitterFor(topic), topic);
+        } else if (!queue.offer(topic, event)) {
+            logger.warn("Event queue is full, dropped event {} for topic {}", event, topic);
+        }
+    }
+
+    protected void publishBatch(String topic, List<DataEvent<?>> events) {
+        Emitter<Object> emitter = emitterFor(topic);
+        List<CompletableFuture<Void>> sent = new ArrayList<>(events.size());
+        for (DataEvent<?> event : events) {
+            sent.add(sendToTopic(event, emitter, topic).toCompletableFuture());
+        }
+        // failures are thrown to the event queue that retries the batch
+        BatchingEventQueue.awaitSent(sent);
+    }
+
+    /**
+     * @return topic of given event or null when events of its type are not published
+     */
+    protected String topicOf(DataEvent<?> event) {
+        if (event.getType().equals("ProcessInstanceEvent") && processInstancesEvents.orElse(true)) {
+            return PI_TOPIC_NAME;
+        } else if (event.getType().equals("UserTaskInstanceEvent") && userTasksEvents.orElse(true)) {
+            return UI_TOPIC_NAME;
+        } else if (event.getType().equals("VariableInstanceEvent") && variablesEvents.orElse(true)) {
+            return VI_TOPIC_NAME;
+        }
+        logger.warn("Unknown type of event '{}', ignoring", event.getType());
+        return null;
+    }
+
+    protected Emitter<Object> emitterFor(String topic) {
+        switch (topic) {
+            case PI_TOPIC_NAME:
+                return processInstancesEventsEmitter;
+            case UI_TOPIC_NAME:
+                return userTasksEventsEmitter;
+            default:
+                return variablesEventsEmitter;
+        }
+    }
     
-    protected void publishToTopic(DataEvent<?> event, Emitter<String> emitter, String topic) {
-        if (emitter.hasRequests()) {
+    protected void publishToTopic(DataEvent<?> event, Emitter<Object> emitter, String topic) {
+        sendToTopic(event, emitter, topic).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.error("Error while publishing event to topic {} for event {}", topic, event, e);
+            }
+        });
+    }
+
+    /**
+     * Sends given event to the emitter of the topic.
+     *
+     * @return stage completed once the emitter acknowledged the event, completed exceptionally when it could not be sent
+     */
+    protected CompletionStage<Void> sendToTopic(DataEvent<?> event, Emitter<Object> emitter, String topic) {
+        if (!emitter.hasRequests()) {
             logger.debug("Emitter {} is not ready to send messages", topic);
         }
         
         logger.debug("About to publish event {} to topic {}", event, topic);
         try {
-            String eventString = json.writeValueAsString(event);
-            logger.debug("Event payload '{}'", eventString);
-
-            emitter.send(eventString);
-            logger.debug("Successfully published event {} to topic {}", event, topic);
+            CompletionStage<Void> sent;
+            if (codec != null) {
+                // channels carry no CloudEvents headers, so the whole event is encoded
+                byte[] eventBytes = codec.encodeStructured(event);
+                logger.debug("Event payload of {} bytes", eventBytes.length);
+                sent = emitter.send(eventBytes);
+            } else {
+                String eventString = json.writeValueAsString(event);
+                logger.debug("Event payload '{}'", eventString);
+                sent = emitter.send(eventString);
+            }
+            return sent.thenRun(() -> logger.debug("Successfully published event {} to topic {}", event, topic));
         } catch (Exception e) {
-            logger.error("Error while publishing event to topic {} for event {}", topic, event, e);
-        }  
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
     }
 }
@@ -15,9 +15,26 @@
 
 package org.kie.kogito.events.spring;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.kie.kogito.event.BatchingEventQueue;
+import org.kie.kogito.event.BatchingEventQueue.OverflowPolicy;
+import org.kie.kogito.event.BinaryCloudEvent;
+import org.kie.kogito.event.BinaryCloudEventCodec;
 import org.kie.kogito.event.DataEvent;
 import org.kie.kogito.event.EventPublisher;
 import org.slf4j.Logger;
@@ -44,6 +61,10 @@ public class KafkaEventPublisher implements EventPublisher {
     @Autowired
     private KafkaTemplate<String, String> eventsEmitter;
     
+    // used when events are encoded in CBOR, the producer must then be configured with a byte array serializer
+    @Autowired(required = false)
+    private KafkaTemplate<String, byte[]> binaryEventsEmitter;
+    
     @Value("${kogito.events.processinstances.enabled:true}")
     private boolean processInstancesEvents;
     
@@ -52,25 +73,67 @@ public class KafkaEventPublisher implements EventPublisher {
     
     @Value("${kogito.events.variables.enabled:true}")
     private boolean variablesEvents;
+    
+    @Value("${kogito.events.publisher.async:false}")
+    private boolean async;
+    
+    @Value("${kogito.events.publisher.queue-size:1024}")
+    private int queueSize;
+    
+    // set spring.kafka.producer.compression-type to have the producer compress each batch,
+    // the records themselves stay readable by any cloud event consumer
+    @Value("${kogito.events.publisher.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${kogito.events.publisher.overflow-policy:block}")
+    private String overflowPolicy;
+    
+    @Value("${kogito.events.publisher.max-retries:3}")
+    private int maxRetries;
+    
+    @Value("${kogito.events.publisher.format:json}")
+    private String format;
+    
+    private BatchingEventQueue queue;
+    
+    private BinaryCloudEventCodec codec;
         
     public KafkaEventPublisher() {
         json.setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
     }
     
+    @PostConstruct
+    public void configure() {
+        if ("cbor".equalsIgnoreCase(format)) {
+            if (binaryEventsEmitter == null) {
+                throw new IllegalStateException("Events encoded in CBOR require a KafkaTemplate<String, byte[]>");
+            }
+            codec = new BinaryCloudEventCodec(json);
+        }
+        if (async) {
+            queue = new BatchingEventQueue("kafka",
+                                           queueSize,
+                                           batchSize,
+                                           OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT).replace('-', '_')),
+                                           maxRetries,
+                                           topic -> true,
+                                           this::publishBatch);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+    
     @Override
     public void publish(DataEvent<?> event) {
-        if (event.getType().equals("ProcessInstanceEvent") && processInstancesEvents) {
-            
-            publishToTopic(event, eventsEmitter, PI_TOPIC_NAME);
-        } else if (event.getType().equals("UserTaskInstanceEvent") && userTasksEvents) {
-            
-            publishToTopic(event, eventsEmitter, UI_TOPIC_NAME);
-        } else if (event.getType().equals("VariableInstanceEvent") && variablesEvents) {
-            
-            publishToTopic(event, eventsEmitter, VI_TOPIC_NAME);
-        } else {
-            logger.warn("Unknown type of event '{}', ignoring", event.getType());
-        }       
+        String topic = topicOf(event);
+        if (topic != null) {
+            publish(event, topic);
+        }
     }
 
     @Override
@@ -79,17 +142,125 @@ public class KafkaEventPublisher implements EventPublisher {
             publish(event);
         }
     }
+
+    /**
+     * Sends the events directly, bypassing the event queue, and completes once the broker acknowledged all of them.
+     */
+    @Override
+    public CompletionStage<Void> publishAndConfirm(Collection<DataEvent<?>> events) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(events.size());
+        for (DataEvent<?> event : events) {
+            String topic = topicOf(event);
+            if (topic != null) {
+                sent.add(sendToTopic(event, topic));
+            }
+        }
+        flush();
+        return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return topic of given event or null when events of its type are not published
+     */
+    protected String topicOf(DataEvent<?> event) {
+        if (event.getType().equals("ProcessInstanceEvent") && processInstancesEvents) {
+            return PI_TOPIC_NAME;
+        } else if (event.getType().equals("UserTaskInstanceEvent") && userTasksEvents) {
+            return UI_TOPIC_NAME;
+        } else if (event.getType().equals("VariableInstanceEvent") && variablesEvents) {
+            return VI_TOPIC_NAME;
+        }
+        logger.warn("Unknown type of event '{}', ignoring", event.getType());
+        return null;
+    }
+
+    /**
+     * @return number of events waiting to be published, always 0 when publishing synchronously
+     */
+    public int queueDepth() {
+        return queue == null ? 0 : queue.queueDepth();
+    }
+
+    /**
+     * @return time in milliseconds the most recently published events waited in the queue
+     */
+    public long publishLag() {
+        return queue == null ? 0 : queue.publishLag();
+    }
+
+    public long droppedEvents() {
+        return queue == null ? 0 : queue.droppedEvents();
+    }
+
+    protected void publish(DataEvent<?> event, String topic) {
+        if (queue == null) {
+            publishToTopic(event, eventsEmitter, topic);
+        } else if (!queue.offer(topic, event)) {
+            logger.warn("Event queue is full, dropped event {} for topic {}", event, topic);
+        }
+    }
+
+    protected void publishBatch(String topic, List<DataEvent<?>> events) {
+        List<CompletableFuture<Void>> sent = new ArrayList<>(events.size());
+        for (DataEvent<?> event : events) {
+            sent.add(sendToTopic(event, topic));
+        }
+        // records of the batch are sent together instead of waiting for the producer linger time
+        flush();
+        // failures are thrown to the event queue that retries the batch
+        BatchingEventQueue.awaitSent(sent);
+    }
+
+    private void flush() {
+        if (codec == null) {
+            eventsEmitter.flush();
+        } else {
+            binaryEventsEmitter.flush();
+        }
+    }
     
     protected void publishToTopic(DataEvent<?> event, KafkaTemplate<String, String> emitter, String topic) {
+        sendToTopic(event, topic).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.error("Error while publishing event to Kafka topic {} for event {}", topic, event, e);
+            }
+        });
+    }
+
+    /**
+     * Sends given event to the topic.
+     *
+     * @return future completed once the broker acknowledged the event, completed exceptionally when it could not be sent
+     */
+    protected CompletableFuture<Void> sendToTopic(DataEvent<?> event, String topic) {
         logger.debug("About to publish event {} to Kafka topic {}", event, topic);
         try {
-            String eventString = json.writeValueAsString(event);
-            logger.debug("Event payload '{}'", eventString);
-            
-            eventsEmitter.send(topic, eventString);
-            logger.debug("Successfully published event {} to topic {}", event, topic);
+            CompletableFuture<?> sent;
+            if (codec != null) {
+                sent = publishBinary(event, topic);
+            } else {
+                String eventString = json.writeValueAsString(event);
+                logger.debug("Event payload '{}'", eventString);
+                sent = eventsEmitter.send(topic, eventString).completable();
+            }
+            return sent.thenRun(() -> logger.debug("Successfully published event {} to topic {}", event, topic));
         } catch (Exception e) {
-            logger.error("Error while publishing event to Kafka topic {} for event {}", topic, event, e);
-        }        
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Sends the event in CloudEvents binary content mode, its attributes as record headers and its data encoded in CBOR.
+     */
+    protected CompletableFuture<?> publishBinary(DataEvent<?> event, String topic) {
+        BinaryCloudEvent encoded = codec.encode(event);
+        List<Header> headers = new ArrayList<>(encoded.headers().size());
+        for (Map.Entry<String, String> header : encoded.headers().entrySet()) {
+            headers.add(new RecordHeader(header.getKey(), header.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        logger.debug("Event payload of {} bytes", encoded.data().length);
+        return binaryEventsEmitter.send(new ProducerRecord<String, byte[]>(topic, null, null, encoded.data(), headers)).completable();
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.jobs.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * JobBatch groups jobs to be scheduled and ids of jobs to be canceled so they can be
+ * sent to the jobs service as single request.
+ */
+public class JobBatch {
+
+    private List<Job> schedule = new ArrayList<>();
+    private List<String> cancel = new ArrayList<>();
+
+    public JobBatch() {
+    }
+
+    public JobBatch(List<Job> schedule, List<String> cancel) {
+        this.schedule = schedule;
+        this.cancel = cancel;
+    }
+
+    public List<Job> getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(List<Job> schedule) {
+        this.schedule = schedule;
+    }
+
+    public List<String> getCancel() {
+        return cancel;
+    }
+
+    public void setCancel(List<String> cancel) {
+        this.cancel = cancel;
+    }
+
+    public int size() {
+        return schedule.size() + cancel.size();
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", JobBatch.class.getSimpleName() + "[", "]")
+                .add("schedule=" + schedule.size())
+                .add("cancel=" + cancel.size())
+                .toString();
+    }
+}
@@ -17,11 +17,15 @@
 package org.kie.kogito.jobs.management;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 import org.kie.kogito.jobs.JobsService;
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
 import org.kie.kogito.jobs.api.Job;
+import org.kie.kogito.jobs.api.JobBatch;
 import org.kie.kogito.jobs.api.JobBuilder;
 import org.kie.kogito.jobs.api.URIBuilder;
 
@@ -29,6 +33,8 @@ public abstract class RestJobsService implements JobsService {
 
     @SuppressWarnings("squid:S1075")
     public static final String JOBS_PATH = "/jobs";
+    @SuppressWarnings("squid:S1075")
+    public static final String JOBS_BATCH_PATH = JOBS_PATH + "/batch";
 
     private URI jobsServiceUri;
     private String callbackEndpoint;
@@ -72,4 +78,12 @@ public abstract class RestJobsService implements JobsService {
                 .nodeInstanceId(description.nodeInstanceId())
                 .build();
     }
+
+    public JobBatch buildJobBatch(Collection<ProcessInstanceJobDescription> descriptions, Collection<String> canceled) {
+        List<Job> jobs = new ArrayList<>(descriptions.size());
+        for (ProcessInstanceJobDescription description : descriptions) {
+            jobs.add(buildJob(description, getCallbackEndpoint(description)));
+        }
+        return new JobBatch(jobs, new ArrayList<>(canceled));
+    }
 }
@@ -18,11 +18,14 @@ package org.kie.kogito.jobs.management;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.jupiter.api.Test;
 import org.kie.kogito.jobs.ExactExpirationTime;
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
 import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.jobs.api.JobBatch;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -72,4 +75,18 @@ public class RestJobsServiceTest {
         URI jobsServiceUri = tested.getJobsServiceUri();
         assertThat(jobsServiceUri.toString()).isEqualTo(JOB_SERVICE_URL + "/jobs");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBuildJobBatch() {
+        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(123,
+                                                                                     ExactExpirationTime.now(),
+                                                                                     "processInstanceId",
+                                                                                     "processId");
+        JobBatch batch = tested.buildJobBatch(Collections.singletonList(description), Arrays.asList("1", "2"));
+        assertThat(batch.getSchedule()).hasSize(1);
+        assertThat(batch.getSchedule().get(0).getId()).isEqualTo(description.id());
+        assertThat(batch.getSchedule().get(0).getCallbackEndpoint()).isEqualTo(tested.getCallbackEndpoint(description));
+        assertThat(batch.getCancel()).containsExactly("1", "2");
+        assertThat(batch.size()).isEqualTo(3);
+    }
+}
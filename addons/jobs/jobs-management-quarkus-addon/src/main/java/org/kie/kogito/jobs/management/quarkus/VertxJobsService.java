@@ -18,6 +18,11 @@ package org.kie.kogito.jobs.management.quarkus;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import javax.annotation.PostConstruct;
@@ -35,6 +40,7 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
 import org.kie.kogito.jobs.ProcessJobDescription;
 import org.kie.kogito.jobs.api.Job;
+import org.kie.kogito.jobs.api.JobBatch;
 import org.kie.kogito.jobs.api.JobNotFoundException;
 import org.kie.kogito.jobs.management.RestJobsService;
 import org.slf4j.Logger;
@@ -45,8 +51,17 @@ public class VertxJobsService extends RestJobsService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VertxJobsService.class);
 
+    private static final int DEFAULT_MAX_POOL_SIZE = 20;
+
     private Vertx vertx;
 
+    private int maxPoolSize;
+
+    private boolean pipelining;
+
+    // disabled once the jobs service responds that it does not know the batch endpoint
+    private volatile boolean batchSupported = true;
+
     private Instance<WebClient> providedWebClient;
 
     private WebClient client;
@@ -54,13 +69,24 @@ public class VertxJobsService extends RestJobsService {
     @Inject
     public VertxJobsService(@ConfigProperty(name = "kogito.jobs-service.url") String jobServiceUrl,
                             @ConfigProperty(name = "kogito.service.url") String callbackEndpoint,
+                            @ConfigProperty(name = "kogito.jobs-service.max-pool-size") Optional<Integer> maxPoolSize,
+                            @ConfigProperty(name = "kogito.jobs-service.pipelining") Optional<Boolean> pipelining,
                             Vertx vertx,
                             Instance<WebClient> providedWebClient) {
         super(jobServiceUrl, callbackEndpoint);
+        this.maxPoolSize = maxPoolSize.orElse(DEFAULT_MAX_POOL_SIZE);
+        this.pipelining = pipelining.orElse(true);
         this.vertx = vertx;
         this.providedWebClient = providedWebClient;
     }
 
+    public VertxJobsService(String jobServiceUrl,
+                            String callbackEndpoint,
+                            Vertx vertx,
+                            Instance<WebClient> providedWebClient) {
+        this(jobServiceUrl, callbackEndpoint, Optional.empty(), Optional.empty(), vertx, providedWebClient);
+    }
+
     VertxJobsService() {
         this(null, null, null, null);
     }
@@ -85,8 +111,11 @@ public class VertxJobsService extends RestJobsService {
             this.client = WebClient.create(vertx,
                                            new WebClientOptions()
                                                    .setDefaultHost(jobServiceURL.getHost())
-                                                   .setDefaultPort(jobServiceURL.getPort()));
-            LOGGER.debug("Creating new instance of web client for host {} and port {}", jobServiceURL.getHost(), jobServiceURL.getPort());
+                                                   .setDefaultPort(jobServiceURL.getPort())
+                                                   .setKeepAlive(true)
+                                                   .setMaxPoolSize(maxPoolSize)
+                                                   .setPipelining(pipelining));
+            LOGGER.debug("Creating new instance of web client for host {} and port {} with pool size {}", jobServiceURL.getHost(), jobServiceURL.getPort(), maxPoolSize);
         }
     }
 
@@ -124,6 +153,42 @@ public class VertxJobsService extends RestJobsService {
         return true;
     }
 
+    @Override
+    public List<String> scheduleProcessInstanceJobs(Collection<ProcessInstanceJobDescription> descriptions) {
+        JobBatch batch = buildJobBatch(descriptions, Collections.emptyList());
+        sendBatch(batch, () -> descriptions.forEach(this::scheduleProcessInstanceJob));
+        List<String> ids = new ArrayList<>(descriptions.size());
+        batch.getSchedule().forEach(job -> ids.add(job.getId()));
+        return ids;
+    }
+
+    @Override
+    public void cancelJobs(Collection<String> ids) {
+        sendBatch(buildJobBatch(Collections.emptyList(), ids), () -> ids.forEach(this::cancelJob));
+    }
+
+    protected void sendBatch(JobBatch batch, Runnable fallback) {
+        if (batch.size() == 0) {
+            return;
+        }
+        if (!batchSupported) {
+            fallback.run();
+            return;
+        }
+        LOGGER.debug("Job batch to be sent {}", batch);
+        client.post(JOBS_BATCH_PATH).sendJson(batch, res -> {
+            if (res.succeeded() && res.result().statusCode() == 200) {
+                LOGGER.debug("Job batch {} done with status code {} ", batch, res.result().statusCode());
+            } else if (res.succeeded() && (res.result().statusCode() == 404 || res.result().statusCode() == 405)) {
+                LOGGER.info("Jobs service does not support batch requests, sending jobs individually");
+                batchSupported = false;
+                fallback.run();
+            } else {
+                LOGGER.error("Job batch {} failed with response code {}", batch, res.succeeded() ? res.result().statusCode() : null, res.cause());
+            }
+        });
+    }
+
     @Override
     public ZonedDateTime getScheduledTime(String id) {
         CompletableFuture<Job> future = new CompletableFuture<Job>();
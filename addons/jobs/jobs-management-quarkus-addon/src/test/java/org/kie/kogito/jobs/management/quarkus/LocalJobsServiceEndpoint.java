@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.jobs.management.quarkus;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static org.kie.kogito.jobs.management.RestJobsService.JOBS_BATCH_PATH;
+import static org.kie.kogito.jobs.management.RestJobsService.JOBS_PATH;
+
+/**
+ * Minimal stand-in for the jobs service used by tests, it keeps scheduled job ids in memory
+ * and counts the requests it received.
+ */
+public class LocalJobsServiceEndpoint implements AutoCloseable {
+
+    private final HttpServer server;
+    private final boolean batchSupported;
+    private final Map<String, Boolean> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger canceled = new AtomicInteger();
+
+    public LocalJobsServiceEndpoint(Vertx vertx, boolean batchSupported) throws Exception {
+        this.batchSupported = batchSupported;
+        this.server = vertx.createHttpServer().requestHandler(this::handle);
+        CompletableFuture<HttpServer> started = new CompletableFuture<>();
+        server.listen(0, res -> {
+            if (res.succeeded()) {
+                started.complete(res.result());
+            } else {
+                started.completeExceptionally(res.cause());
+            }
+        });
+        started.get(10, TimeUnit.SECONDS);
+    }
+
+    public String url() {
+        return "http://localhost:" + server.actualPort();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int jobs() {
+        return jobs.size();
+    }
+
+    public int canceled() {
+        return canceled.get();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+
+    private void handle(HttpServerRequest request) {
+        requests.incrementAndGet();
+        String path = request.path();
+        if (request.method() == HttpMethod.POST && path.equals(JOBS_BATCH_PATH)) {
+            if (!batchSupported) {
+                request.response().setStatusCode(404).end();
+                return;
+            }
+            request.bodyHandler(body -> {
+                JsonObject batch = body.toJsonObject();
+                JsonArray schedule = batch.getJsonArray("schedule", new JsonArray());
+                for (int i = 0; i < schedule.size(); i++) {
+                    jobs.put(schedule.getJsonObject(i).getString("id"), Boolean.TRUE);
+                }
+                JsonArray cancel = batch.getJsonArray("cancel", new JsonArray());
+                for (int i = 0; i < cancel.size(); i++) {
+                    cancel(cancel.getString(i));
+                }
+                request.response().setStatusCode(200).end();
+            });
+        } else if (request.method() == HttpMethod.POST && path.equals(JOBS_PATH)) {
+            request.bodyHandler(body -> {
+                jobs.put(body.toJsonObject().getString("id"), Boolean.TRUE);
+                request.response().setStatusCode(200).end();
+            });
+        } else if (request.method() == HttpMethod.DELETE && path.startsWith(JOBS_PATH + "/")) {
+            cancel(path.substring(JOBS_PATH.length() + 1));
+            request.response().setStatusCode(200).end();
+        } else {
+            request.response().setStatusCode(404).end();
+        }
+    }
+
+    private void cancel(String id) {
+        if (jobs.remove(id) != null) {
+            canceled.incrementAndGet();
+        }
+    }
+}
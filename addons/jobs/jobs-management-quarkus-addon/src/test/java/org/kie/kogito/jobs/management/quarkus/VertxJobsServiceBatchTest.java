@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.jobs.management.quarkus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import javax.enterprise.inject.Instance;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@TestInstance(Lifecycle.PER_CLASS)
+public class VertxJobsServiceBatchTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VertxJobsServiceBatchTest.class);
+
+    private static final String CALLBACK_URL = "http://localhost";
+
+    private Vertx vertx;
+
+    @BeforeAll
+    public void startVertx() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterAll
+    public void stopVertx() {
+        vertx.close();
+    }
+
+    @Test
+    void testScheduleAndCancelAsSingleRequest() throws Exception {
+        try (LocalJobsServiceEndpoint endpoint = new LocalJobsServiceEndpoint(vertx, true)) {
+            VertxJobsService tested = jobsService(endpoint);
+
+            List<String> ids = tested.scheduleProcessInstanceJobs(jobs(100));
+            assertThat(ids).hasSize(100);
+            await(endpoint::jobs, 100);
+            assertThat(endpoint.requests()).isEqualTo(1);
+
+            tested.cancelJobs(ids.subList(0, 10));
+            await(endpoint::canceled, 10);
+            assertThat(endpoint.jobs()).isEqualTo(90);
+            assertThat(endpoint.requests()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testFallbackWhenBatchNotSupported() throws Exception {
+        try (LocalJobsServiceEndpoint endpoint = new LocalJobsServiceEndpoint(vertx, false)) {
+            VertxJobsService tested = jobsService(endpoint);
+
+            tested.scheduleProcessInstanceJobs(jobs(3));
+            await(endpoint::jobs, 3);
+            // rejected batch followed by individual requests
+            assertThat(endpoint.requests()).isEqualTo(4);
+
+            tested.scheduleProcessInstanceJobs(jobs(2));
+            await(endpoint::jobs, 5);
+            assertThat(endpoint.requests()).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void testThroughputPerBatchSize() throws Exception {
+        int total = 1000;
+        for (int batchSize : new int[]{1, 10, 100}) {
+            try (LocalJobsServiceEndpoint endpoint = new LocalJobsServiceEndpoint(vertx, true)) {
+                VertxJobsService tested = jobsService(endpoint);
+                long start = System.nanoTime();
+                for (int i = 0; i < total; i += batchSize) {
+                    tested.scheduleProcessInstanceJobs(jobs(batchSize));
+                }
+                await(endpoint::jobs, total);
+                long elapsed = System.nanoTime() - start;
+                LOGGER.info("Batch size {}: {} jobs in {} requests, {} jobs/s",
+                            batchSize, total, endpoint.requests(), total * TimeUnit.SECONDS.toNanos(1) / elapsed);
+                assertThat(endpoint.requests()).isEqualTo(total / batchSize);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private VertxJobsService jobsService(LocalJobsServiceEndpoint endpoint) {
+        Instance<WebClient> instance = mock(Instance.class);
+        when(instance.isResolvable()).thenReturn(false);
+        VertxJobsService jobsService = new VertxJobsService(endpoint.url(), CALLBACK_URL, vertx, instance);
+        jobsService.initialize();
+        return jobsService;
+    }
+
+    private List<ProcessInstanceJobDescription> jobs(int count) {
+        List<ProcessInstanceJobDescription> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            jobs.add(ProcessInstanceJobDescription.of(i, ExactExpirationTime.now(), "processInstanceId", "processId"));
+        }
+        return jobs;
+    }
+
+    private void await(IntSupplier actual, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (actual.getAsInt() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(actual.getAsInt()).isEqualTo(expected);
+    }
+}
@@ -17,12 +17,17 @@
 package org.kie.kogito.jobs.management.springboot;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
 import org.kie.kogito.jobs.ProcessJobDescription;
 import org.kie.kogito.jobs.api.Job;
+import org.kie.kogito.jobs.api.JobBatch;
 import org.kie.kogito.jobs.api.JobNotFoundException;
 import org.kie.kogito.jobs.management.RestJobsService;
 import org.slf4j.Logger;
@@ -31,6 +36,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException.MethodNotAllowed;
 import org.springframework.web.client.HttpClientErrorException.NotFound;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
@@ -42,6 +48,9 @@ public class SpringRestJobsService extends RestJobsService {
 
     private RestTemplate restTemplate;
 
+    // disabled once the jobs service responds that it does not know the batch endpoint
+    private volatile boolean batchSupported = true;
+
     @Autowired
     public SpringRestJobsService(
             @Value("${kogito.jobs-service.url}") String jobServiceUrl,
@@ -96,6 +105,38 @@ public class SpringRestJobsService extends RestJobsService {
         }
     }
 
+    @Override
+    public List<String> scheduleProcessInstanceJobs(Collection<ProcessInstanceJobDescription> descriptions) {
+        JobBatch batch = buildJobBatch(descriptions, Collections.emptyList());
+        sendBatch(batch, () -> descriptions.forEach(this::scheduleProcessInstanceJob));
+        List<String> ids = new ArrayList<>(descriptions.size());
+        batch.getSchedule().forEach(job -> ids.add(job.getId()));
+        return ids;
+    }
+
+    @Override
+    public void cancelJobs(Collection<String> ids) {
+        sendBatch(buildJobBatch(Collections.emptyList(), ids), () -> ids.forEach(this::cancelJob));
+    }
+
+    protected void sendBatch(JobBatch batch, Runnable fallback) {
+        if (batch.size() == 0) {
+            return;
+        }
+        if (!batchSupported) {
+            fallback.run();
+            return;
+        }
+        LOGGER.debug("Job batch to be sent {}", batch);
+        try {
+            restTemplate.postForEntity(getJobsServiceUri() + "/batch", batch, String.class);
+        } catch (NotFound | MethodNotAllowed e) {
+            LOGGER.info("Jobs service does not support batch requests, sending jobs individually");
+            batchSupported = false;
+            fallback.run();
+        }
+    }
+
     @Override
     public ZonedDateTime getScheduledTime(String id) {
         try {
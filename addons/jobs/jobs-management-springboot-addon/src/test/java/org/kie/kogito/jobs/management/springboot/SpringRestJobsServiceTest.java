@@ -22,11 +22,14 @@ import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +38,7 @@ import org.kie.kogito.jobs.ExactExpirationTime;
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
 import org.kie.kogito.jobs.ProcessJobDescription;
 import org.kie.kogito.jobs.api.Job;
+import org.kie.kogito.jobs.api.JobBatch;
 import org.kie.kogito.jobs.api.JobNotFoundException;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -85,6 +89,31 @@ public class SpringRestJobsServiceTest {
         assertThat(job.getId()).isEqualTo(processInstanceJobDescription.id());
     }
 
+    @Test
+    void testScheduleProcessInstanceJobs() {
+        ProcessInstanceJobDescription first = ProcessInstanceJobDescription.of(1, ExactExpirationTime.now(), "processInstanceId", "processId");
+        ProcessInstanceJobDescription second = ProcessInstanceJobDescription.of(2, ExactExpirationTime.now(), "processInstanceId", "processId");
+        List<String> ids = tested.scheduleProcessInstanceJobs(Arrays.asList(first, second));
+        assertThat(ids).containsExactly(first.id(), second.id());
+        ArgumentCaptor<JobBatch> batchArgumentCaptor = forClass(JobBatch.class);
+        verify(restTemplate).postForEntity(eq(tested.getJobsServiceUri() + "/batch"),
+                                           batchArgumentCaptor.capture(),
+                                           eq(String.class));
+        assertThat(batchArgumentCaptor.getValue().getSchedule()).extracting(Job::getId).containsExactly(first.id(), second.id());
+        assertThat(batchArgumentCaptor.getValue().getCancel()).isEmpty();
+    }
+
+    @Test
+    void testCancelJobsFallbackWhenBatchNotSupported() {
+        when(restTemplate.postForEntity(anyString(), any(JobBatch.class), eq(String.class))).thenThrow(NotFound.class);
+        tested.cancelJobs(Arrays.asList("1", "2"));
+        tested.cancelJobs(Arrays.asList("3"));
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(JobBatch.class), eq(String.class));
+        verify(restTemplate).delete(tested.getJobsServiceUri() + "/{id}", "1");
+        verify(restTemplate).delete(tested.getJobsServiceUri() + "/{id}", "2");
+        verify(restTemplate).delete(tested.getJobsServiceUri() + "/{id}", "3");
+    }
+
     @Test
     void testCancelJob() {
         tested.cancelJob("123");
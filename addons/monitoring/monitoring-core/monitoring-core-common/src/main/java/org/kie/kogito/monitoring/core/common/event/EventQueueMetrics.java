@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.monitoring.core.common.event;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.kie.kogito.event.BatchingEventQueue;
+import org.kie.kogito.monitoring.core.common.MonitoringRegistry;
+
+/**
+ * Exports the state of the buffers used by the event publishers. Meters only keep a weak reference
+ * to their queue, so closed queues do not leak through the registry.
+ */
+public class EventQueueMetrics {
+
+    private static final String QUEUE_TAG = "queue";
+
+    private static final String DEPTH_NAME = "kogito_event_queue_depth";
+
+    private static final String DEPTH_HELP = "Events waiting in the publisher buffer.";
+
+    private static final String LAG_NAME = "kogito_event_queue_publish_lag_ms";
+
+    private static final String LAG_HELP = "Milliseconds the oldest event of the last sent batch waited in the buffer.";
+
+    private static final String PUBLISHED_NAME = "kogito_event_queue_published";
+
+    private static final String PUBLISHED_HELP = "Events sent by the publisher.";
+
+    private static final String DROPPED_NAME = "kogito_event_queue_dropped";
+
+    private static final String DROPPED_HELP = "Events dropped because the buffer was full.";
+
+    private static final String FAILED_NAME = "kogito_event_queue_failed";
+
+    private static final String FAILED_HELP = "Events discarded after the publisher failed to send them.";
+
+    private static final AtomicBoolean BOUND = new AtomicBoolean();
+
+    private EventQueueMetrics() {
+    }
+
+    /**
+     * Registers the meters of every event queue, open or created later, on the default registry.
+     */
+    public static void bind() {
+        if (BOUND.compareAndSet(false, true)) {
+            BatchingEventQueue.addCreationListener(queue -> register(MonitoringRegistry.getDefaultMeterRegistry(), queue));
+        }
+    }
+
+    public static void register(MeterRegistry registry, BatchingEventQueue queue) {
+        Gauge.builder(DEPTH_NAME, queue, BatchingEventQueue::queueDepth)
+                .description(DEPTH_HELP)
+                .tag(QUEUE_TAG, queue.name())
+                .register(registry);
+        Gauge.builder(LAG_NAME, queue, BatchingEventQueue::publishLag)
+                .description(LAG_HELP)
+                .tag(QUEUE_TAG, queue.name())
+                .register(registry);
+        FunctionCounter.builder(PUBLISHED_NAME, queue, BatchingEventQueue::publishedEvents)
+                .description(PUBLISHED_HELP)
+                .tag(QUEUE_TAG, queue.name())
+                .register(registry);
+        FunctionCounter.builder(DROPPED_NAME, queue, BatchingEventQueue::droppedEvents)
+                .description(DROPPED_HELP)
+                .tag(QUEUE_TAG, queue.name())
+                .register(registry);
+        FunctionCounter.builder(FAILED_NAME, queue, BatchingEventQueue::failedEvents)
+                .description(FAILED_HELP)
+                .tag(QUEUE_TAG, queue.name())
+                .register(registry);
+    }
+}
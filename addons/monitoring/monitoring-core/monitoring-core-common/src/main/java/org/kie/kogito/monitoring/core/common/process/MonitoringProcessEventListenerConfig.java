@@ -21,6 +21,7 @@ public class MonitoringProcessEventListenerConfig extends DefaultProcessEventLis
 
     public MonitoringProcessEventListenerConfig() {
         super(new MetricsProcessEventListener("default-process-monitoring-listener"));
+        ProcessInstanceWriteMetrics.bind();
     }
 }
 
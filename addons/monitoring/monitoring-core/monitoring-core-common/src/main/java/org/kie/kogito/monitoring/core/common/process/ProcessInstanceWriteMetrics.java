@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.monitoring.core.common.process;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.kie.kogito.monitoring.core.common.MonitoringRegistry;
+import org.kie.kogito.process.ProcessInstanceWrite;
+
+/**
+ * Exports how many process instance writes were performed and how many of them lost against a
+ * concurrent write of the same instance, the ratio of both being the conflict rate.
+ */
+public class ProcessInstanceWriteMetrics {
+
+    private static final String WRITES_NAME = "kogito_process_instance_writes_total";
+
+    private static final String WRITES_HELP = "Process instance creations, updates and removals performed.";
+
+    private static final String CONFLICTS_NAME = "kogito_process_instance_write_conflicts_total";
+
+    private static final String CONFLICTS_HELP = "Process instance writes rejected because the instance was written concurrently.";
+
+    private static final AtomicBoolean BOUND = new AtomicBoolean();
+
+    private ProcessInstanceWriteMetrics() {
+    }
+
+    /**
+     * Registers the meters on the default registry, once.
+     */
+    public static void bind() {
+        if (BOUND.compareAndSet(false, true)) {
+            register(MonitoringRegistry.getDefaultMeterRegistry());
+        }
+    }
+
+    public static void register(MeterRegistry registry) {
+        FunctionCounter.builder(WRITES_NAME, ProcessInstanceWrite.class, type -> ProcessInstanceWrite.performedWrites())
+                .description(WRITES_HELP)
+                .register(registry);
+        FunctionCounter.builder(CONFLICTS_NAME, ProcessInstanceWrite.class, type -> ProcessInstanceWrite.conflictingWrites())
+                .description(CONFLICTS_HELP)
+                .register(registry);
+    }
+}
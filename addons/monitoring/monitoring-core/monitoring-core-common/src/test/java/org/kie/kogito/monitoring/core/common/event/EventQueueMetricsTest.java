@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.monitoring.core.common.event;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.BatchingEventQueue;
+import org.kie.kogito.event.BatchingEventQueue.OverflowPolicy;
+import org.kie.kogito.event.DataEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class EventQueueMetricsTest {
+
+    @Test
+    public void testQueueMetricsAreExported() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CountDownLatch sent = new CountDownLatch(1);
+        try (BatchingEventQueue queue = new BatchingEventQueue("test", 10, 10, OverflowPolicy.FAIL, topic -> true, (topic, events) -> sent.countDown())) {
+            EventQueueMetrics.register(registry, queue);
+
+            queue.offer("topic", mock(DataEvent.class));
+            assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(registry.get("kogito_event_queue_depth").tag("queue", "test").gauge().value()).isEqualTo(0);
+            assertThat(registry.get("kogito_event_queue_publish_lag_ms").tag("queue", "test").gauge()).isNotNull();
+            assertThat(registry.get("kogito_event_queue_dropped").tag("queue", "test").functionCounter().count()).isEqualTo(0);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.monitoring.core.common.process;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceWrite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessInstanceWriteMetricsTest {
+
+    @Test
+    public void testConflictsAreCounted() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ProcessInstanceWriteMetrics.register(registry);
+        double writes = registry.get("kogito_process_instance_writes_total").functionCounter().count();
+        double conflicts = registry.get("kogito_process_instance_write_conflicts_total").functionCounter().count();
+
+        ProcessInstanceWrite.recordOutcome(null);
+        ProcessInstanceWrite.recordOutcome(new ProcessInstanceOptimisticLockingException("1"));
+        ProcessInstanceWrite.recordOutcome(new IllegalStateException());
+
+        assertThat(registry.get("kogito_process_instance_writes_total").functionCounter().count()).isEqualTo(writes + 3);
+        assertThat(registry.get("kogito_process_instance_write_conflicts_total").functionCounter().count()).isEqualTo(conflicts + 1);
+    }
+}
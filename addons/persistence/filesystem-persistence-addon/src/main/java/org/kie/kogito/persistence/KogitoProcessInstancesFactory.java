@@ -17,9 +17,15 @@ package org.kie.kogito.persistence;
 
 import java.nio.file.Paths;
 
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.persistence.filesystem.FileSystemOutbox;
 import org.kie.kogito.persistence.filesystem.FileSystemProcessInstances;
+import org.kie.kogito.persistence.filesystem.LogStructuredProcessInstances;
+import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstancesFactory;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceCodecs;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
 
 /**
  * This class must always have exact FQCN as <code>org.kie.kogito.persistence.KogitoProcessInstancesFactory</code>
@@ -28,10 +34,49 @@ import org.kie.kogito.process.ProcessInstancesFactory;
 public abstract class KogitoProcessInstancesFactory implements ProcessInstancesFactory {
    
 	
-    public FileSystemProcessInstances createProcessInstances(Process<?> process) {
-        return new FileSystemProcessInstances(process, Paths.get(path()));
+    public MutableProcessInstances<?> createProcessInstances(Process<?> process) {
+        ProcessInstanceMarshaller marshaller = new ProcessInstanceMarshaller().withCodecs(ProcessInstanceCodecs.of(compressionThreshold(), checksum()));
+        if (logStructured()) {
+            return new LogStructuredProcessInstances(process, Paths.get(path()), marshaller, sync());
+        }
+        return new FileSystemProcessInstances(process, Paths.get(path()), marshaller);
     }
     
     public abstract String path();
+
+    /**
+     * @return outbox kept in the storage directory of process instances
+     */
+    public Outbox createOutbox() {
+        return new FileSystemOutbox(Paths.get(path()));
+    }
+
+    /**
+     * @return true to store process instances in segment files of an append only log instead of a file per instance
+     */
+    public boolean logStructured() {
+        return false;
+    }
+
+    /**
+     * @return true if writes of the log structured storage return only once forced to the storage device
+     */
+    public boolean sync() {
+        return true;
+    }
+
+    /**
+     * @return minimum size in bytes of process instances stored compressed, zero disables compression
+     */
+    public int compressionThreshold() {
+        return 0;
+    }
+
+    /**
+     * @return true to store process instances with a checksum verified when they are read
+     */
+    public boolean checksum() {
+        return false;
+    }
     
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.kie.kogito.jobs.DurationExpirationTime;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.ExpirationTime;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only log of pending process instance jobs kept in a memory mapped file.
+ * <p>
+ * Every scheduled and removed job is appended as a record prefixed by its length and checksum,
+ * a torn record at the end of the log left by a crash during append is ignored on load. Jobs are
+ * written field by field, records that cannot be read (e.g. of an unknown type) are skipped with
+ * a warning. Pending jobs are also kept in memory and the log is rewritten with just those once
+ * removed records outnumber them.
+ */
+public class FileSystemJobLog implements AutoCloseable {
+
+    public static final String JOBS_DIRECTORY = "_jobs";
+    public static final String LOG_FILE = "jobs.log";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemJobLog.class);
+
+    private static final String COMPACT_FILE = LOG_FILE + ".compact";
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    private static final int HEADER_SIZE = 8;
+    private static final byte REMOVE = 2;
+    private static final byte SCHEDULE = 3;
+
+    private final Path storage;
+    private final boolean sync;
+    private final Map<String, ProcessInstanceJobDescription> pending = new LinkedHashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int obsoleteRecords;
+
+    /**
+     * @param storage base directory of the file system persistence
+     * @param sync if true every append is forced to the storage device before it returns
+     */
+    public FileSystemJobLog(Path storage, boolean sync) {
+        this.storage = Paths.get(storage.toString(), JOBS_DIRECTORY);
+        this.sync = sync;
+        try {
+            Files.createDirectories(this.storage);
+            open(INITIAL_CAPACITY);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open jobs log in " + this.storage, e);
+        }
+        load();
+    }
+
+    public synchronized List<ProcessInstanceJobDescription> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of bytes of records written to the log, including records of removed jobs not compacted yet
+     */
+    public synchronized int written() {
+        return buffer.position();
+    }
+
+    public synchronized void append(Collection<ProcessInstanceJobDescription> descriptions) {
+        for (ProcessInstanceJobDescription description : descriptions) {
+            write(SCHEDULE, serialize(description));
+            if (pending.put(description.id(), description) != null) {
+                obsoleteRecords++;
+            }
+        }
+        flush();
+    }
+
+    public synchronized void remove(Collection<String> ids) {
+        boolean modified = false;
+        for (String id : ids) {
+            if (pending.remove(id) != null) {
+                write(REMOVE, id.getBytes(StandardCharsets.UTF_8));
+                obsoleteRecords += 2;
+                modified = true;
+            }
+        }
+        if (modified) {
+            flush();
+            if (obsoleteRecords >= MIN_COMPACTION_RECORDS && obsoleteRecords > pending.size()) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log so it contains only records of pending jobs.
+     */
+    public synchronized void compact() {
+        Path compacted = storage.resolve(COMPACT_FILE);
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ProcessInstanceJobDescription description : pending.values()) {
+                ByteBuffer record = record(SCHEDULE, serialize(description));
+                while (record.hasRemaining()) {
+                    target.write(record);
+                }
+            }
+            target.force(true);
+            long size = target.size();
+            channel.close();
+            Files.move(compacted, storage.resolve(LOG_FILE), StandardCopyOption.ATOMIC_MOVE);
+            open(Math.max(INITIAL_CAPACITY, size * 2));
+            buffer.position((int) size);
+            obsoleteRecords = 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compact jobs log in " + storage, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to close jobs log in " + storage, e);
+        }
+    }
+
+    private void open(long capacity) throws IOException {
+        channel = FileChannel.open(storage.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(capacity, channel.size()));
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Jobs log in " + storage + " exceeds maximum size");
+        }
+        int position = buffer == null ? 0 : buffer.position();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.position(Math.min(position, (int) capacity));
+    }
+
+    private void load() {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(body);
+            if (buffer.getInt(position + 4) != checksum(body)) {
+                break;
+            }
+            apply(body, position);
+            position += HEADER_SIZE + length;
+        }
+        buffer.position(position);
+        // clear a torn record so that it cannot be mixed up with records appended after it
+        for (int i = position; i < buffer.capacity() && i < position + HEADER_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private void apply(byte[] body, int position) {
+        if (body[0] == SCHEDULE) {
+            ProcessInstanceJobDescription description;
+            try {
+                description = deserialize(body);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Skipping unreadable job record at position {} of jobs log in {}", position, storage, e);
+                obsoleteRecords++;
+                return;
+            }
+            if (pending.put(description.id(), description) != null) {
+                obsoleteRecords++;
+            }
+        } else if (body[0] == REMOVE) {
+            String id = new String(body, 1, body.length - 1, StandardCharsets.UTF_8);
+            obsoleteRecords += pending.remove(id) != null ? 2 : 1;
+        } else {
+            LOGGER.warn("Skipping record of unknown type {} at position {} of jobs log in {}", body[0], position, storage);
+            obsoleteRecords++;
+        }
+    }
+
+    private void write(byte type, byte[] payload) {
+        ByteBuffer record = record(type, payload);
+        if (buffer.remaining() < record.remaining() + HEADER_SIZE) {
+            try {
+                map(Math.max((long) buffer.capacity() * 2, (long) buffer.position() + record.remaining() + HEADER_SIZE));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to extend jobs log in " + storage, e);
+            }
+        }
+        buffer.put(record);
+    }
+
+    private void flush() {
+        if (sync) {
+            buffer.force();
+        }
+    }
+
+    private static ByteBuffer record(byte type, byte[] payload) {
+        byte[] body = new byte[payload.length + 1];
+        body[0] = type;
+        System.arraycopy(payload, 0, body, 1, payload.length);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        record.putInt(body.length);
+        record.putInt(checksum(body));
+        record.put(body);
+        record.flip();
+        return record;
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] serialize(ProcessInstanceJobDescription description) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ExpirationTime expirationTime = description.expirationTime();
+            out.writeUTF(description.id());
+            out.writeLong(expirationTime.get().toInstant().toEpochMilli());
+            out.writeUTF(expirationTime.get().getZone().getId());
+            writeNullable(out, expirationTime.repeatInterval() == null ? null : expirationTime.repeatInterval().toString());
+            writeNullable(out, expirationTime.repeatLimit() == null ? null : expirationTime.repeatLimit().toString());
+            out.writeInt(description.priority());
+            out.writeUTF(description.processInstanceId());
+            writeNullable(out, description.rootProcessInstanceId());
+            writeNullable(out, description.processId());
+            writeNullable(out, description.rootProcessId());
+            writeNullable(out, description.nodeInstanceId());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to serialize job " + description.id(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ProcessInstanceJobDescription deserialize(byte[] body) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1))) {
+            String id = in.readUTF();
+            ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneId.of(in.readUTF()));
+            String repeatInterval = readNullable(in);
+            String repeatLimit = readNullable(in);
+            ExpirationTime expirationTime;
+            if (repeatInterval == null) {
+                expirationTime = ExactExpirationTime.of(time);
+            } else {
+                expirationTime = DurationExpirationTime.repeat(Duration.between(ZonedDateTime.now(), time).toMillis(),
+                                                               Long.valueOf(repeatInterval),
+                                                               repeatLimit == null ? null : Integer.valueOf(repeatLimit));
+            }
+            return ProcessInstanceJobDescription.of(id,
+                                                    expirationTime,
+                                                    in.readInt(),
+                                                    in.readUTF(),
+                                                    readNullable(in),
+                                                    readNullable(in),
+                                                    readNullable(in),
+                                                    readNullable(in));
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.kie.kogito.Application;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.Processes;
+import org.kie.kogito.process.impl.Sig;
+import org.kie.kogito.services.uow.UnitOfWorkExecutor;
+import org.kie.kogito.timer.TimerInstance;
+import org.kie.kogito.timer.impl.HashedTimingWheel;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Jobs service for single node deployments that keeps process instance timers in a
+ * {@link FileSystemJobLog} so they survive restarts without an external jobs service.
+ * <p>
+ * Pending jobs are reloaded when the service is created, jobs that expired while the
+ * service was down are fired in batches of configurable size released one after another.
+ * Repeatable jobs restart their repeat limit after reload. A job that fails is retried with
+ * a growing delay, repeatable jobs are retried by their next repetition instead. Process (start)
+ * timers are registered again on every start of the application so they are kept in memory only.
+ */
+public class FileSystemJobsService implements JobsService, AutoCloseable {
+
+    public static final int DEFAULT_OVERDUE_BATCH_SIZE = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemJobsService.class);
+    private static final String TRIGGER = "timer";
+    private static final long OVERDUE_BATCH_INTERVAL_MS = 100;
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    private final FileSystemJobLog log;
+    private final HashedTimingWheel wheel;
+    private final Supplier<UnitOfWorkManager> unitOfWorkManager;
+    private final Supplier<Processes> processes;
+
+    private final Map<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
+
+    public FileSystemJobsService(Path storage, UnitOfWorkManager unitOfWorkManager, Supplier<Processes> processes) {
+        this(new FileSystemJobLog(storage, true), newWheel(), () -> unitOfWorkManager, processes, DEFAULT_OVERDUE_BATCH_SIZE);
+    }
+
+    /**
+     * @param application supplier of the application, resolved only when a job fires so the service can be created
+     *        while the application is being created (e.g. injected into its process config)
+     */
+    public FileSystemJobsService(Path storage, Supplier<Application> application) {
+        this(new FileSystemJobLog(storage, true),
+             newWheel(),
+             () -> application.get().unitOfWorkManager(),
+             () -> application.get().get(Processes.class),
+             DEFAULT_OVERDUE_BATCH_SIZE);
+    }
+
+    /**
+     * @param processes supplier of the processes, resolved only when a job fires so it can be given before processes are created
+     */
+    public FileSystemJobsService(FileSystemJobLog log, HashedTimingWheel wheel, UnitOfWorkManager unitOfWorkManager, Supplier<Processes> processes, int overdueBatchSize) {
+        this(log, wheel, () -> unitOfWorkManager, processes, overdueBatchSize);
+    }
+
+    private FileSystemJobsService(FileSystemJobLog log, HashedTimingWheel wheel, Supplier<UnitOfWorkManager> unitOfWorkManager, Supplier<Processes> processes, int overdueBatchSize) {
+        this.log = log;
+        this.wheel = wheel;
+        this.unitOfWorkManager = unitOfWorkManager;
+        this.processes = processes;
+        reload(overdueBatchSize);
+    }
+
+    @Override
+    public String scheduleProcessJob(ProcessJobDescription description) {
+        Runnable job = new StartProcessJob(description);
+        Long repeatInterval = description.expirationTime().repeatInterval();
+        ScheduledFuture<?> future;
+        if (repeatInterval != null) {
+            future = wheel.scheduleAtFixedRate(description.id(), job, delay(description.expirationTime().get()), repeatInterval, TimeUnit.MILLISECONDS);
+        } else {
+            future = wheel.schedule(description.id(), job, delay(description.expirationTime().get()), TimeUnit.MILLISECONDS);
+        }
+        scheduledJobs.put(description.id(), future);
+        return description.id();
+    }
+
+    @Override
+    public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
+        return scheduleProcessInstanceJobs(Collections.singletonList(description)).get(0);
+    }
+
+    @Override
+    public List<String> scheduleProcessInstanceJobs(Collection<ProcessInstanceJobDescription> descriptions) {
+        log.append(descriptions);
+        List<String> ids = new ArrayList<>(descriptions.size());
+        for (ProcessInstanceJobDescription description : descriptions) {
+            schedule(description, delay(description.expirationTime().get()));
+            ids.add(description.id());
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean cancelJob(String id) {
+        ScheduledFuture<?> future = scheduledJobs.remove(id);
+        log.remove(Collections.singletonList(id));
+        return future != null && future.cancel(false);
+    }
+
+    @Override
+    public void cancelJobs(Collection<String> ids) {
+        for (String id : ids) {
+            ScheduledFuture<?> future = scheduledJobs.remove(id);
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+        log.remove(ids);
+    }
+
+    @Override
+    public ZonedDateTime getScheduledTime(String id) {
+        ScheduledFuture<?> scheduled = scheduledJobs.get(id);
+        if (scheduled != null) {
+            long remainingTime = scheduled.getDelay(TimeUnit.MILLISECONDS);
+            if (remainingTime > 0) {
+                return ZonedDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis() + remainingTime), ZoneId.systemDefault());
+            }
+        }
+        return null;
+    }
+
+    public int pendingJobs() {
+        return log.size();
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+        log.close();
+    }
+
+    private void reload(int overdueBatchSize) {
+        List<ProcessInstanceJobDescription> overdue = new ArrayList<>();
+        List<ProcessInstanceJobDescription> pending = log.pending();
+        for (ProcessInstanceJobDescription description : pending) {
+            long delay = delay(description.expirationTime().get());
+            if (delay > 0) {
+                schedule(description, delay);
+            } else {
+                overdue.add(description);
+            }
+        }
+        overdue.sort(Comparator.comparing(description -> description.expirationTime().get()));
+        for (int i = 0; i < overdue.size(); i++) {
+            schedule(overdue.get(i), (i / overdueBatchSize) * OVERDUE_BATCH_INTERVAL_MS);
+        }
+        LOGGER.info("Reloaded {} pending jobs, {} of them overdue", pending.size(), overdue.size());
+    }
+
+    private void schedule(ProcessInstanceJobDescription description, long delay) {
+        Long repeatInterval = description.expirationTime().repeatInterval();
+        ScheduledFuture<?> future;
+        if (repeatInterval != null) {
+            future = wheel.scheduleAtFixedRate(description.processInstanceId(),
+                                               new ProcessInstanceJob(description, true, description.expirationTime().repeatLimit(), 0),
+                                               delay,
+                                               repeatInterval,
+                                               TimeUnit.MILLISECONDS);
+        } else {
+            future = wheel.schedule(description.processInstanceId(), new ProcessInstanceJob(description, false, -1, 0), delay, TimeUnit.MILLISECONDS);
+        }
+        scheduledJobs.put(description.id(), future);
+    }
+
+    /**
+     * Schedules a failed job again unless it was canceled in the meantime, the delay doubles with every attempt.
+     */
+    private void retry(ProcessInstanceJobDescription description, int attempt) {
+        long delay = Math.min(RETRY_DELAY_MS << Math.min(attempt, 16), MAX_RETRY_DELAY_MS);
+        scheduledJobs.computeIfPresent(description.id(),
+                                       (id, failed) -> wheel.schedule(description.processInstanceId(),
+                                                                      new ProcessInstanceJob(description, false, -1, attempt + 1),
+                                                                      delay,
+                                                                      TimeUnit.MILLISECONDS));
+    }
+
+    private void complete(String id) {
+        ScheduledFuture<?> future = scheduledJobs.remove(id);
+        if (future != null) {
+            future.cancel(false);
+        }
+        log.remove(Collections.singletonList(id));
+    }
+
+    private static HashedTimingWheel newWheel() {
+        return new HashedTimingWheel("jobs", HashedTimingWheel.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static long delay(ZonedDateTime expirationTime) {
+        return Duration.between(ZonedDateTime.now(), expirationTime).toMillis();
+    }
+
+    private class ProcessInstanceJob implements Runnable {
+
+        private final ProcessInstanceJobDescription description;
+        private final boolean repeatable;
+        private final int attempt;
+        private int limit;
+
+        private ProcessInstanceJob(ProcessInstanceJobDescription description, boolean repeatable, Integer limit, int attempt) {
+            this.description = description;
+            this.repeatable = repeatable;
+            this.limit = limit == null ? -1 : limit;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void run() {
+            String id = description.id();
+            try {
+                LOGGER.debug("Job {} started", id);
+                boolean triggered = UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager.get(), () -> {
+                    Process<?> process = processes.get().processById(description.processId());
+                    if (process == null) {
+                        return false;
+                    }
+                    Optional<? extends ProcessInstance<?>> processInstance = process.instances().findById(description.processInstanceId());
+                    if (!processInstance.isPresent()) {
+                        return false;
+                    }
+                    String[] ids = id.split("_");
+                    limit--;
+                    processInstance.get().send(Sig.of("timerTriggered", TimerInstance.with(Long.parseLong(ids[1]), id, limit)));
+                    return true;
+                });
+                if (!triggered) {
+                    // owning process instance does not exist anymore
+                    LOGGER.debug("Process instance {} of job {} not found", description.processInstanceId(), id);
+                    complete(id);
+                } else if (!repeatable || limit == 0) {
+                    complete(id);
+                }
+                LOGGER.debug("Job {} completed", id);
+            } catch (RuntimeException e) {
+                // job stays in the log until it succeeds, also across restarts
+                LOGGER.warn("Job {} failed", id, e);
+                if (!repeatable) {
+                    retry(description, attempt);
+                }
+            }
+        }
+    }
+
+    private class StartProcessJob implements Runnable {
+
+        private final ProcessJobDescription description;
+
+        private StartProcessJob(ProcessJobDescription description) {
+            this.description = description;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        public void run() {
+            try {
+                UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager.get(), () -> {
+                    Process process = description.process() != null ? description.process() : processes.get().processById(description.processId());
+                    if (process != null) {
+                        ProcessInstance<?> pi = process.createInstance(process.createModel());
+                        pi.start(TRIGGER, null);
+                    }
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOGGER.warn("Job {} failed", description.id(), e);
+            } finally {
+                if (description.expirationTime().repeatInterval() == null) {
+                    scheduledJobs.remove(description.id());
+                }
+            }
+        }
+    }
+}
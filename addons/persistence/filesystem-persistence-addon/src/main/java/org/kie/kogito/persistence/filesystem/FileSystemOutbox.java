@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.services.outbox.OutboxEntries;
+
+/**
+ * Outbox that keeps every entry in a separate file named after the entry identifier, stored
+ * next to the process instance directories. Files are written to a temporary file first and
+ * then moved in place so the relay never reads partially written entries.
+ */
+public class FileSystemOutbox implements Outbox {
+
+    public static final String OUTBOX_DIRECTORY = "_outbox";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path storage;
+
+    public FileSystemOutbox(Path storage) {
+        this.storage = Paths.get(storage.toString(), OUTBOX_DIRECTORY);
+        try {
+            Files.createDirectories(this.storage);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create directories for file based outbox", e);
+        }
+    }
+
+    @Override
+    public void append(Collection<OutboxEntry> entries) {
+        for (OutboxEntry entry : entries) {
+            Path target = storage.resolve(entry.getId());
+            Path temp = storage.resolve(entry.getId() + TEMP_SUFFIX);
+            try {
+                Files.write(temp, OutboxEntries.toBytes(entry));
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to store outbox entry " + entry.getId(), e);
+            }
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> poll(int max) {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(storage)) {
+            files = stream
+                    .filter(file -> !file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .sorted()
+                    .limit(max)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read outbox entries", e);
+        }
+        List<OutboxEntry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                entries.add(OutboxEntries.fromBytes(file.getFileName().toString(), Files.readAllBytes(file)));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to read outbox entry " + file.getFileName(), e);
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        for (String id : ids) {
+            try {
+                Files.deleteIfExists(storage.resolve(id));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to remove outbox entry " + id, e);
+            }
+        }
+    }
+}
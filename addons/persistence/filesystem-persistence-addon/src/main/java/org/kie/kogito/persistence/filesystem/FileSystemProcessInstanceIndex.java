@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.kie.kogito.process.ProcessInstanceQuery;
+import org.kie.kogito.process.impl.ProcessInstanceIndex;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
+
+/**
+ * {@link ProcessInstanceIndex} of a single process kept in a sidecar file next to the process
+ * instances, so queries can be resolved without reading every process instance file.
+ * <p>
+ * Every change is appended as a text line, a line left incomplete by a crash is ignored on load.
+ * The file is rewritten with just the indexed instances once removed entries outnumber them.
+ * The index reflects the writes of this node only.
+ */
+public class FileSystemProcessInstanceIndex {
+
+    public static final String INDEXES_DIRECTORY = "_indexes";
+
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final String COMPACT_EXTENSION = ".compact";
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    private static final char PUT = '+';
+    private static final char REMOVE = '-';
+    private static final char SEPARATOR = '\t';
+    private static final char END = '\n';
+
+    private final Path file;
+    private final ProcessInstanceIndex index = new ProcessInstanceIndex();
+    private int obsoleteRecords;
+
+    /**
+     * @param storage base directory of the file system persistence
+     * @param processId id of the process whose instances are indexed
+     */
+    public FileSystemProcessInstanceIndex(Path storage, String processId) {
+        Path directory = storage.resolve(INDEXES_DIRECTORY);
+        this.file = directory.resolve(processId + INDEX_EXTENSION);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create directory for process instance indexes " + directory, e);
+        }
+        load();
+    }
+
+    public synchronized void index(String id, int status, Map<String, String> variables) {
+        Set<String> keys = ProcessInstanceIndexes.keys(status, variables);
+        Set<String> previous = index.keys(id);
+        if (keys.equals(previous)) {
+            return;
+        }
+        StringBuilder record = new StringBuilder().append(PUT).append(SEPARATOR).append(escape(id));
+        for (String key : keys) {
+            record.append(SEPARATOR).append(escape(key));
+        }
+        append(record.append(END).toString());
+        if (previous != null) {
+            obsoleteRecords++;
+        }
+        index.index(id, keys);
+    }
+
+    public synchronized void remove(String id) {
+        if (index.keys(id) == null) {
+            return;
+        }
+        append(String.valueOf(REMOVE) + SEPARATOR + escape(id) + END);
+        index.remove(id);
+        obsoleteRecords += 2;
+        if (obsoleteRecords >= MIN_COMPACTION_RECORDS && obsoleteRecords > index.ids().size()) {
+            compact();
+        }
+    }
+
+    public Set<String> find(ProcessInstanceQuery query) {
+        return index.find(query);
+    }
+
+    public int size() {
+        return index.ids().size();
+    }
+
+    /**
+     * Removes all entries, used before the index is rebuilt from the stored process instances.
+     */
+    public synchronized void clear() {
+        index.clear();
+        obsoleteRecords = 0;
+        try {
+            Files.write(file, new byte[0]);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to clear process instance index " + file, e);
+        }
+    }
+
+    /**
+     * Rewrites the index file so it contains only entries of indexed instances.
+     */
+    public synchronized void compact() {
+        Path compacted = file.resolveSibling(file.getFileName() + COMPACT_EXTENSION);
+        try (Writer writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (String id : index.ids()) {
+                writer.append(PUT).append(SEPARATOR).append(escape(id));
+                for (String key : index.keys(id)) {
+                    writer.append(SEPARATOR).append(escape(key));
+                }
+                writer.append(END);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compact process instance index " + file, e);
+        }
+        try {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compact process instance index " + file, e);
+        }
+        obsoleteRecords = 0;
+    }
+
+    private void append(String record) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(record);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write process instance index " + file, e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        String content;
+        try {
+            content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read process instance index " + file, e);
+        }
+        int start = 0;
+        int end;
+        while ((end = content.indexOf(END, start)) >= 0) {
+            apply(content.substring(start, end));
+            start = end + 1;
+        }
+    }
+
+    private void apply(String record) {
+        String[] fields = record.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length < 2 || fields[0].length() != 1) {
+            return;
+        }
+        String id = unescape(fields[1]);
+        if (fields[0].charAt(0) == PUT) {
+            Set<String> keys = new LinkedHashSet<>();
+            for (int i = 2; i < fields.length; i++) {
+                keys.add(unescape(fields[i]));
+            }
+            if (index.keys(id) != null) {
+                obsoleteRecords++;
+            }
+            index.index(id, keys);
+        } else if (fields[0].charAt(0) == REMOVE) {
+            obsoleteRecords += index.keys(id) != null ? 2 : 1;
+            index.remove(id);
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            } else if (c == SEPARATOR) {
+                escaped.append("\\t");
+            } else if (c == END) {
+                escaped.append("\\n");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? SEPARATOR : next == 'n' ? END : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -17,13 +17,22 @@ package org.kie.kogito.persistence.filesystem;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,8 +40,15 @@ import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.kie.kogito.process.ProcessInstances;
 import org.kie.kogito.process.impl.AbstractProcessInstance;
+import org.kie.kogito.process.impl.EventSubscriptionIndex;
+import org.kie.kogito.process.impl.ProcessInstanceEventTypes;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
 import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,12 +62,27 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
 
     public static final String PI_DESCRIPTION = "ProcessInstanceDescription";
     public static final String PI_STATUS = "ProcessInstanceStatus";
+    public static final String PI_BUSINESS_KEY = "ProcessInstanceBusinessKey";
+    public static final String PI_EVENTS = "ProcessInstanceEvents";
+    public static final String PI_VERSION = "ProcessInstanceVersion";
+
+    private static final String EVENTS_SEPARATOR = "\n";
+    private static final int LOCK_STRIPES = 64;
 
     private Process<?> process;
     private Path storage;
 
     private ProcessInstanceMarshaller marshaller;
 
+    private final EventSubscriptionIndex subscriptions = new EventSubscriptionIndex();
+    private volatile boolean subscriptionsLoaded;
+
+    private final FileSystemProcessInstanceIndex index;
+    private volatile boolean indexLoaded;
+
+    // file locks are held by the whole JVM so threads of this node are serialized separately
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
     public FileSystemProcessInstances(Process<?> process, Path storage) {
         this(process, storage, new ProcessInstanceMarshaller());
     }
@@ -60,6 +91,10 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         this.process = process;
         this.storage = Paths.get(storage.toString(), process.id());
         this.marshaller = marshaller;
+        this.index = new FileSystemProcessInstanceIndex(storage, process.id());
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
 
         try {
             Files.createDirectories(this.storage);
@@ -85,11 +120,7 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         if (Files.notExists(processInstanceStorage)) {
             return Optional.empty();
         }
-        byte[] data = readBytesFromFile(processInstanceStorage);
-        return Optional.of(mode == MUTABLE ?
-                                   marshaller.unmarshallProcessInstance(data, process) :
-                                   marshaller.unmarshallReadOnlyProcessInstance(data, process)
-        );
+        return Optional.of(unmarshall(processInstanceStorage, mode));
     }
 
     @Override
@@ -97,16 +128,87 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         try (Stream<Path> stream = Files.walk(storage)) {
             return stream
                     .filter(file -> !Files.isDirectory(file))
-                    .map(this::readBytesFromFile)
-                    .map(b -> mode == MUTABLE ?
-                            marshaller.unmarshallProcessInstance(b, process) :
-                            marshaller.unmarshallReadOnlyProcessInstance(b, process))
+                    .map(file -> unmarshall(file, mode))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read process instances ", e);
+        }
+    }
+
+    @Override
+    public Collection values(ProcessInstanceReadMode mode, int page, int size) {
+        try (Stream<Path> stream = Files.walk(storage)) {
+            return stream
+                    .filter(file -> !Files.isDirectory(file))
+                    // walk order is unspecified, file names (instance ids) give pages a stable order
+                    .sorted()
+                    .skip(ProcessInstances.offset(page, size))
+                    .limit(size)
+                    .map(file -> unmarshall(file, mode))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read process instances ", e);
+        }
+    }
+
+    /**
+     * Reads summaries from the metadata stored on each file, files without such metadata (e.g. stored
+     * before it was written or on file systems without user defined attributes support) are unmarshalled.
+     */
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        try (Stream<Path> stream = Files.walk(storage)) {
+            return stream
+                    .filter(file -> !Files.isDirectory(file))
+                    .sorted()
+                    .skip(ProcessInstances.offset(page, size))
+                    .limit(size)
+                    .map(this::readSummary)
                     .collect(Collectors.toList());
         } catch (IOException e) {
             throw new RuntimeException("Unable to read process instances ", e);
         }
     }
 
+    @Override
+    public Collection<? extends ProcessInstance<?>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        loadSubscriptions();
+        return subscriptions.subscribers(eventType)
+                .stream()
+                .map(id -> Paths.get(storage.toString(), id))
+                .filter(Files::exists)
+                .<ProcessInstance<?>> map(file -> unmarshall(file, mode))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Collection query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        if (!ProcessInstanceIndexes.isIndexed(process, query)) {
+            return MutableProcessInstances.super.query(query, mode);
+        }
+        loadIndex();
+        return load(index.find(query).stream(), query, mode);
+    }
+
+    @Override
+    public Collection query(ProcessInstanceQuery query, ProcessInstanceReadMode mode, int page, int size) {
+        if (!ProcessInstanceIndexes.isIndexed(process, query)) {
+            return MutableProcessInstances.super.query(query, mode, page, size);
+        }
+        loadIndex();
+        // the page is selected from the index so only its instances are unmarshalled
+        return load(index.find(query).stream().sorted().skip(ProcessInstances.offset(page, size)).limit(size), query, mode);
+    }
+
+    private Collection load(Stream<String> ids, ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        // the index is only a hint, loaded instances are checked again as it might be behind the files
+        return ids.map(id -> Paths.get(storage.toString(), id))
+                .filter(Files::exists)
+                .map(file -> unmarshall(file, mode))
+                .filter(query::matches)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public boolean exists(String id) {
         return Files.exists(Paths.get(storage.toString(), id));
@@ -140,22 +242,178 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         Path processInstanceStorage = Paths.get(storage.toString(), id);
         try {
             Files.deleteIfExists(processInstanceStorage);
+            subscriptions.unsubscribe(id);
+            index.remove(id);
         } catch (IOException e) {
             throw new RuntimeException("Unable to remove process instance with id " + id, e);
         }
     }
 
+    /**
+     * Deletes the file while holding an exclusive lock on it, once checked its version is still the one
+     * given process instance was loaded from.
+     */
+    @Override
+    public void removeIfUnchanged(String id, ProcessInstance instance) {
+        long expectedVersion = ((AbstractProcessInstance<?>) instance).version();
+        Path processInstanceStorage = Paths.get(storage.toString(), id);
+        synchronized (lockFor(id)) {
+            try (FileChannel channel = FileChannel.open(processInstanceStorage, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                if (expectedVersion != 0 && expectedVersion != readVersion(processInstanceStorage)) {
+                    throw new ProcessInstanceOptimisticLockingException(id);
+                }
+                Files.delete(processInstanceStorage);
+            } catch (NoSuchFileException e) {
+                // already removed
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to remove process instance with id " + id, e);
+            }
+        }
+        subscriptions.unsubscribe(id);
+        index.remove(id);
+    }
+
+    /**
+     * Writes the process instance while holding an exclusive lock on its file, so concurrent
+     * writers (also from other nodes sharing the storage) are serialized. The version stored
+     * in file metadata must match the one the instance was loaded from, otherwise the update
+     * is rejected as it would overwrite changes made in the meantime.
+     */
     protected void storeProcessInstance(Path processInstanceStorage, ProcessInstance<?> instance) {
-        try {
-            byte[] data = marshaller.marshallProcessInstance(instance);
-            Files.write(processInstanceStorage, data);
-            setMetadata(processInstanceStorage, PI_DESCRIPTION, instance.description());
-            setMetadata(processInstanceStorage, PI_STATUS, String.valueOf(instance.status()));
+        Set<String> eventTypes = ProcessInstanceEventTypes.of(instance);
+        Map<String, String> indexedVariables = ProcessInstanceIndexes.of(instance);
+        long expectedVersion = ((AbstractProcessInstance<?>) instance).version();
+        long[] written = new long[1];
+        // marshalled data is written straight from the marshalling buffer
+        marshaller.marshallProcessInstance(instance, buffer -> {
+            synchronized (lockFor(instance.id())) {
+                try (FileChannel channel = FileChannel.open(processInstanceStorage, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock lock = channel.lock()) {
+                    long version = readVersion(processInstanceStorage);
+                    // instances loaded without version (not stored yet or no metadata support) are written unconditionally
+                    if (expectedVersion != 0 && expectedVersion != version) {
+                        throw new ProcessInstanceOptimisticLockingException(instance.id());
+                    }
+                    channel.truncate(0);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    setMetadata(processInstanceStorage, PI_DESCRIPTION, instance.description());
+                    setMetadata(processInstanceStorage, PI_STATUS, String.valueOf(instance.status()));
+                    // empty when there is none, so instances stored before it was written can be told apart
+                    setMetadata(processInstanceStorage, PI_BUSINESS_KEY, instance.businessKey() == null ? "" : instance.businessKey());
+                    setMetadata(processInstanceStorage, PI_EVENTS, String.join(EVENTS_SEPARATOR, eventTypes));
+                    if (setMetadata(processInstanceStorage, PI_VERSION, String.valueOf(version + 1))) {
+                        written[0] = version + 1;
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Unable to store process instance with id " + instance.id(), e);
+                }
+            }
+        });
+        subscriptions.subscribe(instance.id(), eventTypes);
+        index.index(instance.id(), instance.status(), indexedVariables);
+        ((AbstractProcessInstance<?>) instance).internalSetVersion(written[0]);
 
-            disconnect(processInstanceStorage, instance);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to store process instance with id " + instance.id(), e);
+        disconnect(processInstanceStorage, instance);
+    }
+
+    protected Object lockFor(String id) {
+        return locks[Math.floorMod(id.hashCode(), locks.length)];
+    }
+
+    protected long readVersion(Path processInstanceStorage) {
+        String version = getMetadata(processInstanceStorage, PI_VERSION);
+        if (version == null || version.isEmpty()) {
+            return 0;
+        }
+        return Long.parseLong(version);
+    }
+
+    protected ProcessInstance unmarshall(Path processInstanceStorage, ProcessInstanceReadMode mode) {
+        // version is read before the content so a concurrent write can only make it stale, never newer
+        long version = readVersion(processInstanceStorage);
+        byte[] data = readBytesFromFile(processInstanceStorage);
+        ProcessInstance instance = mode == MUTABLE ?
+                marshaller.unmarshallProcessInstance(data, process) :
+                marshaller.unmarshallReadOnlyProcessInstance(data, process);
+        ((AbstractProcessInstance<?>) instance).internalSetVersion(version);
+        return instance;
+    }
+
+    /**
+     * Builds the in memory subscription index from the events metadata stored on each file,
+     * without unmarshalling process instances. Files without such metadata (e.g. file systems
+     * without user defined attributes support) are considered subscribed to any event.
+     */
+    protected void loadSubscriptions() {
+        if (subscriptionsLoaded) {
+            return;
+        }
+        synchronized (subscriptions) {
+            if (subscriptionsLoaded) {
+                return;
+            }
+            try (Stream<Path> stream = Files.walk(storage)) {
+                stream.filter(file -> !Files.isDirectory(file))
+                        .forEach(file -> subscriptions.subscribe(file.getFileName().toString(), readEventTypes(file)));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to read process instances subscriptions ", e);
+            }
+            subscriptionsLoaded = true;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the stored process instances when it does not cover all of them,
+     * e.g. when the index file was not written or lost its last entries.
+     */
+    protected void loadIndex() {
+        if (indexLoaded) {
+            return;
+        }
+        synchronized (index) {
+            if (indexLoaded) {
+                return;
+            }
+            if (index.size() != size()) {
+                LOGGER.info("Rebuilding index of process instances of process {}", process.id());
+                index.clear();
+                try (Stream<Path> stream = Files.walk(storage)) {
+                    stream.filter(file -> !Files.isDirectory(file)).forEach(file -> {
+                        ProcessInstance<?> instance = unmarshall(file, ProcessInstanceReadMode.READ_ONLY);
+                        index.index(instance.id(), instance.status(), ProcessInstanceIndexes.of(instance));
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException("Unable to index process instances ", e);
+                }
+            }
+            indexLoaded = true;
+        }
+    }
+
+    protected ProcessInstanceSummary readSummary(Path processInstanceStorage) {
+        String status = getMetadata(processInstanceStorage, PI_STATUS);
+        String businessKey = getMetadata(processInstanceStorage, PI_BUSINESS_KEY);
+        if (status == null || status.isEmpty() || businessKey == null) {
+            return ProcessInstanceSummary.of(unmarshall(processInstanceStorage, ProcessInstanceReadMode.READ_ONLY));
+        }
+        return new ProcessInstanceSummary(processInstanceStorage.getFileName().toString(),
+                                          Integer.parseInt(status),
+                                          businessKey.isEmpty() ? null : businessKey,
+                                          getMetadata(processInstanceStorage, PI_DESCRIPTION));
+    }
+
+    protected Set<String> readEventTypes(Path processInstanceStorage) {
+        String events = getMetadata(processInstanceStorage, PI_EVENTS);
+        if (events == null) {
+            return Collections.singleton(ProcessInstanceEventTypes.ANY_EVENT);
+        }
+        if (events.isEmpty()) {
+            return Collections.emptySet();
         }
+        return new LinkedHashSet<>(Arrays.asList(events.split(EVENTS_SEPARATOR)));
     }
 
     protected byte[] readBytesFromFile(Path processInstanceStorage) {
@@ -170,7 +428,9 @@ public class FileSystemProcessInstances implements MutableProcessInstances {
         ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
 
             try {
+                long version = readVersion(processInstanceStorage);
                 byte[] reloaded = readBytesFromFile(processInstanceStorage);
+                ((AbstractProcessInstance<?>) instance).internalSetVersion(version);
                 return marshaller.unmarshallWorkflowProcessInstance(reloaded, process);
             } catch (RuntimeException e) {
                 LOGGER.error("Unexpected exception thrown when reloading process instance {}", instance.id(), e);
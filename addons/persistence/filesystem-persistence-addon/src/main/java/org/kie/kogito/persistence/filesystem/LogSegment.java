@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Single memory mapped file of a {@link LogStructuredProcessInstances} log. Records are appended
+ * to the segment until it is full, afterwards it is sealed and only read until it is compacted.
+ * Access is guarded by the owning log.
+ */
+class LogSegment {
+
+    static final String SEGMENT_EXTENSION = ".segment";
+
+    private final long number;
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // bytes of records still referenced by the offset index
+    private long liveBytes;
+
+    private LogSegment(long number, Path file, FileChannel channel, MappedByteBuffer buffer) {
+        this.number = number;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static LogSegment create(Path directory, long number, int capacity) throws IOException {
+        Path file = directory.resolve(String.format("%016d%s", number, SEGMENT_EXTENSION));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new LogSegment(number, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+    }
+
+    static LogSegment open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long number = Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalStateException("Segment " + file + " exceeds maximum size");
+        }
+        return new LogSegment(number, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(SEGMENT_EXTENSION);
+    }
+
+    long number() {
+        return number;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * @return the mapped content, its position is the end of the appended records
+     */
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int written() {
+        return buffer.position();
+    }
+
+    int remaining() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Copies given range of the segment, it does not move the position of the mapped buffer.
+     */
+    byte[] read(int offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(data);
+        return data;
+    }
+
+    void retain(int size) {
+        liveBytes += size;
+    }
+
+    void release(int size) {
+        liveBytes -= size;
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,889 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.persistence.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.kie.kogito.process.ProcessInstances;
+import org.kie.kogito.process.impl.AbstractProcessInstance;
+import org.kie.kogito.process.impl.EventSubscriptionIndex;
+import org.kie.kogito.process.impl.ProcessInstanceEventTypes;
+import org.kie.kogito.process.impl.ProcessInstanceIndex;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.kie.kogito.process.ProcessInstanceReadMode.MUTABLE;
+
+/**
+ * Process instances of a single process stored in an append only log split into memory mapped
+ * segment files, as an alternative to {@link FileSystemProcessInstances} that writes a file per
+ * process instance.
+ * <p>
+ * Every stored and removed process instance is appended as a record prefixed by its length and checksum.
+ * The location of the latest record of each process instance is kept in memory so reads copy it straight
+ * from the mapped segment. The locations, event subscriptions and query index are rebuilt by scanning
+ * the segments on startup, a torn record at the end of the log left by a crash is ignored and appends
+ * continue in a new segment.
+ * <p>
+ * When sync is enabled writes return once their records are forced to the storage device, concurrent
+ * writers share a single force. Sealed segments whose records are mostly obsolete are compacted in
+ * background by copying their live records to the end of the log. Tombstones of removed process instances
+ * are copied only while an older segment still holds a record of the process instance. The log must be used
+ * by a single node.
+ */
+@SuppressWarnings({"rawtypes"})
+public class LogStructuredProcessInstances implements MutableProcessInstances, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredProcessInstances.class);
+
+    public static final String LOG_DIRECTORY = "_log";
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int HEADER_SIZE = 8;
+    // type, version and length of metadata at the start of every record body
+    private static final int BODY_PREFIX_SIZE = 13;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private static final Executor COMPACTION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kogito-log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Process<?> process;
+    private final Path storage;
+    private final ProcessInstanceMarshaller marshaller;
+    private final int segmentSize;
+    private final boolean sync;
+    private final Executor compactionExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Location> locations = new LinkedHashMap<>();
+    // segments holding put records of stored and removed process instances, entries of removed
+    // process instances are kept while an older segment still holds a put record their tombstone hides
+    private final Map<String, PutRecords> putRecords = new HashMap<>();
+    // oldest first, the last one is the active segment
+    private final List<LogSegment> segments = new ArrayList<>();
+    private LogSegment active;
+    private long appended;
+    private boolean closed;
+
+    private final Object syncMonitor = new Object();
+    private long synced;
+    private boolean syncing;
+
+    private final Object compactionMonitor = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private volatile boolean compactionNeeded;
+
+    private final EventSubscriptionIndex subscriptions = new EventSubscriptionIndex();
+    private final ProcessInstanceIndex index = new ProcessInstanceIndex();
+    private final Map<String, ProcessInstanceSummary> summaries = new HashMap<>();
+    private final long recoveryTime;
+
+    /**
+     * @param process process whose instances are stored
+     * @param storage base directory of the file system persistence
+     * @param sync if true every write is forced to the storage device before it returns
+     */
+    public LogStructuredProcessInstances(Process<?> process, Path storage, boolean sync) {
+        this(process, storage, new ProcessInstanceMarshaller(), sync);
+    }
+
+    public LogStructuredProcessInstances(Process<?> process, Path storage, ProcessInstanceMarshaller marshaller, boolean sync) {
+        this(process, storage, marshaller, DEFAULT_SEGMENT_SIZE, sync, COMPACTION_EXECUTOR);
+    }
+
+    public LogStructuredProcessInstances(Process<?> process, Path storage, ProcessInstanceMarshaller marshaller, int segmentSize, boolean sync, Executor compactionExecutor) {
+        this.process = process;
+        this.storage = storage.resolve(LOG_DIRECTORY).resolve(process.id());
+        this.marshaller = marshaller;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        this.compactionExecutor = compactionExecutor;
+        try {
+            Files.createDirectories(this.storage);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create directories for log of process instances", e);
+        }
+
+        long start = System.nanoTime();
+        recover();
+        this.recoveryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info("Recovered {} process instances of process {} from {} segments in {} ms", locations.size(), process.id(), segments.size() - 1, recoveryTime);
+        scheduleCompaction();
+    }
+
+    /**
+     * @return time in milliseconds spent on reading the log on startup
+     */
+    public long recoveryTime() {
+        return recoveryTime;
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Integer size() {
+        lock.readLock().lock();
+        try {
+            return locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String id) {
+        lock.readLock().lock();
+        try {
+            return locations.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional findById(String id, ProcessInstanceReadMode mode) {
+        return Optional.ofNullable(read(id)).map(stored -> unmarshall(stored, mode));
+    }
+
+    @Override
+    public Collection values(ProcessInstanceReadMode mode) {
+        return load(ids().stream(), mode);
+    }
+
+    @Override
+    public Collection values(ProcessInstanceReadMode mode, int page, int size) {
+        return load(ids().stream().skip(ProcessInstances.offset(page, size)).limit(size), mode);
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        lock.readLock().lock();
+        try {
+            return locations.keySet()
+                    .stream()
+                    .skip(ProcessInstances.offset(page, size))
+                    .limit(size)
+                    .map(summaries::get)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance<?>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        return load(subscriptions.subscribers(eventType).stream(), mode);
+    }
+
+    @Override
+    public Collection query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        if (!ProcessInstanceIndexes.isIndexed(process, query)) {
+            return MutableProcessInstances.super.query(query, mode);
+        }
+        return load(index.find(query).stream(), query, mode);
+    }
+
+    @Override
+    public Collection query(ProcessInstanceQuery query, ProcessInstanceReadMode mode, int page, int size) {
+        if (!ProcessInstanceIndexes.isIndexed(process, query)) {
+            return MutableProcessInstances.super.query(query, mode, page, size);
+        }
+        // the page is selected from the index so only its instances are unmarshalled
+        return load(index.find(query).stream().sorted().skip(ProcessInstances.offset(page, size)).limit(size), query, mode);
+    }
+
+    private Collection load(Stream<String> ids, ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        // instances are checked again as they might have changed since the index was read
+        return load(ids, mode).stream()
+                .filter(query::matches)
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void create(String id, ProcessInstance instance) {
+        if (isActive(instance)) {
+            store(id, instance, true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void update(String id, ProcessInstance instance) {
+        if (isActive(instance)) {
+            store(id, instance, false);
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        remove(id, 0);
+    }
+
+    @Override
+    public void removeIfUnchanged(String id, ProcessInstance instance) {
+        remove(id, ((AbstractProcessInstance<?>) instance).version());
+    }
+
+    /**
+     * Appends a tombstone of the process instance, unless given version is no longer the latest one.
+     *
+     * @param expectedVersion version the process instance was loaded from, 0 to remove it unconditionally
+     */
+    protected void remove(String id, long expectedVersion) {
+        Location tombstone;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Location current = locations.get(id);
+            if (current == null) {
+                return;
+            }
+            if (expectedVersion != 0 && current.version != expectedVersion) {
+                throw new ProcessInstanceOptimisticLockingException(id);
+            }
+            tombstone = append(REMOVE, current.version, new RecordMetadata(id).toBytes(), null);
+            drop(id);
+            tombstone(id, tombstone);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(tombstone.sequence);
+        scheduleCompaction();
+    }
+
+    /**
+     * Copies live records of sealed segments that are mostly obsolete to the end of the log and deletes
+     * those segments. Runs in background once writes make a segment eligible.
+     */
+    public void compact() {
+        synchronized (compactionMonitor) {
+            compactionNeeded = false;
+            List<LogSegment> candidates;
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                candidates = segments.stream()
+                        .filter(segment -> segment != active && isCompactable(segment))
+                        .collect(Collectors.toList());
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (LogSegment segment : candidates) {
+                compact(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (LogSegment segment : segments) {
+                segment.force();
+                segment.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to close log of process instances in " + storage, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the process instance unless the version it was loaded from is no longer the latest one,
+     * the record is marshalled straight from the marshalling buffer into the mapped segment.
+     */
+    protected void store(String id, ProcessInstance<?> instance, boolean create) {
+        Set<String> eventTypes = ProcessInstanceEventTypes.of(instance);
+        RecordMetadata metadata = new RecordMetadata(id, instance.status(), eventTypes, ProcessInstanceIndexes.of(instance), instance.businessKey(), instance.description());
+        byte[] metadataBytes = metadata.toBytes();
+        long expectedVersion = ((AbstractProcessInstance<?>) instance).version();
+        Location[] stored = new Location[1];
+        marshaller.marshallProcessInstance(instance, data -> {
+            lock.writeLock().lock();
+            try {
+                checkOpen();
+                Location current = locations.get(id);
+                if (create && current != null) {
+                    throw new ProcessInstanceDuplicatedException(id);
+                }
+                if (!create && current == null) {
+                    return;
+                }
+                // instances loaded without version (not stored yet) are written unconditionally
+                if (expectedVersion != 0 && (current == null || current.version != expectedVersion)) {
+                    throw new ProcessInstanceOptimisticLockingException(id);
+                }
+                stored[0] = append(PUT, current == null ? 1 : current.version + 1, metadataBytes, data);
+                put(id, stored[0], metadata);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        if (stored[0] != null) {
+            awaitDurable(stored[0].sequence);
+            scheduleCompaction();
+            ((AbstractProcessInstance<?>) instance).internalSetVersion(stored[0].version);
+            disconnect(id, instance);
+        }
+    }
+
+    protected void disconnect(String id, ProcessInstance instance) {
+        ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
+            try {
+                StoredProcessInstance stored = read(id);
+                if (stored == null) {
+                    LOGGER.error("Process instance {} was removed before it was reloaded", id);
+                    return null;
+                }
+                ((AbstractProcessInstance<?>) instance).internalSetVersion(stored.version);
+                return marshaller.unmarshallWorkflowProcessInstance(stored.data, process);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected exception thrown when reloading process instance {}", id, e);
+                return null;
+            }
+        });
+    }
+
+    private List<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(locations.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ProcessInstance<?>> load(Stream<String> ids, ProcessInstanceReadMode mode) {
+        return ids.map(this::read)
+                .filter(Objects::nonNull)
+                .<ProcessInstance<?>> map(stored -> unmarshall(stored, mode))
+                .collect(Collectors.toList());
+    }
+
+    private StoredProcessInstance read(String id) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Location location = locations.get(id);
+            if (location == null) {
+                return null;
+            }
+            return new StoredProcessInstance(location.segment.read(location.dataOffset, location.dataLength), location.version);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ProcessInstance unmarshall(StoredProcessInstance stored, ProcessInstanceReadMode mode) {
+        ProcessInstance instance = mode == MUTABLE ?
+                marshaller.unmarshallProcessInstance(stored.data, process) :
+                marshaller.unmarshallReadOnlyProcessInstance(stored.data, process);
+        ((AbstractProcessInstance<?>) instance).internalSetVersion(stored.version);
+        return instance;
+    }
+
+    private void put(String id, Location location, RecordMetadata metadata) {
+        release(locations.put(id, location));
+        location.segment.retain(location.size);
+        PutRecords records = putRecords.computeIfAbsent(id, key -> new PutRecords());
+        records.add(location.segment);
+        // the process instance is stored again so its tombstone no longer hides anything
+        release(records.tombstone);
+        records.tombstone = null;
+        subscriptions.subscribe(id, metadata.eventTypes);
+        index.index(id, metadata.status, metadata.variables);
+        summaries.put(id, new ProcessInstanceSummary(id, metadata.status, metadata.businessKey, metadata.description));
+    }
+
+    private void drop(String id) {
+        release(locations.remove(id));
+        subscriptions.unsubscribe(id);
+        index.remove(id);
+        summaries.remove(id);
+    }
+
+    /**
+     * Keeps the tombstone of a removed process instance as live while older put records of the process
+     * instance are still in the log, so its segment is compacted only when mostly obsolete.
+     */
+    private void tombstone(String id, Location tombstone) {
+        PutRecords records = putRecords.get(id);
+        if (records == null) {
+            return;
+        }
+        release(records.tombstone);
+        records.tombstone = tombstone;
+        tombstone.segment.retain(tombstone.size);
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            location.segment.release(location.size);
+            if (location.segment != active && isCompactable(location.segment)) {
+                compactionNeeded = true;
+            }
+        }
+    }
+
+    private static boolean isCompactable(LogSegment segment) {
+        return segment.liveBytes() * 2 < segment.written();
+    }
+
+    /**
+     * Appends a record to the active segment, the header is written last so the record is valid only
+     * once it is complete.
+     */
+    private Location append(byte type, long version, byte[] metadata, ByteBuffer data) {
+        int dataLength = data == null ? 0 : data.remaining();
+        int bodyLength = BODY_PREFIX_SIZE + metadata.length + dataLength;
+        LogSegment segment = segmentFor(HEADER_SIZE + bodyLength);
+        MappedByteBuffer buffer = segment.buffer();
+        int offset = buffer.position();
+        buffer.position(offset + HEADER_SIZE);
+        buffer.put(type).putLong(version).putInt(metadata.length).put(metadata);
+        if (data != null) {
+            buffer.put(data);
+        }
+        buffer.putInt(offset + 4, checksum(buffer, offset + HEADER_SIZE, bodyLength));
+        buffer.putInt(offset, bodyLength);
+        int dataOffset = offset + HEADER_SIZE + BODY_PREFIX_SIZE + metadata.length;
+        return new Location(segment, offset, HEADER_SIZE + bodyLength, dataOffset, dataLength, version, ++appended);
+    }
+
+    private int appendRecord(byte[] record) {
+        LogSegment segment = segmentFor(record.length);
+        int offset = segment.written();
+        segment.buffer().put(record);
+        appended++;
+        return offset;
+    }
+
+    private LogSegment segmentFor(int size) {
+        if (active.remaining() < size) {
+            LogSegment sealed = active;
+            // records of sealed segments must be durable as writers wait only for the active one
+            if (sync) {
+                sealed.force();
+            }
+            try {
+                active = LogSegment.create(storage, sealed.number() + 1, Math.max(segmentSize, size));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to create segment of process instances log in " + storage, e);
+            }
+            segments.add(active);
+            if (isCompactable(sealed)) {
+                compactionNeeded = true;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Waits until the record with given sequence is forced to the storage device. A single writer forces
+     * the active segment on behalf of all records appended so far while the others wait for it.
+     */
+    private void awaitDurable(long sequence) {
+        if (!sync) {
+            return;
+        }
+        while (true) {
+            synchronized (syncMonitor) {
+                while (syncing && synced < sequence) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while writing process instances to " + storage, e);
+                    }
+                }
+                if (synced >= sequence) {
+                    return;
+                }
+                syncing = true;
+            }
+            long target;
+            LogSegment segment;
+            lock.readLock().lock();
+            try {
+                target = appended;
+                segment = active;
+            } finally {
+                lock.readLock().unlock();
+            }
+            boolean forced = false;
+            try {
+                segment.force();
+                forced = true;
+            } finally {
+                synchronized (syncMonitor) {
+                    syncing = false;
+                    if (forced) {
+                        synced = Math.max(synced, target);
+                    }
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionNeeded && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to compact log of process instances of process {}", process.id(), e);
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void compact(LogSegment segment) {
+        long start = System.nanoTime();
+        Set<LogSegment> targets = new LinkedHashSet<>();
+        // process instances with put records in the segment, they precede the tombstones hiding them
+        Set<String> puts = new HashSet<>();
+        // sealed segments are not modified so they are read without the lock
+        int end = segment.written();
+        int position = 0;
+        while (position < end) {
+            byte[] record = segment.read(position, HEADER_SIZE + segment.buffer().getInt(position));
+            ByteBuffer body = ByteBuffer.wrap(record, HEADER_SIZE, record.length - HEADER_SIZE);
+            byte type = body.get();
+            body.getLong();
+            byte[] metadata = new byte[body.getInt()];
+            body.get(metadata);
+            String id = RecordMetadata.read(metadata).id;
+
+            lock.writeLock().lock();
+            try {
+                checkOpen();
+                if (type == PUT) {
+                    puts.add(id);
+                    Location location = locations.get(id);
+                    if (location != null && location.segment == segment && location.offset == position) {
+                        Location moved = location.moveTo(active, appendRecord(record), appended);
+                        locations.put(id, moved);
+                        segment.release(location.size);
+                        moved.segment.retain(moved.size);
+                        putRecords.get(id).add(active);
+                        targets.add(active);
+                    }
+                } else if (type == REMOVE) {
+                    PutRecords records = putRecords.get(id);
+                    Location tombstone = records == null ? null : records.tombstone;
+                    if (tombstone != null && tombstone.segment == segment && tombstone.offset == position) {
+                        segment.release(tombstone.size);
+                        records.tombstone = null;
+                        // the tombstone is dropped once no other segment holds a put record it hides
+                        if (records.segments > (puts.contains(id) ? 1 : 0)) {
+                            records.tombstone = tombstone.moveTo(active, appendRecord(record), appended);
+                            active.retain(tombstone.size);
+                            targets.add(active);
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            position += record.length;
+        }
+
+        // copied records must be durable before the segment holding them is deleted
+        for (LogSegment target : targets) {
+            target.force();
+        }
+        lock.writeLock().lock();
+        try {
+            for (String id : puts) {
+                PutRecords records = putRecords.get(id);
+                if (--records.segments == 0) {
+                    // no put record of the removed process instance is left, its tombstone is obsolete
+                    release(records.tombstone);
+                    putRecords.remove(id);
+                }
+            }
+            segments.remove(segment);
+            segment.delete();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to delete compacted segment " + segment.file(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.debug("Compacted segment {} of process {} in {} ms", segment.file(), process.id(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void recover() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(storage)) {
+            files = stream.filter(LogSegment::isSegment).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to list segments of process instances log in " + storage, e);
+        }
+        long number = 0;
+        try {
+            for (Path file : files) {
+                LogSegment segment = LogSegment.open(file);
+                number = segment.number();
+                if (scan(segment) == 0) {
+                    segment.delete();
+                } else {
+                    segments.add(segment);
+                }
+            }
+            // records left after a torn record must never be followed by new ones, so appends start a new segment
+            active = LogSegment.create(storage, number + 1, segmentSize);
+            segments.add(active);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to recover process instances from " + storage, e);
+        }
+        compactionNeeded = segments.stream().anyMatch(segment -> segment != active && isCompactable(segment));
+    }
+
+    private int scan(LogSegment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < BODY_PREFIX_SIZE || length > buffer.capacity() - position - HEADER_SIZE ||
+                    buffer.getInt(position + 4) != checksum(buffer, position + HEADER_SIZE, length)) {
+                break;
+            }
+            int body = position + HEADER_SIZE;
+            byte type = buffer.get(body);
+            long version = buffer.getLong(body + 1);
+            int metadataLength = buffer.getInt(body + 9);
+            RecordMetadata metadata = RecordMetadata.read(segment.read(body + BODY_PREFIX_SIZE, metadataLength));
+            if (type == PUT) {
+                int dataOffset = body + BODY_PREFIX_SIZE + metadataLength;
+                put(metadata.id, new Location(segment, position, HEADER_SIZE + length, dataOffset, length - BODY_PREFIX_SIZE - metadataLength, version, 0), metadata);
+            } else if (type == REMOVE) {
+                drop(metadata.id);
+                tombstone(metadata.id, new Location(segment, position, HEADER_SIZE + length, 0, 0, version, 0));
+            }
+            position += HEADER_SIZE + length;
+        }
+        buffer.position(position);
+        return position;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Log of process instances in " + storage + " is closed");
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private static class Location {
+
+        private final LogSegment segment;
+        private final int offset;
+        private final int size;
+        private final int dataOffset;
+        private final int dataLength;
+        private final long version;
+        // number of records appended up to this one, used to wait until it is durable
+        private final long sequence;
+
+        private Location(LogSegment segment, int offset, int size, int dataOffset, int dataLength, long version, long sequence) {
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.version = version;
+            this.sequence = sequence;
+        }
+
+        private Location moveTo(LogSegment target, int targetOffset, long targetSequence) {
+            return new Location(target, targetOffset, size, targetOffset + dataOffset - offset, dataLength, version, targetSequence);
+        }
+    }
+
+    private static class PutRecords {
+
+        // number of segments holding put records of the process instance and the newest of them
+        private int segments;
+        private LogSegment newest;
+        // latest tombstone while the process instance is removed
+        private Location tombstone;
+
+        private void add(LogSegment segment) {
+            if (newest != segment) {
+                newest = segment;
+                segments++;
+            }
+        }
+    }
+
+    private static class StoredProcessInstance {
+
+        private final byte[] data;
+        private final long version;
+
+        private StoredProcessInstance(byte[] data, long version) {
+            this.data = data;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Part of a record needed to rebuild the indexes and summaries without unmarshalling the process instance.
+     */
+    private static class RecordMetadata {
+
+        private final String id;
+        private final int status;
+        private final Set<String> eventTypes;
+        private final Map<String, String> variables;
+        private final String businessKey;
+        private final String description;
+
+        private RecordMetadata(String id) {
+            this(id, 0, Collections.emptySet(), Collections.emptyMap(), null, null);
+        }
+
+        private RecordMetadata(String id, int status, Set<String> eventTypes, Map<String, String> variables, String businessKey, String description) {
+            this.id = id;
+            this.status = status;
+            this.eventTypes = eventTypes;
+            this.variables = variables;
+            this.businessKey = businessKey;
+            this.description = description;
+        }
+
+        private byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(id);
+                out.writeInt(status);
+                out.writeInt(eventTypes.size());
+                for (String eventType : eventTypes) {
+                    out.writeUTF(eventType);
+                }
+                out.writeInt(variables.size());
+                for (Map.Entry<String, String> variable : variables.entrySet()) {
+                    out.writeUTF(variable.getKey());
+                    out.writeUTF(variable.getValue());
+                }
+                writeOptional(out, businessKey);
+                writeOptional(out, description);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write metadata of process instance " + id, e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static RecordMetadata read(byte[] bytes) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                String id = in.readUTF();
+                int status = in.readInt();
+                Set<String> eventTypes = new LinkedHashSet<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    eventTypes.add(in.readUTF());
+                }
+                Map<String, String> variables = new LinkedHashMap<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    variables.put(in.readUTF(), in.readUTF());
+                }
+                // records written before summaries were stored end here
+                String businessKey = in.available() > 0 ? readOptional(in) : null;
+                String description = in.available() > 0 ? readOptional(in) : null;
+                return new RecordMetadata(id, status, eventTypes, variables, businessKey, description);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to read metadata of process instance from log", e);
+            }
+        }
+
+        private static void writeOptional(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readOptional(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
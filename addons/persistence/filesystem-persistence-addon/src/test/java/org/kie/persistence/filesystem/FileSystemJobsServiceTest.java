@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.persistence.filesystem;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.kogito.jobs.DurationExpirationTime;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.persistence.filesystem.FileSystemJobLog;
+import org.kie.kogito.persistence.filesystem.FileSystemJobsService;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstances;
+import org.kie.kogito.process.Processes;
+import org.kie.kogito.process.Signal;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.timer.impl.HashedTimingWheel;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileSystemJobsServiceTest {
+
+    @TempDir
+    Path storage;
+
+    private Processes processes;
+    private ProcessInstance<?> processInstance;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setup() {
+        processes = mock(Processes.class);
+        Process process = mock(Process.class);
+        ProcessInstances instances = mock(ProcessInstances.class);
+        processInstance = mock(ProcessInstance.class);
+        doReturn(process).when(processes).processById("process");
+        when(process.instances()).thenReturn(instances);
+        when(instances.findById("instance")).thenReturn(Optional.of(processInstance));
+    }
+
+    @Test
+    public void testPendingJobSurvivesRestart() {
+        FileSystemJobsService jobsService = createJobsService();
+        ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(1, DurationExpirationTime.after(1, ChronoUnit.HOURS), "instance", "process");
+        jobsService.scheduleProcessInstanceJob(description);
+        jobsService.close();
+
+        jobsService = createJobsService();
+        assertThat(jobsService.pendingJobs()).isEqualTo(1);
+        assertThat(jobsService.getScheduledTime(description.id())).isNotNull();
+
+        assertThat(jobsService.cancelJob(description.id())).isTrue();
+        jobsService.close();
+
+        jobsService = createJobsService();
+        assertThat(jobsService.pendingJobs()).isZero();
+        jobsService.close();
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testOverdueJobsFiredAfterRestart() throws Exception {
+        FileSystemJobLog log = new FileSystemJobLog(storage, true);
+        List<ProcessInstanceJobDescription> descriptions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            descriptions.add(ProcessInstanceJobDescription.of(i, ExactExpirationTime.of(ZonedDateTime.now().minusMinutes(1)), "instance", "process"));
+        }
+        log.append(descriptions);
+        log.close();
+
+        FileSystemJobsService jobsService = new FileSystemJobsService(new FileSystemJobLog(storage, true),
+                                                                      new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 1),
+                                                                      new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()),
+                                                                      () -> processes,
+                                                                      2);
+
+        ArgumentCaptor<Signal> signals = ArgumentCaptor.forClass(Signal.class);
+        verify(processInstance, timeout(5000).times(5)).send(signals.capture());
+        assertThat(signals.getAllValues()).extracting(Signal::channel).containsOnly("timerTriggered");
+        awaitNoPendingJobs(jobsService);
+        jobsService.close();
+
+        assertThat(new FileSystemJobLog(storage, true).size()).isZero();
+    }
+
+    @Test
+    public void testJobRecordRoundTrip() {
+        FileSystemJobLog log = new FileSystemJobLog(storage, false);
+        ZonedDateTime expiration = ZonedDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MILLIS);
+        ProcessInstanceJobDescription exact = ProcessInstanceJobDescription.of(1, ExactExpirationTime.of(expiration), 7, "instance", "root", "process", null, "node");
+        ProcessInstanceJobDescription repeated = ProcessInstanceJobDescription.of(2, DurationExpirationTime.repeat(1000, 500L, 3), "instance", "process");
+        log.append(Arrays.asList(exact, repeated));
+        log.close();
+
+        log = new FileSystemJobLog(storage, false);
+        List<ProcessInstanceJobDescription> pending = log.pending();
+        log.close();
+        assertThat(pending).extracting(ProcessInstanceJobDescription::id).containsExactly(exact.id(), repeated.id());
+        ProcessInstanceJobDescription loaded = pending.get(0);
+        assertThat(loaded.expirationTime().get()).isEqualTo(expiration);
+        assertThat(loaded.priority()).isEqualTo(7);
+        assertThat(loaded.processInstanceId()).isEqualTo("instance");
+        assertThat(loaded.rootProcessInstanceId()).isEqualTo("root");
+        assertThat(loaded.processId()).isEqualTo("process");
+        assertThat(loaded.rootProcessId()).isNull();
+        assertThat(loaded.nodeInstanceId()).isEqualTo("node");
+        assertThat(pending.get(1).expirationTime().repeatInterval()).isEqualTo(500L);
+        assertThat(pending.get(1).expirationTime().repeatLimit()).isEqualTo(3);
+    }
+
+    @Test
+    public void testFailedJobRetried() throws Exception {
+        doThrow(new IllegalStateException("failed")).doNothing().when(processInstance).send(any());
+        FileSystemJobsService jobsService = new FileSystemJobsService(new FileSystemJobLog(storage, true),
+                                                                      new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 1),
+                                                                      new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()),
+                                                                      () -> processes,
+                                                                      1);
+        jobsService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(1, DurationExpirationTime.now(), "instance", "process"));
+
+        verify(processInstance, timeout(5000).times(2)).send(any());
+        awaitNoPendingJobs(jobsService);
+        assertThat(jobsService.pendingJobs()).isZero();
+        jobsService.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        FileSystemJobLog log = new FileSystemJobLog(storage, false);
+        ProcessInstanceJobDescription kept = ProcessInstanceJobDescription.of(0, DurationExpirationTime.after(1000), "instance", "process");
+        log.append(Arrays.asList(kept));
+        // the log compacts itself every 500 removals, the last 200 are left for the explicit compaction
+        for (int i = 1; i <= 2200; i++) {
+            ProcessInstanceJobDescription description = ProcessInstanceJobDescription.of(i, DurationExpirationTime.after(1000), "instance", "process");
+            log.append(Arrays.asList(description));
+            log.remove(Arrays.asList(description.id()));
+        }
+        // a log holding only the kept job is as long as the compacted one should be
+        FileSystemJobLog expected = new FileSystemJobLog(storage.resolve("expected"), false);
+        expected.append(Arrays.asList(kept));
+        int keptOnly = expected.written();
+        expected.close();
+
+        assertThat(log.written()).isGreaterThan(keptOnly);
+        log.compact();
+        assertThat(log.written()).isEqualTo(keptOnly);
+        log.close();
+
+        FileSystemJobLog reopened = new FileSystemJobLog(storage, false);
+        assertThat(reopened.pending()).extracting(ProcessInstanceJobDescription::id).containsExactly(kept.id());
+        assertThat(reopened.written()).isEqualTo(keptOnly);
+        reopened.close();
+    }
+
+    private void awaitNoPendingJobs(FileSystemJobsService jobsService) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jobsService.pendingJobs() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private FileSystemJobsService createJobsService() {
+        return new FileSystemJobsService(storage, new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()), () -> processes);
+    }
+}
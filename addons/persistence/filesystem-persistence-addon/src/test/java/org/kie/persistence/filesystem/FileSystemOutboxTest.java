@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.persistence.filesystem;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.persistence.filesystem.FileSystemOutbox;
+import org.kie.kogito.services.outbox.OutboxEntries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSystemOutboxTest {
+
+    @TempDir
+    Path storage;
+
+    @Test
+    public void testAppendPollRemove() {
+        FileSystemOutbox outbox = new FileSystemOutbox(storage);
+        OutboxEntry first = new OutboxEntry("0000000000001-a", OutboxEntry.Type.CANCEL_JOB, 1, "first".getBytes());
+        OutboxEntry second = new OutboxEntry("0000000000002-b", OutboxEntry.Type.CANCEL_JOB, 2, "second".getBytes());
+        outbox.append(Arrays.asList(second, first));
+
+        List<OutboxEntry> polled = outbox.poll(10);
+        assertThat(polled).extracting(OutboxEntry::getId).containsExactly(first.getId(), second.getId());
+        assertThat(polled.stream().map(OutboxEntries::jobId).collect(Collectors.toList())).containsExactly("first", "second");
+        assertThat(outbox.poll(1)).extracting(OutboxEntry::getId).containsExactly(first.getId());
+
+        outbox.remove(Arrays.asList(first.getId()));
+        assertThat(outbox.poll(10)).extracting(OutboxEntry::getId).containsExactly(second.getId());
+    }
+}
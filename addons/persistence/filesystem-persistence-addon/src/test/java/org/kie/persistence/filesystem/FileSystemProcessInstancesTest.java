@@ -15,9 +15,16 @@
 
 package org.kie.persistence.filesystem;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.drools.core.io.impl.ClassPathResource;
+import org.jbpm.process.core.context.variable.Variable;
+import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.workflow.core.DroolsAction;
 import org.jbpm.workflow.core.WorkflowProcess;
@@ -27,9 +34,12 @@ import org.kie.api.definition.process.Node;
 import org.kie.kogito.auth.SecurityPolicy;
 import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
 import org.kie.kogito.persistence.filesystem.FileSystemProcessInstances;
+import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessConfig;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.ProcessInstances;
 import org.kie.kogito.process.WorkItem;
@@ -52,6 +62,7 @@ import static org.kie.api.runtime.process.ProcessInstance.STATE_COMPLETED;
 import static org.kie.api.runtime.process.ProcessInstance.STATE_ERROR;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -124,6 +135,62 @@ class FileSystemProcessInstancesTest {
         assertThat(instances.size()).isZero();
     }
 
+    @Test
+    void testValuesPage() {
+        BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
+        for (int i = 0; i < 3; i++) {
+            process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test" + i))).start();
+        }
+
+        ProcessInstances<BpmnVariables> instances = process.instances();
+        assertThat(instances.values(0, 2)).hasSize(2);
+        assertThat(instances.values(1, 2)).hasSize(1);
+        assertThat(instances.values(2, 2)).isEmpty();
+        assertThat(instances.summaries(0, 2)).hasSize(2).allMatch(summary -> summary.status() == STATE_ACTIVE && summary.businessKey() == null);
+        assertThat(instances.summaries(1, 2)).hasSize(1);
+
+        // pages follow the order of the instance ids
+        List<String> ids = new ArrayList<>();
+        instances.values(0, 2).forEach(instance -> ids.add(instance.id()));
+        instances.values(1, 2).forEach(instance -> ids.add(instance.id()));
+        assertThat(ids).hasSize(3).doesNotHaveDuplicates().isSorted();
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> instances.values(-1, 2));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> instances.summaries(0, -2));
+
+        instances.values(ProcessInstanceReadMode.MUTABLE, 0, 3).forEach(ProcessInstance::abort);
+        assertThat(instances.size()).isZero();
+    }
+
+    @Test
+    void testQuery() {
+        BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
+        VariableScope variableScope = (VariableScope) ((WorkflowProcess) process.process()).getDefaultContext(VariableScope.VARIABLE_SCOPE);
+        variableScope.findVariable("s").setMetaData(Variable.VARIABLE_TAGS, Variable.INDEXED_TAG);
+        for (String value : Arrays.asList("a", "b", "a")) {
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("s", value);
+            variables.put("test", value);
+            process.createInstance(BpmnVariables.create(variables)).start();
+        }
+
+        ProcessInstances<BpmnVariables> instances = process.instances();
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("s", "a"))).hasSize(2);
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("s", "c"))).isEmpty();
+        assertThat(instances.query(ProcessInstanceQuery.create().withStatus(STATE_ACTIVE))).hasSize(3);
+        assertThat(instances.query(ProcessInstanceQuery.create().withStatus(STATE_ERROR).withVariable("s", "a"))).isEmpty();
+        // not indexed variable is filtered in memory
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("test", "b"))).hasSize(1);
+        assertThat(instances.query(ProcessInstanceQuery.create().withStatus(STATE_ACTIVE), 0, 2)).hasSize(2);
+        assertThat(instances.query(ProcessInstanceQuery.create().withStatus(STATE_ACTIVE), 1, 2)).hasSize(1)
+                .doesNotContainAnyElementsOf(instances.query(ProcessInstanceQuery.create().withStatus(STATE_ACTIVE), 0, 2));
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("test", "a"), 1, 1)).hasSize(1);
+
+        instances.query(ProcessInstanceQuery.create().withVariable("s", "a"), ProcessInstanceReadMode.MUTABLE).forEach(ProcessInstance::abort);
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("s", "a"))).isEmpty();
+        assertThat(instances.query(ProcessInstanceQuery.create().withVariable("s", "b"))).hasSize(1);
+        instances.values(ProcessInstanceReadMode.MUTABLE).forEach(ProcessInstance::abort);
+    }
+
     @Test
     void testBasicFlow() {
         BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
@@ -158,6 +225,47 @@ class FileSystemProcessInstancesTest {
         assertThat(fileSystemBasedStorage.size()).isZero();
     }
 
+    @Test
+    void testWaitingForEventType() {
+        BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        verify(fileSystemBasedStorage).setMetadata(any(), eq(FileSystemProcessInstances.PI_EVENTS), eq("workItemCompleted"));
+
+        assertThat(fileSystemBasedStorage.waitingForEventType("workItemCompleted", ProcessInstanceReadMode.READ_ONLY))
+                .extracting("id").containsExactly(processInstance.id());
+
+        processInstance.abort();
+        assertThat(fileSystemBasedStorage.waitingForEventType("workItemCompleted", ProcessInstanceReadMode.READ_ONLY)).isEmpty();
+    }
+
+    @Test
+    void testUpdateWithStaleVersion() {
+        BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        FileSystemProcessInstances fileSystemBasedStorage = (FileSystemProcessInstances) process.instances();
+        verify(fileSystemBasedStorage).setMetadata(any(), eq(FileSystemProcessInstances.PI_VERSION), eq("1"));
+
+        MutableProcessInstances<BpmnVariables> instances = (MutableProcessInstances<BpmnVariables>) process.instances();
+        doReturn("1").when(fileSystemBasedStorage).getMetadata(any(), eq(FileSystemProcessInstances.PI_VERSION));
+        ProcessInstance<BpmnVariables> loaded = instances.findById(processInstance.id()).get();
+
+        // simulates an update done by another node after the instance was loaded
+        doReturn("2").when(fileSystemBasedStorage).getMetadata(any(), eq(FileSystemProcessInstances.PI_VERSION));
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class).isThrownBy(() -> instances.update(loaded.id(), loaded));
+
+        ProcessInstance<BpmnVariables> reloaded = instances.findById(processInstance.id()).get();
+        instances.update(reloaded.id(), reloaded);
+        verify(fileSystemBasedStorage).setMetadata(any(), eq(FileSystemProcessInstances.PI_VERSION), eq("3"));
+
+        reloaded.abort();
+        assertThat(instances.size()).isZero();
+    }
+
     @Test
     void testBasicFlowWithStartFrom() {
         BpmnProcess process = createProcess(null, "BPMN2-UserTask.bpmn2");
@@ -236,7 +344,7 @@ class FileSystemProcessInstancesTest {
 
         @Override
         public FileSystemProcessInstances createProcessInstances(Process<?> process) {
-            FileSystemProcessInstances instances = spy(super.createProcessInstances(process));
+            FileSystemProcessInstances instances = spy((FileSystemProcessInstances) super.createProcessInstances(process));
             return instances;
         }
 
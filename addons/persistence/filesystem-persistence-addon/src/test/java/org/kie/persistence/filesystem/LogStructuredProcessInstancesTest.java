@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.persistence.filesystem;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.drools.core.io.impl.ClassPathResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.kogito.auth.SecurityPolicy;
+import org.kie.kogito.persistence.filesystem.LogStructuredProcessInstances;
+import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.WorkItem;
+import org.kie.kogito.process.bpmn2.BpmnProcess;
+import org.kie.kogito.process.bpmn2.BpmnVariables;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
+import org.kie.kogito.services.identity.StaticIdentityProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.kie.api.runtime.process.ProcessInstance.STATE_ACTIVE;
+import static org.kie.api.runtime.process.ProcessInstance.STATE_COMPLETED;
+
+class LogStructuredProcessInstancesTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredProcessInstancesTest.class);
+    private static final int SEGMENT_SIZE = 16 * 1024;
+
+    @TempDir
+    Path storage;
+
+    private SecurityPolicy securityPolicy = SecurityPolicy.of(new StaticIdentityProvider("john"));
+    private BpmnProcess process;
+    private LogStructuredProcessInstances instances;
+
+    @BeforeEach
+    void setup() {
+        process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        open();
+    }
+
+    @AfterEach
+    void cleanup() {
+        instances.close();
+    }
+
+    @Test
+    void testBasicFlow() {
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(instances.exists(processInstance.id())).isTrue();
+        assertThat(instances.size()).isOne();
+        assertThat(instances.summaries()).extracting("id", "status").containsExactly(tuple(processInstance.id(), STATE_ACTIVE));
+        assertThat(instances.waitingForEventType("workItemCompleted", ProcessInstanceReadMode.READ_ONLY))
+                .extracting("id").containsExactly(processInstance.id());
+
+        ProcessInstance<?> loaded = (ProcessInstance<?>) instances.findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY).get();
+        assertThat(((BpmnVariables) loaded.variables()).toMap()).containsEntry("test", "test");
+
+        WorkItem workItem = processInstance.workItems(securityPolicy).get(0);
+        processInstance.completeWorkItem(workItem.getId(), null, securityPolicy);
+
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(instances.exists(processInstance.id())).isFalse();
+        assertThat(instances.size()).isZero();
+        assertThat(instances.summaries()).isEmpty();
+        assertThat(instances.waitingForEventType("workItemCompleted", ProcessInstanceReadMode.READ_ONLY)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateWithStaleVersion() {
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        MutableProcessInstances<BpmnVariables> mutableInstances = (MutableProcessInstances<BpmnVariables>) process.instances();
+        ProcessInstance<BpmnVariables> first = mutableInstances.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> second = mutableInstances.findById(processInstance.id()).get();
+
+        mutableInstances.update(first.id(), first);
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class).isThrownBy(() -> mutableInstances.update(second.id(), second));
+
+        mutableInstances.findById(processInstance.id()).get().abort();
+        assertThat(mutableInstances.size()).isZero();
+    }
+
+    @Test
+    void testRecoveryAfterCompaction() throws Exception {
+        int count = 300;
+        List<ProcessInstance<BpmnVariables>> started = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test" + i)));
+            processInstance.start();
+            started.add(processInstance);
+        }
+        int segments = instances.segmentCount();
+        assertThat(segments).isGreaterThan(2);
+
+        // removing most of the instances makes sealed segments eligible for compaction
+        for (int i = 0; i < count; i++) {
+            if (i % 3 != 0) {
+                started.get(i).abort();
+            }
+        }
+        instances.compact();
+        assertThat(instances.segmentCount()).isLessThan(segments);
+
+        // a record torn by a crash is ignored on recovery
+        Files.write(storage.resolve(LogStructuredProcessInstances.LOG_DIRECTORY).resolve(process.id()).resolve("0000000000001000.segment"),
+                    ByteBuffer.allocate(64).putInt(48).putInt(42).array());
+
+        instances.close();
+        open();
+        LOGGER.info("Recovered {} process instances from {} segments in {} ms", instances.size(), instances.segmentCount(), instances.recoveryTime());
+
+        assertThat(instances.size()).isEqualTo(count / 3);
+        for (int i = 0; i < count; i++) {
+            ProcessInstance<BpmnVariables> processInstance = started.get(i);
+            if (i % 3 == 0) {
+                ProcessInstance<?> recovered = (ProcessInstance<?>) instances.findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY).get();
+                assertThat(((BpmnVariables) recovered.variables()).toMap()).containsEntry("test", "test" + i);
+            } else {
+                assertThat(instances.exists(processInstance.id())).isFalse();
+            }
+        }
+        assertThat(instances.waitingForEventType("workItemCompleted", ProcessInstanceReadMode.READ_ONLY)).hasSize(count / 3);
+        assertThat(instances.summaries()).hasSize(count / 3).allMatch(summary -> summary.status() == STATE_ACTIVE);
+
+        // writes continue after recovery
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(instances.size()).isEqualTo(count / 3 + 1);
+    }
+
+    @Test
+    void testTombstonesDroppedByCompaction() {
+        int count = 300;
+        List<ProcessInstance<BpmnVariables>> started = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test" + i)));
+            processInstance.start();
+            started.add(processInstance);
+        }
+        started.forEach(ProcessInstance::abort);
+        int segments = instances.segmentCount();
+
+        // tombstones are released once the segments holding the records they hide are compacted
+        for (int i = 0; i < segments; i++) {
+            instances.compact();
+        }
+        assertThat(instances.segmentCount()).isOne();
+
+        instances.close();
+        open();
+        assertThat(instances.size()).isZero();
+        assertThat(instances.segmentCount()).isOne();
+    }
+
+    private void open() {
+        instances = new LogStructuredProcessInstances(process, storage, new ProcessInstanceMarshaller(), SEGMENT_SIZE, true, Runnable::run);
+        process.setProcessInstancesFactory(p -> instances);
+        process.configure();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.persistence.filesystem;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.io.impl.ClassPathResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.kogito.auth.SecurityPolicy;
+import org.kie.kogito.persistence.filesystem.FileSystemProcessInstances;
+import org.kie.kogito.persistence.filesystem.LogStructuredProcessInstances;
+import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.WorkItem;
+import org.kie.kogito.process.bpmn2.BpmnProcess;
+import org.kie.kogito.process.bpmn2.BpmnVariables;
+import org.kie.kogito.process.impl.TieredProcessInstances;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
+import org.kie.kogito.services.identity.StaticIdentityProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.kie.api.runtime.process.ProcessInstance.STATE_COMPLETED;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+class TieredProcessInstancesTest {
+
+    @TempDir
+    Path storage;
+
+    private SecurityPolicy securityPolicy = SecurityPolicy.of(new StaticIdentityProvider("john"));
+    private BpmnProcess process;
+    private LogStructuredProcessInstances log;
+    private FileSystemProcessInstances files;
+    private MutableProcessInstances hot;
+    private MutableProcessInstances cold;
+    private TieredProcessInstances<BpmnVariables> instances;
+    private Runnable concurrentWrite;
+
+    @BeforeEach
+    void setup() {
+        process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        log = new LogStructuredProcessInstances(process, storage.resolve("log"), new ProcessInstanceMarshaller(), 16 * 1024, true, Runnable::run) {
+
+            @Override
+            public Optional findById(String id, ProcessInstanceReadMode mode) {
+                Optional found = super.findById(id, mode);
+                if (concurrentWrite != null) {
+                    Runnable write = concurrentWrite;
+                    concurrentWrite = null;
+                    write.run();
+                }
+                return found;
+            }
+        };
+        files = new FileSystemProcessInstances(process, storage.resolve("files"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        log.close();
+    }
+
+    @Test
+    void testEvictionFromVersionedHotStoreToFileSystem() {
+        configure(log, files);
+        ProcessInstance<BpmnVariables> processInstance = start();
+
+        // the first eviction records the version the instance looks idle at
+        assertThat(instances.evictIdle()).isZero();
+        assertThat(instances.evictIdle()).isOne();
+        assertThat(log.exists(processInstance.id())).isFalse();
+        assertThat(files.exists(processInstance.id())).isTrue();
+
+        completeWorkItem(processInstance.id());
+        assertThat(log.exists(processInstance.id())).isFalse();
+        assertThat(files.exists(processInstance.id())).isFalse();
+    }
+
+    @Test
+    void testRehydrationFromLogIntoFileSystem() {
+        configure(files, log);
+        ProcessInstance<BpmnVariables> processInstance = start();
+
+        // moved by the first eviction when the file system does not support versions
+        assertThat(instances.evictIdle() + instances.evictIdle()).isOne();
+        assertThat(log.exists(processInstance.id())).isTrue();
+
+        ProcessInstance<BpmnVariables> rehydrated = instances.findById(processInstance.id(), ProcessInstanceReadMode.MUTABLE).get();
+        assertThat(files.exists(processInstance.id())).isTrue();
+        assertThat(log.exists(processInstance.id())).isFalse();
+        assertThat(rehydrated.variables().toMap()).containsEntry("test", "test");
+
+        completeWorkItem(processInstance.id());
+        assertThat(instances.exists(processInstance.id())).isFalse();
+    }
+
+    @Test
+    void testWriteDuringEvictionKeepsHotInstance() {
+        configure(log, files);
+        ProcessInstance<BpmnVariables> processInstance = start();
+        assertThat(instances.evictIdle()).isZero();
+
+        // another node writes the instance once the eviction loaded it
+        concurrentWrite = () -> {
+            ProcessInstance<BpmnVariables> other = (ProcessInstance<BpmnVariables>) log.findById(processInstance.id()).get();
+            log.update(other.id(), other);
+        };
+        assertThat(instances.evictIdle()).isZero();
+        assertThat(log.exists(processInstance.id())).isTrue();
+        assertThat(files.exists(processInstance.id())).isFalse();
+
+        completeWorkItem(processInstance.id());
+        assertThat(instances.exists(processInstance.id())).isFalse();
+    }
+
+    @Test
+    void testInstanceWrittenByAnotherNodeNotEvicted() {
+        configure(log, files);
+        ProcessInstance<BpmnVariables> processInstance = start();
+        assertThat(instances.evictIdle()).isZero();
+
+        for (int i = 0; i < 3; i++) {
+            ProcessInstance<BpmnVariables> other = (ProcessInstance<BpmnVariables>) log.findById(processInstance.id()).get();
+            log.update(other.id(), other);
+            assertThat(instances.evictIdle()).isZero();
+            assertThat(log.exists(processInstance.id())).isTrue();
+        }
+
+        assertThat(instances.evictIdle()).isOne();
+        assertThat(files.exists(processInstance.id())).isTrue();
+    }
+
+    private void configure(MutableProcessInstances hot, MutableProcessInstances cold) {
+        this.hot = hot;
+        this.cold = cold;
+        instances = new TieredProcessInstances<>(hot, cold, 0, TimeUnit.MILLISECONDS);
+        process.setProcessInstancesFactory(p -> instances);
+        process.configure();
+    }
+
+    private ProcessInstance<BpmnVariables> start() {
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(hot.exists(processInstance.id())).isTrue();
+        assertThat(cold.exists(processInstance.id())).isFalse();
+        return processInstance;
+    }
+
+    private void completeWorkItem(String id) {
+        ProcessInstance<BpmnVariables> processInstance = instances.findById(id, ProcessInstanceReadMode.MUTABLE).get();
+        WorkItem workItem = processInstance.workItems(securityPolicy).get(0);
+        processInstance.completeWorkItem(workItem.getId(), null, securityPolicy);
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.infinispan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.kie.kogito.process.impl.ProcessInstanceEventTypes;
+
+/**
+ * Index of process instance ids keyed by the event type they are waiting on, stored in a
+ * dedicated remote cache so it is shared by all nodes.
+ * <p>
+ * Each (event type, instance) pair is an entry of its own, so subscribing an instance writes only
+ * its own entries whatever the number of instances waiting on the same event. The event types of an
+ * instance are kept in an <code>instance:&lt;id&gt;</code> entry, replaced in the same operation that
+ * returns the previous ones. Looking up subscribers iterates over the entry keys of the cache.
+ */
+public class CacheEventSubscriptionIndex {
+
+    private static final String EVENT_PREFIX = "event:";
+    private static final String INSTANCE_PREFIX = "instance:";
+    private static final String COMPLETE_KEY = "complete";
+    private static final String SEPARATOR = "\n";
+    private static final int BATCH_SIZE = 1000;
+
+    private final RemoteCache<String, String> cache;
+
+    public CacheEventSubscriptionIndex(RemoteCache<String, String> cache) {
+        this.cache = cache;
+    }
+
+    public void subscribe(String id, Set<String> eventTypes) {
+        String previous = eventTypes.isEmpty() ?
+                cache.withFlags(Flag.FORCE_RETURN_VALUE).remove(INSTANCE_PREFIX + id) :
+                cache.withFlags(Flag.FORCE_RETURN_VALUE).put(INSTANCE_PREFIX + id, String.join(SEPARATOR, eventTypes));
+        update(id, split(previous), eventTypes);
+    }
+
+    public void unsubscribe(String id) {
+        subscribe(id, Collections.emptySet());
+    }
+
+    /**
+     * @return true once the instances stored before event types had an entry per instance were indexed, by any node
+     */
+    public boolean isComplete() {
+        return cache.containsKey(COMPLETE_KEY);
+    }
+
+    /**
+     * Indexes an instance that might have been stored before event types had an entry per instance. The event
+     * types recorded for it by the previous format are kept, an instance without any, stored before subscriptions
+     * were indexed at all, is subscribed to given ones unless it was subscribed in the meantime.
+     */
+    public void complete(String id, Set<String> eventTypes) {
+        Set<String> recorded = split(cache.get(INSTANCE_PREFIX + id));
+        if (!recorded.isEmpty()) {
+            update(id, Collections.emptySet(), recorded);
+        } else if (!eventTypes.isEmpty() && cache.withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsent(INSTANCE_PREFIX + id, String.join(SEPARATOR, eventTypes)) == null) {
+            update(id, Collections.emptySet(), eventTypes);
+        }
+    }
+
+    /**
+     * Removes the entries of the previous format, once all stored instances were completed.
+     */
+    public void markComplete() {
+        Set<String> legacy = new LinkedHashSet<>();
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = cache.retrieveEntries(null, BATCH_SIZE)) {
+            while (entries.hasNext()) {
+                String key = (String) entries.next().getKey();
+                if (key.startsWith(EVENT_PREFIX) && !key.contains(SEPARATOR)) {
+                    legacy.add(key);
+                }
+            }
+        }
+        legacy.forEach(cache::remove);
+        cache.put(COMPLETE_KEY, "");
+    }
+
+    /**
+     * @return ids of instances waiting on given event type or on any event
+     */
+    public Set<String> subscribers(String eventType) {
+        Set<String> ids = new LinkedHashSet<>();
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = cache.retrieveEntries(null, BATCH_SIZE)) {
+            while (entries.hasNext()) {
+                Map.Entry<Object, Object> entry = entries.next();
+                String key = (String) entry.getKey();
+                if (!key.startsWith(EVENT_PREFIX)) {
+                    continue;
+                }
+                // instance ids never contain the separator, event types might
+                int separator = key.lastIndexOf(SEPARATOR);
+                if (separator < 0) {
+                    continue;
+                }
+                String type = key.substring(EVENT_PREFIX.length(), separator);
+                if (type.equals(eventType) || type.equals(ProcessInstanceEventTypes.ANY_EVENT)) {
+                    ids.add(key.substring(separator + SEPARATOR.length()));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void update(String id, Set<String> previous, Set<String> eventTypes) {
+        for (String eventType : previous) {
+            if (!eventTypes.contains(eventType)) {
+                cache.remove(entryKey(eventType, id));
+            }
+        }
+        Map<String, String> added = new HashMap<>();
+        for (String eventType : eventTypes) {
+            if (!previous.contains(eventType)) {
+                added.put(entryKey(eventType, id), id);
+            }
+        }
+        if (!added.isEmpty()) {
+            cache.putAll(added);
+        }
+    }
+
+    private static String entryKey(String eventType, String id) {
+        return EVENT_PREFIX + eventType + SEPARATOR + id;
+    }
+
+    private static Set<String> split(String value) {
+        if (value == null || value.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        return new LinkedHashSet<>(Arrays.asList(value.split(SEPARATOR)));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.infinispan;
+
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryExpired;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryExpiredEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
+
+/**
+ * Remote listener of the process instances cache that invalidates entries of the near cache when
+ * process instances are changed by any node. All entries are invalidated after a failover since
+ * events might have been missed.
+ */
+@ClientListener
+public class CacheNearCacheInvalidator {
+
+    private final ProcessInstanceNearCache<?> nearCache;
+
+    public CacheNearCacheInvalidator(ProcessInstanceNearCache<?> nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    @ClientCacheEntryModified
+    public void modified(ClientCacheEntryModifiedEvent<String> event) {
+        nearCache.invalidate(event.getKey(), event.getVersion());
+    }
+
+    @ClientCacheEntryRemoved
+    public void removed(ClientCacheEntryRemovedEvent<String> event) {
+        nearCache.invalidate(event.getKey());
+    }
+
+    @ClientCacheEntryExpired
+    public void expired(ClientCacheEntryExpiredEvent<String> event) {
+        nearCache.invalidate(event.getKey());
+    }
+
+    @ClientCacheFailover
+    public void failover(ClientCacheFailoverEvent event) {
+        nearCache.clear();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.infinispan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.services.outbox.OutboxEntries;
+
+/**
+ * Outbox stored in a dedicated remote cache shared by all nodes. The outbox is expected to stay
+ * small as the relay drains it continuously, so polling sorts the keys on the client.
+ */
+public class CacheOutbox implements Outbox {
+
+    public static final String OUTBOX_CACHE = "kogito_outbox";
+
+    private final RemoteCache<String, byte[]> cache;
+
+    public CacheOutbox(RemoteCacheManager cacheManager, String templateName) {
+        this(cacheManager.administration().getOrCreateCache(OUTBOX_CACHE, templateName == null || templateName.trim().isEmpty() ? null : templateName));
+    }
+
+    public CacheOutbox(RemoteCache<String, byte[]> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void append(Collection<OutboxEntry> entries) {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        for (OutboxEntry entry : entries) {
+            values.put(entry.getId(), OutboxEntries.toBytes(entry));
+        }
+        cache.putAll(values);
+    }
+
+    @Override
+    public List<OutboxEntry> poll(int max) {
+        List<String> ids = cache.keySet().stream()
+                .sorted()
+                .limit(max)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, byte[]> values = cache.getAll(new LinkedHashSet<>(ids));
+        List<OutboxEntry> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            byte[] value = values.get(id);
+            // entry might have been delivered and removed by relay of another node
+            if (value != null) {
+                entries.add(OutboxEntries.fromBytes(id, value));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        ids.forEach(cache::remove);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.infinispan;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
+
+/**
+ * Index of process instance ids keyed by their status and values of indexed variables (see
+ * {@link ProcessInstanceIndexes}), stored in a dedicated remote cache so it is shared by all nodes.
+ * <p>
+ * Every (key, instance) pair is an entry of its own, so indexing an instance writes only its own entries
+ * however many instances share a key. The keys of an instance are kept in an <code>instance:&lt;id&gt;</code>
+ * entry, replaced in the same operation that returns the previous ones. Finding instances iterates over
+ * the entry keys of the cache. Entries of a removed or changed instance might be left behind by concurrent
+ * writes, callers check the instances they load against the query.
+ */
+public class CacheProcessInstanceIndex {
+
+    private static final String KEY_PREFIX = "key:";
+    private static final String INSTANCE_PREFIX = "instance:";
+    private static final String SEPARATOR = "\n";
+    private static final String ESCAPED_SEPARATOR = "\\n";
+    private static final int BATCH_SIZE = 1000;
+
+    private final RemoteCache<String, String> cache;
+
+    public CacheProcessInstanceIndex(RemoteCache<String, String> cache) {
+        this.cache = cache;
+    }
+
+    public void index(String id, Set<String> keys) {
+        String previousKeys = keys.isEmpty() ?
+                cache.withFlags(Flag.FORCE_RETURN_VALUE).remove(INSTANCE_PREFIX + id) :
+                cache.withFlags(Flag.FORCE_RETURN_VALUE).put(INSTANCE_PREFIX + id, keys.stream().map(CacheProcessInstanceIndex::escape).collect(Collectors.joining(SEPARATOR)));
+        Set<String> previous = split(previousKeys).stream().map(CacheProcessInstanceIndex::unescape).collect(Collectors.toSet());
+        for (String key : previous) {
+            if (!keys.contains(key)) {
+                cache.remove(entryKey(key, id));
+            }
+        }
+        Map<String, String> added = new HashMap<>();
+        for (String key : keys) {
+            if (!previous.contains(key)) {
+                added.put(entryKey(key, id), id);
+            }
+        }
+        if (!added.isEmpty()) {
+            cache.putAll(added);
+        }
+    }
+
+    public void remove(String id) {
+        index(id, Collections.emptySet());
+    }
+
+    /**
+     * @return ids of instances that have all given keys
+     */
+    public Set<String> find(Set<String> keys) {
+        if (keys.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        Map<String, Set<String>> idsByKey = new HashMap<>();
+        keys.forEach(key -> idsByKey.put(escape(key), new LinkedHashSet<>()));
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = cache.retrieveEntries(null, BATCH_SIZE)) {
+            while (entries.hasNext()) {
+                Map.Entry<Object, Object> entry = entries.next();
+                String entryKey = (String) entry.getKey();
+                if (!entryKey.startsWith(KEY_PREFIX)) {
+                    continue;
+                }
+                int separator = entryKey.indexOf(SEPARATOR, KEY_PREFIX.length());
+                // keys of entries written before keys had an entry per instance are not escaped
+                Set<String> ids = idsByKey.get(separator < 0 ? escape(entryKey.substring(KEY_PREFIX.length())) : entryKey.substring(KEY_PREFIX.length(), separator));
+                if (ids == null) {
+                    continue;
+                }
+                if (separator < 0) {
+                    // such entries hold the ids of all the instances having the key
+                    ids.addAll(split((String) entry.getValue()));
+                } else {
+                    ids.add(entryKey.substring(separator + SEPARATOR.length()));
+                }
+            }
+        }
+        Set<String> ids = null;
+        for (Set<String> matching : idsByKey.values()) {
+            if (ids == null) {
+                ids = matching;
+            } else {
+                ids.retainAll(matching);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Keys are escaped so the first separator of an entry key is the one preceding the instance id.
+     */
+    private static String entryKey(String key, String id) {
+        return KEY_PREFIX + escape(key) + SEPARATOR + id;
+    }
+
+    private static Set<String> split(String value) {
+        Set<String> values = new LinkedHashSet<>();
+        if (value != null && !value.isEmpty()) {
+            Collections.addAll(values, value.split(SEPARATOR));
+        }
+        return values;
+    }
+
+    private static String escape(String key) {
+        return key.replace("\\", "\\\\").replace(SEPARATOR, ESCAPED_SEPARATOR);
+    }
+
+    private static String unescape(String key) {
+        StringBuilder unescaped = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '\\' && i + 1 < key.length()) {
+                char next = key.charAt(++i);
+                unescaped.append(next == 'n' ? '\n' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.infinispan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.kie.kogito.process.ProcessInstances;
+
+/**
+ * Summaries of process instances stored in a dedicated remote cache next to the process instances,
+ * so listing instances does not transfer and unmarshall them. Values hold the status, business key
+ * and description separated by new lines, absent values are stored as empty lines.
+ */
+public class CacheProcessInstanceSummaries {
+
+    private static final String SEPARATOR = "\n";
+    private static final String ESCAPED_SEPARATOR = "\\n";
+    private static final String PRESENT = "=";
+
+    private final RemoteCache<String, String> cache;
+
+    public CacheProcessInstanceSummaries(RemoteCache<String, String> cache) {
+        this.cache = cache;
+    }
+
+    public void put(ProcessInstanceSummary summary) {
+        cache.put(summary.id(), summary.status() + SEPARATOR + encode(summary.businessKey()) + SEPARATOR + encode(summary.description()));
+    }
+
+    public void remove(String id) {
+        cache.remove(id);
+    }
+
+    public boolean contains(String id) {
+        return cache.containsKey(id);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public List<ProcessInstanceSummary> page(int page, int size) {
+        List<ProcessInstanceSummary> summaries = new ArrayList<>(Math.min(size, 1000));
+        long skip = ProcessInstances.offset(page, size);
+        try (CloseableIterator<Map.Entry<Object, Object>> iterator = cache.retrieveEntries(null, Math.max(Math.min(size, 1000), 1))) {
+            while (iterator.hasNext() && summaries.size() < size) {
+                Map.Entry<Object, Object> entry = iterator.next();
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                summaries.add(decode((String) entry.getKey(), (String) entry.getValue()));
+            }
+        }
+        return summaries;
+    }
+
+    private static ProcessInstanceSummary decode(String id, String value) {
+        String[] parts = value.split(SEPARATOR, -1);
+        return new ProcessInstanceSummary(id, Integer.parseInt(parts[0]), decode(parts[1]), decode(parts[2]));
+    }
+
+    private static String encode(String value) {
+        return value == null ? "" : PRESENT + value.replace("\\", "\\\\").replace(SEPARATOR, ESCAPED_SEPARATOR);
+    }
+
+    private static String decode(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        StringBuilder decoded = new StringBuilder(value.length());
+        for (int i = PRESENT.length(); i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                decoded.append(next == 'n' ? '\n' : next);
+            } else {
+                decoded.append(c);
+            }
+        }
+        return decoded.toString();
+    }
+}
@@ -15,37 +15,111 @@
 
 package org.kie.kogito.infinispan;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.commons.util.CloseableIterator;
 import org.infinispan.protostream.BaseMarshaller;
 import org.kie.kogito.persistence.protobuf.ProtoStreamObjectMarshallingStrategy;
-import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.BatchingProcessInstances;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.kie.kogito.process.ProcessInstances;
+import org.kie.kogito.process.ProcessInstanceWrite;
 import org.kie.kogito.process.impl.AbstractProcessInstance;
+import org.kie.kogito.process.impl.ProcessInstanceEventTypes;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
+import org.kie.kogito.process.impl.marshalling.MarshalledProcessInstance;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceCodecs;
 import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
 
 import static org.kie.kogito.process.ProcessInstanceReadMode.MUTABLE;
 
 @SuppressWarnings({"rawtypes"})
-public class CacheProcessInstances implements MutableProcessInstances {
+public class CacheProcessInstances implements BatchingProcessInstances, AutoCloseable {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_READ_ATTEMPTS = 3;
+    private static final String VARIABLE_KEY_SEPARATOR = ":";
 
     private final RemoteCache<String, byte[]> cache;
+    private final RemoteCache<String, byte[]> variables;
+    private final CacheEventSubscriptionIndex subscriptions;
+    private final CacheProcessInstanceIndex index;
+    // false when instances have no index keys, the index is then neither maintained nor queried
+    private final boolean indexed;
+    private final CacheProcessInstanceSummaries summaries;
+    private volatile boolean summariesComplete;
+    private volatile boolean subscriptionsComplete;
+    private final ProcessInstanceNearCache<MetadataValue<byte[]>> nearCache;
+    private final CacheNearCacheInvalidator nearCacheInvalidator;
     private ProcessInstanceMarshaller marshaller;
     private org.kie.kogito.process.Process<?> process;
 
     public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, String proto, BaseMarshaller<?>... marshallers) {
+        this(process, cacheManager, templateName, false, proto, marshallers);
+    }
+
+    /**
+     * @param splitVariables when true variables are stored as separate entries of the <code>_variables</code> cache
+     * so updates only write the variables that changed instead of the whole process instance
+     */
+    public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, boolean splitVariables, String proto, BaseMarshaller<?>... marshallers) {
+        this(process, cacheManager, templateName, splitVariables, null, proto, marshallers);
+    }
+
+    /**
+     * @param nearCache local cache of process instance entries read by id, kept up to date by a remote listener,
+     * null to always read from the remote cache; when variables are split only the process instance entry is cached
+     */
+    public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, boolean splitVariables,
+                                 ProcessInstanceNearCache<MetadataValue<byte[]>> nearCache, String proto, BaseMarshaller<?>... marshallers) {
         this.process = process;
         this.cache = cacheManager.administration().getOrCreateCache(process.id() + "_store", ignoreNullOrEmpty(templateName));
+        this.variables = splitVariables ? cacheManager.administration().getOrCreateCache(process.id() + "_variables", ignoreNullOrEmpty(templateName)) : null;
+        this.subscriptions = new CacheEventSubscriptionIndex(cacheManager.administration().getOrCreateCache(process.id() + "_events", ignoreNullOrEmpty(templateName)));
+        this.index = new CacheProcessInstanceIndex(cacheManager.administration().getOrCreateCache(process.id() + "_index", ignoreNullOrEmpty(templateName)));
+        this.indexed = ProcessInstanceIndexes.isIndexed(process);
+        this.summaries = new CacheProcessInstanceSummaries(cacheManager.administration().getOrCreateCache(process.id() + "_summaries", ignoreNullOrEmpty(templateName)));
+        this.nearCache = nearCache;
+        if (nearCache != null) {
+            nearCacheInvalidator = new CacheNearCacheInvalidator(nearCache);
+            cache.addClientListener(nearCacheInvalidator);
+        } else {
+            nearCacheInvalidator = null;
+        }
         this.marshaller = new ProcessInstanceMarshaller(new ProtoStreamObjectMarshallingStrategy(proto, marshallers));
     }
 
+    /**
+     * Sets the codecs (e.g. compression) applied to the stored process instances and variables.
+     */
+    public CacheProcessInstances withCodecs(ProcessInstanceCodecs codecs) {
+        marshaller.withCodecs(codecs);
+        return this;
+    }
+
     @Override
     public Integer size() {
         return cache.size();
@@ -53,24 +127,267 @@ public class CacheProcessInstances implements MutableProcessInstances {
 
     @Override
     public Optional<? extends ProcessInstance> findById(String id, ProcessInstanceReadMode mode) {
-        byte[] data = cache.get(id);
+        MetadataValue<byte[]> data = load(id);
         if (data == null) {
             return Optional.empty();
         }
 
-        return Optional.of(mode == MUTABLE ?
-                                   marshaller.unmarshallProcessInstance(data, process) :
-                                   marshaller.unmarshallReadOnlyProcessInstance(data, process));
+        return Optional.ofNullable(unmarshall(id, data, mode));
     }
 
     @Override
     public Collection<? extends ProcessInstance> values(ProcessInstanceReadMode mode) {
-        return cache.values()
-                .parallelStream()
-                .map(data -> mode == MUTABLE ?
-                        marshaller.unmarshallProcessInstance(data, process) :
-                        marshaller.unmarshallReadOnlyProcessInstance(data, process))
-                .collect(Collectors.toList());
+        List<ProcessInstance> instances = new ArrayList<>();
+        try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> iterator = cache.retrieveEntriesWithMetadata(null, BATCH_SIZE)) {
+            while (iterator.hasNext()) {
+                Map.Entry<Object, MetadataValue<Object>> entry = iterator.next();
+                addIfPresent(instances, unmarshall((String) entry.getKey(), (MetadataValue) entry.getValue(), mode));
+            }
+        }
+        return instances;
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance> values(ProcessInstanceReadMode mode, int page, int size) {
+        List<ProcessInstance> instances = new ArrayList<>(Math.min(size, 1000));
+        long skip = ProcessInstances.offset(page, size);
+        // entries are iterated remotely in batches of the page size so only the requested page is kept in memory
+        try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> iterator = cache.retrieveEntriesWithMetadata(null, Math.max(size, 1))) {
+            while (iterator.hasNext() && instances.size() < size) {
+                Map.Entry<Object, MetadataValue<Object>> entry = iterator.next();
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                addIfPresent(instances, unmarshall((String) entry.getKey(), (MetadataValue) entry.getValue(), mode));
+            }
+        }
+        return instances;
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        if (!summariesComplete) {
+            completeSummaries();
+        }
+        return summaries.page(page, size);
+    }
+
+    /**
+     * Writes summaries of instances stored before summaries were written, done once as every write keeps them up to date.
+     */
+    private synchronized void completeSummaries() {
+        if (summariesComplete) {
+            return;
+        }
+        if (summaries.size() < cache.size()) {
+            try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> iterator = cache.retrieveEntriesWithMetadata(null, BATCH_SIZE)) {
+                while (iterator.hasNext()) {
+                    Map.Entry<Object, MetadataValue<Object>> entry = iterator.next();
+                    String id = (String) entry.getKey();
+                    if (!summaries.contains(id)) {
+                        ProcessInstance instance = unmarshall(id, (MetadataValue) entry.getValue(), ProcessInstanceReadMode.READ_ONLY);
+                        if (instance != null) {
+                            summaries.put(ProcessInstanceSummary.of(instance));
+                        }
+                        if (!cache.containsKey(id)) {
+                            // removed in the meantime
+                            summaries.remove(id);
+                        }
+                    }
+                }
+            }
+        }
+        summariesComplete = true;
+    }
+
+    /**
+     * Indexes the subscriptions of instances stored before each subscription had an entry of its own, or before
+     * subscriptions were indexed at all, done once for all nodes.
+     */
+    private synchronized void completeSubscriptions() {
+        if (subscriptionsComplete) {
+            return;
+        }
+        if (!subscriptions.isComplete()) {
+            try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> iterator = cache.retrieveEntriesWithMetadata(null, BATCH_SIZE)) {
+                while (iterator.hasNext()) {
+                    Map.Entry<Object, MetadataValue<Object>> entry = iterator.next();
+                    String id = (String) entry.getKey();
+                    ProcessInstance instance = unmarshall(id, (MetadataValue) entry.getValue(), ProcessInstanceReadMode.READ_ONLY);
+                    if (instance != null) {
+                        subscriptions.complete(id, ProcessInstanceEventTypes.of(instance));
+                    }
+                }
+            }
+            subscriptions.markComplete();
+        }
+        subscriptionsComplete = true;
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        if (!subscriptionsComplete) {
+            completeSubscriptions();
+        }
+        List<ProcessInstance> instances = new ArrayList<>();
+        for (String id : subscriptions.subscribers(eventType)) {
+            MetadataValue<byte[]> data = load(id);
+            if (data != null) {
+                addIfPresent(instances, unmarshall(id, data, mode));
+            }
+        }
+        return instances;
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        if (query.isEmpty() || !ProcessInstanceIndexes.isIndexed(process, query)) {
+            return BatchingProcessInstances.super.query(query, mode);
+        }
+        return load(index.find(ProcessInstanceIndexes.keys(query)), query, mode);
+    }
+
+    @Override
+    public Collection<? extends ProcessInstance> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode, int page, int size) {
+        if (query.isEmpty() || !ProcessInstanceIndexes.isIndexed(process, query)) {
+            return BatchingProcessInstances.super.query(query, mode, page, size);
+        }
+        // the page is selected from the index so only its instances are loaded
+        return load(index.find(ProcessInstanceIndexes.keys(query))
+                .stream()
+                .sorted()
+                .skip(ProcessInstances.offset(page, size))
+                .limit(size)
+                .collect(Collectors.toList()), query, mode);
+    }
+
+    private List<ProcessInstance> load(Collection<String> ids, ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        List<ProcessInstance> instances = new ArrayList<>();
+        for (Map.Entry<String, MetadataValue<byte[]>> loaded : load(ids).entrySet()) {
+            String id = loaded.getKey();
+            MetadataValue<byte[]> data = loaded.getValue();
+            if (data != null) {
+                ProcessInstance instance = unmarshall(id, data, mode);
+                // index is updated after the instance so it might be behind it
+                if (instance != null && query.matches(instance)) {
+                    instances.add(instance);
+                }
+            }
+        }
+        return instances;
+    }
+
+    /**
+     * Reads process instance entries, the ones not in the near cache are requested from the remote cache
+     * all at once rather than one after the other.
+     *
+     * @return entries by id in the order of given ids, null for removed instances
+     */
+    protected Map<String, MetadataValue<byte[]>> load(Collection<String> ids) {
+        Map<String, MetadataValue<byte[]>> loaded = new LinkedHashMap<>();
+        Map<String, CompletableFuture<MetadataValue<byte[]>>> requested = new HashMap<>();
+        // taken before the remote reads, as in load(String)
+        long stamp = nearCache == null ? 0 : nearCache.stamp();
+        for (String id : ids) {
+            MetadataValue<byte[]> data = nearCache == null ? null : nearCache.get(id);
+            loaded.put(id, data);
+            if (data == null) {
+                requested.put(id, cache.getWithMetadataAsync(id));
+            }
+        }
+        requested.forEach((id, data) -> {
+            MetadataValue<byte[]> value = data.join();
+            loaded.put(id, value);
+            if (value != null && nearCache != null) {
+                nearCache.put(id, value.getVersion(), value, stamp);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Reads process instance entry from the near cache if present, otherwise from the remote cache.
+     */
+    protected MetadataValue<byte[]> load(String id) {
+        if (nearCache == null) {
+            return cache.getWithMetadata(id);
+        }
+        MetadataValue<byte[]> data = nearCache.get(id);
+        if (data == null) {
+            long stamp = nearCache.stamp();
+            data = cache.getWithMetadata(id);
+            if (data != null) {
+                nearCache.put(id, data.getVersion(), data, stamp);
+            }
+        }
+        return data;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ProcessInstance unmarshall(String id, MetadataValue<byte[]> data, ProcessInstanceReadMode mode) {
+        return read(id, data, current -> {
+            ProcessInstance instance;
+            if (variables == null) {
+                instance = mode == MUTABLE ?
+                        marshaller.unmarshallProcessInstance(current.getValue(), process) :
+                        marshaller.unmarshallReadOnlyProcessInstance(current.getValue(), process);
+            } else {
+                instance = mode == MUTABLE ?
+                        marshaller.unmarshallProcessInstance(current.getValue(), process, references -> loadVariables(id, references)) :
+                        marshaller.unmarshallReadOnlyProcessInstance(current.getValue(), process, references -> loadVariables(id, references));
+            }
+            ((AbstractProcessInstance<?>) instance).internalSetVersion(current.getVersion());
+            return instance;
+        });
+    }
+
+    /**
+     * Reads given process instance data, when variables are stored separately the process instance
+     * might be updated by another node while they are loaded, in such case it is read again.
+     *
+     * @return result of the reader or null if the process instance was removed in the meantime
+     */
+    protected <R> R read(String id, MetadataValue<byte[]> data, Function<MetadataValue<byte[]>, R> reader) {
+        MetadataValue<byte[]> current = data;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return reader.apply(current);
+            } catch (VariablesNotFoundException e) {
+                if (attempt == MAX_READ_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to load variables of process instance " + id, e);
+                }
+                invalidate(id);
+                current = load(id);
+                if (current == null) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    protected Map<String, byte[]> loadVariables(String id, Set<String> references) {
+        Map<String, String> keys = new HashMap<>();
+        for (String reference : references) {
+            keys.put(variableKey(id, reference), reference);
+        }
+        Map<String, byte[]> loaded = variables.getAll(keys.keySet());
+        if (loaded.size() < keys.size()) {
+            throw new VariablesNotFoundException();
+        }
+        Map<String, byte[]> result = new HashMap<>();
+        loaded.forEach((key, value) -> result.put(keys.get(key), value));
+        return result;
+    }
+
+    protected String variableKey(String id, String reference) {
+        return id + VARIABLE_KEY_SEPARATOR + reference;
+    }
+
+    private static void addIfPresent(List<ProcessInstance> instances, ProcessInstance instance) {
+        if (instance != null) {
+            instances.add(instance);
+        }
     }
 
     @Override
@@ -80,7 +397,52 @@ public class CacheProcessInstances implements MutableProcessInstances {
 
     @Override
     public void remove(String id) {
+        byte[] data = variables == null ? null : cache.get(id);
         cache.remove(id);
+        removed(id, data);
+    }
+
+    @Override
+    public void removeIfUnchanged(String id, ProcessInstance instance) {
+        long version = ((AbstractProcessInstance<?>) instance).version();
+        if (version == 0) {
+            remove(id);
+            return;
+        }
+        MetadataValue<byte[]> current = cache.getWithMetadata(id);
+        if (current == null) {
+            return;
+        }
+        if (current.getVersion() != version || !cache.removeWithVersion(id, version)) {
+            invalidate(id);
+            throw new ProcessInstanceOptimisticLockingException(id);
+        }
+        removed(id, current.getValue());
+    }
+
+    /**
+     * Cleans up what belongs to a removed process instance.
+     *
+     * @param data last process instance entry, used to find its variable entries
+     */
+    private void removed(String id, byte[] data) {
+        if (variables != null && data != null) {
+            for (String reference : marshaller.externalVariableReferences(data, process)) {
+                variables.remove(variableKey(id, reference));
+            }
+        }
+        invalidate(id);
+        subscriptions.unsubscribe(id);
+        if (indexed) {
+            index.remove(id);
+        }
+        summaries.remove(id);
+    }
+
+    protected void invalidate(String id) {
+        if (nearCache != null) {
+            nearCache.invalidate(id);
+        }
     }
 
     protected String ignoreNullOrEmpty(String value) {
@@ -96,32 +458,225 @@ public class CacheProcessInstances implements MutableProcessInstances {
         updateStorage(id, instance, true);
     }
 
-    @SuppressWarnings("unchecked")
     protected void updateStorage(String id, ProcessInstance instance, boolean checkDuplicates) {
         if (isActive(instance)) {
-            byte[] data = marshaller.marshallProcessInstance(instance);
+            Map<String, byte[]> changed = new HashMap<>();
+            PreparedEntry entry = prepare(id, instance, changed);
+            // changed variables are written first so the process instance never references missing entries,
+            // they are removed again when the process instance entry is not written due to a conflict
+            if (!changed.isEmpty()) {
+                variables.putAll(changed);
+            }
 
             if (checkDuplicates) {
-                byte[] existing = cache.putIfAbsent(id, data);
+                byte[] existing = cache.putIfAbsent(id, entry.data);
                 if (existing != null) {
+                    discarded(id, entry, existing);
                     throw new ProcessInstanceDuplicatedException(id);
                 }
             } else {
-                cache.put(id, data);
+                long version = ((AbstractProcessInstance<?>) instance).version();
+                // instances loaded before versioning was in place are written unconditionally
+                boolean replaced = true;
+                if (version == 0) {
+                    cache.put(id, entry.data);
+                } else {
+                    replaced = cache.replaceWithVersion(id, entry.data, version);
+                }
+                // version of the written entry is not known, it is cached again once read
+                invalidate(id);
+                if (!replaced) {
+                    discarded(id, entry, cache.get(id));
+                    throw new ProcessInstanceOptimisticLockingException(id);
+                }
+            }
+            written(id, instance, entry);
+            if (checkDuplicates) {
+                created(instance, entry, cache.getWithMetadata(id));
+            }
+        }
+    }
+
+    /**
+     * Sends the process instance entries of all writes before waiting for any of them, so they share
+     * a single round trip to the remote cache. Hot Rod has no conditional bulk operation, so each entry
+     * is still checked against its own version. Removals are performed one by one, also checked against the version.
+     */
+    @Override
+    public Map writeAll(List writes) {
+        Map<ProcessInstanceWrite, RuntimeException> failures = new HashMap<>();
+        List<ProcessInstanceWrite> sent = new ArrayList<>();
+        List<PreparedEntry> entries = new ArrayList<>();
+        Map<String, byte[]> changed = new HashMap<>();
+        for (Object item : writes) {
+            ProcessInstanceWrite write = (ProcessInstanceWrite) item;
+            try {
+                if (write.type() == ProcessInstanceWrite.Type.REMOVE) {
+                    removeIfUnchanged(write.id(), write.instance());
+                } else if (isActive(write.instance())) {
+                    entries.add(prepare(write.id(), write.instance(), changed));
+                    sent.add(write);
+                }
+            } catch (RuntimeException e) {
+                failures.put(write, e);
             }
+        }
+        if (!changed.isEmpty()) {
+            variables.putAll(changed);
+        }
 
-            ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
-                byte[] reloaded = cache.get(id);
-                if (reloaded != null) {
-                    return marshaller.unmarshallWorkflowProcessInstance(reloaded, process);
+        Map<String, Integer> created = new LinkedHashMap<>();
+        List<CompletableFuture<?>> results = new ArrayList<>(sent.size());
+        for (int i = 0; i < sent.size(); i++) {
+            results.add(send(sent.get(i), entries.get(i)));
+        }
+        for (int i = 0; i < sent.size(); i++) {
+            ProcessInstanceWrite write = sent.get(i);
+            try {
+                Object result = results.get(i).join();
+                if (write.type() == ProcessInstanceWrite.Type.CREATE) {
+                    if (result != null) {
+                        discarded(write.id(), entries.get(i), (byte[]) result);
+                        throw new ProcessInstanceDuplicatedException(write.id());
+                    }
+                } else {
+                    invalidate(write.id());
+                    if (Boolean.FALSE.equals(result)) {
+                        discarded(write.id(), entries.get(i), cache.get(write.id()));
+                        throw new ProcessInstanceOptimisticLockingException(write.id());
+                    }
                 }
-                return null;
+                written(write.id(), write.instance(), entries.get(i));
+                if (write.type() == ProcessInstanceWrite.Type.CREATE) {
+                    created.put(write.id(), i);
+                }
+            } catch (CompletionException e) {
+                failures.put(write, e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e);
+            } catch (RuntimeException e) {
+                failures.put(write, e);
+            }
+        }
+        if (!created.isEmpty()) {
+            load(created.keySet()).forEach((id, current) -> {
+                int i = created.get(id);
+                created(sent.get(i).instance(), entries.get(i), current);
             });
         }
+        return failures;
+    }
+
+    /**
+     * Sets the version the remote cache assigned to a newly created process instance entry, so later
+     * updates and removals of the same instance are conditional. Should the entry have been changed
+     * already, the instance gets a version no entry can have and its next conditional write fails.
+     *
+     * @param current process instance entry read back after it was created, null if already removed
+     */
+    private void created(ProcessInstance instance, PreparedEntry entry, MetadataValue<byte[]> current) {
+        boolean unchanged = current != null && Arrays.equals(current.getValue(), entry.data);
+        ((AbstractProcessInstance<?>) instance).internalSetVersion(unchanged ? current.getVersion() : Long.MIN_VALUE);
+    }
+
+    private CompletableFuture<?> send(ProcessInstanceWrite write, PreparedEntry entry) {
+        if (write.type() == ProcessInstanceWrite.Type.CREATE) {
+            return cache.putIfAbsentAsync(write.id(), entry.data);
+        }
+        long version = ((AbstractProcessInstance<?>) write.instance()).version();
+        return version == 0 ? cache.putAsync(write.id(), entry.data) : cache.replaceWithVersionAsync(write.id(), entry.data, version);
+    }
+
+    /**
+     * Marshalls given process instance, changed variables are added to given entries to be written
+     * before the process instance.
+     */
+    private PreparedEntry prepare(String id, ProcessInstance instance, Map<String, byte[]> changedVariables) {
+        PreparedEntry entry = new PreparedEntry();
+        entry.eventTypes = ProcessInstanceEventTypes.of(instance);
+        if (indexed) {
+            entry.indexKeys = ProcessInstanceIndexes.keys(instance.status(), ProcessInstanceIndexes.of(instance));
+        }
+        if (variables == null) {
+            entry.data = marshaller.marshallProcessInstance(instance);
+        } else {
+            entry.marshalled = marshaller.marshallProcessInstanceAndVariables(instance);
+            entry.data = entry.marshalled.getProcessInstance();
+            entry.marshalled.getVariables().forEach((reference, variable) -> changedVariables.put(variableKey(id, reference), variable));
+        }
+        return entry;
+    }
+
+    /**
+     * Removes the variable entries written ahead of a process instance entry that lost a conflicting write,
+     * so they are not left behind. Variables are identified by their content, so entries also referenced
+     * by the process instance that won are kept.
+     *
+     * @param current process instance entry currently stored, null if there is none
+     */
+    private void discarded(String id, PreparedEntry entry, byte[] current) {
+        if (entry.marshalled == null || entry.marshalled.getVariables().isEmpty()) {
+            return;
+        }
+        Set<String> referenced = current == null ? Collections.emptySet() : marshaller.externalVariableReferences(current, process);
+        for (String reference : entry.marshalled.getVariables().keySet()) {
+            if (!referenced.contains(reference)) {
+                variables.remove(variableKey(id, reference));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void written(String id, ProcessInstance instance, PreparedEntry entry) {
+        if (entry.marshalled != null) {
+            for (String reference : entry.marshalled.getRemovedVariables()) {
+                variables.remove(variableKey(id, reference));
+            }
+        }
+        subscriptions.subscribe(id, entry.eventTypes);
+        if (indexed) {
+            index.index(id, entry.indexKeys);
+        }
+        summaries.put(ProcessInstanceSummary.of(instance));
+
+        ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
+            MetadataValue<byte[]> reloaded = load(id);
+            if (reloaded == null) {
+                return null;
+            }
+            return read(id, reloaded, current -> {
+                // the instance now reflects the reloaded state so further updates are checked against its version
+                ((AbstractProcessInstance<?>) instance).internalSetVersion(current.getVersion());
+                return variables == null ?
+                        marshaller.unmarshallWorkflowProcessInstance(current.getValue(), process) :
+                        marshaller.unmarshallWorkflowProcessInstance(current.getValue(), process, references -> loadVariables(id, references));
+            });
+        });
     }
 
     @Override
     public boolean exists(String id) {
         return cache.containsKey(id);
     }
+
+    /**
+     * Removes the remote listener that keeps the near cache up to date.
+     */
+    @Override
+    public void close() {
+        if (nearCacheInvalidator != null) {
+            cache.removeClientListener(nearCacheInvalidator);
+        }
+    }
+
+    private static class PreparedEntry {
+
+        private byte[] data;
+        private MarshalledProcessInstance marshalled;
+        private Set<String> eventTypes;
+        private Set<String> indexKeys;
+    }
+
+    private static class VariablesNotFoundException extends RuntimeException {
+
+        private static final long serialVersionUID = 4617324588233516375L;
+    }
 }
@@ -17,28 +17,41 @@ package org.kie.kogito.persistence;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.protostream.BaseMarshaller;
+import org.kie.kogito.infinispan.CacheOutbox;
 import org.kie.kogito.infinispan.CacheProcessInstances;
+import org.kie.kogito.outbox.Outbox;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstancesFactory;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceCodecs;
 
 /**
  * This class must always have exact FQCN as <code>org.kie.kogito.persistence.KogitoProcessInstancesFactory</code>
  *
  */
-public abstract class KogitoProcessInstancesFactory implements ProcessInstancesFactory {
+public abstract class KogitoProcessInstancesFactory implements ProcessInstancesFactory, AutoCloseable {
    
     protected RemoteCacheManager cacheManager; 
 
+    private final List<CacheProcessInstances> createdInstances = new CopyOnWriteArrayList<>();
+
     public KogitoProcessInstancesFactory(RemoteCacheManager cacheManager) {
         this.cacheManager = cacheManager;
     }
     
     public CacheProcessInstances createProcessInstances(Process<?> process) {
         List<BaseMarshaller<?>> marshallers = marshallers();
-        return new CacheProcessInstances(process, cacheManager, template(), proto(), marshallers.toArray(new BaseMarshaller<?>[0]));
+        ProcessInstanceNearCache<MetadataValue<byte[]>> nearCache = nearCacheSize() > 0 ? new ProcessInstanceNearCache<>(nearCacheSize(), nearCacheExpiration(), TimeUnit.SECONDS) : null;
+        CacheProcessInstances instances = new CacheProcessInstances(process, cacheManager, template(), splitVariables(), nearCache, proto(), marshallers.toArray(new BaseMarshaller<?>[0]))
+                .withCodecs(ProcessInstanceCodecs.of(compressionThreshold(), checksum()));
+        createdInstances.add(instances);
+        return instances;
     }
     
     public String proto() {
@@ -52,4 +65,52 @@ public abstract class KogitoProcessInstancesFactory implements ProcessInstancesF
     public String template() {
         return null;
     }
+
+    public boolean splitVariables() {
+        return false;
+    }
+
+    /**
+     * @return outbox stored in a remote cache created from the same template as process instances
+     */
+    public Outbox createOutbox() {
+        return new CacheOutbox(cacheManager, template());
+    }
+
+    /**
+     * @return maximum number of process instances kept in the near cache of each process, zero disables it
+     */
+    public int nearCacheSize() {
+        return 0;
+    }
+
+    /**
+     * @return seconds after which process instances in the near cache are read from the remote cache again
+     */
+    public long nearCacheExpiration() {
+        return 60;
+    }
+
+    /**
+     * @return minimum size in bytes of process instances and split variables stored compressed, zero disables compression
+     */
+    public int compressionThreshold() {
+        return 0;
+    }
+
+    /**
+     * @return true to store process instances with a checksum verified when they are read
+     */
+    public boolean checksum() {
+        return false;
+    }
+
+    /**
+     * Closes the process instances created by this factory, removing the remote listeners of their near caches.
+     */
+    @Override
+    public void close() {
+        createdInstances.forEach(CacheProcessInstances::close);
+        createdInstances.clear();
+    }
 }
@@ -15,16 +15,27 @@
 
 package org.kie.kogito.infinispan;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.drools.core.io.impl.ClassPathResource;
+import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.RemoteCacheManagerAdmin;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.impl.MetadataValueImpl;
+import org.infinispan.commons.util.Closeables;
 import org.infinispan.protostream.BaseMarshaller;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.workflow.core.DroolsAction;
@@ -32,13 +43,17 @@ import org.jbpm.workflow.core.WorkflowProcess;
 import org.jbpm.workflow.core.node.ActionNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.kie.api.definition.process.Node;
 import org.kie.kogito.auth.SecurityPolicy;
 import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
+import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.ProcessError;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
 import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
 import org.kie.kogito.process.ProcessInstances;
 import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.bpmn2.BpmnProcess;
@@ -52,44 +67,124 @@ import static org.assertj.core.api.Assertions.entry;
 import static org.kie.api.runtime.process.ProcessInstance.STATE_ACTIVE;
 import static org.kie.api.runtime.process.ProcessInstance.STATE_COMPLETED;
 import static org.kie.api.runtime.process.ProcessInstance.STATE_ERROR;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class MockCacheProcessInstancesTest {
 
     private final ConcurrentHashMap<Object, Object> mockCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, Long> mockVersions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, Object> mockVariables = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, Object> mockSummaries = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
     private RemoteCacheManager cacheManager;
+    private RemoteCache<Object, Object> cache;
 
     @BeforeEach
     public void setup() {
         mockCache.clear();
+        mockVersions.clear();
+        mockVariables.clear();
+        mockSummaries.clear();
         cacheManager = mock(RemoteCacheManager.class);
         RemoteCacheManagerAdmin admin = mock(RemoteCacheManagerAdmin.class);
-        RemoteCache<Object, Object> cache = mock(RemoteCache.class);
+        cache = mock(RemoteCache.class);
 
         when(cacheManager.administration()).thenReturn(admin);
-        when(admin.getOrCreateCache(any(), (String) any())).thenReturn(cache);
+        when(admin.getOrCreateCache(endsWith("_store"), (String) any())).thenReturn(cache);
+
+        RemoteCache<Object, Object> eventsCache = mock(RemoteCache.class);
+        when(admin.getOrCreateCache(endsWith("_events"), (String) any())).thenReturn(eventsCache);
+        when(eventsCache.withFlags(any())).thenReturn(eventsCache);
+
+        RemoteCache<Object, Object> indexCache = mock(RemoteCache.class);
+        when(admin.getOrCreateCache(endsWith("_index"), (String) any())).thenReturn(indexCache);
+        when(indexCache.withFlags(any())).thenReturn(indexCache);
+
+        RemoteCache<Object, Object> summariesCache = mock(RemoteCache.class);
+        when(admin.getOrCreateCache(endsWith("_summaries"), (String) any())).thenReturn(summariesCache);
+        when(summariesCache.put(any(), any())).then(invocation -> mockSummaries.put(invocation.getArgument(0, Object.class), invocation.getArgument(1, Object.class)));
+        when(summariesCache.remove(any())).then(invocation -> mockSummaries.remove(invocation.getArgument(0, Object.class)));
+        when(summariesCache.size()).then(invocation -> mockSummaries.size());
+        when(summariesCache.containsKey(any())).then(invocation -> mockSummaries.containsKey(invocation.getArgument(0, Object.class)));
+        when(summariesCache.retrieveEntries(any(), anyInt())).then(invocation -> Closeables.iterator(new HashMap<>(mockSummaries).entrySet().iterator()));
+
+        RemoteCache<Object, Object> variablesCache = mock(RemoteCache.class);
+        when(admin.getOrCreateCache(endsWith("_variables"), (String) any())).thenReturn(variablesCache);
+        doAnswer(invocation -> {
+            mockVariables.putAll(invocation.getArgument(0, Map.class));
+            return null;
+        }).when(variablesCache).putAll(anyMap());
+        when(variablesCache.getAll(anySet())).then(invocation -> {
+            Map<Object, Object> found = new HashMap<>();
+            for (Object key : invocation.getArgument(0, Set.class)) {
+                if (mockVariables.containsKey(key)) {
+                    found.put(key, mockVariables.get(key));
+                }
+            }
+            return found;
+        });
+        when(variablesCache.remove(any())).then(invocation -> mockVariables.remove(invocation.getArgument(0, Object.class)));
 
         when(cache.put(any(), any())).then(invocation -> {
             Object key = invocation.getArgument(0, Object.class);
             Object value = invocation.getArgument(1, Object.class);
+            mockVersions.put(key, versionSequence.incrementAndGet());
             return mockCache.put(key, value);
         });
         when(cache.putIfAbsent(any(), any())).then(invocation -> {
             Object key = invocation.getArgument(0, Object.class);
             Object value = invocation.getArgument(1, Object.class);
+            mockVersions.put(key, versionSequence.incrementAndGet());
             return mockCache.put(key, value);
         });
+        when(cache.replaceWithVersion(any(), any(), anyLong())).then(invocation -> {
+            Object key = invocation.getArgument(0, Object.class);
+            Object value = invocation.getArgument(1, Object.class);
+            long version = invocation.getArgument(2, Long.class);
+            synchronized (mockCache) {
+                if (!mockCache.containsKey(key) || mockVersions.get(key) != version) {
+                    return false;
+                }
+                mockVersions.put(key, versionSequence.incrementAndGet());
+                mockCache.put(key, value);
+                return true;
+            }
+        });
         when(cache.get(any())).then(invocation -> {
             Object key = invocation.getArgument(0, Object.class);
             return mockCache.get(key);
         });
+        when(cache.getWithMetadata(any())).then(invocation -> {
+            Object key = invocation.getArgument(0, Object.class);
+            Object value = mockCache.get(key);
+            if (value == null) {
+                return null;
+            }
+            return new MetadataValueImpl<>(-1, -1, -1, -1, mockVersions.get(key), value);
+        });
         when(cache.remove(any())).then(invocation -> {
             Object key = invocation.getArgument(0, Object.class);
             return mockCache.remove(key);
         });
         when(cache.size()).then(invocation -> mockCache.size());
+        when(cache.containsKey(any())).then(invocation -> mockCache.containsKey(invocation.getArgument(0, Object.class)));
+        when(cache.retrieveEntriesWithMetadata(any(), anyInt())).then(invocation -> {
+            List<Map.Entry<Object, MetadataValue<Object>>> entries = new ArrayList<>();
+            mockCache.forEach((key, value) -> entries.add(new AbstractMap.SimpleEntry<>(key, new MetadataValueImpl<>(-1, -1, -1, -1, mockVersions.get(key), value))));
+            return Closeables.iterator(entries.iterator());
+        });
     }
 
     @Test
@@ -154,6 +249,48 @@ public class MockCacheProcessInstancesTest {
         assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
     }
 
+    @Test
+    public void testSummaries() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance("business\nkey", BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        assertThat(process.instances().summaries()).hasSize(1);
+        ProcessInstanceSummary summary = process.instances().summaries().iterator().next();
+        assertThat(summary.id()).isEqualTo(processInstance.id());
+        assertThat(summary.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(summary.businessKey()).isEqualTo("business\nkey");
+        assertThat(summary.description()).isEqualTo(processInstance.description());
+
+        processInstance.abort();
+        assertThat(process.instances().summaries()).isEmpty();
+    }
+
+    @Test
+    public void testSummariesOfInstancesStoredWithoutThem() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        // instance stored before summaries were written
+        mockSummaries.clear();
+
+        assertThat(process.instances().summaries()).extracting(ProcessInstanceSummary::id).containsExactly(processInstance.id());
+        assertThat(mockSummaries).containsOnlyKeys(processInstance.id());
+
+        // completed once, later listings read the summaries only
+        clearInvocations(cache);
+        assertThat(process.instances().summaries()).hasSize(1);
+        verify(cache, never()).size();
+        verify(cache, never()).retrieveEntriesWithMetadata(any(), anyInt());
+        processInstance.abort();
+    }
+
     @Test
     public void testBasicFlowNoActors() {
         BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask-NoActors.bpmn2")).get(0);
@@ -210,6 +347,126 @@ public class MockCacheProcessInstancesTest {
         });
     }
 
+    @Test
+    public void testBasicFlowWithSplitVariables() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(mockVariables).hasSize(1);
+        Set<Object> storedVariables = new HashSet<>(mockVariables.keySet());
+
+        ProcessInstance<BpmnVariables> loaded = process.instances().findById(processInstance.id()).get();
+        assertThat(loaded.variables().toMap()).containsEntry("test", "test");
+
+        // unchanged variables are not written again
+        MutableProcessInstances<BpmnVariables> instances = (MutableProcessInstances<BpmnVariables>) process.instances();
+        instances.update(loaded.id(), loaded);
+        assertThat(mockVariables.keySet()).isEqualTo(storedVariables);
+
+        processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "updated")));
+        assertThat(mockVariables).hasSize(1);
+        assertThat(mockVariables.keySet()).isNotEqualTo(storedVariables);
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "updated");
+
+        WorkItem workItem = processInstance.workItems(SecurityPolicy.of(new StaticIdentityProvider("john"))).get(0);
+        processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(mockVariables).isEmpty();
+    }
+
+    @Test
+    public void testConcurrentUpdateConflict() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+
+        MutableProcessInstances<BpmnVariables> instances = (MutableProcessInstances<BpmnVariables>) process.instances();
+        ProcessInstance<BpmnVariables> first = instances.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> second = instances.findById(processInstance.id()).get();
+
+        instances.update(first.id(), first);
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class).isThrownBy(() -> instances.update(second.id(), second));
+
+        ProcessInstance<BpmnVariables> reloaded = instances.findById(processInstance.id()).get();
+        instances.update(reloaded.id(), reloaded);
+        assertThat(instances.size()).isOne();
+    }
+
+    @Test
+    public void testConcurrentUpdateConflictWithSplitVariables() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        MutableProcessInstances<BpmnVariables> instances = (MutableProcessInstances<BpmnVariables>) process.instances();
+        ProcessInstance<BpmnVariables> first = instances.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> second = instances.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> third = instances.findById(processInstance.id()).get();
+
+        first.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "first")));
+        Set<Object> storedVariables = new HashSet<>(mockVariables.keySet());
+        assertThat(storedVariables).hasSize(1);
+
+        // variables written by the losing update are removed
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class)
+                .isThrownBy(() -> second.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "second"))));
+        assertThat(mockVariables.keySet()).isEqualTo(storedVariables);
+
+        // the same variable written by the winning update is kept
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class)
+                .isThrownBy(() -> third.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "first"))));
+        assertThat(mockVariables.keySet()).isEqualTo(storedVariables);
+        assertThat(instances.findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "first");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNearCache() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 10));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+
+        ProcessInstances<BpmnVariables> instances = process.instances();
+        assertThat(instances.findById(processInstance.id())).isPresent();
+        ArgumentCaptor<Object> listener = ArgumentCaptor.forClass(Object.class);
+        verify(cache).addClientListener(listener.capture());
+        clearInvocations(cache);
+
+        assertThat(instances.findById(processInstance.id())).isPresent();
+        assertThat(instances.findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY)).isPresent();
+        verify(cache, never()).getWithMetadata(processInstance.id());
+
+        // change made by another node is notified by the remote listener
+        ClientCacheEntryModifiedEvent<String> event = mock(ClientCacheEntryModifiedEvent.class);
+        when(event.getKey()).thenReturn(processInstance.id());
+        when(event.getVersion()).thenReturn(versionSequence.get() + 1);
+        ((CacheNearCacheInvalidator) listener.getValue()).modified(event);
+
+        assertThat(instances.findById(processInstance.id())).isPresent();
+        verify(cache, times(1)).getWithMetadata(processInstance.id());
+
+        ((MutableProcessInstances<BpmnVariables>) instances).remove(processInstance.id());
+        assertThat(instances.findById(processInstance.id())).isEmpty();
+
+        ((CacheProcessInstances) instances).close();
+        verify(cache).removeClientListener(listener.getValue());
+    }
+
     private void testBasicFlowWithError(Consumer<ProcessInstance<BpmnVariables>> op) {
         BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask-Script.bpmn2")).get(0);
         // workaround as BpmnProcess does not compile the scripts but just reads the xml
@@ -249,8 +506,31 @@ public class MockCacheProcessInstancesTest {
 
     private class CacheProcessInstancesFactory extends KogitoProcessInstancesFactory {
 
+        private final boolean splitVariables;
+        private final int nearCacheSize;
+
         CacheProcessInstancesFactory(RemoteCacheManager cacheManager) {
+            this(cacheManager, false);
+        }
+
+        CacheProcessInstancesFactory(RemoteCacheManager cacheManager, boolean splitVariables) {
+            this(cacheManager, splitVariables, 0);
+        }
+
+        CacheProcessInstancesFactory(RemoteCacheManager cacheManager, boolean splitVariables, int nearCacheSize) {
             super(cacheManager);
+            this.splitVariables = splitVariables;
+            this.nearCacheSize = nearCacheSize;
+        }
+
+        @Override
+        public boolean splitVariables() {
+            return splitVariables;
+        }
+
+        @Override
+        public int nearCacheSize() {
+            return nearCacheSize;
         }
 
         @Override
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.mongodb;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.VERSION;
+
+/**
+ * Watches the change stream of a process instances collection on a daemon thread and invalidates
+ * entries of the near cache when process instances are changed by any node. Change streams require
+ * a replica set, when they are not available the near cache relies on its expiration only.
+ * All entries are invalidated whenever the change stream is interrupted since changes might have been missed.
+ */
+public class MongoDBNearCacheInvalidator implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBNearCacheInvalidator.class);
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+    private static final long MAX_AWAIT_MILLIS = 1000;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final MongoCollection<BsonDocument> collection;
+    private final ProcessInstanceNearCache<?> nearCache;
+    private final Thread thread;
+    private MongoChangeStreamCursor<ChangeStreamDocument<BsonDocument>> cursor;
+    private volatile boolean running = true;
+
+    public MongoDBNearCacheInvalidator(MongoCollection<?> collection, ProcessInstanceNearCache<?> nearCache) {
+        this.collection = collection.withDocumentClass(BsonDocument.class);
+        this.nearCache = nearCache;
+        this.thread = new Thread(this::watch, "kogito-near-cache-" + collection.getNamespace().getCollectionName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Opens the change stream before returning, so every change made afterwards invalidates the near cache.
+     */
+    public void start() {
+        try {
+            cursor = open();
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                LOGGER.warn("Change streams are not supported by the MongoDB deployment, near cache of {} relies on expiration only", collection.getNamespace());
+                return;
+            }
+            LOGGER.warn("Unable to watch changes of {}, retrying in background", collection.getNamespace(), e);
+        }
+        thread.start();
+    }
+
+    protected void watch() {
+        while (running) {
+            try {
+                if (cursor == null) {
+                    cursor = open();
+                    // entries cached while the change stream was closed might have missed changes
+                    nearCache.clear();
+                }
+                ChangeStreamDocument<BsonDocument> change = cursor.tryNext();
+                if (change != null) {
+                    invalidate(change);
+                }
+            } catch (RuntimeException e) {
+                closeCursor();
+                retry(e);
+            }
+        }
+        closeCursor();
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<BsonDocument>> open() {
+        return collection.watch(Arrays.asList(Aggregates.match(Filters.in("operationType", "replace", "update", "delete")),
+                                              Aggregates.project(Projections.include("operationType", "documentKey", "fullDocument." + VERSION))))
+                .maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS)
+                .cursor();
+    }
+
+    private void closeCursor() {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Unable to close change stream of {}", collection.getNamespace(), e);
+            }
+            cursor = null;
+        }
+    }
+
+    private void invalidate(ChangeStreamDocument<BsonDocument> change) {
+        BsonValue id = change.getDocumentKey() == null ? null : change.getDocumentKey().get(DOCUMENT_ID);
+        if (id == null || !id.isString()) {
+            return;
+        }
+        BsonDocument document = change.getFullDocument();
+        BsonValue version = document == null ? null : document.get(VERSION);
+        if (version != null && version.isNumber()) {
+            nearCache.invalidate(id.asString().getValue(), version.asNumber().longValue());
+        } else {
+            nearCache.invalidate(id.asString().getValue());
+        }
+    }
+
+    private void retry(RuntimeException e) {
+        if (!running) {
+            return;
+        }
+        LOGGER.warn("Change stream of {} was interrupted, near cache is cleared", collection.getNamespace(), e);
+        nearCache.clear();
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+
+import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.OUTBOX_COLLECTION;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.OUTBOX_PAYLOAD;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.OUTBOX_TIMESTAMP;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.OUTBOX_TYPE;
+
+/**
+ * Outbox stored in a dedicated collection of the same database as process instances, entries
+ * are polled in order of their identifiers which is the order they were created in.
+ */
+public class MongoDBOutbox implements Outbox {
+
+    private final MongoCollection<Document> collection;
+
+    public MongoDBOutbox(MongoClient mongoClient, String dbName) {
+        this(mongoClient.getDatabase(dbName).getCollection(OUTBOX_COLLECTION));
+    }
+
+    public MongoDBOutbox(MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    @Override
+    public void append(Collection<OutboxEntry> entries) {
+        List<Document> documents = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            documents.add(new Document(DOCUMENT_ID, entry.getId())
+                                  .append(OUTBOX_TYPE, entry.getType().name())
+                                  .append(OUTBOX_TIMESTAMP, entry.getTimestamp())
+                                  .append(OUTBOX_PAYLOAD, new Binary(entry.getPayload())));
+        }
+        if (!documents.isEmpty()) {
+            collection.insertMany(documents);
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> poll(int max) {
+        List<OutboxEntry> entries = new ArrayList<>(max);
+        try (MongoCursor<Document> cursor = collection.find().sort(Sorts.ascending(DOCUMENT_ID)).limit(max).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                entries.add(new OutboxEntry(document.getString(DOCUMENT_ID),
+                                            OutboxEntry.Type.valueOf(document.getString(OUTBOX_TYPE)),
+                                            document.getLong(OUTBOX_TIMESTAMP),
+                                            document.get(OUTBOX_PAYLOAD, Binary.class).getData()));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            collection.deleteMany(Filters.in(DOCUMENT_ID, ids));
+        }
+    }
+}
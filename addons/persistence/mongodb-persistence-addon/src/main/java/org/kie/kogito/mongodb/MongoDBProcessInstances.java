@@ -17,49 +17,135 @@ package org.kie.kogito.mongodb;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.kie.kogito.Model;
 import org.kie.kogito.mongodb.marshalling.DocumentMarshallingStrategy;
 import org.kie.kogito.mongodb.marshalling.DocumentProcessInstanceMarshaller;
 import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
-import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.BatchingProcessInstances;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.kie.kogito.process.ProcessInstanceWrite;
+import org.kie.kogito.process.ProcessInstances;
 import org.kie.kogito.process.impl.AbstractProcessInstance;
+import org.kie.kogito.process.impl.ProcessInstanceEventTypes;
+import org.kie.kogito.process.impl.ProcessInstanceIndexes;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.EVENTS;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.INDEXES;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.PROCESS_INSTANCE;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.STATUS;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.VERSION;
 import static org.kie.kogito.mongodb.utils.DocumentUtils.getCollection;
 import static org.kie.kogito.process.ProcessInstanceReadMode.MUTABLE;
 
-public class MongoDBProcessInstances<T extends Model> implements MutableProcessInstances<T> {
+public class MongoDBProcessInstances<T extends Model> implements BatchingProcessInstances<T>, AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBProcessInstances.class);
+    private static final String SUMMARY_STATE = PROCESS_INSTANCE + ".state";
+    private static final String SUMMARY_BUSINESS_KEY = PROCESS_INSTANCE + ".correlationKey";
+    private static final String SUMMARY_DESCRIPTION = PROCESS_INSTANCE + ".description";
     private org.kie.kogito.process.Process<?> process;
     private DocumentProcessInstanceMarshaller marshaller;
     private final MongoCollection<ProcessInstanceDocument> collection;
+    private final Set<String> indexedVariables;
+    private final ProcessInstanceNearCache<ProcessInstanceDocument> nearCache;
+    private final MongoDBNearCacheInvalidator nearCacheInvalidator;
 
     public MongoDBProcessInstances(MongoClient mongoClient, org.kie.kogito.process.Process<?> process, String dbName) {
+        this(mongoClient, process, dbName, null);
+    }
+
+    /**
+     * @param nearCache local cache of documents read by id, kept up to date by watching the change stream
+     * of the collection, null to always read from the database
+     */
+    public MongoDBProcessInstances(MongoClient mongoClient, org.kie.kogito.process.Process<?> process, String dbName, ProcessInstanceNearCache<ProcessInstanceDocument> nearCache) {
         this.process = process;
         collection = getCollection(mongoClient, process.id(), dbName);
-        marshaller = new DocumentProcessInstanceMarshaller(new DocumentMarshallingStrategy());
+        collection.createIndex(Indexes.ascending(EVENTS));
+        collection.createIndex(Indexes.ascending(STATUS));
+        indexedVariables = ProcessInstanceIndexes.indexedVariables(process);
+        for (String variable : indexedVariables) {
+            collection.createIndex(Indexes.ascending(indexField(variable)));
+        }
+        marshaller = new DocumentProcessInstanceMarshaller(true, new DocumentMarshallingStrategy());
+        this.nearCache = nearCache;
+        if (nearCache != null) {
+            nearCacheInvalidator = new MongoDBNearCacheInvalidator(collection, nearCache);
+            nearCacheInvalidator.start();
+        } else {
+            nearCacheInvalidator = null;
+        }
     }
 
     @Override
     public Optional<ProcessInstance<T>> findById(String id, ProcessInstanceReadMode mode) {
-        ProcessInstanceDocument piDoc = find(id);
+        ProcessInstanceDocument piDoc = load(id);
         if (piDoc == null) {
             return Optional.empty();
         }
-        return Optional.of(mode == MUTABLE ? marshaller.unmarshallProcessInstance(piDoc, process) : marshaller.unmarshallReadOnlyProcessInstance(piDoc, process));
+        return Optional.of(unmarshall(piDoc, mode));
+    }
+
+    @Override
+    public Map<String, ProcessInstance<T>> findByIds(Collection<String> ids, ProcessInstanceReadMode mode) {
+        Map<String, ProcessInstance<T>> instances = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            ProcessInstanceDocument piDoc = nearCache == null ? null : nearCache.get(id);
+            if (piDoc == null) {
+                missing.add(id);
+            } else {
+                instances.put(id, unmarshall(piDoc, mode));
+            }
+        }
+        if (missing.isEmpty()) {
+            return instances;
+        }
+        long stamp = nearCache == null ? 0 : nearCache.stamp();
+        try (MongoCursor<ProcessInstanceDocument> cursor = collection.find(Filters.in(DOCUMENT_ID, missing)).iterator()) {
+            while (cursor.hasNext()) {
+                ProcessInstanceDocument piDoc = cursor.next();
+                if (nearCache != null) {
+                    nearCache.put(piDoc.getId(), version(piDoc), piDoc, stamp);
+                }
+                instances.put(piDoc.getId(), unmarshall(piDoc, mode));
+            }
+        }
+        return instances;
     }
 
     @Override
@@ -67,12 +153,146 @@ public class MongoDBProcessInstances<T extends Model> implements MutableProcessI
         List<ProcessInstance<T>> list = new ArrayList<>();
         try (MongoCursor<ProcessInstanceDocument> cursor = collection.find().iterator()) {
             while (cursor.hasNext()) {
-                list.add(mode == MUTABLE ? marshaller.unmarshallProcessInstance(cursor.next(), process) : marshaller.unmarshallReadOnlyProcessInstance(cursor.next(), process));
+                ProcessInstanceDocument piDoc = cursor.next();
+                list.add(unmarshall(piDoc, mode));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode, int page, int size) {
+        int skip = skip(page, size);
+        List<ProcessInstance<T>> list = new ArrayList<>(Math.min(size, 1000));
+        if (size == 0) {
+            return list;
+        }
+        try (MongoCursor<ProcessInstanceDocument> cursor = collection.find()
+                .sort(Sorts.ascending(DOCUMENT_ID))
+                .skip(skip)
+                .limit(size)
+                .batchSize(Math.min(size, 1000))
+                .iterator()) {
+            while (cursor.hasNext()) {
+                ProcessInstanceDocument piDoc = cursor.next();
+                list.add(unmarshall(piDoc, mode));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        int skip = skip(page, size);
+        List<ProcessInstanceSummary> list = new ArrayList<>(Math.min(size, 1000));
+        if (size == 0) {
+            return list;
+        }
+        // only the summary fields are fetched, the process instance is neither transferred nor unmarshalled
+        try (MongoCursor<Document> cursor = collection.withDocumentClass(Document.class).find()
+                .projection(Projections.include(STATUS, SUMMARY_STATE, SUMMARY_BUSINESS_KEY, SUMMARY_DESCRIPTION))
+                .sort(Sorts.ascending(DOCUMENT_ID))
+                .skip(skip)
+                .limit(size)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                list.add(summary(cursor.next()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * MongoDB skips an int number of documents, pages starting beyond it are rejected. Callers answer
+     * empty pages without a query, as a limit of zero means no limit.
+     */
+    private static int skip(int page, int size) {
+        long offset = ProcessInstances.offset(page, size);
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Page " + page + " of size " + size + " is beyond the maximum offset of " + Integer.MAX_VALUE);
+        }
+        return (int) offset;
+    }
+
+    private static ProcessInstanceSummary summary(Document doc) {
+        Document pi = doc.get(PROCESS_INSTANCE, Document.class);
+        Integer status = doc.getInteger(STATUS);
+        if (status == null && pi != null) {
+            // documents stored before the status was indexed only have it in the process instance
+            status = pi.getInteger("state");
+        }
+        return new ProcessInstanceSummary(doc.getString(DOCUMENT_ID),
+                                          status == null ? 0 : status,
+                                          pi == null ? null : pi.getString("correlationKey"),
+                                          pi == null ? null : pi.getString("description"));
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        List<ProcessInstance<T>> list = new ArrayList<>();
+        // documents stored without events are considered to be waiting on any event
+        try (MongoCursor<ProcessInstanceDocument> cursor = collection.find(Filters.or(Filters.in(EVENTS, eventType, ProcessInstanceEventTypes.ANY_EVENT),
+                                                                                      Filters.exists(EVENTS, false))).iterator()) {
+            while (cursor.hasNext()) {
+                ProcessInstanceDocument piDoc = cursor.next();
+                list.add(unmarshall(piDoc, mode));
             }
         }
         return list;
     }
 
+    @Override
+    public Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        if (!indexedVariables.containsAll(query.variables().keySet())) {
+            return BatchingProcessInstances.super.query(query, mode);
+        }
+        List<ProcessInstance<T>> list = new ArrayList<>();
+        try (MongoCursor<ProcessInstanceDocument> cursor = find(query).iterator()) {
+            while (cursor.hasNext()) {
+                list.add(unmarshall(cursor.next(), mode));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode, int page, int size) {
+        if (!indexedVariables.containsAll(query.variables().keySet())) {
+            return BatchingProcessInstances.super.query(query, mode, page, size);
+        }
+        int skip = skip(page, size);
+        List<ProcessInstance<T>> list = new ArrayList<>(Math.min(size, 1000));
+        if (size == 0) {
+            return list;
+        }
+        try (MongoCursor<ProcessInstanceDocument> cursor = find(query)
+                .sort(Sorts.ascending(DOCUMENT_ID))
+                .skip(skip)
+                .limit(size)
+                .batchSize(Math.min(size, 1000))
+                .iterator()) {
+            while (cursor.hasNext()) {
+                list.add(unmarshall(cursor.next(), mode));
+            }
+        }
+        return list;
+    }
+
+    private FindIterable<ProcessInstanceDocument> find(ProcessInstanceQuery query) {
+        List<Bson> filters = new ArrayList<>();
+        if (query.status() != null) {
+            // documents stored before the status was indexed only have it in the process instance
+            filters.add(Filters.or(Filters.eq(STATUS, query.status()),
+                                   Filters.and(Filters.exists(STATUS, false), Filters.eq(SUMMARY_STATE, query.status()))));
+        }
+        query.variables().forEach((name, value) -> filters.add(Filters.eq(indexField(name), value)));
+        return filters.isEmpty() ? collection.find() : collection.find(Filters.and(filters));
+    }
+
+    private static String indexField(String variable) {
+        return INDEXES + "." + variable;
+    }
+
     @Override
     public void create(String id, ProcessInstance<T> instance) {
         updateStorage(id, instance, true);
@@ -85,24 +305,178 @@ public class MongoDBProcessInstances<T extends Model> implements MutableProcessI
 
     protected void updateStorage(String id, ProcessInstance<T> instance, boolean checkDuplicates) {
         if (isActive(instance)) {
-            ProcessInstanceDocument doc = marshaller.marshalProcessInstance(instance);
+            ProcessInstanceDocument doc = document(instance);
+            long stamp = nearCache == null ? 0 : nearCache.stamp();
+            boolean stored = true;
             if (checkDuplicates) {
                 if (exists(id)) {
                     throw new ProcessInstanceDuplicatedException(id);
                 } else {
+                    doc.setVersion(1L);
                     collection.insertOne(doc);
                 }
             } else {
-                collection.replaceOne(Filters.eq(DOCUMENT_ID, id), doc);
+                long version = ((AbstractProcessInstance<?>) instance).version();
+                // instances loaded before versioning was in place are written unconditionally
+                Bson filter = version == 0 ? Filters.eq(DOCUMENT_ID, id) : Filters.and(Filters.eq(DOCUMENT_ID, id), Filters.eq(VERSION, version));
+                doc.setVersion(version + 1);
+                stored = collection.replaceOne(filter, doc).getMatchedCount() > 0;
+                if (!stored && version != 0) {
+                    // the instance was most likely read from a stale entry
+                    invalidate(id);
+                    throw new ProcessInstanceOptimisticLockingException(id);
+                }
             }
+            cache(id, doc, stored, stamp);
+            ((AbstractProcessInstance<?>) instance).internalSetVersion(stored ? doc.getVersion() : 0);
         }
         reloadProcessInstance(instance, id);
     }
 
+    /**
+     * Performs the writes with a single unordered bulk write. Updates are conditional on the version the
+     * process instance was loaded from and upsert the document, so a stale version fails that update alone
+     * with a duplicate key error. An update that inserted the document because the process instance was
+     * removed in the meantime is reverted and fails as well. Removals are conditional on the version too,
+     * the bulk write result does not tell which deletes matched so they are performed one by one.
+     */
+    @Override
+    public Map<ProcessInstanceWrite<T>, RuntimeException> writeAll(List<ProcessInstanceWrite<T>> writes) {
+        Map<ProcessInstanceWrite<T>, RuntimeException> failures = new HashMap<>();
+        List<ProcessInstanceWrite<T>> written = new ArrayList<>();
+        List<ProcessInstanceDocument> documents = new ArrayList<>();
+        List<WriteModel<ProcessInstanceDocument>> models = new ArrayList<>();
+        long stamp = nearCache == null ? 0 : nearCache.stamp();
+        for (ProcessInstanceWrite<T> write : writes) {
+            ProcessInstanceDocument doc = null;
+            if (write.type() == ProcessInstanceWrite.Type.REMOVE) {
+                try {
+                    removeIfUnchanged(write.id(), write.instance());
+                } catch (RuntimeException e) {
+                    failures.put(write, e);
+                }
+                continue;
+            } else if (isActive(write.instance())) {
+                doc = document(write.instance());
+                models.add(writeModel(write, doc));
+            } else {
+                reloadProcessInstance(write.instance(), write.id());
+                continue;
+            }
+            written.add(write);
+            documents.add(doc);
+        }
+
+        if (models.isEmpty()) {
+            return failures;
+        }
+        List<BulkWriteUpsert> upserts;
+        try {
+            upserts = collection.bulkWrite(models, new BulkWriteOptions().ordered(false)).getUpserts();
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                ProcessInstanceWrite<T> write = written.get(error.getIndex());
+                failures.put(write, failure(write, error, e));
+            }
+            upserts = e.getWriteResult().getUpserts();
+        }
+        for (BulkWriteUpsert upsert : upserts) {
+            ProcessInstanceWrite<T> write = written.get(upsert.getIndex());
+            // the process instance was removed in the meantime, the update must not bring it back
+            collection.deleteOne(Filters.and(Filters.eq(DOCUMENT_ID, write.id()), Filters.eq(VERSION, documents.get(upsert.getIndex()).getVersion())));
+            failures.put(write, new ProcessInstanceOptimisticLockingException(write.id()));
+        }
+
+        for (int i = 0; i < written.size(); i++) {
+            ProcessInstanceWrite<T> write = written.get(i);
+            if (failures.containsKey(write)) {
+                invalidate(write.id());
+            } else {
+                // unconditional updates of instances loaded without version might not have matched any document
+                boolean stored = write.type() == ProcessInstanceWrite.Type.CREATE || ((AbstractProcessInstance<?>) write.instance()).version() != 0;
+                cache(write.id(), documents.get(i), stored, stamp);
+                ((AbstractProcessInstance<?>) write.instance()).internalSetVersion(stored ? documents.get(i).getVersion() : 0);
+                reloadProcessInstance(write.instance(), write.id());
+            }
+        }
+        return failures;
+    }
+
+    private WriteModel<ProcessInstanceDocument> writeModel(ProcessInstanceWrite<T> write, ProcessInstanceDocument doc) {
+        if (write.type() == ProcessInstanceWrite.Type.CREATE) {
+            doc.setVersion(1L);
+            return new InsertOneModel<>(doc);
+        }
+        long version = ((AbstractProcessInstance<?>) write.instance()).version();
+        doc.setVersion(version + 1);
+        if (version == 0) {
+            return new ReplaceOneModel<>(Filters.eq(DOCUMENT_ID, write.id()), doc);
+        }
+        return new ReplaceOneModel<>(Filters.and(Filters.eq(DOCUMENT_ID, write.id()), Filters.eq(VERSION, version)), doc, new ReplaceOptions().upsert(true));
+    }
+
+    private static RuntimeException failure(ProcessInstanceWrite<?> write, BulkWriteError error, MongoBulkWriteException e) {
+        if (error.getCategory() != ErrorCategory.DUPLICATE_KEY) {
+            return e;
+        }
+        return write.type() == ProcessInstanceWrite.Type.CREATE ?
+                new ProcessInstanceDuplicatedException(write.id()) :
+                new ProcessInstanceOptimisticLockingException(write.id());
+    }
+
+    private ProcessInstanceDocument document(ProcessInstance<T> instance) {
+        ProcessInstanceDocument doc = marshaller.marshalProcessInstance(instance);
+        doc.setEvents(ProcessInstanceEventTypes.of(instance));
+        doc.setStatus(instance.status());
+        doc.setIndexes(ProcessInstanceIndexes.of(instance));
+        return doc;
+    }
+
+    // the written document is the stored state, so the reload and following reads are served locally
+    private void cache(String id, ProcessInstanceDocument doc, boolean stored, long stamp) {
+        if (nearCache != null && (!stored || !nearCache.put(id, doc.getVersion(), doc, stamp))) {
+            nearCache.invalidate(id);
+        }
+    }
+
+    private ProcessInstance<T> unmarshall(ProcessInstanceDocument piDoc, ProcessInstanceReadMode mode) {
+        ProcessInstance<T> instance = mode == MUTABLE ? marshaller.unmarshallProcessInstance(piDoc, process) : marshaller.unmarshallReadOnlyProcessInstance(piDoc, process);
+        ((AbstractProcessInstance<?>) instance).internalSetVersion(version(piDoc));
+        return instance;
+    }
+
+    private static long version(ProcessInstanceDocument piDoc) {
+        return piDoc.getVersion() == null ? 0 : piDoc.getVersion();
+    }
+
     private ProcessInstanceDocument find(String id) {
         return collection.find(Filters.eq(DOCUMENT_ID, id)).first();
     }
 
+    /**
+     * Reads the document from the near cache if present, otherwise from the database.
+     */
+    private ProcessInstanceDocument load(String id) {
+        if (nearCache == null) {
+            return find(id);
+        }
+        ProcessInstanceDocument piDoc = nearCache.get(id);
+        if (piDoc == null) {
+            long stamp = nearCache.stamp();
+            piDoc = find(id);
+            if (piDoc != null) {
+                nearCache.put(id, version(piDoc), piDoc, stamp);
+            }
+        }
+        return piDoc;
+    }
+
+    private void invalidate(String id) {
+        if (nearCache != null) {
+            nearCache.invalidate(id);
+        }
+    }
+
     @Override
     public boolean exists(String id) {
         return find(id) != null;
@@ -111,13 +485,30 @@ public class MongoDBProcessInstances<T extends Model> implements MutableProcessI
     @Override
     public void remove(String id) {
         collection.deleteOne(Filters.eq(DOCUMENT_ID, id));
+        invalidate(id);
+    }
+
+    @Override
+    public void removeIfUnchanged(String id, ProcessInstance<T> instance) {
+        long version = ((AbstractProcessInstance<?>) instance).version();
+        if (version == 0) {
+            remove(id);
+            return;
+        }
+        long deleted = collection.deleteOne(Filters.and(Filters.eq(DOCUMENT_ID, id), Filters.eq(VERSION, version))).getDeletedCount();
+        invalidate(id);
+        if (deleted == 0 && collection.countDocuments(Filters.eq(DOCUMENT_ID, id)) > 0) {
+            throw new ProcessInstanceOptimisticLockingException(id);
+        }
     }
 
     private void reloadProcessInstance(ProcessInstance<T> instance, String id) {
         ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
             try {
-                ProcessInstanceDocument reloaded = find(id);
+                ProcessInstanceDocument reloaded = load(id);
                 if (reloaded != null) {
+                    // the instance now reflects the reloaded state so further updates are checked against its version
+                    ((AbstractProcessInstance<?>) instance).internalSetVersion(version(reloaded));
                     return marshaller.unmarshallWorkflowProcessInstance(reloaded, process);
                 }
             } catch (RuntimeException e) {
@@ -131,4 +522,14 @@ public class MongoDBProcessInstances<T extends Model> implements MutableProcessI
     public Integer size() {
         return (int) collection.countDocuments();
     }
+
+    /**
+     * Stops watching the change stream that keeps the near cache up to date.
+     */
+    @Override
+    public void close() {
+        if (nearCacheInvalidator != null) {
+            nearCacheInvalidator.close();
+        }
+    }
 }
@@ -15,6 +15,10 @@
 
 package org.kie.kogito.mongodb.codec;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.mongodb.MongoClientSettings;
@@ -30,11 +34,15 @@ import org.bson.codecs.EncoderContext;
 import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
 
 import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.EVENTS;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.INDEXES;
 import static org.kie.kogito.mongodb.utils.DocumentConstants.NAME;
 import static org.kie.kogito.mongodb.utils.DocumentConstants.PROCESS_INSTANCE;
 import static org.kie.kogito.mongodb.utils.DocumentConstants.PROCESS_INSTANCE_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.STATUS;
 import static org.kie.kogito.mongodb.utils.DocumentConstants.STRATEGIES;
 import static org.kie.kogito.mongodb.utils.DocumentConstants.VALUE;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.VERSION;
 
 public class ProcessInstanceDocumentCodec implements CollectibleCodec<ProcessInstanceDocument> {
 
@@ -50,6 +58,18 @@ public class ProcessInstanceDocumentCodec implements CollectibleCodec<ProcessIns
         doc.put(DOCUMENT_ID, piDoc.getProcessInstance().get(PROCESS_INSTANCE_ID));
         doc.put(PROCESS_INSTANCE, piDoc.getProcessInstance());
         doc.put(STRATEGIES, piDoc.getStrategies().entrySet().stream().map(e -> new Document().append(NAME, e.getKey()).append(VALUE, e.getValue())).collect(Collectors.toList()));
+        if (piDoc.getEvents() != null) {
+            doc.put(EVENTS, piDoc.getEvents().stream().collect(Collectors.toList()));
+        }
+        if (piDoc.getVersion() != null) {
+            doc.put(VERSION, piDoc.getVersion());
+        }
+        if (piDoc.getStatus() != null) {
+            doc.put(STATUS, piDoc.getStatus());
+        }
+        if (piDoc.getIndexes() != null) {
+            doc.put(INDEXES, new Document(new LinkedHashMap<>(piDoc.getIndexes())));
+        }
         documentCodec.encode(writer, doc, encoderContext);
     }
 
@@ -83,6 +103,18 @@ public class ProcessInstanceDocumentCodec implements CollectibleCodec<ProcessIns
         piDoc.setId(document.getString(DOCUMENT_ID));
         piDoc.setProcessInstance((Document) (document.get(PROCESS_INSTANCE)));
         piDoc.setStrategies(document.getList(STRATEGIES, Document.class).stream().collect(Collectors.toMap(d -> d.getString(NAME), d -> d.getInteger(VALUE))));
+        List<String> events = document.getList(EVENTS, String.class);
+        if (events != null) {
+            piDoc.setEvents(new LinkedHashSet<>(events));
+        }
+        piDoc.setVersion(document.getLong(VERSION));
+        piDoc.setStatus(document.getInteger(STATUS));
+        Document indexes = document.get(INDEXES, Document.class);
+        if (indexes != null) {
+            Map<String, String> values = new LinkedHashMap<>();
+            indexes.forEach((name, value) -> values.put(name, (String) value));
+            piDoc.setIndexes(values);
+        }
         return piDoc;
     }
 }
@@ -22,10 +22,23 @@ import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
 
 public class ProcessInstanceDocumentCodecProvider implements CodecProvider {
 
+    private final boolean directBson;
+
+    public ProcessInstanceDocumentCodecProvider() {
+        this(false);
+    }
+
+    /**
+     * @param directBson if true process instances are converted with {@link ProtobufProcessInstanceDocumentCodec}
+     */
+    public ProcessInstanceDocumentCodecProvider(boolean directBson) {
+        this.directBson = directBson;
+    }
+
     @Override
     public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
         if (clazz == ProcessInstanceDocument.class) {
-            return (Codec<T>) new ProcessInstanceDocumentCodec();
+            return (Codec<T>) (directBson ? new ProtobufProcessInstanceDocumentCodec() : new ProcessInstanceDocumentCodec());
         }
         return null;
     }
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.mongodb.codec;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.jbpm.marshalling.impl.JBPMMessages;
+import org.kie.kogito.mongodb.marshalling.DocumentMarshallingException;
+import org.kie.kogito.mongodb.marshalling.DocumentUnmarshallingException;
+import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
+
+import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_ID;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.EVENTS;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.INDEXES;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.NAME;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.PROCESS_INSTANCE;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.STATUS;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.STRATEGIES;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.VALUE;
+import static org.kie.kogito.mongodb.utils.DocumentConstants.VERSION;
+import static org.kie.kogito.mongodb.utils.DocumentUtils.getObjectMapper;
+
+/**
+ * Codec that converts the protobuf process instance message held by {@link ProcessInstanceDocument}
+ * straight to BSON and back, without the intermediate JSON representation.
+ * <p>
+ * The stored document is the same as the one produced by {@link org.kie.kogito.mongodb.utils.ProcessInstanceDocumentMapper}:
+ * fields are named by their JSON name, 64 bit integers are stored as strings, bytes as base64 strings
+ * and enums by name, variable values are stored as the JSON document produced by the variable marshaller.
+ * Documents without a message are encoded by the parent codec.
+ */
+public class ProtobufProcessInstanceDocumentCodec extends ProcessInstanceDocumentCodec {
+
+    private static final Map<Descriptor, Map<String, FieldDescriptor>> FIELDS = new ConcurrentHashMap<>();
+
+    @Override
+    public void encode(BsonWriter writer, ProcessInstanceDocument piDoc, EncoderContext encoderContext) {
+        JBPMMessages.ProcessInstance message = piDoc.getMessage();
+        if (message == null) {
+            super.encode(writer, piDoc, encoderContext);
+            return;
+        }
+        writer.writeStartDocument();
+        writer.writeString(DOCUMENT_ID, message.getId());
+        writer.writeName(PROCESS_INSTANCE);
+        writeMessage(writer, message);
+        writer.writeStartArray(STRATEGIES);
+        for (Map.Entry<String, Integer> strategy : piDoc.getStrategies().entrySet()) {
+            writer.writeStartDocument();
+            writer.writeString(NAME, strategy.getKey());
+            writer.writeInt32(VALUE, strategy.getValue());
+            writer.writeEndDocument();
+        }
+        writer.writeEndArray();
+        if (piDoc.getEvents() != null) {
+            writer.writeStartArray(EVENTS);
+            for (String event : piDoc.getEvents()) {
+                writer.writeString(event);
+            }
+            writer.writeEndArray();
+        }
+        if (piDoc.getVersion() != null) {
+            writer.writeInt64(VERSION, piDoc.getVersion());
+        }
+        if (piDoc.getStatus() != null) {
+            writer.writeInt32(STATUS, piDoc.getStatus());
+        }
+        if (piDoc.getIndexes() != null) {
+            writer.writeStartDocument(INDEXES);
+            for (Map.Entry<String, String> index : piDoc.getIndexes().entrySet()) {
+                writer.writeString(index.getKey(), index.getValue());
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public ProcessInstanceDocument generateIdIfAbsentFromDocument(ProcessInstanceDocument document) {
+        if (!documentHasId(document) && document.getMessage() != null) {
+            document.setId(document.getMessage().getId());
+        }
+        return super.generateIdIfAbsentFromDocument(document);
+    }
+
+    @Override
+    public ProcessInstanceDocument decode(BsonReader reader, DecoderContext decoderContext) {
+        ProcessInstanceDocument piDoc = new ProcessInstanceDocument();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case DOCUMENT_ID:
+                    piDoc.setId(reader.readString());
+                    break;
+                case PROCESS_INSTANCE:
+                    JBPMMessages.ProcessInstance.Builder builder = JBPMMessages.ProcessInstance.newBuilder();
+                    readMessage(reader, builder);
+                    piDoc.setMessage(builder.build());
+                    break;
+                case STRATEGIES:
+                    piDoc.setStrategies(readStrategies(reader));
+                    break;
+                case EVENTS:
+                    Set<String> events = new LinkedHashSet<>();
+                    reader.readStartArray();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        events.add(reader.readString());
+                    }
+                    reader.readEndArray();
+                    piDoc.setEvents(events);
+                    break;
+                case VERSION:
+                    piDoc.setVersion(readLong(reader, false));
+                    break;
+                case STATUS:
+                    piDoc.setStatus((int) readLong(reader, false));
+                    break;
+                case INDEXES:
+                    Map<String, String> indexes = new LinkedHashMap<>();
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        indexes.put(reader.readName(), reader.readString());
+                    }
+                    reader.readEndDocument();
+                    piDoc.setIndexes(indexes);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return piDoc;
+    }
+
+    private static Map<String, Integer> readStrategies(BsonReader reader) {
+        Map<String, Integer> strategies = new HashMap<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = null;
+            Integer value = null;
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String field = reader.readName();
+                if (NAME.equals(field)) {
+                    name = reader.readString();
+                } else if (VALUE.equals(field)) {
+                    value = (int) readLong(reader, false);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            strategies.put(name, value);
+        }
+        reader.readEndArray();
+        return strategies;
+    }
+
+    private static void writeMessage(BsonWriter writer, Message message) {
+        writer.writeStartDocument();
+        for (Map.Entry<FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+            FieldDescriptor field = entry.getKey();
+            writer.writeName(field.isExtension() ? "[" + field.getFullName() + "]" : field.getJsonName());
+            if (field.isMapField()) {
+                writer.writeStartDocument();
+                for (Object item : (List<?>) entry.getValue()) {
+                    Message mapEntry = (Message) item;
+                    FieldDescriptor keyField = mapEntry.getDescriptorForType().findFieldByName("key");
+                    FieldDescriptor valueField = mapEntry.getDescriptorForType().findFieldByName("value");
+                    writer.writeName(String.valueOf(mapEntry.getField(keyField)));
+                    writeValue(writer, valueField, mapEntry.getField(valueField));
+                }
+                writer.writeEndDocument();
+            } else if (field.isRepeated()) {
+                writer.writeStartArray();
+                for (Object item : (List<?>) entry.getValue()) {
+                    writeValue(writer, field, item);
+                }
+                writer.writeEndArray();
+            } else {
+                writeValue(writer, field, entry.getValue());
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    private static void writeValue(BsonWriter writer, FieldDescriptor field, Object value) {
+        switch (field.getJavaType()) {
+            case INT:
+                if (isUnsigned(field)) {
+                    long unsigned = Integer.toUnsignedLong((Integer) value);
+                    if (unsigned > Integer.MAX_VALUE) {
+                        writer.writeInt64(unsigned);
+                        break;
+                    }
+                }
+                writer.writeInt32((Integer) value);
+                break;
+            case LONG:
+                writer.writeString(isUnsigned(field) ? Long.toUnsignedString((Long) value) : Long.toString((Long) value));
+                break;
+            case FLOAT:
+                writeDouble(writer, Double.parseDouble(Float.toString((Float) value)));
+                break;
+            case DOUBLE:
+                writeDouble(writer, (Double) value);
+                break;
+            case BOOLEAN:
+                writer.writeBoolean((Boolean) value);
+                break;
+            case STRING:
+                writer.writeString((String) value);
+                break;
+            case BYTE_STRING:
+                if (isVariableValue(field)) {
+                    writeVariableValue(writer, (ByteString) value);
+                } else {
+                    writer.writeString(Base64.getEncoder().encodeToString(((ByteString) value).toByteArray()));
+                }
+                break;
+            case ENUM:
+                writer.writeString(((EnumValueDescriptor) value).getName());
+                break;
+            case MESSAGE:
+                writeMessage(writer, (Message) value);
+                break;
+            default:
+                throw new DocumentMarshallingException(new IllegalArgumentException("Unsupported field type " + field.getType() + " of " + field.getFullName()));
+        }
+    }
+
+    private static void writeDouble(BsonWriter writer, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writer.writeString(Double.toString(value));
+        } else {
+            writer.writeDouble(value);
+        }
+    }
+
+    private static void writeVariableValue(BsonWriter writer, ByteString value) {
+        try (JsonParser parser = getObjectMapper().getFactory().createParser(value.newInput())) {
+            if (parser.nextToken() == null) {
+                writer.writeNull();
+            } else {
+                writeJson(parser, writer);
+            }
+        } catch (IOException e) {
+            throw new DocumentMarshallingException(e);
+        }
+    }
+
+    private static void writeJson(JsonParser parser, BsonWriter writer) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case START_OBJECT:
+                writer.writeStartDocument();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    writer.writeName(parser.getCurrentName());
+                    parser.nextToken();
+                    writeJson(parser, writer);
+                }
+                writer.writeEndDocument();
+                break;
+            case START_ARRAY:
+                writer.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    writeJson(parser, writer);
+                }
+                writer.writeEndArray();
+                break;
+            case VALUE_STRING:
+                writer.writeString(parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.INT) {
+                    writer.writeInt32(parser.getIntValue());
+                } else if (parser.getNumberType() == JsonParser.NumberType.LONG) {
+                    writer.writeInt64(parser.getLongValue());
+                } else {
+                    writer.writeDouble(parser.getDoubleValue());
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                writer.writeDouble(parser.getDoubleValue());
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                writer.writeBoolean(parser.getBooleanValue());
+                break;
+            case VALUE_NULL:
+                writer.writeNull();
+                break;
+            default:
+                throw new DocumentMarshallingException(new IllegalStateException("Unexpected JSON token " + token));
+        }
+    }
+
+    private static void readMessage(BsonReader reader, Message.Builder builder) {
+        Map<String, FieldDescriptor> fields = fields(builder.getDescriptorForType());
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            FieldDescriptor field = fields.get(reader.readName());
+            if (field == null || reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.skipValue();
+            } else if (field.isMapField()) {
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    Message.Builder mapEntry = builder.newBuilderForField(field);
+                    FieldDescriptor keyField = mapEntry.getDescriptorForType().findFieldByName("key");
+                    FieldDescriptor valueField = mapEntry.getDescriptorForType().findFieldByName("value");
+                    mapEntry.setField(keyField, parseKey(keyField, reader.readName()));
+                    mapEntry.setField(valueField, readValue(reader, mapEntry, valueField));
+                    builder.addRepeatedField(field, mapEntry.build());
+                }
+                reader.readEndDocument();
+            } else if (field.isRepeated()) {
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    builder.addRepeatedField(field, readValue(reader, builder, field));
+                }
+                reader.readEndArray();
+            } else {
+                builder.setField(field, readValue(reader, builder, field));
+            }
+        }
+        reader.readEndDocument();
+    }
+
+    private static Object readValue(BsonReader reader, Message.Builder parent, FieldDescriptor field) {
+        switch (field.getJavaType()) {
+            case INT:
+                return (int) readLong(reader, isUnsigned(field));
+            case LONG:
+                return readLong(reader, isUnsigned(field));
+            case FLOAT:
+                return (float) readDouble(reader);
+            case DOUBLE:
+                return readDouble(reader);
+            case BOOLEAN:
+                return reader.readBoolean();
+            case STRING:
+                return reader.readString();
+            case BYTE_STRING:
+                if (isVariableValue(field)) {
+                    return readVariableValue(reader);
+                }
+                return ByteString.copyFrom(Base64.getDecoder().decode(reader.readString()));
+            case ENUM:
+                EnumValueDescriptor value = reader.getCurrentBsonType() == BsonType.STRING ? field.getEnumType().findValueByName(reader.readString()) : field.getEnumType().findValueByNumber((int) readLong(reader, false));
+                if (value == null) {
+                    throw new DocumentUnmarshallingException(new IllegalArgumentException("Unknown value of enum field " + field.getFullName()));
+                }
+                return value;
+            case MESSAGE:
+                Message.Builder child = parent.newBuilderForField(field);
+                readMessage(reader, child);
+                return child.buildPartial();
+            default:
+                throw new DocumentUnmarshallingException(new IllegalArgumentException("Unsupported field type " + field.getType() + " of " + field.getFullName()));
+        }
+    }
+
+    private static long readLong(BsonReader reader, boolean unsigned) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            case STRING:
+                String value = reader.readString();
+                return unsigned ? Long.parseUnsignedLong(value) : Long.parseLong(value);
+            default:
+                throw new DocumentUnmarshallingException(new IllegalArgumentException("Expected number but found " + reader.getCurrentBsonType()));
+        }
+    }
+
+    private static double readDouble(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case STRING:
+                return Double.parseDouble(reader.readString());
+            default:
+                throw new DocumentUnmarshallingException(new IllegalArgumentException("Expected number but found " + reader.getCurrentBsonType()));
+        }
+    }
+
+    private static ByteString readVariableValue(BsonReader reader) {
+        ByteString.Output bytes = ByteString.newOutput();
+        try (JsonGenerator generator = getObjectMapper().getFactory().createGenerator(bytes)) {
+            writeJson(reader, generator);
+        } catch (IOException e) {
+            throw new DocumentUnmarshallingException(e);
+        }
+        return bytes.toByteString();
+    }
+
+    private static void writeJson(BsonReader reader, JsonGenerator generator) throws IOException {
+        switch (reader.getCurrentBsonType()) {
+            case DOCUMENT:
+                reader.readStartDocument();
+                generator.writeStartObject();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    generator.writeFieldName(reader.readName());
+                    writeJson(reader, generator);
+                }
+                reader.readEndDocument();
+                generator.writeEndObject();
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                generator.writeStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    writeJson(reader, generator);
+                }
+                reader.readEndArray();
+                generator.writeEndArray();
+                break;
+            case STRING:
+                generator.writeString(reader.readString());
+                break;
+            case INT32:
+                generator.writeNumber(reader.readInt32());
+                break;
+            case INT64:
+                generator.writeNumber(reader.readInt64());
+                break;
+            case DOUBLE:
+                generator.writeNumber(reader.readDouble());
+                break;
+            case DECIMAL128:
+                generator.writeNumber(reader.readDecimal128().bigDecimalValue());
+                break;
+            case BOOLEAN:
+                generator.writeBoolean(reader.readBoolean());
+                break;
+            case DATE_TIME:
+                generator.writeNumber(reader.readDateTime());
+                break;
+            case OBJECT_ID:
+                generator.writeString(reader.readObjectId().toHexString());
+                break;
+            case NULL:
+                reader.readNull();
+                generator.writeNull();
+                break;
+            default:
+                reader.skipValue();
+                generator.writeNull();
+        }
+    }
+
+    private static Object parseKey(FieldDescriptor keyField, String key) {
+        switch (keyField.getJavaType()) {
+            case INT:
+                return Integer.parseInt(key);
+            case LONG:
+                return Long.parseLong(key);
+            case BOOLEAN:
+                return Boolean.parseBoolean(key);
+            default:
+                return key;
+        }
+    }
+
+    private static boolean isVariableValue(FieldDescriptor field) {
+        return field.getNumber() == JBPMMessages.Variable.VALUE_FIELD_NUMBER && field.getContainingType() == JBPMMessages.Variable.getDescriptor();
+    }
+
+    private static boolean isUnsigned(FieldDescriptor field) {
+        switch (field.getType()) {
+            case UINT32:
+            case FIXED32:
+            case UINT64:
+            case FIXED64:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static Map<String, FieldDescriptor> fields(Descriptor descriptor) {
+        return FIELDS.computeIfAbsent(descriptor, d -> {
+            Map<String, FieldDescriptor> fields = new HashMap<>();
+            for (FieldDescriptor field : d.getFields()) {
+                fields.put(field.getName(), field);
+                fields.put(field.getJsonName(), field);
+            }
+            return fields;
+        });
+    }
+}
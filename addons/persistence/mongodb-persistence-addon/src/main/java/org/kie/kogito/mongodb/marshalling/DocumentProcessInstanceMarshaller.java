@@ -47,8 +47,18 @@ import static org.kie.kogito.mongodb.utils.DocumentConstants.DOCUMENT_UNMARSHALL
 public class DocumentProcessInstanceMarshaller {
 
     private Environment env = new EnvironmentImpl();
+    private final boolean directBson;
 
     public DocumentProcessInstanceMarshaller(ObjectMarshallingStrategy... strategies) {
+        this(false, strategies);
+    }
+
+    /**
+     * @param directBson if true documents carry the protobuf message that is converted to BSON by
+     *        {@link org.kie.kogito.mongodb.codec.ProtobufProcessInstanceDocumentCodec} instead of a JSON based document
+     */
+    public DocumentProcessInstanceMarshaller(boolean directBson, ObjectMarshallingStrategy... strategies) {
+        this.directBson = directBson;
         ObjectMarshallingStrategy[] strats = null;
         if (strategies == null) {
             strats = new ObjectMarshallingStrategy[]{new SerializablePlaceholderResolverStrategy(ClassObjectMarshallingStrategyAcceptor.DEFAULT)};
@@ -71,7 +81,15 @@ public class DocumentProcessInstanceMarshaller {
                 KogitoProcessMarshallerWriteContext context = new KogitoProcessMarshallerWriteContext(baos, null, null, null, null, env);
                 org.jbpm.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller(pi.getProcess().getType());
                 JBPMMessages.ProcessInstance instance = (JBPMMessages.ProcessInstance) marshaller.writeProcessInstance(context, pi);
-                ProcessInstanceDocument document = new ProcessInstanceDocumentMapper().apply(context, instance);
+                ProcessInstanceDocument document;
+                if (directBson) {
+                    document = new ProcessInstanceDocument();
+                    document.setId(instance.getId());
+                    document.setMessage(instance);
+                    document.setStrategies(ProcessInstanceDocumentMapper.usedStrategies(context));
+                } else {
+                    document = new ProcessInstanceDocumentMapper().apply(context, instance);
+                }
                 pi.disconnect();
                 return document;
             }
@@ -86,7 +104,13 @@ public class DocumentProcessInstanceMarshaller {
             MarshallerReaderContext context = new KogitoMarshallerReaderContext(bais,
                                                                                 Collections.singletonMap(process.id(), ((AbstractProcess<?>) process).process()),
                                                                                 null, null, null, env);
-            JBPMMessages.ProcessInstance instance = new ProcessInstanceMessageMapper().apply(context, doc);
+            JBPMMessages.ProcessInstance instance;
+            if (doc.getMessage() != null) {
+                instance = doc.getMessage();
+                ProcessInstanceMessageMapper.restoreStrategies(context, doc);
+            } else {
+                instance = new ProcessInstanceMessageMapper().apply(context, doc);
+            }
             context.setParameterObject( instance );
             org.jbpm.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller(instance.getProcessType());
             return (WorkflowProcessInstance) marshaller.readProcessInstance(context);
@@ -17,8 +17,10 @@ package org.kie.kogito.mongodb.model;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.bson.Document;
+import org.jbpm.marshalling.impl.JBPMMessages;
 
 public class ProcessInstanceDocument {
 
@@ -26,8 +28,18 @@ public class ProcessInstanceDocument {
 
     private Document processInstance;
 
+    private JBPMMessages.ProcessInstance message;
+
     private Map<String, Integer> strategies = new HashMap<>();
 
+    private Set<String> events;
+
+    private Long version;
+
+    private Integer status;
+
+    private Map<String, String> indexes;
+
     public ProcessInstanceDocument() {
         super();
     }
@@ -48,6 +60,18 @@ public class ProcessInstanceDocument {
         this.processInstance = processInstance;
     }
 
+    /**
+     * Protobuf message of the process instance, set instead of the process instance document
+     * when the document is converted directly to BSON.
+     */
+    public JBPMMessages.ProcessInstance getMessage() {
+        return message;
+    }
+
+    public void setMessage(JBPMMessages.ProcessInstance message) {
+        this.message = message;
+    }
+
     public Map<String, Integer> getStrategies() {
         return strategies;
     }
@@ -55,4 +79,39 @@ public class ProcessInstanceDocument {
     public void setStrategies(Map<String, Integer> strategies) {
         this.strategies = strategies;
     }
+
+    public Set<String> getEvents() {
+        return events;
+    }
+
+    public void setEvents(Set<String> events) {
+        this.events = events;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    /**
+     * Values of indexed process variables keyed by variable name.
+     */
+    public Map<String, String> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(Map<String, String> indexes) {
+        this.indexes = indexes;
+    }
 }
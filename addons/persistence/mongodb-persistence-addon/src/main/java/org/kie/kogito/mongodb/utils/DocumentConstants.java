@@ -24,6 +24,14 @@ public class DocumentConstants {
     public static final String STRATEGIES = "strategies";
     public static final String NAME = "name";
     public static final String PROCESS_INSTANCE = "processInstance";
+    public static final String EVENTS = "events";
+    public static final String VERSION = "version";
+    public static final String STATUS = "status";
+    public static final String INDEXES = "indexes";
+    public static final String OUTBOX_COLLECTION = "kogito_outbox";
+    public static final String OUTBOX_TYPE = "type";
+    public static final String OUTBOX_TIMESTAMP = "timestamp";
+    public static final String OUTBOX_PAYLOAD = "payload";
     public static final String DOCUMENT_MARSHALLING_ERROR_MSG = "Error while marshalling process instance with id as document : ";
     public static final String DOCUMENT_UNMARSHALLING_ERROR_MSG = "Error while unmarshalling document for process instance with id : ";
 
@@ -43,7 +43,7 @@ public class DocumentUtils {
     }
 
     public static MongoCollection<ProcessInstanceDocument> getCollection(MongoClient mongoClient, String processId, String dbName) {
-        CodecRegistry registry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), fromProviders(new ProcessInstanceDocumentCodecProvider()));
+        CodecRegistry registry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), fromProviders(new ProcessInstanceDocumentCodecProvider(true)));
         MongoDatabase mongoDatabase = mongoClient.getDatabase(dbName).withCodecRegistry(registry);
         return mongoDatabase.getCollection(processId, ProcessInstanceDocument.class).withCodecRegistry(registry);
     }
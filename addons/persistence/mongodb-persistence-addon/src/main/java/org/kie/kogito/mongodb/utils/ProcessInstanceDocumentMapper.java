@@ -46,7 +46,7 @@ public class ProcessInstanceDocumentMapper implements BiFunction<KogitoProcessMa
             applyVariables(instanceNode, VARIABLE);
             doc.setProcessInstance(Optional.ofNullable(instanceNode).map(json -> Document.parse(json.toString())).orElse(null));
             if (context != null) {
-                doc.setStrategies(context.getUsedStrategies().entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getName(), Map.Entry::getValue)));
+                doc.setStrategies(usedStrategies(context));
             }
         } catch (Exception e) {
             throw new DocumentMarshallingException(e);
@@ -54,6 +54,10 @@ public class ProcessInstanceDocumentMapper implements BiFunction<KogitoProcessMa
         return doc;
     }
 
+    public static Map<String, Integer> usedStrategies(KogitoProcessMarshallerWriteContext context) {
+        return context.getUsedStrategies().entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getName(), Map.Entry::getValue));
+    }
+
     private void applyVariables(JsonNode parent, String variable) {
         if (parent.has(variable) && parent.get(variable).isArray()) {
             parent.get(variable).forEach(node -> {
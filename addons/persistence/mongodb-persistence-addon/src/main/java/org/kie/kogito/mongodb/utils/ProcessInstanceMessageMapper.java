@@ -43,19 +43,25 @@ public class ProcessInstanceMessageMapper implements BiFunction<MarshallerReader
             applyVariables(rootNode, VARIABLE);
             String json = getObjectMapper().writeValueAsString(rootNode);
             parser.merge(json, builder);
-            for (Map.Entry<String, Integer> entry : doc.getStrategies().entrySet()) {
-                ObjectMarshallingStrategy strategyObject = context.getResolverStrategyFactory().getStrategyObject(entry.getKey());
-                if (strategyObject != null) {
-                    context.getUsedStrategies().put(entry.getValue(), strategyObject);
-                }
-            }
-
+            restoreStrategies(context, doc);
         } catch (Exception e) {
             throw new DocumentUnmarshallingException(e);
         }
         return builder.build();
     }
 
+    public static void restoreStrategies(MarshallerReaderContext context, ProcessInstanceDocument doc) {
+        if (context == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : doc.getStrategies().entrySet()) {
+            ObjectMarshallingStrategy strategyObject = context.getResolverStrategyFactory().getStrategyObject(entry.getKey());
+            if (strategyObject != null) {
+                context.getUsedStrategies().put(entry.getValue(), strategyObject);
+            }
+        }
+    }
+
     private void applyVariables(JsonNode parent, String variable) {
         if (parent.has(variable) && parent.get(variable).isArray()) {
             parent.get(variable).forEach(node -> {
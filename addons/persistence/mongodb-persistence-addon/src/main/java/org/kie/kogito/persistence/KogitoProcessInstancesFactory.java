@@ -15,28 +15,71 @@
 
 package org.kie.kogito.persistence;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
 import com.mongodb.client.MongoClient;
+import org.kie.kogito.mongodb.MongoDBOutbox;
 import org.kie.kogito.mongodb.MongoDBProcessInstances;
+import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
+import org.kie.kogito.outbox.Outbox;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstancesFactory;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
 
 /**
  * This class must always have exact FQCN as
  * <code>org.kie.kogito.persistence.KogitoProcessInstancesFactory</code>
  *
  */
-public abstract class KogitoProcessInstancesFactory implements ProcessInstancesFactory {
+public abstract class KogitoProcessInstancesFactory implements ProcessInstancesFactory, AutoCloseable {
 
     protected MongoClient mongoClient;
 
+    private final List<MongoDBProcessInstances<?>> createdInstances = new CopyOnWriteArrayList<>();
+
     public KogitoProcessInstancesFactory(MongoClient mongoClient) {
         this.mongoClient = mongoClient;
     }
 
     public abstract String dbName();
 
+    /**
+     * @return outbox stored in the database of process instances
+     */
+    public Outbox createOutbox() {
+        return new MongoDBOutbox(mongoClient, dbName());
+    }
+
     @Override
     public MongoDBProcessInstances<?> createProcessInstances(Process<?> process) {
-        return new MongoDBProcessInstances<>(mongoClient, process, dbName());
+        ProcessInstanceNearCache<ProcessInstanceDocument> nearCache = nearCacheSize() > 0 ? new ProcessInstanceNearCache<>(nearCacheSize(), nearCacheExpiration(), TimeUnit.SECONDS) : null;
+        MongoDBProcessInstances<?> instances = new MongoDBProcessInstances<>(mongoClient, process, dbName(), nearCache);
+        createdInstances.add(instances);
+        return instances;
+    }
+
+    /**
+     * @return maximum number of process instances kept in the near cache of each process, zero disables it
+     */
+    public int nearCacheSize() {
+        return 0;
+    }
+
+    /**
+     * @return seconds after which process instances in the near cache are read from the database again
+     */
+    public long nearCacheExpiration() {
+        return 60;
+    }
+
+    /**
+     * Closes the process instances created by this factory, stopping the watchers of their near caches.
+     */
+    @Override
+    public void close() {
+        createdInstances.forEach(MongoDBProcessInstances::close);
+        createdInstances.clear();
     }
 }
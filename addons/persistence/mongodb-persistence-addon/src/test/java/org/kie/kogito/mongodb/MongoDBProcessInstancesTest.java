@@ -15,20 +15,27 @@
 
 package org.kie.kogito.mongodb;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import com.mongodb.client.MongoClient;
 import org.drools.core.io.impl.ClassPathResource;
 import org.junit.jupiter.api.Test;
+import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
 import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
 import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.bpmn2.BpmnProcess;
 import org.kie.kogito.process.bpmn2.BpmnProcessInstance;
 import org.kie.kogito.process.bpmn2.BpmnVariables;
+import org.kie.kogito.process.impl.AbstractProcessInstance;
+import org.kie.kogito.process.impl.ProcessInstanceNearCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -61,6 +68,8 @@ class MongoDBProcessInstancesTest extends TestHelper {
         assertThat(mongodbInstance.exists(processInstance.id())).isTrue();
         assertThat(mongodbInstance.values().size()).isOne();
 
+        assertThat(mongodbInstance.findByIds(Arrays.asList(processInstance.id(), "missing"), ProcessInstanceReadMode.MUTABLE)).containsOnlyKeys(processInstance.id());
+
         ProcessInstance<?> readOnlyPI = mongodbInstance.findById(processInstance.id(), ProcessInstanceReadMode.READ_ONLY).get();
         assertNotNull(readOnlyPI, "ProcessInstanceDocument cannot be null");
         assertThat(mongodbInstance.values(ProcessInstanceReadMode.READ_ONLY).size()).isOne();
@@ -70,6 +79,66 @@ class MongoDBProcessInstancesTest extends TestHelper {
         assertThat(mongodbInstance.values()).isEmpty();
     }
 
+    @Test
+    void testConcurrentUpdateConflict() {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new MongoDBProcessInstancesFactory(getMongoClient()));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        MongoDBProcessInstances<BpmnVariables> mongodbInstance = new MongoDBProcessInstances<>(getMongoClient(), process, DB_NAME);
+        ProcessInstance<BpmnVariables> first = mongodbInstance.findById(processInstance.id()).get();
+        ProcessInstance<BpmnVariables> second = mongodbInstance.findById(processInstance.id()).get();
+
+        mongodbInstance.update(first.id(), first);
+        assertThatExceptionOfType(ProcessInstanceOptimisticLockingException.class).isThrownBy(() -> mongodbInstance.update(second.id(), second));
+
+        ProcessInstance<BpmnVariables> reloaded = mongodbInstance.findById(processInstance.id()).get();
+        mongodbInstance.update(reloaded.id(), reloaded);
+
+        mongodbInstance.remove(processInstance.id());
+        assertThat(mongodbInstance.exists(processInstance.id())).isFalse();
+    }
+
+    @Test
+    void testNearCache() throws InterruptedException {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new MongoDBProcessInstancesFactory(getMongoClient()));
+        process.configure();
+
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+
+        ProcessInstanceNearCache<ProcessInstanceDocument> nearCache = new ProcessInstanceNearCache<>(10, 60, TimeUnit.SECONDS);
+        MongoDBProcessInstances<BpmnVariables> cached = new MongoDBProcessInstances<>(getMongoClient(), process, DB_NAME, nearCache);
+        MongoDBProcessInstances<BpmnVariables> other = new MongoDBProcessInstances<>(getMongoClient(), process, DB_NAME);
+
+        ProcessInstance<BpmnVariables> found = cached.findById(processInstance.id()).get();
+        assertThat(cached.findById(processInstance.id())).isPresent();
+        assertThat(nearCache.hits()).isOne();
+
+        // written document is cached, so it is not read again
+        long version = ((AbstractProcessInstance<?>) found).version() + 1;
+        cached.update(found.id(), found);
+        assertThat(((AbstractProcessInstance<?>) cached.findById(processInstance.id()).get()).version()).isEqualTo(version);
+        assertThat(nearCache.hits()).isEqualTo(2);
+
+        // change made by another node is noticed through the change stream
+        ProcessInstance<BpmnVariables> changed = other.findById(processInstance.id()).get();
+        other.update(changed.id(), changed);
+        for (int i = 0; i < 100 && nearCache.size() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(nearCache.size()).isZero();
+        assertThat(((AbstractProcessInstance<?>) cached.findById(processInstance.id()).get()).version()).isEqualTo(version + 1);
+
+        cached.remove(processInstance.id());
+        assertThat(cached.findById(processInstance.id())).isEmpty();
+        cached.close();
+    }
+
     private class MongoDBProcessInstancesFactory extends KogitoProcessInstancesFactory {
 
         public MongoDBProcessInstancesFactory(MongoClient mongoClient) {
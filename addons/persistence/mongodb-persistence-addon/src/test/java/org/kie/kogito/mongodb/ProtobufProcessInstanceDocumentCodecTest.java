@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.mongodb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.jbpm.marshalling.impl.JBPMMessages;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.mongodb.codec.ProcessInstanceDocumentCodec;
+import org.kie.kogito.mongodb.codec.ProtobufProcessInstanceDocumentCodec;
+import org.kie.kogito.mongodb.marshalling.DocumentMarshallingStrategy;
+import org.kie.kogito.mongodb.model.ProcessInstanceDocument;
+import org.kie.kogito.mongodb.utils.ProcessInstanceDocumentMapper;
+import org.kie.kogito.mongodb.utils.ProcessInstanceMessageMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtobufProcessInstanceDocumentCodecTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProtobufProcessInstanceDocumentCodecTest.class);
+
+    private JBPMMessages.ProcessInstance instance;
+
+    @BeforeEach
+    void setup() throws Exception {
+        instance = TestHelper.getprocessInstance().toBuilder()
+                .addVariable(JBPMMessages.Variable.newBuilder()
+                        .setName("address")
+                        .setStrategyIndex(0)
+                        .setValue(ByteString.copyFrom(TestHelper.getTestByteArrays())))
+                .addSwimlaneContext(JBPMMessages.ProcessInstance.SwimlaneContextInstance.newBuilder()
+                        .setSwimlane("approver")
+                        .setActorId("john"))
+                .build();
+    }
+
+    @Test
+    void testSameDocumentAsJsonMapping() {
+        BsonDocument expected = encode(new ProcessInstanceDocumentCodec(), jsonDocument());
+        BsonDocument actual = encode(new ProtobufProcessInstanceDocumentCodec(), protobufDocument());
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void testRoundTrip() {
+        ProtobufProcessInstanceDocumentCodec codec = new ProtobufProcessInstanceDocumentCodec();
+        ProcessInstanceDocument doc = protobufDocument();
+
+        ProcessInstanceDocument decoded = codec.decode(new BsonDocumentReader(encode(codec, doc)), DecoderContext.builder().build());
+
+        assertThat(decoded.getId()).isEqualTo(instance.getId());
+        assertThat(decoded.getMessage()).isEqualTo(instance);
+        assertThat(decoded.getStrategies()).isEqualTo(doc.getStrategies());
+        assertThat(decoded.getEvents()).isEqualTo(doc.getEvents());
+        assertThat(decoded.getVersion()).isEqualTo(doc.getVersion());
+    }
+
+    @Test
+    void testDecodeDocumentWrittenByJsonMapping() {
+        ProcessInstanceDocument decoded = new ProtobufProcessInstanceDocumentCodec().decode(new BsonDocumentReader(encode(new ProcessInstanceDocumentCodec(), jsonDocument())),
+                                                                                           DecoderContext.builder().build());
+
+        assertThat(decoded.getMessage()).isEqualTo(instance);
+    }
+
+    @Test
+    void testGenerateIdFromMessage() {
+        ProcessInstanceDocument doc = new ProcessInstanceDocument();
+        doc.setMessage(instance);
+
+        new ProtobufProcessInstanceDocumentCodec().generateIdIfAbsentFromDocument(doc);
+
+        assertThat(doc.getId()).isEqualTo(instance.getId());
+    }
+
+    @Test
+    void testThroughputComparedToJsonMapping() {
+        int iterations = 20_000;
+        ProcessInstanceDocumentCodec jsonCodec = new ProcessInstanceDocumentCodec();
+        ProtobufProcessInstanceDocumentCodec protobufCodec = new ProtobufProcessInstanceDocumentCodec();
+        for (int i = 0; i < iterations; i++) {
+            jsonRoundTrip(jsonCodec);
+            protobufRoundTrip(protobufCodec);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            jsonRoundTrip(jsonCodec);
+        }
+        long json = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            protobufRoundTrip(protobufCodec);
+        }
+        long protobuf = System.nanoTime() - start;
+
+        LOGGER.info("{} round trips, json mapping {} ms, direct bson {} ms", iterations, TimeUnit.NANOSECONDS.toMillis(json), TimeUnit.NANOSECONDS.toMillis(protobuf));
+    }
+
+    private void jsonRoundTrip(ProcessInstanceDocumentCodec codec) {
+        ProcessInstanceDocument decoded = codec.decode(new BsonDocumentReader(encode(codec, jsonDocument())), DecoderContext.builder().build());
+        assertThat(new ProcessInstanceMessageMapper().apply(null, decoded).getId()).isEqualTo(instance.getId());
+    }
+
+    private void protobufRoundTrip(ProtobufProcessInstanceDocumentCodec codec) {
+        ProcessInstanceDocument decoded = codec.decode(new BsonDocumentReader(encode(codec, protobufDocument())), DecoderContext.builder().build());
+        assertThat(decoded.getMessage().getId()).isEqualTo(instance.getId());
+    }
+
+    private ProcessInstanceDocument jsonDocument() {
+        return complete(new ProcessInstanceDocumentMapper().apply(null, instance));
+    }
+
+    private ProcessInstanceDocument protobufDocument() {
+        ProcessInstanceDocument doc = new ProcessInstanceDocument();
+        doc.setId(instance.getId());
+        doc.setMessage(instance);
+        return complete(doc);
+    }
+
+    private static ProcessInstanceDocument complete(ProcessInstanceDocument doc) {
+        doc.setStrategies(Collections.singletonMap(DocumentMarshallingStrategy.class.getName(), 0));
+        doc.setEvents(new LinkedHashSet<>(Arrays.asList("event1", "event2")));
+        doc.setVersion(3L);
+        return doc;
+    }
+
+    private static BsonDocument encode(Codec<ProcessInstanceDocument> codec, ProcessInstanceDocument doc) {
+        BsonDocumentWriter writer = new BsonDocumentWriter(new BsonDocument());
+        codec.encode(writer, doc, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        return writer.getDocument();
+    }
+}
@@ -18,11 +18,13 @@ package org.kie.kogito.process.management;
 
 import javax.inject.Inject;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -75,6 +77,16 @@ public class ProcessInstanceManagementResource extends BaseProcessInstanceManage
         return doGetProcessNodes(processId);
     }
 
+    @Override
+    @GET
+    @Path("{processId}/instances")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getProcessInstances(@PathParam("processId") String processId,
+                                        @QueryParam("page") @DefaultValue("0") int page,
+                                        @QueryParam("size") @DefaultValue("10") int size) {
+        return doGetProcessInstances(processId, page, size);
+    }
+
     @Override
     @GET
     @Path("{processId}/instances/{processInstanceId}/error")
@@ -156,6 +156,12 @@ public class ProcessInstanceManagementResourceTest {
         verify(resource).doGetProcessNodes(PROCESS_ID);
     }
 
+    @Test
+    public void testGetProcessInstances() {
+        resource.getProcessInstances(PROCESS_ID, 1, 20);
+        verify(resource).doGetProcessInstances(PROCESS_ID, 1, 20);
+    }
+
     @Test
     public void testGetWorkItemsInProcessInstance() {
         resource.getWorkItemsInProcessInstance(PROCESS_ID, PROCESS_INSTANCE_ID);
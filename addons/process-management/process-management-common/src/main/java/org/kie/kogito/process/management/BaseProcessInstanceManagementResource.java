@@ -45,6 +45,7 @@ public abstract class BaseProcessInstanceManagementResource<T> implements Proces
     private static final String PROCESS_NOT_FOUND = "Process with id %s not found";
     private static final String PROCESS_INSTANCE_NOT_FOUND = "Process instance with id %s not found";
     private static final String PROCESS_INSTANCE_NOT_IN_ERROR = "Process instance with id %s is not in error state";
+    private static final String PAGE_NOT_NEGATIVE = "Page and size must not be negative";
 
     private Processes processes;
 
@@ -71,6 +72,24 @@ public abstract class BaseProcessInstanceManagementResource<T> implements Proces
         });
     }
 
+    public T doGetProcessInstances(String processId, int page, int size) {
+        if (page < 0 || size < 0) {
+            return badRequestResponse(PAGE_NOT_NEGATIVE);
+        }
+        return executeOnProcess(processId, process -> {
+            // summaries are read from the stored data so listing does not unmarshall the instances
+            List<Map<String, Object>> list = process.instances().summaries(page, size).stream().map(summary -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("id", summary.id());
+                data.put("status", summary.status());
+                data.put("businessKey", summary.businessKey());
+                data.put("description", summary.description());
+                return data;
+            }).collect(Collectors.toList());
+            return buildOkResponse(list);
+        });
+    }
+
     public T doGetInstanceInError(String processId, String processInstanceId) {
 
         return executeOnInstanceInError(processId, processInstanceId, processInstance -> {
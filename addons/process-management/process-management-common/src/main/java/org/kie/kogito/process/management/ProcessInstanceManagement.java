@@ -19,6 +19,8 @@ package org.kie.kogito.process.management;
 public interface ProcessInstanceManagement<T> {
 
     T getProcessNodes(String processId);
+
+    T getProcessInstances(String processId, int page, int size);
     
     T getInstanceInError(String processId, String processInstanceId);
 
@@ -29,6 +29,8 @@ import org.kie.kogito.Application;
 import org.kie.kogito.auth.SecurityPolicy;
 import org.kie.kogito.process.ProcessError;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
 import org.kie.kogito.process.ProcessInstances;
 import org.kie.kogito.process.Processes;
 import org.kie.kogito.process.WorkItem;
@@ -43,6 +45,7 @@ import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.jbpm.ruleflow.core.Metadata.UNIQUE_ID;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
@@ -130,6 +133,11 @@ class BaseProcessInstanceManagementResourceTest {
                 return null;
             }
 
+            @Override
+            public Object getProcessInstances(String processId, int page, int size) {
+                return null;
+            }
+
             @Override
             public Object getInstanceInError(String processId, String processInstanceId) {
                 return null;
@@ -188,6 +196,26 @@ class BaseProcessInstanceManagementResourceTest {
                 .hasFieldOrPropertyWithValue("type", node.getClass().getSimpleName());
     }
 
+    @Test
+    void testDoGetProcessInstances() {
+        when(instances.summaries(0, 10)).thenReturn(singletonList(new ProcessInstanceSummary(PROCESS_INSTANCE_ID, ProcessInstance.STATE_ERROR, "businessKey", null)));
+        Object response = tested.doGetProcessInstances(PROCESS_ID, 0, 10);
+
+        verify(instances, times(0)).values(any(ProcessInstanceReadMode.class), anyInt(), anyInt());
+        assertThat(response).isInstanceOf(List.class).asList().hasSize(1).element(0)
+                .hasFieldOrPropertyWithValue("id", PROCESS_INSTANCE_ID)
+                .hasFieldOrPropertyWithValue("status", ProcessInstance.STATE_ERROR)
+                .hasFieldOrPropertyWithValue("businessKey", "businessKey");
+    }
+
+    @Test
+    void testDoGetProcessInstancesWithNegativePage() {
+        Object response = tested.doGetProcessInstances(PROCESS_ID, -1, 10);
+
+        verify(instances, times(0)).summaries(anyInt(), anyInt());
+        assertThat(response).isEqualTo("Page and size must not be negative");
+    }
+
     @Test
     void testDoGetInstanceInError() {
         Object response = tested.doGetInstanceInError(PROCESS_ID, PROCESS_INSTANCE_ID);
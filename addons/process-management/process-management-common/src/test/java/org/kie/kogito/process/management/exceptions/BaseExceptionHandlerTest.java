@@ -23,6 +23,7 @@ import org.kie.kogito.process.NodeInstanceNotFoundException;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
 import org.kie.kogito.process.ProcessInstanceExecutionException;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
 import org.kie.kogito.process.VariableViolationException;
 import org.kie.kogito.process.workitem.InvalidLifeCyclePhaseException;
 import org.kie.kogito.process.workitem.InvalidTransitionException;
@@ -125,6 +126,12 @@ class BaseExceptionHandlerTest {
         assertThat(response).isEqualTo(notFoundResponse);
     }
 
+    @Test
+    void testMapProcessInstanceOptimisticLockingException() {
+        Object response = tested.mapException(new ProcessInstanceOptimisticLockingException("processInstanceId"));
+        assertThat(response).isEqualTo(conflictResponse);
+    }
+
     @Test
     void testMapVariableViolationException() {
         Object response = tested.mapException(new VariableViolationException("processInstanceId", "variable",
@@ -26,6 +26,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
@@ -60,6 +61,14 @@ public class ProcessInstanceManagementRestController extends BaseProcessInstance
         return doGetProcessNodes(processId);
     }
 
+    @Override
+    @GetMapping(value = "{processId}/instances", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity getProcessInstances(@PathVariable("processId") String processId,
+                                              @RequestParam(value = "page", defaultValue = "0") int page,
+                                              @RequestParam(value = "size", defaultValue = "10") int size) {
+        return doGetProcessInstances(processId, page, size);
+    }
+
     @Override
     @GetMapping(value = "{processId}/instances/{processInstanceId}/error", produces = APPLICATION_JSON_VALUE)
     public ResponseEntity getInstanceInError(@PathVariable("processId") String processId,
@@ -131,4 +131,10 @@ class ProcessInstanceManagementRestControllerTest {
         tested.getProcessNodes(PROCESS_ID);
         verify(tested).doGetProcessNodes(PROCESS_ID);
     }
+
+    @Test
+    void testGetProcessInstances() {
+        tested.getProcessInstances(PROCESS_ID, 1, 20);
+        verify(tested).doGetProcessInstances(PROCESS_ID, 1, 20);
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import org.kie.kogito.process.NodeInstanceNotFoundException;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
 import org.kie.kogito.process.ProcessInstanceExecutionException;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
 import org.kie.kogito.process.VariableViolationException;
 import org.kie.kogito.process.workitem.InvalidLifeCyclePhaseException;
 import org.kie.kogito.process.workitem.InvalidTransitionException;
@@ -126,6 +127,12 @@ class ExceptionsHandlerTest {
         verify(tested).mapException(exception);
     }
 
+    @Test
+    void testProcessInstanceOptimisticLockingException(@Mock ProcessInstanceOptimisticLockingException exception) {
+        tested.toResponse(exception);
+        verify(tested).mapException(exception);
+    }
+
     @Test
     void testVariableViolationException(@Mock VariableViolationException exception) {
         tested.toResponse(exception);
@@ -58,4 +58,12 @@ public interface EventManager {
      * @param addons addons available in the service
      */
     void setAddons(Addons addons);
+
+    /**
+     * Optionally makes process instance events hold only the variables changed since the previous
+     * version of the same process instance, along with that version to rebuild the instance from them
+     * @param deltaEvents true to publish only the changed variables
+     */
+    default void setDeltaEvents(boolean deltaEvents) {
+    }
 }
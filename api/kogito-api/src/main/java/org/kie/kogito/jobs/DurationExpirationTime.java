@@ -22,6 +22,8 @@ import java.util.Objects;
 
 public class DurationExpirationTime implements ExpirationTime {
 
+    private static final long serialVersionUID = 1L;
+
     private final ZonedDateTime expirationTime;
     private Long repeatInterval;
     private Integer repeatLimit;
@@ -20,6 +20,8 @@ import java.util.Objects;
 
 public class ExactExpirationTime implements ExpirationTime {
 
+    private static final long serialVersionUID = 1L;
+
     private final ZonedDateTime expirationTime;
     
     private ExactExpirationTime(ZonedDateTime expirationTime) {
@@ -14,9 +14,10 @@
  */
 package org.kie.kogito.jobs;
 
+import java.io.Serializable;
 import java.time.ZonedDateTime;
 
-public interface ExpirationTime {
+public interface ExpirationTime extends Serializable {
 
     ZonedDateTime get();
     
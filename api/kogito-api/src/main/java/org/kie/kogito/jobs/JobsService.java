@@ -17,6 +17,9 @@
 package org.kie.kogito.jobs;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * JobsService provides an entry point for working with different types of jobs
@@ -48,6 +51,29 @@ public interface JobsService {
      */
     boolean cancelJob(String id);
     
+    /**
+     * Schedules multiple process instance related jobs at once. Implementations that talk to
+     * a remote service should send them as single request.
+     * @param descriptions descriptions of the jobs to be scheduled
+     * @return returns unique ids of the jobs in the order of given descriptions
+     */
+    default List<String> scheduleProcessInstanceJobs(Collection<ProcessInstanceJobDescription> descriptions) {
+        List<String> ids = new ArrayList<>(descriptions.size());
+        for (ProcessInstanceJobDescription description : descriptions) {
+            ids.add(scheduleProcessInstanceJob(description));
+        }
+        return ids;
+    }
+
+    /**
+     * Cancels multiple jobs at once. Implementations that talk to a remote service should
+     * send them as single request.
+     * @param ids unique ids of the jobs
+     */
+    default void cancelJobs(Collection<String> ids) {
+        ids.forEach(this::cancelJob);
+    }
+
     /**
      * Returns actual schedule time for the next expiration of given job
      * @param id unique id of the job
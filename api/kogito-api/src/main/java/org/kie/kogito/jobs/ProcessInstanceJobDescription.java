@@ -16,11 +16,15 @@
 
 package org.kie.kogito.jobs;
 
+import java.io.Serializable;
 import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
 
-public class ProcessInstanceJobDescription implements JobDescription {
+public class ProcessInstanceJobDescription implements JobDescription,
+                                                      Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final Integer DEFAULT_PRIORITY = 5;
 
@@ -44,7 +48,19 @@ public class ProcessInstanceJobDescription implements JobDescription {
                                           String processId,
                                           String rootProcessId,
                                           String nodeInstanceId) {
-        this.id = UUID.randomUUID().toString() + "_" + timerId;
+        this(UUID.randomUUID().toString() + "_" + timerId, expirationTime, priority, processInstanceId, rootProcessInstanceId,
+             processId, rootProcessId, nodeInstanceId);
+    }
+
+    private ProcessInstanceJobDescription(String id,
+                                          ExpirationTime expirationTime,
+                                          Integer priority,
+                                          String processInstanceId,
+                                          String rootProcessInstanceId,
+                                          String processId,
+                                          String rootProcessId,
+                                          String nodeInstanceId) {
+        this.id = requireNonNull(id);
         this.expirationTime = requireNonNull(expirationTime);
         this.priority = requireNonNull(priority);
         this.processInstanceId = requireNonNull(processInstanceId);
@@ -85,6 +101,24 @@ public class ProcessInstanceJobDescription implements JobDescription {
                                                  rootProcessInstanceId, processId, rootProcessId, nodeInstanceId);
     }
 
+    /**
+     * Recreates the description of a job scheduled before, e.g. when it is read back from storage.
+     *
+     * @param id id of the job as returned by {@link #id()}
+     */
+    public static ProcessInstanceJobDescription of(String id,
+                                                   ExpirationTime expirationTime,
+                                                   Integer priority,
+                                                   String processInstanceId,
+                                                   String rootProcessInstanceId,
+                                                   String processId,
+                                                   String rootProcessId,
+                                                   String nodeInstanceId) {
+
+        return new ProcessInstanceJobDescription(id, expirationTime, priority, processInstanceId,
+                                                 rootProcessInstanceId, processId, rootProcessId, nodeInstanceId);
+    }
+
     @Override
     public String id() {
         return id;
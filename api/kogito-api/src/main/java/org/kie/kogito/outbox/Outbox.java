@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.outbox;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable store of entries (events and job requests) that must be delivered once the
+ * unit of work that produced them has completed. Entries are appended by the unit of work
+ * and drained by a background relay that removes them only after successful delivery,
+ * which gives at-least-once delivery semantics.
+ * <p>
+ * Entries are appended in a write of their own once the unit of work completed, not atomically with
+ * the process instance write, so entries of a unit of work are lost when the service stops in between.
+ * The persistence addons provide an outbox next to the process instances, generated applications
+ * use it when <code>kogito.persistence.outbox</code> is enabled; any other implementation can be
+ * supplied as a bean.
+ */
+public interface Outbox {
+
+    /**
+     * Appends given entries to the outbox
+     * @param entries entries to be stored
+     */
+    void append(Collection<OutboxEntry> entries);
+
+    /**
+     * Returns oldest entries from the outbox without removing them
+     * @param max maximum number of entries to return
+     * @return entries ordered by their identifier
+     */
+    List<OutboxEntry> poll(int max);
+
+    /**
+     * Removes delivered entries from the outbox
+     * @param ids identifiers of delivered entries
+     */
+    void remove(Collection<String> ids);
+}
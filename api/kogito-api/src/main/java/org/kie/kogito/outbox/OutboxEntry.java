@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.outbox;
+
+import java.util.UUID;
+
+/**
+ * Single entry of the {@link Outbox}. Identifiers start with zero padded creation time so
+ * sorting entries by identifier gives their creation order.
+ */
+public class OutboxEntry {
+
+    public enum Type {
+        EVENT,
+        SCHEDULE_JOB,
+        CANCEL_JOB
+    }
+
+    private final String id;
+    private final Type type;
+    private final long timestamp;
+    private final byte[] payload;
+
+    public OutboxEntry(Type type, byte[] payload) {
+        this(System.currentTimeMillis(), type, payload);
+    }
+
+    private OutboxEntry(long timestamp, Type type, byte[] payload) {
+        this(String.format("%013d-%s", timestamp, UUID.randomUUID()), type, timestamp, payload);
+    }
+
+    public OutboxEntry(String id, Type type, long timestamp, byte[] payload) {
+        this.id = id;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.payload = payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEntry [id=" + id + ", type=" + type + "]";
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process instances able to perform writes of many process instances with a single request to the
+ * underlying storage, so writes of concurrent units of work can be coalesced into fewer round trips.
+ */
+public interface BatchingProcessInstances<T> extends MutableProcessInstances<T> {
+
+    /**
+     * Performs given writes, each of them succeeds or fails on its own (e.g. when the process instance
+     * was updated in the meantime) without affecting the others. Given writes are of distinct process
+     * instances. By default writes are performed one by one.
+     *
+     * @param writes writes to perform
+     * @return failed writes mapped to the exception they failed with, empty if all writes succeeded
+     * @throws RuntimeException when the storage could not be written at all
+     */
+    default Map<ProcessInstanceWrite<T>, RuntimeException> writeAll(List<ProcessInstanceWrite<T>> writes) {
+        Map<ProcessInstanceWrite<T>, RuntimeException> failures = new HashMap<>();
+        for (ProcessInstanceWrite<T> write : writes) {
+            try {
+                write.applyTo(this);
+            } catch (RuntimeException e) {
+                failures.put(write, e);
+            }
+        }
+        return failures;
+    }
+}
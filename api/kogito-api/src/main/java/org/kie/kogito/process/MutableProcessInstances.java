@@ -15,6 +15,8 @@
 
 package org.kie.kogito.process;
 
+import java.util.Collection;
+
 public interface MutableProcessInstances<T> extends ProcessInstances<T> {
     
     boolean exists(String id);
@@ -24,7 +26,32 @@ public interface MutableProcessInstances<T> extends ProcessInstances<T> {
     void update(String id, ProcessInstance<T> instance);
     
     void remove(String id);
-    
+
+    /**
+     * Removes given process instance only if it was not written since it was loaded, so changes made
+     * in the meantime (e.g. by another node) are not lost. Stores without versioning remove it unconditionally.
+     *
+     * @param id id of the process instance
+     * @param instance process instance as loaded from this store
+     * @throws ProcessInstanceOptimisticLockingException when the process instance was written since it was loaded
+     */
+    default void removeIfUnchanged(String id, ProcessInstance<T> instance) {
+        remove(id);
+    }
+
+    /**
+     * Returns process instances that are waiting on given event type. Implementations
+     * should maintain an index of subscriptions so only matching instances are loaded,
+     * by default all instances are returned and the event is filtered by the instance itself.
+     *
+     * @param eventType type of the event (signal name)
+     * @param mode read mode of returned instances
+     * @return instances that might accept given event type
+     */
+    default Collection<ProcessInstance<T>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        return values(mode);
+    }
+
     default boolean isActive(ProcessInstance<T> instance) {
         return instance.status() == ProcessInstance.STATE_ACTIVE || instance.status() == ProcessInstance.STATE_ERROR;        
     }
@@ -175,6 +175,16 @@ public interface ProcessInstance<T> {
      */
     Date startDate();
 
+    /**
+     * Returns version of the stored process instance this instance was loaded from or last written as,
+     * incremented by every write of the process instance
+     *
+     * @return version of the stored process instance or 0 if not known or the store does not keep versions
+     */
+    default long version() {
+        return 0;
+    }
+
     /**
      * Returns process error in case process instance is in error state.
      *
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process;
+
+/**
+ * Thrown when a process instance could not be stored because it has been modified
+ * concurrently since it was loaded. The operation can be retried with a freshly
+ * loaded process instance.
+ */
+public class ProcessInstanceOptimisticLockingException extends RuntimeException {
+
+    private static final long serialVersionUID = -5417476271542394413L;
+
+    private final String processInstanceId;
+
+    public ProcessInstanceOptimisticLockingException(String processInstanceId) {
+        super("Process instance with id '" + processInstanceId + "' has been modified concurrently, retry the operation on the latest version");
+        this.processInstanceId = processInstanceId;
+    }
+
+    public String getProcessInstanceId() {
+        return processInstanceId;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.kie.kogito.MapOutput;
+
+/**
+ * Criteria of {@link ProcessInstances#query(ProcessInstanceQuery, ProcessInstanceReadMode)}, all given
+ * criteria must match. Variable values are compared by their string representation (name of enum
+ * constants), the same form in which indexed variables are stored by persistence implementations.
+ */
+public class ProcessInstanceQuery {
+
+    private Integer status;
+    private final Map<String, String> variables = new LinkedHashMap<>();
+
+    private ProcessInstanceQuery() {
+    }
+
+    public static ProcessInstanceQuery create() {
+        return new ProcessInstanceQuery();
+    }
+
+    /**
+     * Creates a query from criteria given as request parameters.
+     *
+     * @param status required status or null if any status matches
+     * @param filters required variable values in the form <code>name=value</code>, might be null
+     * @return query with given criteria
+     */
+    public static ProcessInstanceQuery of(Integer status, Collection<String> filters) {
+        ProcessInstanceQuery query = new ProcessInstanceQuery();
+        query.status = status;
+        if (filters != null) {
+            for (String filter : filters) {
+                int separator = filter.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid filter '" + filter + "', expected name=value");
+                }
+                query.withVariable(filter.substring(0, separator), filter.substring(separator + 1));
+            }
+        }
+        return query;
+    }
+
+    public ProcessInstanceQuery withStatus(int status) {
+        this.status = status;
+        return this;
+    }
+
+    public ProcessInstanceQuery withVariable(String name, Object value) {
+        variables.put(name, indexValue(value));
+        return this;
+    }
+
+    /**
+     * @return required status of the process instances or null if any status matches
+     */
+    public Integer status() {
+        return status;
+    }
+
+    /**
+     * @return required values of process variables keyed by variable name
+     */
+    public Map<String, String> variables() {
+        return Collections.unmodifiableMap(variables);
+    }
+
+    public boolean isEmpty() {
+        return status == null && variables.isEmpty();
+    }
+
+    public boolean matches(ProcessInstance<?> instance) {
+        if (status != null && status != instance.status()) {
+            return false;
+        }
+        if (variables.isEmpty()) {
+            return true;
+        }
+        Object model = instance.variables();
+        Map<String, Object> values = model instanceof MapOutput ? ((MapOutput) model).toMap() : Collections.emptyMap();
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            if (!Objects.equals(variable.getValue(), indexValue(values.get(variable.getKey())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a variable value to the form used to index and query it.
+     *
+     * @param value value of the variable
+     * @return string representation of the value or null when there is no value
+     */
+    public static String indexValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInstanceQuery [status=" + status + ", variables=" + variables + "]";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process;
+
+/**
+ * Lightweight projection of a process instance, persistence implementations store it along with
+ * the process instance so it can be listed without unmarshalling it.
+ *
+ * @see ProcessInstances#summaries(int, int)
+ */
+public class ProcessInstanceSummary {
+
+    private final String id;
+    private final int status;
+    private final String businessKey;
+    private final String description;
+
+    public ProcessInstanceSummary(String id, int status, String businessKey, String description) {
+        this.id = id;
+        this.status = status;
+        this.businessKey = businessKey;
+        this.description = description;
+    }
+
+    public static ProcessInstanceSummary of(ProcessInstance<?> instance) {
+        return new ProcessInstanceSummary(instance.id(), instance.status(), instance.businessKey(), instance.description());
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String businessKey() {
+        return businessKey;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInstanceSummary [id=" + id + ", status=" + status + ", businessKey=" + businessKey + ", description=" + description + "]";
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write of a single process instance as requested by a unit of work, so it can be performed
+ * together with writes of other process instances, see {@link BatchingProcessInstances}.
+ *
+ * @param <T> type of the process instance variables
+ */
+public class ProcessInstanceWrite<T> {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        REMOVE
+    }
+
+    private static final LongAdder PERFORMED = new LongAdder();
+    private static final LongAdder CONFLICTING = new LongAdder();
+
+    private final Type type;
+    private final String id;
+    private final ProcessInstance<T> instance;
+
+    public ProcessInstanceWrite(Type type, String id, ProcessInstance<T> instance) {
+        this.type = type;
+        this.id = id;
+        this.instance = instance;
+    }
+
+    public static <T> ProcessInstanceWrite<T> create(String id, ProcessInstance<T> instance) {
+        return new ProcessInstanceWrite<>(Type.CREATE, id, instance);
+    }
+
+    public static <T> ProcessInstanceWrite<T> update(String id, ProcessInstance<T> instance) {
+        return new ProcessInstanceWrite<>(Type.UPDATE, id, instance);
+    }
+
+    public static <T> ProcessInstanceWrite<T> remove(String id, ProcessInstance<T> instance) {
+        return new ProcessInstanceWrite<>(Type.REMOVE, id, instance);
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public ProcessInstance<T> instance() {
+        return instance;
+    }
+
+    /**
+     * Performs the write with the single process instance operations of given process instances.
+     * Removals are conditional on the version the instance was loaded with, like updates.
+     */
+    public void applyTo(MutableProcessInstances<T> instances) {
+        switch (type) {
+            case CREATE:
+                instances.create(id, instance);
+                break;
+            case UPDATE:
+                instances.update(id, instance);
+                break;
+            default:
+                if (instance == null) {
+                    instances.remove(id);
+                } else {
+                    instances.removeIfUnchanged(id, instance);
+                }
+        }
+    }
+
+    /**
+     * Same as {@link #applyTo(MutableProcessInstances)}, and records the outcome of the write.
+     */
+    public void perform(MutableProcessInstances<T> instances) {
+        try {
+            applyTo(instances);
+        } catch (RuntimeException e) {
+            recordOutcome(e);
+            throw e;
+        }
+        recordOutcome(null);
+    }
+
+    /**
+     * Records the outcome of a performed write, for writes not performed through
+     * {@link #perform(MutableProcessInstances)}.
+     *
+     * @param failure failure of the write, null when it succeeded
+     */
+    public static void recordOutcome(RuntimeException failure) {
+        PERFORMED.increment();
+        if (failure instanceof ProcessInstanceOptimisticLockingException) {
+            CONFLICTING.increment();
+        }
+    }
+
+    /**
+     * @return number of process instance writes performed so far
+     */
+    public static long performedWrites() {
+        return PERFORMED.sum();
+    }
+
+    /**
+     * @return number of process instance writes that failed because the instance was written concurrently
+     */
+    public static long conflictingWrites() {
+        return CONFLICTING.sum();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + id;
+    }
+}
@@ -16,7 +16,10 @@
 package org.kie.kogito.process;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public interface ProcessInstances<T> {
 
@@ -26,11 +29,123 @@ public interface ProcessInstances<T> {
 
     Optional<ProcessInstance<T>> findById(String id, ProcessInstanceReadMode mode);
 
+    /**
+     * Finds the process instances with given ids, implementations should load them with a single request
+     * to the storage, by default they are loaded one by one.
+     *
+     * @param ids ids of the process instances
+     * @param mode mode of the loaded instances
+     * @return found process instances by their id, instances not found are left out
+     */
+    default Map<String, ProcessInstance<T>> findByIds(Collection<String> ids, ProcessInstanceReadMode mode) {
+        Map<String, ProcessInstance<T>> instances = new HashMap<>();
+        for (String id : ids) {
+            findById(id, mode).ifPresent(instance -> instances.put(id, instance));
+        }
+        return instances;
+    }
+
     default Collection<ProcessInstance<T>> values(){
         return values(ProcessInstanceReadMode.READ_ONLY);
     }
     
     Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode);
-    
+
+    default Collection<ProcessInstance<T>> values(int page, int size) {
+        return values(ProcessInstanceReadMode.READ_ONLY, page, size);
+    }
+
+    /**
+     * Returns a single page of process instances. Implementations should only load
+     * the instances of the requested page from the underlying storage, by default
+     * all instances are loaded and the page is taken from them.
+     *
+     * @param mode read mode of returned instances
+     * @param page zero based index of the page
+     * @param size maximum number of instances in the page
+     * @return instances of the requested page
+     */
+    default Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode, int page, int size) {
+        return values(mode).stream()
+                .skip(offset(page, size))
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    default Collection<ProcessInstance<T>> query(ProcessInstanceQuery query) {
+        return query(query, ProcessInstanceReadMode.READ_ONLY);
+    }
+
+    /**
+     * Returns process instances matching given query. Implementations should resolve the query
+     * with indexes of process status and indexed variables kept by the underlying storage, by
+     * default all instances are loaded and filtered in memory.
+     *
+     * @param query criteria the instances must match
+     * @param mode read mode of returned instances
+     * @return instances matching the query
+     */
+    default Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        return values(mode).stream()
+                .filter(query::matches)
+                .collect(Collectors.toList());
+    }
+
+    default Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, int page, int size) {
+        return query(query, ProcessInstanceReadMode.READ_ONLY, page, size);
+    }
+
+    /**
+     * Returns a single page of process instances matching given query. Implementations should select
+     * the page from their indexes so only the instances of the requested page are loaded, by default
+     * all matching instances are loaded and the page is taken from them.
+     *
+     * @param query criteria the instances must match
+     * @param mode read mode of returned instances
+     * @param page zero based index of the page
+     * @param size maximum number of instances in the page
+     * @return matching instances of the requested page
+     */
+    default Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode, int page, int size) {
+        return query(query, mode).stream()
+                .skip(offset(page, size))
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    default Collection<ProcessInstanceSummary> summaries() {
+        return summaries(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns summaries of a single page of process instances. Implementations should read them from
+     * data stored along with the instances without unmarshalling them, by default the instances
+     * of the page are loaded.
+     *
+     * @param page zero based index of the page
+     * @param size maximum number of summaries in the page
+     * @return summaries of the process instances of the requested page
+     */
+    default Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        return values(ProcessInstanceReadMode.READ_ONLY, page, size).stream()
+                .map(ProcessInstanceSummary::of)
+                .collect(Collectors.toList());
+    }
+
     Integer size();
+
+    /**
+     * Computes the number of process instances before given page.
+     *
+     * @param page zero based index of the page
+     * @param size maximum number of instances in the page
+     * @return offset of the first instance of the page
+     * @throws IllegalArgumentException when page or size is negative
+     */
+    static long offset(int page, int size) {
+        if (page < 0 || size < 0) {
+            throw new IllegalArgumentException("Page and size must not be negative, got page " + page + " and size " + size);
+        }
+        return (long) page * size;
+    }
 }
@@ -31,4 +31,11 @@ public interface RuleUnitInstance<T extends RuleUnitData> {
     <Q> Q executeQuery(Class<? extends RuleUnitQuery<Q>> query);
 
     <T extends SessionClock> T getClock();
+
+    /**
+     * Releases the session backing this instance; when sessions are pooled
+     * the session is reset and given back to the pool.
+     * The instance must not be used after being disposed.
+     */
+    void dispose();
 }
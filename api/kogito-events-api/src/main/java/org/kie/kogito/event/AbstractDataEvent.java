@@ -16,6 +16,7 @@
 
 package org.kie.kogito.event;
 
+import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
@@ -32,7 +33,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * @param <T> the payload
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
-public abstract class AbstractDataEvent<T> implements DataEvent<T> {
+public abstract class AbstractDataEvent<T> implements DataEvent<T>,
+                                                      Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * String prefix for Kogito CloudEvents type fields.
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue that decouples publishing of events from the thread producing them.
+ * <p>
+ * Events are appended to a fixed size buffer and drained by a single background worker
+ * that groups them by topic and hands every group to the {@link BatchSender}. Before a
+ * group is sent the worker waits until the topic is ready to accept messages, so a slow
+ * broker makes the buffer fill up and the configured {@link OverflowPolicy} applies.
+ * Groups the sender fails to send are retried with a backoff up to the configured number
+ * of retries, then they are logged and discarded. A group is retried as a whole, so events
+ * of a partially sent group might be published more than once.
+ * <p>
+ * Open queues are reported to the listeners added by {@link #addCreationListener(Consumer)},
+ * which is how the monitoring addons expose their depth and publish lag as metrics.
+ */
+public class BatchingEventQueue implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long SEND_TIMEOUT_MS = 30000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingEventQueue.class);
+
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    private static final long MIN_RETRY_BACKOFF_MS = 100;
+    private static final long MAX_RETRY_BACKOFF_MS = 1000;
+
+    private static final Set<BatchingEventQueue> OPEN_QUEUES = ConcurrentHashMap.newKeySet();
+    private static final List<Consumer<BatchingEventQueue>> CREATION_LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Behaviour of {@link BatchingEventQueue#offer(String, DataEvent)} when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Blocks the producing thread until there is space in the buffer
+         */
+        BLOCK,
+        /**
+         * Discards the event being published
+         */
+        DROP_NEWEST,
+        /**
+         * Discards the oldest event in the buffer to make space for the one being published
+         */
+        DROP_OLDEST,
+        /**
+         * Throws {@link IllegalStateException} to the producing thread
+         */
+        FAIL
+    }
+
+    /**
+     * Sends events of single topic, called from the worker thread only.
+     */
+    @FunctionalInterface
+    public interface BatchSender {
+
+        /**
+         * @throws RuntimeException when any of the events was not sent, the whole batch is then retried
+         */
+        void send(String topic, List<DataEvent<?>> events);
+    }
+
+    private final String name;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxRetries;
+    private final Predicate<String> ready;
+    private final BatchSender sender;
+    private final BlockingQueue<Entry> queue;
+    private final Thread worker;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lag = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public BatchingEventQueue(String name, int capacity, int maxBatchSize, OverflowPolicy overflowPolicy, Predicate<String> ready, BatchSender sender) {
+        this(name, capacity, maxBatchSize, overflowPolicy, DEFAULT_MAX_RETRIES, ready, sender);
+    }
+
+    public BatchingEventQueue(String name, int capacity, int maxBatchSize, OverflowPolicy overflowPolicy, int maxRetries, Predicate<String> ready, BatchSender sender) {
+        if (capacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size of event queue must be positive");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Number of retries of event queue must not be negative");
+        }
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.maxRetries = maxRetries;
+        this.ready = ready;
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::run, "kogito-event-publisher-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+        opened(this);
+    }
+
+    /**
+     * Adds a listener notified of every queue that is open already and of queues created afterwards.
+     */
+    public static synchronized void addCreationListener(Consumer<BatchingEventQueue> listener) {
+        CREATION_LISTENERS.add(listener);
+        OPEN_QUEUES.forEach(listener);
+    }
+
+    public static synchronized void removeCreationListener(Consumer<BatchingEventQueue> listener) {
+        CREATION_LISTENERS.remove(listener);
+    }
+
+    private static synchronized void opened(BatchingEventQueue queue) {
+        OPEN_QUEUES.add(queue);
+        for (Consumer<BatchingEventQueue> listener : CREATION_LISTENERS) {
+            try {
+                listener.accept(queue);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Creation listener of event queue '{}' failed", queue.name, e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all given sends completed, for senders whose transport sends asynchronously.
+     *
+     * @throws RuntimeException the failure of the first send that failed, or when sends did not complete
+     *         within {@link #SEND_TIMEOUT_MS}
+     */
+    public static void awaitSent(Collection<? extends CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).get(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException("Unable to send events", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Events were not sent within " + SEND_TIMEOUT_MS + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending events", e);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Appends given event to the buffer.
+     *
+     * @param topic topic the event should be published to
+     * @param event event to be published
+     * @return true if the event was accepted, false if it was dropped
+     * @throws IllegalStateException when the buffer is full and overflow policy is {@link OverflowPolicy#FAIL}
+     */
+    public boolean offer(String topic, DataEvent<?> event) {
+        if (!running) {
+            throw new IllegalStateException("Event queue '" + name + "' is closed");
+        }
+        Entry entry = new Entry(topic, event);
+        if (queue.offer(entry)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(entry);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                return true;
+            case FAIL:
+                throw new IllegalStateException("Event queue '" + name + "' is full, event " + event.getId() + " cannot be published");
+            default:
+                dropped.incrementAndGet();
+                return false;
+        }
+    }
+
+    /**
+     * @return number of events waiting in the buffer
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return time in milliseconds the oldest event of the most recently sent batch spent in the buffer
+     */
+    public long publishLag() {
+        return TimeUnit.NANOSECONDS.toMillis(lag.get());
+    }
+
+    public long publishedEvents() {
+        return published.get();
+    }
+
+    public long droppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of events discarded because the sender failed to send them after all retries
+     */
+    public long failedEvents() {
+        return failed.get();
+    }
+
+    /**
+     * Stops accepting new events and waits for the buffered ones to be sent.
+     */
+    @Override
+    public void close() {
+        OPEN_QUEUES.remove(this);
+        running = false;
+        try {
+            worker.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Entry> drained = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, maxBatchSize - 1);
+                sendBatches(drained);
+                lag.set(System.nanoTime() - first.enqueued);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void sendBatches(List<Entry> entries) {
+        Map<String, List<DataEvent<?>>> batches = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            batches.computeIfAbsent(entry.topic, k -> new ArrayList<>()).add(entry.event);
+        }
+        for (Map.Entry<String, List<DataEvent<?>>> batch : batches.entrySet()) {
+            awaitReady(batch.getKey());
+            send(batch.getKey(), batch.getValue());
+        }
+    }
+
+    private void send(String topic, List<DataEvent<?>> events) {
+        long backoff = MIN_RETRY_BACKOFF_MS;
+        for (int attempt = 0;; attempt++) {
+            try {
+                sender.send(topic, events);
+                published.addAndGet(events.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    failed.addAndGet(events.size());
+                    LOGGER.error("Unable to publish {} events to topic '{}' from event queue '{}' after {} attempts, events are discarded",
+                                 events.size(), topic, name, attempt + 1, e);
+                    return;
+                }
+                LOGGER.warn("Unable to publish {} events to topic '{}' from event queue '{}', retrying in {} ms: {}",
+                            events.size(), topic, name, backoff, e.toString());
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+            backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+
+    private void awaitReady(String topic) {
+        long backoff = MIN_BACKOFF_NANOS;
+        // once closing, remaining events are sent on best effort basis
+        while (running && !ready.test(topic)) {
+            LockSupport.parkNanos(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    private static class Entry {
+
+        private final String topic;
+        private final DataEvent<?> event;
+        private final long enqueued = System.nanoTime();
+
+        private Entry(String topic, DataEvent<?> event) {
+            this.topic = topic;
+            this.event = event;
+        }
+    }
+}
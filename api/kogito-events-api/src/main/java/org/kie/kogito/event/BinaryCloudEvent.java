@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Event in CloudEvents binary content mode: its attributes are sent as headers of the message
+ * and only its data as the payload.
+ */
+public class BinaryCloudEvent {
+
+    private final Map<String, String> headers;
+    private final byte[] data;
+
+    public BinaryCloudEvent(Map<String, String> headers, byte[] data) {
+        this.headers = Collections.unmodifiableMap(headers);
+        this.data = data;
+    }
+
+    public Map<String, String> headers() {
+        return headers;
+    }
+
+    public byte[] data() {
+        return data;
+    }
+}
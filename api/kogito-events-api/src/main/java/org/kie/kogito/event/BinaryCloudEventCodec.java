@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Encodes data events in CBOR, the binary form of JSON, instead of JSON text.
+ * <p>
+ * Events are encoded either in CloudEvents binary content mode, where the attributes are sent as
+ * <code>ce_</code> prefixed headers and only the data is encoded, for transports with headers such as Kafka,
+ * or as a whole for transports without headers. Events are turned into a tree by the given mapper first,
+ * so the encoded events hold the same values as the JSON ones and are decoded into the same classes.
+ */
+public class BinaryCloudEventCodec {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String HEADER_PREFIX = "ce_";
+
+    private static final String DATA = "data";
+    private static final String DATA_CONTENT_TYPE = "datacontenttype";
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+    /**
+     * @param mapper mapper used for the JSON events, its configuration applies to the encoded events
+     */
+    public BinaryCloudEventCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Encodes given event in CloudEvents binary content mode.
+     */
+    public BinaryCloudEvent encode(DataEvent<?> event) {
+        ObjectNode tree = mapper.valueToTree(event);
+        JsonNode data = tree.remove(DATA);
+        // the content type of the encoded data replaces the one of the event
+        tree.remove(DATA_CONTENT_TYPE);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(CONTENT_TYPE_HEADER, CONTENT_TYPE);
+        Iterator<Map.Entry<String, JsonNode>> attributes = tree.fields();
+        while (attributes.hasNext()) {
+            Map.Entry<String, JsonNode> attribute = attributes.next();
+            if (!attribute.getValue().isNull()) {
+                JsonNode value = attribute.getValue();
+                headers.put(HEADER_PREFIX + attribute.getKey(), value.isTextual() ? value.asText() : value.toString());
+            }
+        }
+        return new BinaryCloudEvent(headers, write(data == null ? NullNode.getInstance() : data));
+    }
+
+    /**
+     * Encodes given event as a whole, attributes included.
+     */
+    public byte[] encodeStructured(DataEvent<?> event) {
+        return write(mapper.valueToTree(event));
+    }
+
+    /**
+     * Decodes an event received in CloudEvents binary content mode.
+     *
+     * @param headers headers of the message, the ones not prefixed with <code>ce_</code> are ignored
+     * @param data payload of the message
+     * @param eventClass class of the event, {@link JsonNode} to read the event as a tree
+     */
+    public <E> E decode(Map<String, String> headers, byte[] data, Class<E> eventClass) {
+        ObjectNode tree = mapper.createObjectNode();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().startsWith(HEADER_PREFIX)) {
+                tree.put(header.getKey().substring(HEADER_PREFIX.length()), header.getValue());
+            }
+        }
+        tree.set(DATA, read(data));
+        return bind(tree, eventClass);
+    }
+
+    /**
+     * Decodes an event encoded as a whole.
+     *
+     * @param event payload of the message
+     * @param eventClass class of the event, {@link JsonNode} to read the event as a tree
+     */
+    public <E> E decode(byte[] event, Class<E> eventClass) {
+        return bind(read(event), eventClass);
+    }
+
+    private byte[] write(JsonNode tree) {
+        try {
+            return cbor.writeValueAsBytes(tree);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to encode event", e);
+        }
+    }
+
+    private JsonNode read(byte[] data) {
+        try {
+            JsonNode tree = cbor.readTree(data);
+            return tree == null ? NullNode.getInstance() : tree;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to decode event, the payload is not valid CBOR", e);
+        }
+    }
+
+    private <E> E bind(JsonNode tree, Class<E> eventClass) {
+        try {
+            return mapper.treeToValue(tree, eventClass);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to decode event into " + eventClass.getName(), e);
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package org.kie.kogito.event;
 
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Responsible for publishing events for consumption to the "outside world"
@@ -40,4 +42,16 @@ public interface EventPublisher {
      * @param events events to be published
      */
     void publish(Collection<DataEvent<?>> events);
+
+    /**
+     * Publishes collection of events and reports whether they were delivered, for callers that retry
+     * events which were not (e.g. outbox relay). Implementations that send events asynchronously must
+     * complete the returned stage once the transport acknowledged all of them.
+     * @param events events to be published
+     * @return stage completed when all events were delivered, completed exceptionally when any of them was not
+     */
+    default CompletionStage<Void> publishAndConfirm(Collection<DataEvent<?>> events) {
+        publish(events);
+        return CompletableFuture.completedFuture(null);
+    }
 }
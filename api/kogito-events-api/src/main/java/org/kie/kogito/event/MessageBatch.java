@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.kie.kogito.event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Messages received together from the incoming stream. The batch is completed once every consumer handled
+ * the messages it accepts, the broker offsets are then committed for all of them.
+ * <p>
+ * Consumers commit their own unit of work, so a message that failed for one consumer might have been consumed
+ * by others already. Such messages are not redelivered to all the consumers, they are handed to the transport
+ * as failed so it routes them out of the stream, to a dead letter topic for instance.
+ */
+public class MessageBatch {
+
+    private final List<String> payloads;
+    private final Consumer<Map<Integer, Throwable>> completion;
+
+    /**
+     * @param payloads payloads of the messages, in the order they were received
+     * @param completion acknowledges the messages, given the failure of each message that could not be consumed
+     *        by its index in the payloads
+     */
+    public MessageBatch(List<String> payloads, Consumer<Map<Integer, Throwable>> completion) {
+        this.payloads = payloads;
+        this.completion = completion;
+    }
+
+    public List<String> payloads() {
+        return payloads;
+    }
+
+    /**
+     * Acknowledges all the messages, called once they were consumed.
+     */
+    public void ack() {
+        completion.accept(Collections.emptyMap());
+    }
+
+    /**
+     * Acknowledges the messages of the batch, the failed ones are reported to the transport first.
+     *
+     * @param failures failure of each message that could not be consumed, by index in the payloads
+     */
+    public void complete(Map<Integer, Throwable> failures) {
+        completion.accept(failures);
+    }
+}
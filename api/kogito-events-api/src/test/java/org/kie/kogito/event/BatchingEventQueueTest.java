@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.BatchingEventQueue.OverflowPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchingEventQueueTest {
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<DataEvent<?>>> batches = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean ready;
+    private BatchingEventQueue queue;
+
+    @AfterEach
+    public void cleanup() {
+        ready = true;
+        queue.close();
+    }
+
+    @Test
+    public void testBufferedEventsSentInBatchesPerTopicOnClose() {
+        queue = new BatchingEventQueue("test", 16, 3, OverflowPolicy.BLOCK, topic -> ready, this::record);
+        for (int i = 0; i < 5; i++) {
+            assertThat(queue.offer(i % 2 == 0 ? "a" : "b", event("e" + i))).isTrue();
+        }
+        ready = true;
+        queue.close();
+
+        assertThat(sent).filteredOn(entry -> entry.startsWith("a:")).containsExactly("a:e0", "a:e2", "a:e4");
+        assertThat(sent).filteredOn(entry -> entry.startsWith("b:")).containsExactly("b:e1", "b:e3");
+        assertThat(batches).allMatch(batch -> batch.size() <= 3);
+        assertThat(queue.publishedEvents()).isEqualTo(5);
+        assertThat(queue.queueDepth()).isZero();
+        assertThatThrownBy(() -> queue.offer("a", event("late"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testOverflowDropNewest() {
+        queue = fullQueue(OverflowPolicy.DROP_NEWEST);
+
+        assertThat(queue.offer("a", event("dropped"))).isFalse();
+        assertThat(queue.droppedEvents()).isOne();
+        ready = true;
+        queue.close();
+        assertThat(sent).containsExactly("a:first", "a:second");
+    }
+
+    @Test
+    public void testOverflowDropOldest() {
+        queue = fullQueue(OverflowPolicy.DROP_OLDEST);
+
+        assertThat(queue.offer("a", event("third"))).isTrue();
+        assertThat(queue.droppedEvents()).isOne();
+        ready = true;
+        queue.close();
+        assertThat(sent).containsExactly("a:first", "a:third");
+    }
+
+    @Test
+    public void testOverflowFail() {
+        queue = fullQueue(OverflowPolicy.FAIL);
+
+        assertThatThrownBy(() -> queue.offer("a", event("third"))).isInstanceOf(IllegalStateException.class);
+        ready = true;
+        queue.close();
+        assertThat(sent).containsExactly("a:first", "a:second");
+    }
+
+    @Test
+    public void testSenderFailureRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        queue = new BatchingEventQueue("test", 16, 10, OverflowPolicy.BLOCK, 3, topic -> true, (topic, events) -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("broker not available");
+            }
+            record(topic, events);
+        });
+        queue.offer("a", event("first"));
+        queue.close();
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(sent).containsExactly("a:first");
+        assertThat(queue.publishedEvents()).isOne();
+        assertThat(queue.failedEvents()).isZero();
+    }
+
+    @Test
+    public void testSenderFailureDiscardsBatchAfterRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        queue = new BatchingEventQueue("test", 16, 10, OverflowPolicy.BLOCK, 1, topic -> ready, (topic, events) -> {
+            attempts.incrementAndGet();
+            if (topic.equals("failing")) {
+                throw new IllegalStateException("broker not available");
+            }
+            record(topic, events);
+        });
+        queue.offer("failing", event("first"));
+        queue.offer("failing", event("second"));
+        queue.offer("a", event("third"));
+        ready = true;
+        queue.close();
+
+        assertThat(queue.failedEvents()).isEqualTo(2);
+        assertThat(queue.publishedEvents()).isOne();
+        // the failing group does not prevent the following ones from being sent
+        assertThat(sent).containsExactly("a:third");
+        assertThat(attempts.get()).isGreaterThanOrEqualTo(3);
+    }
+
+    /**
+     * Creates queue of capacity one holding an event, with the worker waiting on another one
+     */
+    private BatchingEventQueue fullQueue(OverflowPolicy overflowPolicy) {
+        BatchingEventQueue full = new BatchingEventQueue("test", 1, 1, overflowPolicy, topic -> ready, this::record);
+        full.offer("a", event("first"));
+        while (full.queueDepth() > 0) {
+            Thread.yield();
+        }
+        assertThat(full.offer("a", event("second"))).isTrue();
+        return full;
+    }
+
+    private void record(String topic, List<DataEvent<?>> events) {
+        batches.add(events);
+        sent.addAll(events.stream().map(event -> topic + ":" + event.getId()).collect(Collectors.toList()));
+    }
+
+    private static DataEvent<?> event(String id) {
+        return new AbstractDataEvent<String>("test", "source", "data", null, null, null, null, null) {
+            @Override
+            public String getId() {
+                return id;
+            }
+        };
+    }
+}
@@ -14,6 +14,8 @@
  */
 package org.kie.kogito.services.event;
 
+import java.util.List;
+
 import org.kie.kogito.Application;
 import org.kie.kogito.Model;
 import org.kie.kogito.process.Process;
@@ -22,4 +24,34 @@ public interface EventConsumer<T extends Model> {
 
     void consume(Application application, Process<T> process, String payload, String trigger);
 
+    /**
+     * Consumes a payload already parsed by a dispatcher shared by several consumers. Consumers not
+     * understanding the parsed form parse the payload again.
+     *
+     * @param parsedPayload payload parsed by the dispatcher, its type depends on the dispatcher
+     */
+    default void consume(Application application, Process<T> process, String payload, Object parsedPayload, String trigger) {
+        consume(application, process, payload, trigger);
+    }
+
+    /**
+     * Consumes payloads received together and already parsed by a dispatcher. Consumers able to
+     * should consume them in a single unit of work, by default each payload is consumed on its own.
+     */
+    default void consume(Application application, Process<T> process, List<String> payloads, List<Object> parsedPayloads, String trigger) {
+        for (int i = 0; i < payloads.size(); i++) {
+            consume(application, process, payloads.get(i), parsedPayloads.get(i), trigger);
+        }
+    }
+
+    /**
+     * Key of the process instance given payload is for, payloads with the same key are consumed in the
+     * order they were received when consumed in parallel.
+     *
+     * @return key of the payload, null if it does not have to be ordered with other payloads
+     */
+    default String partitionKey(String payload, Object parsedPayload) {
+        return null;
+    }
+
 }
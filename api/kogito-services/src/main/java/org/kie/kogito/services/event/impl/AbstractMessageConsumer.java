@@ -17,12 +17,18 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.kie.kogito.Application;
 import org.kie.kogito.Model;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.services.event.AbstractProcessDataEvent;
+import org.kie.kogito.services.event.EventConsumer;
 import org.kie.kogito.services.event.EventConsumerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,11 +39,12 @@ public abstract class AbstractMessageConsumer<M extends Model, D, T extends Abst
 
     private Process<M> process;
     private Application application;
-    private EventConsumerFactory eventConsumerFactory;
     private Optional<Boolean> useCloudEvents;
     private String trigger;
     private Class<D> dataEventClass;
     private Class<T> cloudEventClass;
+    private EventConsumer<Model> eventConsumer;
+    private PartitionedExecutor executor;
 
     // in general we should favor the non-empty constructor
     // but there is an issue with Quarkus https://github.com/quarkusio/quarkus/issues/2949#issuecomment-513017781
@@ -74,17 +81,58 @@ public abstract class AbstractMessageConsumer<M extends Model, D, T extends Abst
         this.application = application;
         this.dataEventClass = dataEventClass;
         this.cloudEventClass = cloudEventClass;
-        this.eventConsumerFactory = eventConsumerFactory;
         this.trigger = trigger;
         this.useCloudEvents = useCloudEvents;
+        this.eventConsumer = eventConsumerFactory.get(this::eventToModel, dataEventClass, cloudEventClass, useCloudEvents);
 
         logger.info("Consumer for {} started.", dataEventClass);
     }
 
     public void consume(String payload) {
         logger.debug("Received: {} on thread {}", payload, Thread.currentThread().getName());
-        eventConsumerFactory.get(this::eventToModel, dataEventClass, cloudEventClass, useCloudEvents)
-                .consume(application, (Process<Model>) process, payload, trigger);
+        eventConsumer.consume(application, (Process<Model>) process, payload, trigger);
+    }
+
+    /**
+     * Consumes payloads on the lanes of given executor instead of the receiving thread, payloads for the
+     * same process instance are consumed in order while the ones for different instances are consumed in parallel.
+     *
+     * @param executor executor, usually shared by the consumers of the application, null to consume on the receiving thread
+     */
+    public void setExecutor(PartitionedExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Consumes a payload already parsed by a dispatcher shared by the consumers of the application.
+     */
+    public void consume(String payload, Object parsedPayload) {
+        logger.debug("Received: {} on thread {}", payload, Thread.currentThread().getName());
+        if (executor == null) {
+            eventConsumer.consume(application, (Process<Model>) process, payload, parsedPayload, trigger);
+        } else {
+            executor.execute(eventConsumer.partitionKey(payload, parsedPayload),
+                             () -> eventConsumer.consume(application, (Process<Model>) process, payload, parsedPayload, trigger));
+        }
+    }
+
+    /**
+     * Consumes payloads received together, already parsed by a dispatcher shared by the consumers of the application.
+     * Batches are consumed on the receiving thread, as they are acknowledged once consumed.
+     */
+    public void consume(List<String> payloads, List<Object> parsedPayloads) {
+        logger.debug("Received {} messages on thread {}", payloads.size(), Thread.currentThread().getName());
+        eventConsumer.consume(application, (Process<Model>) process, payloads, parsedPayloads, trigger);
+    }
+
+    /**
+     * Types or sources of the CloudEvents accepted by this consumer, empty if it accepts any message.
+     */
+    public Set<String> acceptedEventTypes() {
+        if (!useCloudEvents.orElse(true)) {
+            return Collections.emptySet();
+        }
+        return new LinkedHashSet<>(Arrays.asList(cloudEventClass.getSimpleName(), trigger));
     }
 
     protected abstract Model eventToModel(D event);
@@ -29,11 +29,12 @@ public class BaseEventManager implements EventManager {
 
     private String service;
     private Addons addons;
+    private boolean deltaEvents;
     private Set<EventPublisher> publishers = new LinkedHashSet<>();
     
     @Override
     public EventBatch newBatch() {
-        return new ProcessInstanceEventBatch(service, addons);
+        return new ProcessInstanceEventBatch(service, addons, deltaEvents);
     }
 
     @Override
@@ -62,4 +63,9 @@ public class BaseEventManager implements EventManager {
         this.addons = addons;
     }
 
+    @Override
+    public void setDeltaEvents(boolean deltaEvents) {
+        this.deltaEvents = deltaEvents;
+    }
+
 }
@@ -15,9 +15,12 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.io.Serializable;
 import java.util.Date;
 
-public class NodeInstanceEventBody {
+public class NodeInstanceEventBody implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String id;
     private String nodeId;
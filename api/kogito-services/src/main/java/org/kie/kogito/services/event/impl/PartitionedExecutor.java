@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes tasks on a fixed number of lanes, each one a single thread with a bounded queue.
+ * Tasks with the same key, e.g. the process instance a message refers to, always run on the same
+ * lane in the order they were submitted, while tasks with different keys run in parallel.
+ * Tasks without a key are spread over the lanes.
+ * <p>
+ * Submitting a task to a full lane blocks until there is space in it, so a slow process instance
+ * slows down the incoming messages only once its lane is full.
+ */
+public class PartitionedExecutor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedExecutor.class);
+
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final String name;
+    private final Lane[] lanes;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param name name of the executor, used to name the threads of the lanes
+     * @param laneCount number of lanes, i.e. of tasks executed in parallel
+     * @param laneCapacity maximum number of tasks waiting in a lane
+     */
+    public PartitionedExecutor(String name, int laneCount, int laneCapacity) {
+        if (laneCount <= 0 || laneCapacity <= 0) {
+            throw new IllegalArgumentException("Lane count and capacity of executor must be positive");
+        }
+        this.name = name;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(name + "-" + i, laneCapacity);
+        }
+    }
+
+    /**
+     * Submits given task to the lane of given key, waiting for space in the lane if it is full.
+     *
+     * @param key key of the task, null if it does not have to be ordered with other tasks
+     * @param task task to be executed, failures are logged
+     * @throws IllegalStateException when the executor is closed or the submitting thread is interrupted
+     */
+    public void execute(String key, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("Executor '" + name + "' is closed");
+        }
+        Lane lane = lanes[lane(key)];
+        try {
+            lane.queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for space in lane " + lane.thread.getName(), e);
+        }
+    }
+
+    int lane(String key) {
+        if (key == null) {
+            return Math.floorMod(next.getAndIncrement(), lanes.length);
+        }
+        int hash = key.hashCode();
+        // spreads the high bits, as keys such as sequential ids differ mostly in the last characters
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return number of tasks waiting in given lane
+     */
+    public int laneDepth(int lane) {
+        return lanes[lane].queue.size();
+    }
+
+    /**
+     * @return number of tasks waiting in each lane
+     */
+    public int[] laneDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = laneDepth(i);
+        }
+        return depths;
+    }
+
+    /**
+     * @return number of tasks waiting in all the lanes
+     */
+    public int queueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    public long executedTasks() {
+        long executed = 0;
+        for (Lane lane : lanes) {
+            executed += lane.executed.get();
+        }
+        return executed;
+    }
+
+    public long failedTasks() {
+        long failed = 0;
+        for (Lane lane : lanes) {
+            failed += lane.failed.get();
+        }
+        return failed;
+    }
+
+    /**
+     * Stops accepting new tasks and waits for the submitted ones to be executed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+        try {
+            for (Lane lane : lanes) {
+                lane.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Lane implements Runnable {
+
+        private final BlockingQueue<Runnable> queue;
+        private final Thread thread;
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private Lane(String name, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                Runnable task;
+                try {
+                    task = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task != null) {
+                    execute(task);
+                }
+            }
+        }
+
+        private void execute(Runnable task) {
+            try {
+                task.run();
+                executed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                // a failing task must not stop the lane, the following tasks of the same key still run
+                logger.error("Error when executing task on lane {}", thread.getName(), e);
+            }
+        }
+    }
+}
@@ -15,7 +15,11 @@
 
 package org.kie.kogito.services.event.impl;
 
-public class ProcessErrorEventBody {
+import java.io.Serializable;
+
+public class ProcessErrorEventBody implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String nodeDefinitionId;
     private String errorMessage;
@@ -17,6 +17,8 @@ package org.kie.kogito.services.event.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -46,20 +48,42 @@ import org.kie.kogito.services.event.VariableInstanceDataEvent;
 public class ProcessInstanceEventBatch implements EventBatch {
 
     public static final String TRACKED = "tracked";
+    /**
+     * Every version of a process instance that is a multiple of this interval is published complete, so consumers
+     * that missed events of a process instance catch up without waiting for it to complete.
+     */
+    public static final int SNAPSHOT_INTERVAL = 20;
 
     private final String service;
     private Addons addons;
+    private final boolean deltaEvents;
     private List<ProcessEvent> rawEvents = new ArrayList<>();
+    private final Map<String, org.kie.kogito.process.ProcessInstance<?>> instances = new HashMap<>();
+    private final Map<String, Long> loadedVersions = new HashMap<>();
 
     public ProcessInstanceEventBatch(String service, Addons addons) {
+        this(service, addons, false);
+    }
+
+    /**
+     * @param deltaEvents if true process instance events hold only the variables changed since the previous version
+     *        of the process instance when it is known, otherwise they always hold all the variables
+     */
+    public ProcessInstanceEventBatch(String service, Addons addons, boolean deltaEvents) {
         this.service = service;
         this.addons = addons;
+        this.deltaEvents = deltaEvents;
     }
 
     @Override
     public void append(Object rawEvent) {
         if (rawEvent instanceof ProcessEvent) {
             rawEvents.add((ProcessEvent) rawEvent);
+        } else if (deltaEvents && rawEvent instanceof org.kie.kogito.process.ProcessInstance) {
+            org.kie.kogito.process.ProcessInstance<?> instance = (org.kie.kogito.process.ProcessInstance<?>) rawEvent;
+            // appended before it is written, so its version is still the one it was loaded from
+            loadedVersions.putIfAbsent(instance.id(), instance.version());
+            instances.put(instance.id(), instance);
         }
     }
 
@@ -68,6 +92,7 @@ public class ProcessInstanceEventBatch implements EventBatch {
         Map<String, ProcessInstanceEventBody> processInstances = new LinkedHashMap<>();
         Map<String, UserTaskInstanceEventBody> userTaskInstances = new LinkedHashMap<>();
         Set<VariableInstanceEventBody> variables = new LinkedHashSet<>();
+        Map<String, Map<String, Object>> changedVariables = new LinkedHashMap<>();
 
         for (ProcessEvent event : rawEvents) {
             ProcessInstanceEventBody body = processInstances.computeIfAbsent(event.getProcessInstance().getId(), key -> create(event));
@@ -82,9 +107,18 @@ public class ProcessInstanceEventBatch implements EventBatch {
                 handleProcessWorkItemTransitionEvent((ProcessWorkItemTransitionEvent) event, userTaskInstances);
             } else if (event instanceof ProcessVariableChangedEvent) {
                 handleProcessVariableChangedEvent((ProcessVariableChangedEvent) event, variables);
+                ProcessVariableChangedEvent variableChangedEvent = (ProcessVariableChangedEvent) event;
+                if (deltaEvents && isProcessVariable(variableChangedEvent)) {
+                    changedVariables.computeIfAbsent(body.getId(), key -> new LinkedHashMap<>())
+                            .put(variableChangedEvent.getVariableId(), variableChangedEvent.getNewValue());
+                }
             }
         }
 
+        if (deltaEvents) {
+            processInstances.values().forEach(pi -> toDelta(pi, changedVariables.getOrDefault(pi.getId(), Collections.emptyMap())));
+        }
+
         Collection<DataEvent<?>> processedEvents = new ArrayList<>();
 
         processInstances.values().stream().map(pi -> new ProcessInstanceDataEvent(extractRuntimeSource(pi.metaData()), addons.toString(), pi.metaData(), pi)).forEach(processedEvents::add);
@@ -94,6 +128,37 @@ public class ProcessInstanceEventBatch implements EventBatch {
         return processedEvents;
     }
 
+    /**
+     * Sets the version written in the unit of work as sequence of the event and keeps only the changed variables
+     * when the version was written over the previous one. Versions are checked on write by the stores, so a
+     * version is written by a single unit of work even when many nodes share the store. Node instances are
+     * always the ones triggered or left in the unit of work.
+     */
+    protected void toDelta(ProcessInstanceEventBody body, Map<String, Object> changedVariables) {
+        org.kie.kogito.process.ProcessInstance<?> instance = instances.get(body.getId());
+        if (instance == null) {
+            return;
+        }
+        long loaded = loadedVersions.get(body.getId());
+        long written = instance.version();
+        if (written <= loaded) {
+            // not written (e.g. removed once completed) or the store does not report versions
+            return;
+        }
+        body.update().sequence(written);
+        if (loaded > 0 && written == loaded + 1 && written % SNAPSHOT_INTERVAL != 0) {
+            body.update().variables(new LinkedHashMap<>(changedVariables)).delta(true);
+        }
+    }
+
+    /**
+     * Variables of nested scopes (e.g. embedded sub processes) are identified by the unique id of their node
+     * followed by their name, they are not part of the process instance variables.
+     */
+    protected boolean isProcessVariable(ProcessVariableChangedEvent event) {
+        return event.getVariableId().indexOf(':') < 0;
+    }
+
     protected void handleProcessCompletedEvent(ProcessCompletedEvent event, ProcessInstanceEventBody body) {
         // in case this is a process complete event always updated and date and state 
         body.update()
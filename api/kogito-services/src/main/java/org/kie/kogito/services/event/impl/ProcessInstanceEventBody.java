@@ -15,6 +15,7 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -24,7 +25,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class ProcessInstanceEventBody {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class ProcessInstanceEventBody implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final String ID_META_DATA = "kogito.processinstance.id";
     public static final String PARENT_ID_META_DATA = "kogito.processinstance.parentInstanceId";
@@ -56,6 +61,13 @@ public class ProcessInstanceEventBody {
 
     private Set<MilestoneEventBody> milestones = Collections.emptySet();
 
+    // set only when events hold the changes since the previous event of the instance
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long sequence;
+
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean delta;
+
     private ProcessInstanceEventBody() {
     }
 
@@ -119,6 +131,22 @@ public class ProcessInstanceEventBody {
         return milestones;
     }
 
+    /**
+     * @return version of the stored process instance written in the unit of work of the event, used to order
+     *         the events of the process instance, null when the store does not keep versions or nothing was written
+     */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return true if the event holds only the process variables changed since the previous version of the
+     *         process instance, a changed variable with a null value was removed
+     */
+    public boolean isDelta() {
+        return delta;
+    }
+
     public Builder update() {
         return new Builder(this);
     }
@@ -251,6 +279,16 @@ public class ProcessInstanceEventBody {
             return this;
         }
 
+        public Builder sequence(Long sequence) {
+            instance.sequence = sequence;
+            return this;
+        }
+
+        public Builder delta(boolean delta) {
+            instance.delta = delta;
+            return this;
+        }
+
         public ProcessInstanceEventBody build() {
             return instance;
         }
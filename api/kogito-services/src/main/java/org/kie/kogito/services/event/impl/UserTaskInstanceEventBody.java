@@ -15,12 +15,15 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class UserTaskInstanceEventBody {
+public class UserTaskInstanceEventBody implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final String UT_ID_META_DATA = "kogito.usertaskinstance.id";
     public static final String UT_STATE_META_DATA = "kogito.usertaskinstance.state";
@@ -15,11 +15,14 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
-public class VariableInstanceEventBody {
+public class VariableInstanceEventBody implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final String ID_META_DATA = "kogito.processinstance.id";
     public static final String PARENT_ID_META_DATA = "kogito.processinstance.parentInstanceId";
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+
+/**
+ * Outbox kept in memory, entries do not survive a restart of the service.
+ */
+public class InMemoryOutbox implements Outbox {
+
+    private final ConcurrentNavigableMap<String, OutboxEntry> entries = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void append(Collection<OutboxEntry> entries) {
+        for (OutboxEntry entry : entries) {
+            this.entries.put(entry.getId(), entry);
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> poll(int max) {
+        List<OutboxEntry> polled = new ArrayList<>(max);
+        for (OutboxEntry entry : entries.values()) {
+            if (polled.size() == max) {
+                break;
+            }
+            polled.add(entry);
+        }
+        return polled;
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        ids.forEach(entries::remove);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.outbox.OutboxEntry.Type;
+
+/**
+ * Converts events and job requests to {@link OutboxEntry} instances and back.
+ */
+public final class OutboxEntries {
+
+    private OutboxEntries() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when the event (including its data) is not serializable
+     */
+    public static OutboxEntry event(DataEvent<?> event) {
+        return new OutboxEntry(Type.EVENT, serialize(event));
+    }
+
+    public static OutboxEntry scheduleJob(ProcessInstanceJobDescription description) {
+        return new OutboxEntry(Type.SCHEDULE_JOB, serialize(description));
+    }
+
+    public static OutboxEntry cancelJob(String id) {
+        return new OutboxEntry(Type.CANCEL_JOB, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static DataEvent<?> event(OutboxEntry entry) {
+        return (DataEvent<?>) deserialize(entry, Type.EVENT);
+    }
+
+    public static ProcessInstanceJobDescription job(OutboxEntry entry) {
+        return (ProcessInstanceJobDescription) deserialize(entry, Type.SCHEDULE_JOB);
+    }
+
+    public static String jobId(OutboxEntry entry) {
+        checkType(entry, Type.CANCEL_JOB);
+        return new String(entry.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the entry (except its identifier) for stores that keep entries as plain bytes
+     */
+    public static byte[] toBytes(OutboxEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.getPayload().length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(entry.getType().name());
+            out.writeLong(entry.getTimestamp());
+            out.writeInt(entry.getPayload().length);
+            out.write(entry.getPayload());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static OutboxEntry fromBytes(String id, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            Type type = Type.valueOf(in.readUTF());
+            long timestamp = in.readLong();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new OutboxEntry(id, type, timestamp, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read outbox entry " + id, e);
+        }
+    }
+
+    private static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to store " + value + " in outbox", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(OutboxEntry entry, Type type) {
+        checkType(entry, type);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(entry.getPayload()))) {
+            return in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read outbox entry " + entry.getId(), e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to read outbox entry " + entry.getId(), e);
+        }
+    }
+
+    private static void checkType(OutboxEntry entry, Type type) {
+        if (entry.getType() != type) {
+            throw new IllegalArgumentException("Outbox entry " + entry.getId() + " is of type " + entry.getType() + " and not " + type);
+        }
+    }
+}
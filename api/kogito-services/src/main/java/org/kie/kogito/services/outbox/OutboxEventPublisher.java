@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Event publisher that stores events in the {@link Outbox} instead of sending them,
+ * the actual publishers are invoked later on by {@link OutboxRelay}. Events that cannot be
+ * stored (e.g. their data is not serializable) are sent to the publishers directly.
+ */
+public class OutboxEventPublisher implements EventPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxEventPublisher.class);
+
+    private final Outbox outbox;
+    private final Collection<EventPublisher> publishers;
+
+    public OutboxEventPublisher(Outbox outbox, Collection<EventPublisher> publishers) {
+        this.outbox = outbox;
+        this.publishers = publishers;
+    }
+
+    @Override
+    public void publish(DataEvent<?> event) {
+        publish(Collections.singletonList(event));
+    }
+
+    @Override
+    public void publish(Collection<DataEvent<?>> events) {
+        List<OutboxEntry> entries = new ArrayList<>(events.size());
+        List<DataEvent<?>> direct = new ArrayList<>();
+        for (DataEvent<?> event : events) {
+            try {
+                entries.add(OutboxEntries.event(event));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Event {} cannot be stored in outbox, publishing it directly", event.getId(), e);
+                direct.add(event);
+            }
+        }
+        if (!entries.isEmpty()) {
+            outbox.append(entries);
+        }
+        if (!direct.isEmpty()) {
+            publishers.forEach(p -> p.publish(direct));
+        }
+    }
+}
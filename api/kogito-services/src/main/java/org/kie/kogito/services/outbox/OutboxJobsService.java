@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.services.uow.BaseWorkUnit;
+import org.kie.kogito.uow.UnitOfWorkManager;
+
+/**
+ * Jobs service that records process instance job requests in the {@link Outbox} as part of
+ * the current unit of work, so they are only sent to the delegate (by {@link OutboxRelay})
+ * when the unit of work completes. Process jobs are not bound to any unit of work and are
+ * scheduled on the delegate right away.
+ */
+public class OutboxJobsService implements JobsService {
+
+    private final Outbox outbox;
+    private final UnitOfWorkManager unitOfWorkManager;
+    private final JobsService delegate;
+
+    public OutboxJobsService(Outbox outbox, UnitOfWorkManager unitOfWorkManager, JobsService delegate) {
+        this.outbox = outbox;
+        this.unitOfWorkManager = unitOfWorkManager;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String scheduleProcessJob(ProcessJobDescription description) {
+        return delegate.scheduleProcessJob(description);
+    }
+
+    @Override
+    public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
+        intercept(OutboxEntries.scheduleJob(description));
+        return description.id();
+    }
+
+    @Override
+    public boolean cancelJob(String id) {
+        intercept(OutboxEntries.cancelJob(id));
+        return true;
+    }
+
+    @Override
+    public ZonedDateTime getScheduledTime(String id) {
+        return delegate.getScheduledTime(id);
+    }
+
+    public JobsService delegate() {
+        return delegate;
+    }
+
+    private void intercept(OutboxEntry entry) {
+        unitOfWorkManager.currentUnitOfWork().intercept(new BaseWorkUnit(entry, e -> outbox.append(Collections.singletonList((OutboxEntry) e))));
+    }
+}
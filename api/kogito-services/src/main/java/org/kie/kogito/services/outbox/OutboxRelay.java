@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drains the {@link Outbox} in batches and delivers its entries to the event publishers
+ * and jobs service. Entries are removed only after they were delivered, events once every
+ * publisher confirmed them through {@link EventPublisher#publishAndConfirm(Collection)}, so
+ * an entry might be delivered more than once when the service stops in between.
+ * <p>
+ * A failed entry is retried with an exponential backoff, entries after it wait so the order
+ * is kept. Once an entry failed <code>maxAttempts</code> times it is handed to the dead letter
+ * consumer and removed from the outbox. Attempts are counted in memory, so they start over
+ * when the service restarts.
+ */
+public class OutboxRelay implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_INTERVAL_MS = 500;
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+    public static final long DEFAULT_BACKOFF_MS = 1000;
+    public static final long MAX_BACKOFF_MS = 60000;
+    public static final long DELIVERY_TIMEOUT_MS = 30000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final Outbox outbox;
+    private final Collection<EventPublisher> publishers;
+    private final JobsService jobsService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final Consumer<OutboxEntry> deadLetters;
+
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile double throughput;
+    private volatile long retryAt;
+
+    private ScheduledExecutorService scheduler;
+
+    public OutboxRelay(Outbox outbox, Collection<EventPublisher> publishers, JobsService jobsService) {
+        this(outbox, publishers, jobsService, DEFAULT_BATCH_SIZE);
+    }
+
+    public OutboxRelay(Outbox outbox, Collection<EventPublisher> publishers, JobsService jobsService, int batchSize) {
+        this(outbox, publishers, jobsService, batchSize, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MS, entry -> {
+        });
+    }
+
+    public OutboxRelay(Outbox outbox,
+                       Collection<EventPublisher> publishers,
+                       JobsService jobsService,
+                       int batchSize,
+                       int maxAttempts,
+                       long backoffMillis,
+                       Consumer<OutboxEntry> deadLetters) {
+        this.outbox = outbox;
+        this.publishers = publishers;
+        this.jobsService = jobsService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.deadLetters = deadLetters;
+    }
+
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kogito-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::relaySafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers outbox entries until the outbox is empty or delivery fails. Does nothing while
+     * a failed entry waits for its next attempt.
+     *
+     * @return number of delivered entries
+     */
+    public synchronized int relay() {
+        if (System.currentTimeMillis() < retryAt) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            List<OutboxEntry> entries;
+            do {
+                entries = outbox.poll(batchSize);
+                List<String> delivered = new ArrayList<>(entries.size());
+                boolean complete = deliver(entries, delivered);
+                count += delivered.size();
+                if (!complete) {
+                    break;
+                }
+            } while (entries.size() == batchSize);
+        } finally {
+            relayed.addAndGet(count);
+            long elapsed = System.nanoTime() - start;
+            if (count > 0 && elapsed > 0) {
+                throughput = count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return total number of entries delivered by this relay
+     */
+    public long relayedEntries() {
+        return relayed.get();
+    }
+
+    /**
+     * @return total number of entries this relay gave up on and handed to the dead letter consumer
+     */
+    public long deadLetteredEntries() {
+        return deadLettered.get();
+    }
+
+    /**
+     * @return entries delivered per second during the last relay run that delivered anything
+     */
+    public double throughput() {
+        return throughput;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Delivers given entries in order, stopping at the first entry that failed but has attempts left.
+     *
+     * @param entries entries to deliver
+     * @param delivered collects identifiers of delivered entries
+     * @return true when all entries were delivered or dead lettered
+     */
+    protected boolean deliver(List<OutboxEntry> entries, List<String> delivered) {
+        List<String> removed = new ArrayList<>(entries.size());
+        List<OutboxEntry> group = new ArrayList<>();
+        try {
+            // consecutive entries of the same type are delivered in bulk, keeping the overall order
+            for (OutboxEntry entry : entries) {
+                if (!group.isEmpty() && group.get(0).getType() != entry.getType() && !deliverGroup(group, delivered, removed)) {
+                    return false;
+                }
+                group.add(entry);
+            }
+            return deliverGroup(group, delivered, removed);
+        } finally {
+            if (!removed.isEmpty()) {
+                outbox.remove(removed);
+            }
+        }
+    }
+
+    private boolean deliverGroup(List<OutboxEntry> group, List<String> delivered, List<String> removed) {
+        try {
+            if (group.isEmpty()) {
+                return true;
+            }
+            try {
+                send(group);
+                group.forEach(entry -> delivered(entry, delivered, removed));
+                return true;
+            } catch (RuntimeException e) {
+                if (group.size() == 1) {
+                    return failed(group.get(0), e, removed);
+                }
+                LOGGER.debug("Delivery of {} outbox entries failed, delivering them one by one", group.size(), e);
+            }
+            // one by one, so a failing entry does not hold back or dead letter the others
+            for (OutboxEntry entry : group) {
+                try {
+                    send(Collections.singletonList(entry));
+                    delivered(entry, delivered, removed);
+                } catch (RuntimeException e) {
+                    if (!failed(entry, e, removed)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            group.clear();
+        }
+    }
+
+    private void send(List<OutboxEntry> group) {
+        switch (group.get(0).getType()) {
+            case EVENT:
+                List<DataEvent<?>> events = new ArrayList<>(group.size());
+                group.forEach(entry -> events.add(OutboxEntries.event(entry)));
+                List<CompletableFuture<Void>> confirmations = new ArrayList<>(publishers.size());
+                publishers.forEach(p -> confirmations.add(p.publishAndConfirm(events).toCompletableFuture()));
+                awaitConfirmations(confirmations);
+                break;
+            case SCHEDULE_JOB:
+                List<ProcessInstanceJobDescription> jobs = new ArrayList<>(group.size());
+                group.forEach(entry -> jobs.add(OutboxEntries.job(entry)));
+                jobsService.scheduleProcessInstanceJobs(jobs);
+                break;
+            default:
+                List<String> ids = new ArrayList<>(group.size());
+                group.forEach(entry -> ids.add(OutboxEntries.jobId(entry)));
+                jobsService.cancelJobs(ids);
+        }
+    }
+
+    private static void awaitConfirmations(List<CompletableFuture<Void>> confirmations) {
+        try {
+            CompletableFuture.allOf(confirmations.toArray(new CompletableFuture<?>[0])).get(DELIVERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException("Delivery of events failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Delivery of events was not confirmed within " + DELIVERY_TIMEOUT_MS + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for delivery of events", e);
+        }
+    }
+
+    private void delivered(OutboxEntry entry, List<String> delivered, List<String> removed) {
+        attempts.remove(entry.getId());
+        delivered.add(entry.getId());
+        removed.add(entry.getId());
+    }
+
+    private boolean failed(OutboxEntry entry, RuntimeException e, List<String> removed) {
+        int attempt = attempts.merge(entry.getId(), 1, Integer::sum);
+        if (attempt < maxAttempts) {
+            long delay = Math.min(backoffMillis << Math.min(attempt - 1, 16), MAX_BACKOFF_MS);
+            retryAt = System.currentTimeMillis() + delay;
+            LOGGER.warn("Delivery of {} failed on attempt {} of {}, it is retried in {} ms", entry, attempt, maxAttempts, delay, e);
+            return false;
+        }
+        LOGGER.error("Delivery of {} failed {} times, it is moved to dead letters", entry, attempt, e);
+        deadLetters.accept(entry);
+        attempts.remove(entry.getId());
+        deadLettered.incrementAndGet();
+        removed.add(entry.getId());
+        return true;
+    }
+
+    private void relaySafely() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error while relaying outbox entries", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.uow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.kie.kogito.event.EventBatch;
+import org.kie.kogito.event.EventManager;
+import org.kie.kogito.process.BatchingProcessInstances;
+import org.kie.kogito.process.ProcessInstanceWrite;
+import org.kie.kogito.process.ProcessInstances;
+import org.kie.kogito.uow.WorkUnit;
+
+/**
+ * Collecting unit of work that hands writes of process instances stored by {@link BatchingProcessInstances}
+ * over to a {@link ProcessInstanceWriteCoalescer}, so they are stored together with writes of other
+ * units of work. The unit of work ends once all its writes are stored, other work is performed only
+ * after the writes collected before it are stored. When a write fails, the other writes of the unit
+ * of work are still performed and the first failure is thrown.
+ */
+public class CoalescingUnitOfWork extends CollectingUnitOfWork {
+
+    private final EventManager eventManager;
+    private final ProcessInstanceWriteCoalescer coalescer;
+
+    public CoalescingUnitOfWork(EventManager eventManager, ProcessInstanceWriteCoalescer coalescer) {
+        super(eventManager);
+        this.eventManager = eventManager;
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public void end() {
+        checkStarted();
+        EventBatch batch = eventManager.newBatch();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        for (WorkUnit<?> work : sorted()) {
+            batch.append(work.data());
+            CompletableFuture<Void> submitted = submit(work);
+            if (submitted != null) {
+                pending.add(submitted);
+            } else {
+                await(pending);
+                work.perform();
+            }
+        }
+        await(pending);
+        eventManager.publish(batch);
+        done();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected CompletableFuture<Void> submit(WorkUnit<?> work) {
+        if (!(work instanceof ProcessInstanceWorkUnit)) {
+            return null;
+        }
+        ProcessInstanceWrite write = ((ProcessInstanceWorkUnit<?>) work).write();
+        if (write == null) {
+            return null;
+        }
+        ProcessInstances<?> instances = write.instance().process().instances();
+        if (!(instances instanceof BatchingProcessInstances)) {
+            return null;
+        }
+        return coalescer.submit((BatchingProcessInstances) instances, write);
+    }
+
+    protected void await(List<CompletableFuture<Void>> pending) {
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> result : pending) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for process instances to be stored", e);
+            }
+        }
+        pending.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.uow;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kie.kogito.event.EventManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkFactory;
+
+/**
+ * Opt-in factory of units of work that coalesce writes of process instances of concurrent units
+ * of work, see {@link CoalescingUnitOfWork}. Enabled by the <code>kogito.persistence.write-coalescing.window</code>
+ * property or by providing a unit of work manager created with it.
+ */
+public class CoalescingUnitOfWorkFactory implements UnitOfWorkFactory, AutoCloseable {
+
+    private final ProcessInstanceWriteCoalescer coalescer;
+
+    /**
+     * @param window time to wait for writes of other units of work once a batch is started
+     * @param unit unit of the window
+     * @param maxBatchSize maximum number of writes stored together
+     */
+    public CoalescingUnitOfWorkFactory(long window, TimeUnit unit, int maxBatchSize) {
+        this(new ProcessInstanceWriteCoalescer(window, unit, maxBatchSize));
+    }
+
+    public CoalescingUnitOfWorkFactory(ProcessInstanceWriteCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public UnitOfWork create(EventManager eventManager) {
+        return new CoalescingUnitOfWork(eventManager, coalescer);
+    }
+
+    public ProcessInstanceWriteCoalescer coalescer() {
+        return coalescer;
+    }
+
+    @Override
+    public void close() {
+        coalescer.close();
+    }
+}
@@ -19,6 +19,7 @@ package org.kie.kogito.services.uow;
 import java.util.function.Consumer;
 
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceWrite;
 import org.kie.kogito.uow.WorkUnit;
 
 
@@ -27,11 +28,22 @@ public class ProcessInstanceWorkUnit<T> implements WorkUnit<ProcessInstance<T>>
     private ProcessInstance<T> data;
     private Consumer<Object> action;
     private Consumer<Object> compensation;
+    private ProcessInstanceWrite<T> write;
 
     public ProcessInstanceWorkUnit(ProcessInstance<T> data, Consumer<Object> action) {
         this.data = data;
         this.action = action;
     }
+
+    /**
+     * @param write write of the process instance performed by the action, allows units of work
+     * to perform it together with writes of other process instances
+     */
+    public ProcessInstanceWorkUnit(ProcessInstance<T> data, ProcessInstanceWrite<T> write, Consumer<Object> action) {
+        this.data = data;
+        this.write = write;
+        this.action = action;
+    }
     
     public ProcessInstanceWorkUnit(ProcessInstance<T> data, Consumer<Object> action, Consumer<Object> compensation) {
         this.data = data;
@@ -44,6 +56,13 @@ public class ProcessInstanceWorkUnit<T> implements WorkUnit<ProcessInstance<T>>
         return data;
     }
 
+    /**
+     * @return write of the process instance performed by this work unit or null if it is not known
+     */
+    public ProcessInstanceWrite<T> write() {
+        return write;
+    }
+
     @Override
     public void perform() {
         action.accept(data());
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.uow;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.kie.kogito.process.BatchingProcessInstances;
+import org.kie.kogito.process.ProcessInstanceWrite;
+
+/**
+ * Collects writes of process instances submitted by concurrent units of work and performs those
+ * targeting the same process instances with a single {@link BatchingProcessInstances#writeAll(List)}.
+ * <p>
+ * A batch is written once the window since its first write elapsed or it reached the maximum size.
+ * A write of a process instance that is already part of the collected batch closes it, so batches
+ * never contain two writes of the same process instance. Each submitted write is acknowledged
+ * separately once the batch holding it is written.
+ */
+public class ProcessInstanceWriteCoalescer implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final long window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+    private final Map<BatchingProcessInstances<?>, Batch> batches = new IdentityHashMap<>();
+
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder writtenWrites = new LongAdder();
+
+    /**
+     * @param window time to wait for more writes once the first write of a batch is submitted
+     * @param unit unit of the window
+     * @param maxBatchSize maximum number of writes of a batch
+     */
+    public ProcessInstanceWriteCoalescer(long window, TimeUnit unit, int maxBatchSize) {
+        this(window, unit, maxBatchSize, Executors.newScheduledThreadPool(DEFAULT_THREADS, new WriterThreadFactory()));
+    }
+
+    /**
+     * @param executor executor writing the batches
+     */
+    public ProcessInstanceWriteCoalescer(long window, TimeUnit unit, int maxBatchSize, ScheduledExecutorService executor) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Maximum batch size must be positive, was " + maxBatchSize);
+        }
+        this.window = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds given write to the batch of given process instances.
+     *
+     * @return future completed once the write is stored, or completed exceptionally with the failure of the write
+     */
+    public <T> CompletableFuture<Void> submit(BatchingProcessInstances<T> instances, ProcessInstanceWrite<T> write) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Batch closed = null;
+        Batch full = null;
+        synchronized (batches) {
+            Batch batch = batches.get(instances);
+            if (batch != null && batch.contains(write.id())) {
+                detach(batch);
+                closed = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(instances);
+                batches.put(instances, batch);
+                Batch scheduled = batch;
+                executor.schedule(() -> writeIfOpen(scheduled), window, TimeUnit.NANOSECONDS);
+            }
+            batch.add(write, result);
+            if (batch.size() >= maxBatchSize) {
+                detach(batch);
+                full = batch;
+            }
+        }
+        if (closed != null) {
+            dispatch(closed);
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of batches written so far
+     */
+    public long batches() {
+        return writtenBatches.sum();
+    }
+
+    /**
+     * @return number of writes performed so far
+     */
+    public long writes() {
+        return writtenWrites.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void writeIfOpen(Batch batch) {
+        synchronized (batches) {
+            if (!detach(batch)) {
+                return;
+            }
+        }
+        write(batch);
+    }
+
+    // must be called while holding the batches monitor
+    private boolean detach(Batch batch) {
+        if (batch.closed) {
+            return false;
+        }
+        batch.closed = true;
+        batches.remove(batch.instances);
+        return true;
+    }
+
+    private void dispatch(Batch batch) {
+        executor.execute(() -> write(batch));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void write(Batch batch) {
+        Map<ProcessInstanceWrite, RuntimeException> failures;
+        try {
+            failures = (Map) batch.instances.writeAll((List) batch.writes);
+        } catch (RuntimeException e) {
+            batch.results.forEach(result -> {
+                ProcessInstanceWrite.recordOutcome(e);
+                result.completeExceptionally(e);
+            });
+            return;
+        }
+        writtenBatches.increment();
+        writtenWrites.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            RuntimeException failure = failures.get(batch.writes.get(i));
+            ProcessInstanceWrite.recordOutcome(failure);
+            if (failure == null) {
+                batch.results.get(i).complete(null);
+            } else {
+                batch.results.get(i).completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final BatchingProcessInstances<?> instances;
+        private final List<ProcessInstanceWrite<?>> writes = new ArrayList<>();
+        private final List<CompletableFuture<Void>> results = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+        private boolean closed;
+
+        private Batch(BatchingProcessInstances<?> instances) {
+            this.instances = instances;
+        }
+
+        private boolean contains(String id) {
+            return ids.contains(id);
+        }
+
+        private void add(ProcessInstanceWrite<?> write, CompletableFuture<Void> result) {
+            writes.add(write);
+            results.add(result);
+            ids.add(write.id());
+        }
+
+        private int size() {
+            return writes.size();
+        }
+    }
+
+    private static class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "kogito-process-instance-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.services.uow.BaseWorkUnit;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+
+/**
+ * Jobs service that collects process instance job requests issued within a unit of work and
+ * hands them to the delegate as single batch when the unit of work ends. Requests of aborted
+ * units of work are discarded, and a job that is scheduled and canceled within the same unit
+ * of work is never sent at all. Process jobs are scheduled on the delegate right away.
+ */
+public class BatchingJobsService implements JobsService {
+
+    private final UnitOfWorkManager unitOfWorkManager;
+    private final JobsService delegate;
+
+    private final ThreadLocal<JobRequests> current = new ThreadLocal<>();
+
+    public BatchingJobsService(UnitOfWorkManager unitOfWorkManager, JobsService delegate) {
+        this.unitOfWorkManager = unitOfWorkManager;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String scheduleProcessJob(ProcessJobDescription description) {
+        return delegate.scheduleProcessJob(description);
+    }
+
+    @Override
+    public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
+        record(requests -> requests.schedule(description));
+        return description.id();
+    }
+
+    @Override
+    public List<String> scheduleProcessInstanceJobs(Collection<ProcessInstanceJobDescription> descriptions) {
+        List<String> ids = new ArrayList<>(descriptions.size());
+        record(requests -> descriptions.forEach(requests::schedule));
+        descriptions.forEach(description -> ids.add(description.id()));
+        return ids;
+    }
+
+    @Override
+    public boolean cancelJob(String id) {
+        record(requests -> requests.cancel(id));
+        return true;
+    }
+
+    @Override
+    public void cancelJobs(Collection<String> ids) {
+        record(requests -> ids.forEach(requests::cancel));
+    }
+
+    @Override
+    public ZonedDateTime getScheduledTime(String id) {
+        return delegate.getScheduledTime(id);
+    }
+
+    public JobsService delegate() {
+        return delegate;
+    }
+
+    protected void record(Consumer<JobRequests> request) {
+        UnitOfWork unit = unitOfWorkManager.currentUnitOfWork();
+        JobRequests requests = current.get();
+        if (requests != null && requests.unit == unit && !requests.done) {
+            request.accept(requests);
+            return;
+        }
+        requests = new JobRequests(unit);
+        // request is recorded before the work is intercepted as pass through unit of work performs it right away
+        request.accept(requests);
+        current.set(requests);
+        unit.intercept(new BaseWorkUnit(requests, r -> flush((JobRequests) r), r -> discard((JobRequests) r)));
+    }
+
+    protected void flush(JobRequests requests) {
+        done(requests);
+        if (!requests.scheduled.isEmpty()) {
+            delegate.scheduleProcessInstanceJobs(new ArrayList<>(requests.scheduled.values()));
+        }
+        if (!requests.canceled.isEmpty()) {
+            delegate.cancelJobs(new ArrayList<>(requests.canceled));
+        }
+    }
+
+    protected void discard(JobRequests requests) {
+        done(requests);
+    }
+
+    private void done(JobRequests requests) {
+        requests.done = true;
+        if (current.get() == requests) {
+            current.remove();
+        }
+    }
+
+    protected static class JobRequests {
+
+        private final UnitOfWork unit;
+        private final Map<String, ProcessInstanceJobDescription> scheduled = new LinkedHashMap<>();
+        private final Set<String> canceled = new LinkedHashSet<>();
+        private boolean done;
+
+        private JobRequests(UnitOfWork unit) {
+            this.unit = unit;
+        }
+
+        private void schedule(ProcessInstanceJobDescription description) {
+            scheduled.put(description.id(), description);
+        }
+
+        private void cancel(String id) {
+            if (scheduled.remove(id) == null) {
+                canceled.add(id);
+            }
+        }
+    }
+}
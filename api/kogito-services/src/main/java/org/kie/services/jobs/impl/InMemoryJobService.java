@@ -36,23 +36,37 @@ import org.kie.kogito.timer.TimerInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class InMemoryJobService implements JobsService {
+public class InMemoryJobService implements JobsService, AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryJobService.class);
     private static final String TRIGGER = "timer";
 
+    // null when jobs are executed by a given job scheduler
     protected final ScheduledThreadPoolExecutor scheduler;
     protected final ProcessRuntime processRuntime;
     protected final UnitOfWorkManager unitOfWorkManager;
 
     protected ConcurrentHashMap<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<>();
 
+    private final JobScheduler jobScheduler;
+
     public InMemoryJobService(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
         this(1, processRuntime, unitOfWorkManager);
     }
 
     public InMemoryJobService(int threadPoolSize, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
         this.scheduler = new ScheduledThreadPoolExecutor(threadPoolSize);
+        this.jobScheduler = new ExecutorJobScheduler(scheduler);
+        this.processRuntime = processRuntime;
+        this.unitOfWorkManager = unitOfWorkManager;
+    }
+
+    /**
+     * Creates jobs service executing its jobs with given scheduler, {@link #scheduler} is not used.
+     */
+    public InMemoryJobService(JobScheduler jobScheduler, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this.scheduler = null;
+        this.jobScheduler = jobScheduler;
         this.processRuntime = processRuntime;
         this.unitOfWorkManager = unitOfWorkManager;
     }
@@ -62,9 +76,9 @@ public class InMemoryJobService implements JobsService {
         LOGGER.debug("ScheduleProcessJob: {}", description);
         ScheduledFuture<?> future = null;
         if (description.expirationTime().repeatInterval() != null) {
-            future = scheduler.scheduleAtFixedRate(repeatableProcessJobByDescription(description), calculateDelay(description), description.expirationTime().repeatInterval(), TimeUnit.MILLISECONDS);
+            future = jobScheduler.scheduleAtFixedRate(description.id(), repeatableProcessJobByDescription(description), calculateDelay(description), description.expirationTime().repeatInterval());
         } else {
-            future = scheduler.schedule(processJobByDescription(description), calculateDelay(description), TimeUnit.MILLISECONDS);
+            future = jobScheduler.schedule(description.id(), processJobByDescription(description), calculateDelay(description));
         }
         scheduledJobs.put(description.id(), future);
         return description.id();
@@ -74,9 +88,9 @@ public class InMemoryJobService implements JobsService {
     public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
         ScheduledFuture<?> future = null;
         if (description.expirationTime().repeatInterval() != null) {
-            future = scheduler.scheduleAtFixedRate(new SignalProcessInstanceOnExpiredTimer(description.id(), description.processInstanceId(), false, description.expirationTime().repeatLimit()), calculateDelay(description), description.expirationTime().repeatInterval(), TimeUnit.MILLISECONDS);
+            future = jobScheduler.scheduleAtFixedRate(description.processInstanceId(), new SignalProcessInstanceOnExpiredTimer(description.id(), description.processInstanceId(), false, description.expirationTime().repeatLimit()), calculateDelay(description), description.expirationTime().repeatInterval());
         } else {
-            future = scheduler.schedule(new SignalProcessInstanceOnExpiredTimer(description.id(), description.processInstanceId(), true, -1), calculateDelay(description), TimeUnit.MILLISECONDS);
+            future = jobScheduler.schedule(description.processInstanceId(), new SignalProcessInstanceOnExpiredTimer(description.id(), description.processInstanceId(), true, -1), calculateDelay(description));
         }
         scheduledJobs.put(description.id(), future);
         return description.id();
@@ -106,6 +120,11 @@ public class InMemoryJobService implements JobsService {
         return null;
     }
 
+    @Override
+    public void close() {
+        jobScheduler.close();
+    }
+
     protected long calculateDelay(JobDescription description) {
         return Duration.between(ZonedDateTime.now(), description.expirationTime().get()).toMillis();
     }
@@ -126,6 +145,44 @@ public class InMemoryJobService implements JobsService {
         }
     }
 
+    /**
+     * Executes jobs of the in memory jobs service, partition key identifies the process instance
+     * the job belongs to or the job itself. Delays and periods are in milliseconds.
+     */
+    public interface JobScheduler extends AutoCloseable {
+
+        ScheduledFuture<?> schedule(String partitionKey, Runnable job, long delay);
+
+        ScheduledFuture<?> scheduleAtFixedRate(String partitionKey, Runnable job, long delay, long period);
+
+        @Override
+        void close();
+    }
+
+    private static class ExecutorJobScheduler implements JobScheduler {
+
+        private final ScheduledThreadPoolExecutor executor;
+
+        private ExecutorJobScheduler(ScheduledThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(String partitionKey, Runnable job, long delay) {
+            return executor.schedule(job, delay, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(String partitionKey, Runnable job, long delay, long period) {
+            return executor.scheduleAtFixedRate(job, delay, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
     private class SignalProcessInstanceOnExpiredTimer implements Runnable {
 
         private final String id;
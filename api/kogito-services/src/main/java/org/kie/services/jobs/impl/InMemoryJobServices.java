@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.uow.UnitOfWorkManager;
+
+/**
+ * Creates and stops the in memory jobs service process runtimes use when no other one is configured.
+ * Timers are kept in a {@link TimingWheelJobService} unless <code>kogito.jobs.timing-wheel</code>
+ * system property is set to false, in which case a {@link InMemoryJobService} backed by a scheduled
+ * thread pool is used.
+ */
+public final class InMemoryJobServices {
+
+    private InMemoryJobServices() {
+    }
+
+    public static JobsService create(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        if (Boolean.parseBoolean(System.getProperty(TimingWheelJobService.TIMING_WHEEL_PROPERTY, "true"))) {
+            return new TimingWheelJobService(processRuntime, unitOfWorkManager);
+        }
+        return new InMemoryJobService(processRuntime, unitOfWorkManager);
+    }
+
+    /**
+     * Stops jobs service created by {@link #create(ProcessRuntime, UnitOfWorkManager)} once its owner is disposed,
+     * pending jobs are discarded.
+     */
+    public static void shutdown(JobsService jobsService) {
+        if (jobsService instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) jobsService).close();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not stop jobs service", e);
+            }
+        }
+    }
+}
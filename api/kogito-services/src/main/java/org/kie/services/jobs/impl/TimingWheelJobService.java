@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.timer.impl.HashedTimingWheel;
+import org.kie.kogito.uow.UnitOfWorkManager;
+
+/**
+ * In memory jobs service that keeps timers in a {@link HashedTimingWheel} instead of a
+ * scheduled thread pool, so scheduling and canceling does not depend on the number of
+ * pending timers. Expired timers are executed by a pool of workers partitioned by
+ * process instance id, timers of the same process instance are never executed concurrently.
+ * <p>
+ * The wheel and its threads are created when the first job is scheduled and stopped by {@link #close()}.
+ * Tick and number of workers of the default wheel can be set with
+ * <code>kogito.jobs.timing-wheel.tick</code> (milliseconds) and
+ * <code>kogito.jobs.timing-wheel.workers</code> system properties.
+ */
+public class TimingWheelJobService implements JobsService, AutoCloseable {
+
+    public static final String TIMING_WHEEL_PROPERTY = "kogito.jobs.timing-wheel";
+    public static final String TICK_PROPERTY = "kogito.jobs.timing-wheel.tick";
+    public static final String WORKERS_PROPERTY = "kogito.jobs.timing-wheel.workers";
+
+    private final Supplier<HashedTimingWheel> wheelFactory;
+    private final InMemoryJobService jobs;
+
+    private HashedTimingWheel wheel;
+    private boolean closed;
+
+    public TimingWheelJobService(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this(() -> new HashedTimingWheel("jobs",
+                                         Long.getLong(TICK_PROPERTY, HashedTimingWheel.DEFAULT_TICK_MILLIS),
+                                         TimeUnit.MILLISECONDS,
+                                         Integer.getInteger(WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors())),
+             processRuntime,
+             unitOfWorkManager);
+    }
+
+    public TimingWheelJobService(Supplier<HashedTimingWheel> wheelFactory, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this.wheelFactory = wheelFactory;
+        this.jobs = new InMemoryJobService(new WheelJobScheduler(), processRuntime, unitOfWorkManager);
+    }
+
+    @Override
+    public String scheduleProcessJob(ProcessJobDescription description) {
+        return jobs.scheduleProcessJob(description);
+    }
+
+    @Override
+    public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
+        return jobs.scheduleProcessInstanceJob(description);
+    }
+
+    @Override
+    public boolean cancelJob(String id) {
+        return jobs.cancelJob(id);
+    }
+
+    @Override
+    public ZonedDateTime getScheduledTime(String id) {
+        return jobs.getScheduledTime(id);
+    }
+
+    public synchronized long pendingJobs() {
+        return wheel == null ? 0 : wheel.pendingTimeouts();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    protected synchronized HashedTimingWheel wheel() {
+        if (closed) {
+            throw new RejectedExecutionException("Jobs service is closed");
+        }
+        if (wheel == null) {
+            wheel = wheelFactory.get();
+        }
+        return wheel;
+    }
+
+    private class WheelJobScheduler implements InMemoryJobService.JobScheduler {
+
+        @Override
+        public ScheduledFuture<?> schedule(String partitionKey, Runnable job, long delay) {
+            return wheel().schedule(partitionKey, job, delay, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(String partitionKey, Runnable job, long delay, long period) {
+            return wheel().scheduleAtFixedRate(partitionKey, job, delay, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void close() {
+            TimingWheelJobService.this.close();
+        }
+    }
+}
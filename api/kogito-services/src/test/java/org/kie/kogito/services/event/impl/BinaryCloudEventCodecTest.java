@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.BinaryCloudEvent;
+import org.kie.kogito.event.BinaryCloudEventCodec;
+import org.kie.kogito.services.event.AbstractProcessDataEvent;
+import org.kie.kogito.services.event.ProcessInstanceDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BinaryCloudEventCodecTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryCloudEventCodecTest.class);
+
+    public static class DecodedProcessInstanceEvent extends AbstractProcessDataEvent<ProcessInstanceEventBody> {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper().setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+    private final BinaryCloudEventCodec codec = new BinaryCloudEventCodec(mapper);
+
+    @Test
+    public void testBinaryContentMode() {
+        ProcessInstanceDataEvent event = event(10);
+
+        BinaryCloudEvent encoded = codec.encode(event);
+
+        assertThat(encoded.headers())
+                .containsEntry(BinaryCloudEventCodec.CONTENT_TYPE_HEADER, BinaryCloudEventCodec.CONTENT_TYPE)
+                .containsEntry("ce_id", event.getId())
+                .containsEntry("ce_type", "ProcessInstanceEvent")
+                .containsEntry("ce_kogitoProcessinstanceId", "1")
+                .doesNotContainKey("ce_data");
+        assertDecoded(codec.decode(encoded.headers(), encoded.data(), DecodedProcessInstanceEvent.class), event);
+    }
+
+    @Test
+    public void testStructuredEvent() {
+        ProcessInstanceDataEvent event = event(10);
+
+        byte[] encoded = codec.encodeStructured(event);
+
+        assertDecoded(codec.decode(encoded, DecodedProcessInstanceEvent.class), event);
+        JsonNode tree = codec.decode(encoded, JsonNode.class);
+        assertThat(tree).isEqualTo(mapper.valueToTree(event));
+    }
+
+    @Test
+    public void testInvalidPayload() {
+        assertThatThrownBy(() -> codec.decode("{\"id\": \"1\"}".getBytes(StandardCharsets.UTF_8), DecodedProcessInstanceEvent.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSizeAndEncodingTime() throws Exception {
+        int events = 2000;
+        for (int nodes : new int[] { 1, 10, 50 }) {
+            ProcessInstanceDataEvent event = event(nodes);
+            int jsonSize = mapper.writeValueAsBytes(event).length;
+            BinaryCloudEvent encoded = codec.encode(event);
+            int headersSize = 0;
+            for (Map.Entry<String, String> header : encoded.headers().entrySet()) {
+                headersSize += header.getKey().length() + header.getValue().getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                mapper.writeValueAsBytes(event);
+            }
+            long json = (System.nanoTime() - start) / events;
+            start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                codec.encode(event);
+            }
+            long binary = (System.nanoTime() - start) / events;
+
+            LOGGER.info("{} node instances: JSON {} bytes in {} ns, CBOR {} bytes of data and {} bytes of headers in {} ns",
+                        nodes, jsonSize, json, encoded.data().length, headersSize, binary);
+            assertThat(encoded.data().length + headersSize).isLessThan(jsonSize);
+        }
+    }
+
+    private void assertDecoded(DecodedProcessInstanceEvent decoded, ProcessInstanceDataEvent event) {
+        assertThat(decoded.getId()).isEqualTo(event.getId());
+        assertThat(decoded.getSource()).isEqualTo(event.getSource());
+        assertThat(decoded.getTime()).isEqualTo(event.getTime());
+        assertThat(decoded.getKogitoProcessId()).isEqualTo("travels");
+        assertThat(decoded.getKogitoProcessinstanceState()).isEqualTo("1");
+        ProcessInstanceEventBody body = decoded.getData();
+        assertThat(body.getId()).isEqualTo("1");
+        assertThat(body.getStartDate()).isEqualTo(event.getData().getStartDate());
+        assertThat(body.getNodeInstances()).hasSameSizeAs(event.getData().getNodeInstances());
+        assertThat(body.getVariables()).isEqualTo(event.getData().getVariables());
+    }
+
+    private static ProcessInstanceDataEvent event(int nodes) {
+        Map<String, Object> traveller = new LinkedHashMap<>();
+        traveller.put("firstName", "John");
+        traveller.put("lastName", "Doe");
+        traveller.put("email", "john.doe@example.com");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("traveller", traveller);
+        variables.put("approved", true);
+        variables.put("amount", 1250);
+
+        ProcessInstanceEventBody.Builder body = ProcessInstanceEventBody.create()
+                .id("1")
+                .processId("travels")
+                .processName("Travels")
+                .startDate(new Date())
+                .state(1)
+                .variables(variables);
+        for (int i = 0; i < nodes; i++) {
+            body.nodeInstance(NodeInstanceEventBody.create()
+                                      .id("node-instance-" + i)
+                                      .nodeId(String.valueOf(i))
+                                      .nodeDefinitionId("_" + i)
+                                      .nodeName("Task " + i)
+                                      .nodeType("HumanTaskNode")
+                                      .triggerTime(new Date())
+                                      .leaveTime(new Date())
+                                      .build());
+        }
+        ProcessInstanceEventBody built = body.build();
+        return new ProcessInstanceDataEvent("/travels", null, built.metaData(), built);
+    }
+}
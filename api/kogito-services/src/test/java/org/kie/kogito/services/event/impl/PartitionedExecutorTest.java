@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionedExecutorTest {
+
+    private PartitionedExecutor executor;
+
+    @AfterEach
+    void close() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void testTasksOfSameKeyExecutedInOrder() {
+        executor = new PartitionedExecutor("test", 4, 10);
+        Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            int sequence = i;
+            String key = "instance" + (i % 7);
+            executor.execute(key, () -> executed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence));
+        }
+        executor.close();
+
+        assertThat(executor.executedTasks()).isEqualTo(100);
+        assertThat(executed).hasSize(7);
+        executed.values().forEach(sequences -> assertThat(sequences).isSorted());
+    }
+
+    @Test
+    void testBlockedKeyDoesNotBlockOtherLanes() throws InterruptedException {
+        executor = new PartitionedExecutor("test", 2, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch executed = new CountDownLatch(1);
+        String key = "instance";
+        String otherKey = otherLaneKey(key);
+
+        executor.execute(key, () -> {
+            started.countDown();
+            await(blocked);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.execute(key, () -> {});
+        executor.execute(otherKey, executed::countDown);
+
+        assertThat(executed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.queueDepth()).isOne();
+        assertThat(executor.laneDepths()).containsExactlyInAnyOrder(0, 1);
+        blocked.countDown();
+    }
+
+    @Test
+    void testFailedTaskDoesNotStopLane() {
+        executor = new PartitionedExecutor("test", 1, 10);
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        executor.execute("instance", () -> {
+            throw new IllegalStateException("failure");
+        });
+        executor.execute("instance", () -> executed.add("next"));
+        executor.close();
+
+        assertThat(executed).containsExactly("next");
+        assertThat(executor.failedTasks()).isOne();
+        assertThat(executor.executedTasks()).isOne();
+        assertThatThrownBy(() -> executor.execute("instance", () -> {})).isInstanceOf(IllegalStateException.class);
+    }
+
+    private String otherLaneKey(String key) {
+        for (int i = 0;; i++) {
+            String candidate = key + i;
+            if (executor.lane(candidate) != executor.lane(key)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
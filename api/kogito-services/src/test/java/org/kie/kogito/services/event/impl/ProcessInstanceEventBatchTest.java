@@ -16,8 +16,17 @@
 
 package org.kie.kogito.services.event.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.kie.api.definition.process.Process;
+import org.kie.api.event.process.ProcessVariableChangedEvent;
+import org.kie.api.runtime.process.ProcessInstance;
 import org.kie.api.runtime.process.WorkflowProcessInstance;
+import org.kie.kogito.Addons;
+import org.kie.kogito.event.DataEvent;
 import org.kie.kogito.process.flexible.Milestone;
 
 import static java.util.Collections.emptyList;
@@ -25,6 +34,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.kie.kogito.process.flexible.ItemDescription.Status;
 import static org.kie.kogito.services.event.impl.ProcessInstanceEventBody.PROCESS_ID_META_DATA;
 import static org.mockito.Mockito.mock;
@@ -72,4 +82,104 @@ public class ProcessInstanceEventBatchTest {
         MilestoneEventBody milestoneEventBody = MilestoneEventBody.create().id("id").name("name").status(Status.AVAILABLE.name()).build();
         assertThat(batch.createMilestones(pi)).containsOnly(milestoneEventBody);
     }
+
+    @Test
+    public void testDeltaEvents() {
+        WorkflowProcessInstance pi = processInstance();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("approved", false);
+        variables.put("traveller", "John");
+        when(pi.getVariables()).thenReturn(variables);
+
+        ProcessInstanceEventBody created = body(batch(true, 0, 1, variableChanged(pi, "approved", false)).events());
+        assertThat(created.getSequence()).isOne();
+        assertThat(created.isDelta()).isFalse();
+        assertThat(created.getVariables()).isEqualTo(variables);
+
+        ProcessInstanceEventBody updated = body(batch(true, 1, 2, variableChanged(pi, "approved", true), variableChanged(pi, "2:approved", "nested")).events());
+        assertThat(updated.getSequence()).isEqualTo(2);
+        assertThat(updated.isDelta()).isTrue();
+        assertThat(updated.getVariables()).containsOnly(entry("approved", true));
+
+        ProcessInstanceEventBody removed = body(batch(true, 2, 3, variableChanged(pi, "traveller", null)).events());
+        assertThat(removed.getSequence()).isEqualTo(3);
+        assertThat(removed.getVariables()).containsOnly(entry("traveller", null));
+
+        // snapshots are published periodically so consumers that missed events catch up
+        ProcessInstanceEventBody snapshot = body(batch(true, ProcessInstanceEventBatch.SNAPSHOT_INTERVAL - 1, ProcessInstanceEventBatch.SNAPSHOT_INTERVAL,
+                                                       variableChanged(pi, "approved", true)).events());
+        assertThat(snapshot.getSequence()).isEqualTo(ProcessInstanceEventBatch.SNAPSHOT_INTERVAL);
+        assertThat(snapshot.isDelta()).isFalse();
+        assertThat(snapshot.getVariables()).isEqualTo(variables);
+    }
+
+    @Test
+    public void testCompleteEventsWhenVersionNotKnown() {
+        WorkflowProcessInstance pi = processInstance();
+        when(pi.getVariables()).thenReturn(singletonMap("approved", true));
+
+        // written over a version other than the loaded one, or not written at all once completed
+        ProcessInstanceEventBody unconditional = body(batch(true, 0, 4, variableChanged(pi, "approved", true)).events());
+        assertThat(unconditional.getSequence()).isEqualTo(4);
+        assertThat(unconditional.isDelta()).isFalse();
+        ProcessInstanceEventBody completed = body(batch(true, 4, 4, variableChanged(pi, "approved", true)).events());
+        assertThat(completed.getSequence()).isNull();
+        assertThat(completed.isDelta()).isFalse();
+        // store without versions
+        ProcessInstanceEventBody unversioned = body(batch(true, 0, 0, variableChanged(pi, "approved", true)).events());
+        assertThat(unversioned.getSequence()).isNull();
+        assertThat(unversioned.getVariables()).containsOnly(entry("approved", true));
+    }
+
+    @Test
+    public void testCompleteEventsByDefault() {
+        WorkflowProcessInstance pi = processInstance();
+        when(pi.getVariables()).thenReturn(singletonMap("approved", true));
+
+        ProcessInstanceEventBody body = body(batch(false, 1, 2, variableChanged(pi, "approved", true)).events());
+
+        assertThat(body.getSequence()).isNull();
+        assertThat(body.isDelta()).isFalse();
+        assertThat(body.getVariables()).containsOnly(entry("approved", true));
+    }
+
+    /**
+     * Batch of a unit of work writing version <code>written</code> of a process instance loaded at version <code>loaded</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private static ProcessInstanceEventBatch batch(boolean deltaEvents, long loaded, long written, Object... rawEvents) {
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("", Addons.EMTPY, deltaEvents);
+        org.kie.kogito.process.ProcessInstance<Object> instance = mock(org.kie.kogito.process.ProcessInstance.class);
+        when(instance.id()).thenReturn("1");
+        when(instance.version()).thenReturn(loaded, written);
+        batch.append(instance);
+        for (Object rawEvent : rawEvents) {
+            batch.append(rawEvent);
+        }
+        return batch;
+    }
+
+    private static ProcessInstanceEventBody body(Collection<DataEvent<?>> events) {
+        assertThat(events).hasSize(1);
+        return (ProcessInstanceEventBody) events.iterator().next().getData();
+    }
+
+    private static WorkflowProcessInstance processInstance() {
+        WorkflowProcessInstance pi = mock(WorkflowProcessInstance.class);
+        Process process = mock(Process.class);
+        when(pi.getId()).thenReturn("1");
+        when(pi.getProcessId()).thenReturn("travels");
+        when(pi.getState()).thenReturn(ProcessInstance.STATE_ACTIVE);
+        when(pi.getProcess()).thenReturn(process);
+        when(process.getMetaData()).thenReturn(emptyMap());
+        return pi;
+    }
+
+    private static ProcessVariableChangedEvent variableChanged(WorkflowProcessInstance pi, String variable, Object value) {
+        ProcessVariableChangedEvent event = mock(ProcessVariableChangedEvent.class);
+        when(event.getProcessInstance()).thenReturn(pi);
+        when(event.getVariableId()).thenReturn(variable);
+        when(event.getNewValue()).thenReturn(value);
+        return event;
+    }
 }
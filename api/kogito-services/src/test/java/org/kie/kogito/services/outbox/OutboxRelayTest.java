@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.outbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.AbstractDataEvent;
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.outbox.OutboxEntry;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OutboxRelayTest {
+
+    private InMemoryOutbox outbox;
+    private EventPublisher publisher;
+    private JobsService jobsService;
+    private UnitOfWorkManager unitOfWorkManager;
+
+    @BeforeEach
+    public void setup() {
+        outbox = new InMemoryOutbox();
+        publisher = mock(EventPublisher.class);
+        when(publisher.publishAndConfirm(anyCollection())).thenCallRealMethod();
+        jobsService = mock(JobsService.class);
+        unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testEventsAndJobsRelayedAfterUnitOfWorkEnds() {
+        OutboxJobsService outboxJobsService = new OutboxJobsService(outbox, unitOfWorkManager, jobsService);
+        ProcessInstanceJobDescription job = ProcessInstanceJobDescription.of(1, ExactExpirationTime.now(), "pi", "process");
+
+        UnitOfWork unit = unitOfWorkManager.newUnitOfWork();
+        unit.start();
+        assertThat(outboxJobsService.scheduleProcessInstanceJob(job)).isEqualTo(job.id());
+        assertThat(outbox.size()).isZero();
+        unit.end();
+
+        new OutboxEventPublisher(outbox, Collections.singletonList(publisher)).publish(Arrays.asList(new TestEvent("a"), new TestEvent("b")));
+        assertThat(outbox.size()).isEqualTo(3);
+        verify(jobsService, never()).scheduleProcessInstanceJobs(anyCollection());
+        verify(publisher, never()).publish(anyCollection());
+
+        OutboxRelay relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService);
+        assertThat(relay.relay()).isEqualTo(3);
+        assertThat(relay.relayedEntries()).isEqualTo(3);
+        assertThat(outbox.size()).isZero();
+
+        ArgumentCaptor<Collection<ProcessInstanceJobDescription>> scheduled = ArgumentCaptor.forClass(Collection.class);
+        verify(jobsService).scheduleProcessInstanceJobs(scheduled.capture());
+        assertThat(scheduled.getValue()).extracting(ProcessInstanceJobDescription::id).containsExactly(job.id());
+
+        ArgumentCaptor<Collection<DataEvent<?>>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(publisher).publish(published.capture());
+        assertThat(published.getValue()).extracting(e -> e.getData()).containsExactly("a", "b");
+    }
+
+    @Test
+    public void testJobRequestsDroppedWhenUnitOfWorkAborts() {
+        OutboxJobsService outboxJobsService = new OutboxJobsService(outbox, unitOfWorkManager, jobsService);
+
+        UnitOfWork unit = unitOfWorkManager.newUnitOfWork();
+        unit.start();
+        outboxJobsService.cancelJob("job");
+        unit.abort();
+
+        assertThat(outbox.size()).isZero();
+        assertThat(new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService).relay()).isZero();
+        verify(jobsService, never()).cancelJobs(anyCollection());
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetried() {
+        outbox.append(Collections.singletonList(OutboxEntries.cancelJob("job")));
+        doThrow(new IllegalStateException("unavailable")).when(jobsService).cancelJobs(anyCollection());
+
+        OutboxRelay relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService);
+        assertThat(relay.relay()).isZero();
+        assertThat(outbox.size()).isEqualTo(1);
+
+        jobsService = mock(JobsService.class);
+        relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService);
+        assertThat(relay.relay()).isEqualTo(1);
+        verify(jobsService, times(1)).cancelJobs(Collections.singletonList("job"));
+        assertThat(outbox.size()).isZero();
+    }
+
+    @Test
+    public void testPermanentlyFailingEntryIsDeadLettered() {
+        outbox.append(Arrays.asList(OutboxEntries.cancelJob("bad"), OutboxEntries.cancelJob("good")));
+        doThrow(new IllegalStateException("rejected")).when(jobsService).cancelJobs(argThat(ids -> ids.contains("bad")));
+
+        List<OutboxEntry> deadLetters = new ArrayList<>();
+        OutboxRelay relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService, OutboxRelay.DEFAULT_BATCH_SIZE, 3, 0, deadLetters::add);
+        assertThat(relay.relay()).isZero();
+        assertThat(relay.relay()).isZero();
+        assertThat(outbox.size()).isEqualTo(2);
+        assertThat(deadLetters).isEmpty();
+
+        // the third attempt gives up on the failing entry and delivers the one behind it
+        assertThat(relay.relay()).isOne();
+        assertThat(deadLetters).extracting(OutboxEntries::jobId).containsExactly("bad");
+        assertThat(relay.deadLetteredEntries()).isOne();
+        assertThat(relay.relayedEntries()).isOne();
+        assertThat(outbox.size()).isZero();
+        verify(jobsService).cancelJobs(Collections.singletonList("good"));
+    }
+
+    @Test
+    public void testFailedEntryIsRetriedAfterBackoff() {
+        outbox.append(Collections.singletonList(OutboxEntries.cancelJob("job")));
+        doThrow(new IllegalStateException("unavailable")).doNothing().when(jobsService).cancelJobs(anyCollection());
+
+        OutboxRelay relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService, OutboxRelay.DEFAULT_BATCH_SIZE, 3, 60000, entry -> {
+        });
+        assertThat(relay.relay()).isZero();
+        // still backing off, so the jobs service is not called again
+        assertThat(relay.relay()).isZero();
+        verify(jobsService, times(1)).cancelJobs(anyCollection());
+        assertThat(outbox.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnconfirmedEventsAreKept() {
+        new OutboxEventPublisher(outbox, Collections.singletonList(publisher)).publish(Collections.singletonList(new TestEvent("a")));
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("not acknowledged"));
+        when(publisher.publishAndConfirm(anyCollection())).thenReturn(failed);
+
+        OutboxRelay relay = new OutboxRelay(outbox, Collections.singletonList(publisher), jobsService, OutboxRelay.DEFAULT_BATCH_SIZE, 3, 0, entry -> {
+        });
+        assertThat(relay.relay()).isZero();
+        assertThat(outbox.size()).isEqualTo(1);
+
+        when(publisher.publishAndConfirm(anyCollection())).thenReturn(CompletableFuture.completedFuture(null));
+        assertThat(relay.relay()).isOne();
+        assertThat(outbox.size()).isZero();
+    }
+
+    private static class TestEvent extends AbstractDataEvent<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        TestEvent(String data) {
+            super("TestEvent", "/test", data, "pi", null, "process", null, null);
+        }
+    }
+}
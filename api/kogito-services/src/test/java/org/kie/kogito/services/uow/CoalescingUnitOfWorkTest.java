@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.uow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.process.BatchingProcessInstances;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceWrite;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkFactory;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoalescingUnitOfWorkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingUnitOfWorkTest.class);
+    // simulated round trip to the storage
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    private final RemoteProcessInstances store = new RemoteProcessInstances();
+    private final List<ProcessInstanceWriteCoalescer> coalescers = new ArrayList<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @AfterEach
+    public void cleanup() {
+        coalescers.forEach(ProcessInstanceWriteCoalescer::close);
+    }
+
+    @Test
+    public void testWritesOfConcurrentUnitsOfWorkAreCoalesced() throws Exception {
+        ProcessInstanceWriteCoalescer coalescer = coalescer(5, 100);
+        UnitOfWorkManager manager = new DefaultUnitOfWorkManager(new CoalescingUnitOfWorkFactory(coalescer));
+
+        run(manager, 16, 20);
+
+        assertThat(store.written).hasSize(16 * 20);
+        assertThat(coalescer.writes()).isEqualTo(16 * 20);
+        assertThat(coalescer.batches()).isLessThan(16 * 20);
+    }
+
+    @Test
+    public void testWritesOfUnitOfWorkAreStoredBeforeOtherWork() {
+        ProcessInstanceWriteCoalescer coalescer = coalescer(5, 100);
+        UnitOfWorkManager manager = new DefaultUnitOfWorkManager(new CoalescingUnitOfWorkFactory(coalescer));
+        List<String> stored = new ArrayList<>();
+
+        UnitOfWork unit = manager.newUnitOfWork();
+        unit.start();
+        unit.intercept(workUnit(processInstance("first")));
+        unit.intercept(workUnit(processInstance("second")));
+        unit.intercept(new BaseWorkUnit(null, data -> stored.addAll(store.written)));
+        unit.end();
+
+        assertThat(stored).containsExactlyInAnyOrder("first", "second");
+        assertThat(coalescer.batches()).isOne();
+    }
+
+    @Test
+    public void testFailedWriteFailsItsUnitOfWorkOnly() throws Exception {
+        ProcessInstanceWriteCoalescer coalescer = coalescer(20, 100);
+        UnitOfWorkManager manager = new DefaultUnitOfWorkManager(new CoalescingUnitOfWorkFactory(coalescer));
+        store.conflicting.add("conflicting");
+
+        ProcessInstance<Object> conflicting = processInstance("conflicting");
+        ProcessInstance<Object> other = processInstance("other");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> failing = executor.submit(() -> end(manager, conflicting));
+            Future<?> succeeding = executor.submit(() -> end(manager, other));
+
+            succeeding.get();
+            assertThatExceptionOfType(ExecutionException.class).isThrownBy(failing::get)
+                    .withCauseInstanceOf(ProcessInstanceOptimisticLockingException.class);
+            assertThat(store.written).containsExactly("other");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClosedFactoryStillWritesCollectedBatch() throws Exception {
+        CoalescingUnitOfWorkFactory factory = new CoalescingUnitOfWorkFactory(coalescer(20, 100));
+
+        CompletableFuture<Void> written = factory.coalescer().submit(store, ProcessInstanceWrite.update("collected", processInstance("collected")));
+        factory.close();
+
+        written.get(1, TimeUnit.SECONDS);
+        assertThat(store.written).containsExactly("collected");
+    }
+
+    @Test
+    public void testLatencyAndThroughput() throws Exception {
+        int unitsOfWork = 40;
+        for (int threads : new int[]{1, 8, 32}) {
+            Result collecting = run(new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()), threads, unitsOfWork);
+            Result coalescing = run(new DefaultUnitOfWorkManager(new CoalescingUnitOfWorkFactory(coalescer(1, 100))), threads, unitsOfWork);
+            LOGGER.info("{} threads: collecting {} units of work/s (p50 {} ms, p99 {} ms), coalescing {} units of work/s (p50 {} ms, p99 {} ms)",
+                        threads, collecting.throughput(), collecting.percentile(50), collecting.percentile(99),
+                        coalescing.throughput(), coalescing.percentile(50), coalescing.percentile(99));
+        }
+        assertThat(store.written).hasSize(2 * (1 + 8 + 32) * unitsOfWork);
+    }
+
+    private ProcessInstanceWriteCoalescer coalescer(long window, int maxBatchSize) {
+        ProcessInstanceWriteCoalescer coalescer = new ProcessInstanceWriteCoalescer(window, TimeUnit.MILLISECONDS, maxBatchSize);
+        coalescers.add(coalescer);
+        return coalescer;
+    }
+
+    private Result run(UnitOfWorkManager manager, int threads, int unitsOfWork) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Long> latencies = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                // every thread keeps updating its own process instance
+                ProcessInstance<Object> processInstance = processInstance("pi-" + sequence.incrementAndGet());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < unitsOfWork; i++) {
+                        long started = System.nanoTime();
+                        end(manager, processInstance);
+                        latencies.add(System.nanoTime() - started);
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return new Result(latencies, System.nanoTime() - started);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void end(UnitOfWorkManager manager, ProcessInstance<Object> processInstance) {
+        UnitOfWork unit = manager.newUnitOfWork();
+        unit.start();
+        unit.intercept(workUnit(processInstance));
+        unit.end();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProcessInstance<Object> processInstance(String id) {
+        ProcessInstance<Object> processInstance = mock(ProcessInstance.class);
+        Process<Object> process = mock(Process.class);
+        when(processInstance.id()).thenReturn(id);
+        when(processInstance.process()).thenReturn(process);
+        when(process.instances()).thenReturn(store);
+        return processInstance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProcessInstanceWorkUnit<Object> workUnit(ProcessInstance<Object> processInstance) {
+        ProcessInstanceWrite<Object> write = ProcessInstanceWrite.update(processInstance.id(), processInstance);
+        return new ProcessInstanceWorkUnit<>(processInstance, write, pi -> write.applyTo((BatchingProcessInstances<Object>) processInstance.process().instances()));
+    }
+
+    private static class Result {
+
+        private final List<Long> latencies;
+        private final long duration;
+
+        private Result(List<Long> latencies, long duration) {
+            this.latencies = new ArrayList<>(latencies);
+            this.duration = duration;
+            Collections.sort(this.latencies);
+        }
+
+        private long throughput() {
+            return latencies.size() * TimeUnit.SECONDS.toNanos(1) / duration;
+        }
+
+        private double percentile(int percentile) {
+            int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * latencies.size()) - 1);
+            return latencies.get(index) / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Process instances paying a round trip for every single write as well as for every batch of writes.
+     */
+    private static class RemoteProcessInstances implements BatchingProcessInstances<Object> {
+
+        private final List<String> written = new CopyOnWriteArrayList<>();
+        private final Set<String> conflicting = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public Map<ProcessInstanceWrite<Object>, RuntimeException> writeAll(List<ProcessInstanceWrite<Object>> writes) {
+            roundTrip();
+            Map<ProcessInstanceWrite<Object>, RuntimeException> failures = new ConcurrentHashMap<>();
+            for (ProcessInstanceWrite<Object> write : writes) {
+                if (conflicting.contains(write.id())) {
+                    failures.put(write, new ProcessInstanceOptimisticLockingException(write.id()));
+                } else {
+                    written.add(write.id());
+                }
+            }
+            return failures;
+        }
+
+        @Override
+        public void update(String id, ProcessInstance<Object> instance) {
+            roundTrip();
+            if (conflicting.contains(id)) {
+                throw new ProcessInstanceOptimisticLockingException(id);
+            }
+            written.add(id);
+        }
+
+        @Override
+        public void create(String id, ProcessInstance<Object> instance) {
+            update(id, instance);
+        }
+
+        @Override
+        public void remove(String id) {
+            roundTrip();
+        }
+
+        @Override
+        public boolean exists(String id) {
+            return false;
+        }
+
+        @Override
+        public Optional<ProcessInstance<Object>> findById(String id, ProcessInstanceReadMode mode) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Collection<ProcessInstance<Object>> values(ProcessInstanceReadMode mode) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Integer size() {
+            return written.size();
+        }
+
+        private static void roundTrip() {
+            try {
+                Thread.sleep(ROUND_TRIP_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
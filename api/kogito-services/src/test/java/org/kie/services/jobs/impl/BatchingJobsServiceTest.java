@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BatchingJobsServiceTest {
+
+    private UnitOfWorkManager unitOfWorkManager;
+    private JobsService delegate;
+    private BatchingJobsService tested;
+
+    @BeforeEach
+    public void setup() {
+        unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        delegate = mock(JobsService.class);
+        tested = new BatchingJobsService(unitOfWorkManager, delegate);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRequestsSentAsBatchWhenUnitOfWorkEnds() {
+        ProcessInstanceJobDescription first = job(1);
+        ProcessInstanceJobDescription second = job(2);
+        ProcessInstanceJobDescription canceled = job(3);
+
+        UnitOfWork unit = unitOfWorkManager.newUnitOfWork();
+        unit.start();
+        assertThat(tested.scheduleProcessInstanceJob(first)).isEqualTo(first.id());
+        tested.scheduleProcessInstanceJob(second);
+        tested.scheduleProcessInstanceJob(canceled);
+        tested.cancelJob(canceled.id());
+        tested.cancelJob("existing");
+        verify(delegate, never()).scheduleProcessInstanceJobs(anyCollection());
+        unit.end();
+
+        ArgumentCaptor<Collection<ProcessInstanceJobDescription>> scheduled = ArgumentCaptor.forClass(Collection.class);
+        verify(delegate, times(1)).scheduleProcessInstanceJobs(scheduled.capture());
+        assertThat(scheduled.getValue()).containsExactly(first, second);
+        verify(delegate, times(1)).cancelJobs(Collections.singletonList("existing"));
+    }
+
+    @Test
+    public void testRequestsDiscardedWhenUnitOfWorkAborts() {
+        UnitOfWork unit = unitOfWorkManager.newUnitOfWork();
+        unit.start();
+        tested.scheduleProcessInstanceJob(job(1));
+        tested.cancelJob("existing");
+        unit.abort();
+
+        verify(delegate, never()).scheduleProcessInstanceJobs(anyCollection());
+        verify(delegate, never()).cancelJobs(anyCollection());
+    }
+
+    @Test
+    public void testRequestsSentRightAwayWithoutUnitOfWork() {
+        ProcessInstanceJobDescription first = job(1);
+        ProcessInstanceJobDescription second = job(2);
+        tested.scheduleProcessInstanceJob(first);
+        tested.scheduleProcessInstanceJob(second);
+
+        verify(delegate).scheduleProcessInstanceJobs(Collections.singletonList(first));
+        verify(delegate).scheduleProcessInstanceJobs(Collections.singletonList(second));
+    }
+
+    private ProcessInstanceJobDescription job(long timerId) {
+        return ProcessInstanceJobDescription.of(timerId, ExactExpirationTime.now(), "processInstanceId", "processId");
+    }
+}
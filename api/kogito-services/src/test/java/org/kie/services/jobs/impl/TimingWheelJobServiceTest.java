@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.kogito.jobs.ExactExpirationTime;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.timer.impl.HashedTimingWheel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TimingWheelJobServiceTest {
+
+    private AtomicInteger created = new AtomicInteger();
+    private ProcessRuntime processRuntime;
+    private TimingWheelJobService tested;
+
+    @BeforeEach
+    public void setup() {
+        processRuntime = mock(ProcessRuntime.class);
+        tested = new TimingWheelJobService(() -> {
+            created.incrementAndGet();
+            return new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 1);
+        }, processRuntime, new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        tested.close();
+    }
+
+    @Test
+    public void testWheelCreatedWhenFirstJobScheduled() {
+        assertThat(created.get()).isZero();
+        assertThat(tested.pendingJobs()).isZero();
+
+        ProcessInstanceJobDescription job = job(ZonedDateTime.now().plusHours(1));
+        tested.scheduleProcessInstanceJob(job);
+        tested.scheduleProcessInstanceJob(job(ZonedDateTime.now().plusHours(1)));
+        assertThat(created.get()).isOne();
+        assertThat(tested.pendingJobs()).isEqualTo(2);
+
+        assertThat(tested.cancelJob(job.id())).isTrue();
+        assertThat(tested.cancelJob(job.id())).isFalse();
+    }
+
+    @Test
+    public void testExpiredJobSignalsProcessInstance() {
+        ProcessInstance processInstance = mock(ProcessInstance.class);
+        when(processRuntime.getProcessInstance("processInstanceId")).thenReturn(processInstance);
+
+        tested.scheduleProcessInstanceJob(job(ZonedDateTime.now()));
+
+        verify(processInstance, timeout(5000)).signalEvent(eq("timerTriggered"), any());
+    }
+
+    @Test
+    public void testClosedServiceRejectsJobs() {
+        tested.close();
+
+        assertThatThrownBy(() -> tested.scheduleProcessInstanceJob(job(ZonedDateTime.now()))).isInstanceOf(RejectedExecutionException.class);
+        assertThat(created.get()).isZero();
+    }
+
+    private ProcessInstanceJobDescription job(ZonedDateTime expirationTime) {
+        return ProcessInstanceJobDescription.of(1, ExactExpirationTime.of(expirationTime), "processInstanceId", "processId");
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.timer.impl;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical hashed timing wheel, schedules and cancels timeouts in constant time
+ * regardless of the number of pending ones.
+ * <p>
+ * Time is divided into ticks of configurable length. Level 0 of the wheel has a bucket
+ * per tick, every next level has a bucket per full revolution of the level below it.
+ * Timeouts are placed into the lowest level that can hold their deadline and moved down
+ * (cascaded) when the lower level wraps around, timeouts beyond the range of the top level
+ * are kept in it and re-evaluated on every revolution. Expired timeouts are dispatched
+ * to a pool of single threaded workers selected by the partition key of the timeout,
+ * so timeouts with the same key never run concurrently and keep their firing order.
+ * <p>
+ * The wheel itself is only modified by a single ticker thread, other threads hand new and
+ * canceled timeouts over through lock free queues.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    public static final int DEFAULT_LEVELS = 4;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final String name;
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final Bucket[][] wheels;
+    private final ExecutorService[] workers;
+    private final Thread ticker;
+    private final long startNanos;
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> canceled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+
+    private volatile long currentTick;
+    private volatile boolean running = true;
+
+    public HashedTimingWheel(String name, long tick, TimeUnit unit, int workers) {
+        this(name, tick, unit, DEFAULT_WHEEL_SIZE, DEFAULT_LEVELS, workers);
+    }
+
+    public HashedTimingWheel(String name, long tick, TimeUnit unit, int wheelSize, int levels, int workers) {
+        if (tick <= 0 || levels <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("Tick, levels and workers of timing wheel must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two, was " + wheelSize);
+        }
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        if (bits * levels > 62) {
+            throw new IllegalArgumentException("Timing wheel with " + levels + " levels of size " + wheelSize + " exceeds range of ticks");
+        }
+        this.name = name;
+        this.tickNanos = unit.toNanos(tick);
+        this.mask = wheelSize - 1;
+        this.wheels = new Bucket[levels][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.workers = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String threadName = "kogito-timer-" + name + "-" + i;
+            this.workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::run, "kogito-timer-" + name + "-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Schedules one shot timeout.
+     *
+     * @param partitionKey key selecting the worker the task runs on, tasks without a key are spread over all workers
+     * @param task task to run once the delay elapses
+     * @param delay delay from now, negative values fire on next tick
+     * @param unit unit of the delay
+     * @return handle that can be used to cancel the timeout
+     */
+    public Timeout schedule(Object partitionKey, Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(partitionKey, task, System.nanoTime() + unit.toNanos(delay), 0));
+    }
+
+    /**
+     * Schedules timeout that fires repeatedly with given period until it is canceled.
+     *
+     * @param partitionKey key selecting the worker the task runs on, tasks without a key are spread over all workers
+     * @param task task to run on every expiration
+     * @param initialDelay delay of the first expiration
+     * @param period period between expirations
+     * @param unit unit of the delay and period
+     * @return handle that can be used to cancel the timeout
+     */
+    public Timeout scheduleAtFixedRate(Object partitionKey, Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period of repeatable timeout must be positive");
+        }
+        return add(new Timeout(partitionKey, task, System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period)));
+    }
+
+    /**
+     * @return number of timeouts waiting to expire
+     */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    /**
+     * @return number of expirations dispatched to the workers since the wheel was started
+     */
+    public long firedTimeouts() {
+        return fired.get();
+    }
+
+    public long tickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    /**
+     * Stops the ticker and the workers, pending timeouts are discarded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        ticker.interrupt();
+        try {
+            ticker.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (!running) {
+            throw new RejectedExecutionException("Timing wheel '" + name + "' is closed");
+        }
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long next = currentTick + 1;
+            long wait = startNanos + next * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            try {
+                transferCanceled();
+                transferScheduled();
+                currentTick = next;
+                cascade(next);
+                expire(next);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error on tick {} of timing wheel '{}'", next, name, e);
+            }
+        }
+    }
+
+    private void transferCanceled() {
+        Timeout timeout;
+        while ((timeout = canceled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            long deadline = (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+            timeout.deadlineTick = Math.max(deadline, currentTick + 1);
+            insert(timeout);
+        }
+    }
+
+    private void cascade(long tick) {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            if ((tick & ((1L << (level * bits)) - 1)) == 0) {
+                Timeout timeout = wheels[level][(int) ((tick >>> (level * bits)) & mask)].clear();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    insert(timeout);
+                    timeout = next;
+                }
+            }
+        }
+    }
+
+    private void expire(long tick) {
+        Timeout timeout = wheels[0][(int) (tick & mask)].clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.deadlineTick > tick) {
+                insert(timeout);
+            } else {
+                dispatch(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        for (int level = 0; level < wheels.length; level++) {
+            if (delta < 1L << ((level + 1) * bits)) {
+                wheels[level][(int) ((timeout.deadlineTick >>> (level * bits)) & mask)].add(timeout);
+                return;
+            }
+        }
+        // beyond range of the wheel, park in the top level bucket that is cascaded last
+        int top = wheels.length - 1;
+        long last = currentTick + (1L << (wheels.length * bits)) - 1;
+        wheels[top][(int) ((last >>> (top * bits)) & mask)].add(timeout);
+    }
+
+    private void dispatch(Timeout timeout) {
+        if (timeout.periodNanos == 0 && !timeout.expire()) {
+            return;
+        }
+        fired.incrementAndGet();
+        try {
+            workers[Math.floorMod(timeout.partition, workers.length)].execute(timeout);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Timeout not executed, timing wheel '{}' is closing", name);
+        }
+    }
+
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        private Timeout clear() {
+            Timeout timeout = head;
+            for (Timeout t = head; t != null; t = t.next) {
+                t.bucket = null;
+                t.prev = null;
+            }
+            head = null;
+            tail = null;
+            return timeout;
+        }
+    }
+
+    /**
+     * Handle of a scheduled timeout.
+     */
+    public class Timeout implements ScheduledFuture<Void>, Runnable {
+
+        private static final int PENDING = 0;
+        private static final int CANCELED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final int partition;
+        private final long periodNanos;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        volatile int state = PENDING;
+        private volatile long deadlineNanos;
+        private volatile Throwable failure;
+
+        // accessed only by the ticker thread
+        private long deadlineTick;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Object partitionKey, Runnable task, long deadlineNanos, long periodNanos) {
+            this.task = task;
+            this.partition = partitionKey == null ? System.identityHashCode(this) : partitionKey.hashCode();
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                LOGGER.warn("Timeout of timing wheel '{}' failed", name, e);
+                if (periodNanos == 0) {
+                    failure = e;
+                }
+            }
+            if (periodNanos == 0) {
+                done.countDown();
+            } else if (state == PENDING && running) {
+                deadlineNanos += periodNanos;
+                scheduled.add(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!STATE.compareAndSet(this, PENDING, CANCELED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            canceled.add(this);
+            done.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        private boolean expire() {
+            if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            return true;
+        }
+
+        private Void result() throws ExecutionException {
+            if (state == CANCELED) {
+                throw new CancellationException();
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.timer.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedTimingWheelTest.class);
+
+    private HashedTimingWheel wheel;
+
+    @AfterEach
+    public void close() {
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    @Test
+    public void testFiresAfterDelay() throws Exception {
+        wheel = new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 2);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        ScheduledFuture<Void> timeout = wheel.schedule("1", fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(50);
+        timeout.get(5, TimeUnit.SECONDS);
+        assertThat(timeout.isDone()).isTrue();
+        assertThat(wheel.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    public void testCascadesThroughLevels() throws Exception {
+        // 4 buckets per level, 3 levels cover 64 ticks, longer delays overflow the top level
+        wheel = new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 4, 3, 1);
+        List<Long> delays = new ArrayList<>();
+        for (long delay = 0; delay < 200; delay += 7) {
+            delays.add(delay);
+        }
+        Collections.shuffle(delays);
+        CountDownLatch fired = new CountDownLatch(delays.size());
+        Map<Long, Long> firedAfter = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        for (Long delay : delays) {
+            wheel.schedule(null, () -> {
+                firedAfter.put(delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                fired.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        firedAfter.forEach((delay, elapsed) -> assertThat(elapsed).as("timeout with delay %d", delay).isGreaterThanOrEqualTo(delay));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        wheel = new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 1);
+        AtomicInteger fired = new AtomicInteger();
+
+        ScheduledFuture<Void> canceled = wheel.schedule("1", fired::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        ScheduledFuture<Void> kept = wheel.schedule("1", fired::incrementAndGet, 40, TimeUnit.MILLISECONDS);
+
+        assertThat(canceled.cancel(false)).isTrue();
+        assertThat(canceled.isCancelled()).isTrue();
+        kept.get(5, TimeUnit.SECONDS);
+        assertThat(fired.get()).isEqualTo(1);
+        assertThat(canceled.cancel(false)).isFalse();
+        assertThat(kept.cancel(false)).isFalse();
+    }
+
+    @Test
+    public void testRepeatable() throws Exception {
+        wheel = new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 1);
+        CountDownLatch fired = new CountDownLatch(3);
+
+        ScheduledFuture<Void> timeout = wheel.scheduleAtFixedRate("1", fired::countDown, 0, 10, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.isDone()).isFalse();
+        assertThat(timeout.cancel(false)).isTrue();
+        assertThat(wheel.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    public void testSamePartitionRunsOnSameWorker() throws Exception {
+        wheel = new HashedTimingWheel("test", 1, TimeUnit.MILLISECONDS, 4);
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch fired = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            String key = "instance-" + (i % 10);
+            wheel.schedule(key, () -> {
+                String previous = threads.putIfAbsent(key, Thread.currentThread().getName());
+                if (previous != null && !previous.equals(Thread.currentThread().getName())) {
+                    conflicts.incrementAndGet();
+                }
+                fired.countDown();
+            }, i % 20, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(conflicts.get()).isZero();
+    }
+
+    /**
+     * Compares the wheel with a scheduled thread pool, with a small number of timers by default so the
+     * build stays fast. Run with <code>-Dkogito.timer.benchmark.count=1000000</code> for the benchmark.
+     */
+    @Test
+    public void testManyTimers() throws Exception {
+        int count = Integer.getInteger("kogito.timer.benchmark.count", 10_000);
+        long[] delays = new long[count];
+        for (int i = 0; i < count; i++) {
+            delays[i] = ThreadLocalRandom.current().nextLong(TimeUnit.HOURS.toMillis(1));
+        }
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[count];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            futures[i] = executor.schedule(() -> {
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+        long executorSchedule = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            executor.remove((Runnable) future);
+        }
+        long executorCancel = System.nanoTime() - start;
+        executor.shutdownNow();
+
+        wheel = new HashedTimingWheel("test", HashedTimingWheel.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, 4);
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            futures[i] = wheel.schedule(i, () -> {
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+        long wheelSchedule = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        long wheelCancel = System.nanoTime() - start;
+
+        LOGGER.info("{} timers, ScheduledThreadPoolExecutor schedule {} ms cancel {} ms, timing wheel schedule {} ms cancel {} ms",
+                    count,
+                    TimeUnit.NANOSECONDS.toMillis(executorSchedule),
+                    TimeUnit.NANOSECONDS.toMillis(executorCancel),
+                    TimeUnit.NANOSECONDS.toMillis(wheelSchedule),
+                    TimeUnit.NANOSECONDS.toMillis(wheelCancel));
+        assertThat(wheel.pendingTimeouts()).isZero();
+
+        CountDownLatch fired = new CountDownLatch(count);
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(i, fired::countDown, i % 1000, TimeUnit.MILLISECONDS);
+        }
+        assertThat(fired.await(30, TimeUnit.SECONDS)).isTrue();
+        LOGGER.info("{} timers fired within {} ms", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.drools.core.io.impl.ClassPathResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.bpmn2.BpmnProcess;
+import org.kie.kogito.process.bpmn2.BpmnVariables;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceCodecs;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.kie.api.runtime.process.ProcessInstance.STATE_ACTIVE;
+
+public class ProcessInstanceMarshallerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessInstanceMarshallerTest.class);
+
+    private BpmnProcess process;
+    private ProcessInstanceMarshaller marshaller;
+
+    @BeforeEach
+    public void setup() {
+        process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.configure();
+        marshaller = new ProcessInstanceMarshaller();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMarshallIntoReusedBuffer() {
+        ProcessInstance<BpmnVariables> processInstance = start();
+
+        AtomicReference<byte[]> written = new AtomicReference<>();
+        marshaller.marshallProcessInstance(processInstance, buffer -> {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            written.set(data);
+        });
+
+        ProcessInstance<BpmnVariables> unmarshalled = (ProcessInstance<BpmnVariables>) marshaller.unmarshallProcessInstance(written.get(), process);
+        assertThat(unmarshalled.id()).isEqualTo(processInstance.id());
+        assertThat(unmarshalled.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(unmarshalled.variables().toMap()).containsEntry("s", "test");
+
+        // a process instance is marshalled again from the same buffer on the same thread
+        byte[] data = marshaller.marshallProcessInstance(unmarshalled);
+        assertThat(((BpmnVariables) marshaller.unmarshallProcessInstance(data, process).variables()).toMap()).isEqualTo(unmarshalled.variables().toMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNestedMarshallingDoesNotOverwriteBuffer() {
+        ProcessInstance<BpmnVariables> outer = start();
+        ProcessInstance<BpmnVariables> inner = start();
+
+        marshaller.marshallProcessInstance(outer, buffer -> {
+            ByteBuffer copy = ByteBuffer.allocate(buffer.remaining()).put(buffer.duplicate());
+            copy.flip();
+
+            byte[] nested = marshaller.marshallProcessInstance(inner);
+            assertThat(marshaller.unmarshallProcessInstance(nested, process).id()).isEqualTo(inner.id());
+            assertThat(buffer).isEqualTo(copy);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAllocationsPerRoundTrip() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean, "Thread allocation counters not available");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(), "Thread allocation counters not enabled");
+        long thread = Thread.currentThread().getId();
+
+        ProcessInstance<BpmnVariables> processInstance = start();
+        int iterations = 2000;
+        long marshallBytes = 0;
+        long unmarshallBytes = 0;
+        int size = 0;
+        // first half warms up the JIT and the reused buffers
+        for (int i = 0; i < iterations * 2; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            byte[] data = marshaller.marshallProcessInstance(processInstance);
+            long marshalled = threads.getThreadAllocatedBytes(thread);
+            processInstance = (ProcessInstance<BpmnVariables>) marshaller.unmarshallProcessInstance(data, process);
+            long unmarshalled = threads.getThreadAllocatedBytes(thread);
+            if (i >= iterations) {
+                marshallBytes += marshalled - before;
+                unmarshallBytes += unmarshalled - marshalled;
+                size = data.length;
+            }
+        }
+        LOGGER.info("Process instance of {} bytes, allocated {} bytes per marshalling and {} bytes per unmarshalling",
+                    size, marshallBytes / iterations, unmarshallBytes / iterations);
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testVariablesUnmarshalledOnAccess() {
+        JsonStrategy strategy = new JsonStrategy();
+        ProcessInstanceMarshaller lazyMarshaller = new ProcessInstanceMarshaller(strategy);
+        String json = json(1024);
+        byte[] data = lazyMarshaller.marshallProcessInstance(start(json));
+        strategy.marshalled.set(0);
+
+        ProcessInstance<BpmnVariables> loaded = (ProcessInstance<BpmnVariables>) lazyMarshaller.unmarshallProcessInstance(data, process);
+        assertThat(loaded.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(loaded.workItems()).hasSize(1);
+        assertThat(strategy.unmarshalled).hasValue(0);
+
+        // a variable not accessed is written as it was read
+        data = lazyMarshaller.marshallProcessInstance(loaded);
+        assertThat(strategy.unmarshalled).hasValue(0);
+        assertThat(strategy.marshalled).hasValue(0);
+
+        loaded = (ProcessInstance<BpmnVariables>) lazyMarshaller.unmarshallProcessInstance(data, process);
+        assertThat(loaded.variables().toMap()).containsEntry("s", json);
+        assertThat(strategy.unmarshalled).hasValue(1);
+        lazyMarshaller.marshallProcessInstance(loaded);
+        assertThat(strategy.marshalled).hasValue(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLargeVariableRoundTrip() {
+        ProcessInstanceMarshaller lazyMarshaller = new ProcessInstanceMarshaller(new JsonStrategy());
+        String json = json(5 * 1024 * 1024);
+        byte[] data = lazyMarshaller.marshallProcessInstance(start(json));
+
+        int iterations = 20;
+        long untouched = 0;
+        long touched = 0;
+        // first half warms up the JIT
+        for (int i = 0; i < iterations * 2; i++) {
+            long start = System.nanoTime();
+            ProcessInstance<BpmnVariables> loaded = (ProcessInstance<BpmnVariables>) lazyMarshaller.unmarshallProcessInstance(data, process);
+            assertThat(loaded.status()).isEqualTo(STATE_ACTIVE);
+            lazyMarshaller.marshallProcessInstance(loaded);
+            long middle = System.nanoTime();
+            loaded = (ProcessInstance<BpmnVariables>) lazyMarshaller.unmarshallProcessInstance(data, process);
+            assertThat(loaded.variables().toMap().get("s")).isEqualTo(json);
+            lazyMarshaller.marshallProcessInstance(loaded);
+            long end = System.nanoTime();
+            if (i >= iterations) {
+                untouched += middle - start;
+                touched += end - middle;
+            }
+        }
+        LOGGER.info("Process instance of {} bytes, round trip took {} us without accessing its variable and {} us accessing it",
+                    data.length, untouched / iterations / 1000, touched / iterations / 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompressedRoundTrip() {
+        ProcessInstanceMarshaller compressingMarshaller = new ProcessInstanceMarshaller().withCodecs(ProcessInstanceCodecs.of(1024, true));
+        String json = json(64 * 1024);
+        ProcessInstance<BpmnVariables> processInstance = start(json);
+
+        byte[] raw = marshaller.marshallProcessInstance(processInstance);
+        byte[] compressed = compressingMarshaller.marshallProcessInstance(processInstance);
+        assertThat(compressed.length).isLessThan(raw.length / 4);
+
+        // data is readable whatever the codecs of the reading marshaller are
+        assertThat(((BpmnVariables) compressingMarshaller.unmarshallProcessInstance(compressed, process).variables()).toMap()).containsEntry("s", json);
+        assertThat(((BpmnVariables) compressingMarshaller.unmarshallProcessInstance(raw, process).variables()).toMap()).containsEntry("s", json);
+        assertThat(((BpmnVariables) marshaller.unmarshallProcessInstance(compressed, process).variables()).toMap()).containsEntry("s", json);
+
+        // a checksum adds the codec header and the checksum itself
+        ProcessInstance<BpmnVariables> small = start();
+        byte[] checksummed = new ProcessInstanceMarshaller().withCodecs(ProcessInstanceCodecs.of(0, true)).marshallProcessInstance(small);
+        assertThat(checksummed.length).isEqualTo(marshaller.marshallProcessInstance(small).length + 7);
+
+        compressed[compressed.length / 2] ^= 1;
+        assertThatThrownBy(() -> compressingMarshaller.unmarshallProcessInstance(compressed, process)).hasMessageContaining("Error while unmarshalling");
+    }
+
+    @Test
+    public void testCompressionPerSize() {
+        ProcessInstanceMarshaller compressingMarshaller = new ProcessInstanceMarshaller().withCodecs(ProcessInstanceCodecs.of(1024, false));
+        int iterations = 20;
+        for (int size : new int[]{256, 4 * 1024, 64 * 1024, 1024 * 1024}) {
+            ProcessInstance<BpmnVariables> processInstance = start(json(size));
+            long raw = 0;
+            long compressed = 0;
+            int rawSize = 0;
+            int compressedSize = 0;
+            // first half warms up the JIT
+            for (int i = 0; i < iterations * 2; i++) {
+                long start = System.nanoTime();
+                rawSize = marshaller.marshallProcessInstance(processInstance).length;
+                long middle = System.nanoTime();
+                compressedSize = compressingMarshaller.marshallProcessInstance(processInstance).length;
+                long end = System.nanoTime();
+                if (i >= iterations) {
+                    raw += middle - start;
+                    compressed += end - middle;
+                }
+            }
+            LOGGER.info("Process instance of {} bytes stored in {} bytes, marshalling took {} us uncompressed and {} us compressed",
+                        rawSize, compressedSize, raw / iterations / 1000, compressed / iterations / 1000);
+            assertThat(compressedSize).isLessThanOrEqualTo(rawSize);
+        }
+    }
+
+    private ProcessInstance<BpmnVariables> start() {
+        return start("test");
+    }
+
+    private ProcessInstance<BpmnVariables> start(String value) {
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("s", value)));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        return processInstance;
+    }
+
+    private static String json(int size) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; json.length() < size; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\"},");
+        }
+        json.setLength(json.length() - 1);
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Stand-in for a JSON marshalling strategy, it does not keep state in the marshalling context.
+     */
+    private static class JsonStrategy implements ObjectMarshallingStrategy {
+
+        private final AtomicInteger marshalled = new AtomicInteger();
+        private final AtomicInteger unmarshalled = new AtomicInteger();
+
+        @Override
+        public boolean accept(Object object) {
+            return object instanceof String && ((String) object).startsWith("{");
+        }
+
+        @Override
+        public void write(ObjectOutputStream os, Object object) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object read(ObjectInputStream os) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] marshal(Context context, ObjectOutputStream os, Object object) {
+            marshalled.incrementAndGet();
+            return ((String) object).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object unmarshal(String dataType, Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) {
+            unmarshalled.incrementAndGet();
+            return new String(object, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Context createContext() {
+            return null;
+        }
+    }
+}
@@ -49,6 +49,7 @@ public class Variable implements TypeObject, ValueObject, Serializable {
     public static final String OUTPUT_TAG = "output";
     public static final String BUSINESS_RELEVANT = "business-relevant";
     public static final String TRACKED = "tracked";
+    public static final String INDEXED_TAG = "indexed";
 
     private String id;
     private String name;
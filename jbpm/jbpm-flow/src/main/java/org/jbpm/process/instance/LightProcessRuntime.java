@@ -58,7 +58,7 @@ import org.kie.kogito.jobs.JobsService;
 import org.kie.kogito.jobs.ProcessJobDescription;
 import org.kie.kogito.signal.SignalManager;
 import org.kie.kogito.uow.UnitOfWorkManager;
-import org.kie.services.jobs.impl.InMemoryJobService;
+import org.kie.services.jobs.impl.InMemoryJobServices;
 
 public class LightProcessRuntime implements InternalProcessRuntime {
 
@@ -68,6 +68,7 @@ public class LightProcessRuntime implements InternalProcessRuntime {
     private ProcessInstanceManager processInstanceManager;
     private SignalManager signalManager;
     private JobsService jobService;
+    private final boolean defaultJobService;
     private ProcessEventSupport processEventSupport;
     private final WorkItemManager workItemManager;
     private UnitOfWorkManager unitOfWorkManager;
@@ -88,7 +89,8 @@ public class LightProcessRuntime implements InternalProcessRuntime {
         this.runtimeContext = runtimeContext;
         this.processInstanceManager = services.getProcessInstanceManager();
         this.signalManager = services.getSignalManager();
-        this.jobService = services.getJobsService() == null ? new InMemoryJobService(this, this.unitOfWorkManager) : services.getJobsService();
+        this.defaultJobService = services.getJobsService() == null;
+        this.jobService = defaultJobService ? InMemoryJobServices.create(this, this.unitOfWorkManager) : services.getJobsService();
         this.processEventSupport = services.getEventSupport();
         this.workItemManager = services.getWorkItemManager();
         
@@ -451,6 +453,9 @@ public class LightProcessRuntime implements InternalProcessRuntime {
 
     public void dispose() {
         this.processEventSupport.reset();
+        if (defaultJobService) {
+            InMemoryJobServices.shutdown(jobService);
+        }
         runtimeContext = null;
     }
 
@@ -72,7 +72,7 @@ import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
 import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
 import org.kie.kogito.signal.SignalManager;
 import org.kie.kogito.uow.UnitOfWorkManager;
-import org.kie.services.jobs.impl.InMemoryJobService;
+import org.kie.services.jobs.impl.InMemoryJobServices;
 
 public class ProcessRuntimeImpl implements InternalProcessRuntime {
 
@@ -94,7 +94,7 @@ public class ProcessRuntimeImpl implements InternalProcessRuntime {
         initProcessInstanceManager();
         initSignalManager();
         unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
-        jobService = new InMemoryJobService(this, unitOfWorkManager);
+        jobService = InMemoryJobServices.create(this, unitOfWorkManager);
         processEventSupport = new KogitoProcessEventSupport(unitOfWorkManager);
         if (isActive()) {
             initProcessEventListeners();
@@ -113,7 +113,7 @@ public class ProcessRuntimeImpl implements InternalProcessRuntime {
         initProcessInstanceManager();
         initSignalManager();
         unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
-        jobService = new InMemoryJobService(this, unitOfWorkManager);
+        jobService = InMemoryJobServices.create(this, unitOfWorkManager);
         processEventSupport = new KogitoProcessEventSupport(unitOfWorkManager);
         if (isActive()) {
             initProcessEventListeners();
@@ -440,6 +440,7 @@ public class ProcessRuntimeImpl implements InternalProcessRuntime {
 
     public void dispose() {
         this.processEventSupport.reset();
+        InMemoryJobServices.shutdown(jobService);
         kruntime = null;
     }
 
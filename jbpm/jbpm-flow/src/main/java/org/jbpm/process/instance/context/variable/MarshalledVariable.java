@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.context.variable;
+
+/**
+ * Value of a variable kept in its marshalled form until the variable is accessed, so loading a process
+ * instance does not unmarshall variables that are never used.
+ *
+ * @see VariableScopeInstance#getVariable(String)
+ */
+public interface MarshalledVariable {
+
+    /**
+     * @return the unmarshalled value of the variable
+     */
+    Object unmarshall();
+}
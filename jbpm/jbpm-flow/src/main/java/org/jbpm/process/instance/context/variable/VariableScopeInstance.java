@@ -16,9 +16,14 @@
 
 package org.jbpm.process.instance.context.variable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.drools.core.event.KogitoProcessEventSupport;
 import org.jbpm.process.core.context.variable.Variable;
@@ -38,7 +43,10 @@ public class VariableScopeInstance extends AbstractContextInstance {
 
     private static final long serialVersionUID = 510l;    
     
+    // values might be marshalled variables, unmarshalled once they are accessed
     private Map<String, Object> variables = new HashMap<String, Object>();
+    // names of the variables a change event was fired for since the instance was last written
+    private Set<String> changedVariables = new HashSet<>();
     private transient String variableIdPrefix = null;
     private transient String variableInstanceIdPrefix = null;
 
@@ -48,7 +56,7 @@ public class VariableScopeInstance extends AbstractContextInstance {
 
     public Object getVariable(String name) {
                 
-        Object value = variables.get(name);
+        Object value = resolve(name, variables.get(name));
         if (value != null) {
             return value;
         }
@@ -73,7 +81,17 @@ public class VariableScopeInstance extends AbstractContextInstance {
         return null;
     }
 
+    /**
+     * @return unmodifiable view of the variables, marshalled variables are unmarshalled once their value is read
+     */
     public Map<String, Object> getVariables() {
+        return new ResolvingVariables();
+    }
+
+    /**
+     * @return unmodifiable view of the variables, values of variables not accessed yet are {@link MarshalledVariable}s
+     */
+    public Map<String, Object> internalGetVariables() {
         return Collections.unmodifiableMap(variables);
     }
 
@@ -106,6 +124,7 @@ public class VariableScopeInstance extends AbstractContextInstance {
 			nodeInstance,
 			getProcessInstance().getKnowledgeRuntime());
         internalSetVariable(name, value);
+        changedVariables.add(name);
         processEventSupport.fireAfterVariableChanged(
 			(variableIdPrefix == null ? "" : variableIdPrefix + ":") + name,
 			(variableInstanceIdPrefix == null? "" : variableInstanceIdPrefix + ":") + name,
@@ -114,11 +133,30 @@ public class VariableScopeInstance extends AbstractContextInstance {
 			getProcessInstance().getKnowledgeRuntime());
     }
     
+    /**
+     * Returns names of the variables changed through {@link #setVariable(NodeInstance, String, Object)}
+     * since the last call, those are the variables a {@code ProcessVariableChangedEvent} was fired for.
+     */
+    public Set<String> internalPollChangedVariables() {
+        Set<String> changed = changedVariables;
+        changedVariables = new HashSet<>();
+        return changed;
+    }
+
     public void internalSetVariable(String name, Object value) {
         // not a case, store it in normal variables
     	variables.put(name, value);
     }
     
+    private Object resolve(String name, Object value) {
+        if (value instanceof MarshalledVariable) {
+            value = ((MarshalledVariable) value).unmarshall();
+            // the value might be changed in place from now on so it is marshalled again when stored
+            variables.put(name, value);
+        }
+        return value;
+    }
+
     public VariableScope getVariableScope() {
     	return (VariableScope) getContext();
     }
@@ -144,4 +182,52 @@ public class VariableScopeInstance extends AbstractContextInstance {
             }
         }
     }
+
+    private class ResolvingVariables extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(Object key) {
+            Object value = variables.get(key);
+            return value instanceof MarshalledVariable ? resolve((String) key, value) : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return variables.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return variables.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Object>> iterator = variables.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Object> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), resolve(entry.getKey(), entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return variables.size();
+                }
+            };
+        }
+    }
 }
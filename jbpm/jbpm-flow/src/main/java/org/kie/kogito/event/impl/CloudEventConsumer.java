@@ -14,18 +14,27 @@
  */
 package org.kie.kogito.event.impl;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.kie.kogito.Application;
 import org.kie.kogito.Model;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceExecutionException;
+import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.impl.Sig;
 import org.kie.kogito.services.event.AbstractProcessDataEvent;
 import org.kie.kogito.services.uow.UnitOfWorkExecutor;
+import org.kie.kogito.uow.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,55 +55,182 @@ public class CloudEventConsumer<D, M extends Model, T extends AbstractProcessDat
 
     @Override
     public void consume(Application application, Process<M> process, String payload, String trigger) {
-        String simpleName = cloudEventClass.getSimpleName();
-        try {
-            T cloudEvent = mapper.readValue(payload, cloudEventClass);
-            M model = function.apply(cloudEvent.getData());
-            // currently we filter out messages on the receiving end; for strategy see https://issues.redhat.com/browse/KOGITO-3591
-            if (ignoredMessageType(cloudEvent, simpleName) && ignoredMessageType(cloudEvent, trigger)) {
-                logger.warn("Consumer for CloudEvent type '{}', trigger '{}': ignoring message with type '{}',  source '{}'",
-                             simpleName,
-                             trigger,
-                             cloudEvent.getType(),
-                             cloudEvent.getSource());
-                return;
+        T cloudEvent = read(payload, trigger);
+        if (cloudEvent != null) {
+            consumeEvent(application, process, cloudEvent, trigger);
+        }
+    }
+
+    @Override
+    protected void consume(Application application, Process<M> process, String payload, JsonNode parsedPayload, String trigger) {
+        T cloudEvent = bind(payload, parsedPayload, trigger);
+        if (cloudEvent != null) {
+            consumeEvent(application, process, cloudEvent, trigger);
+        }
+    }
+
+    /**
+     * Events are ordered by the process instance they refer to, events starting new instances are not ordered.
+     */
+    @Override
+    public String partitionKey(String payload, Object parsedPayload) {
+        if (!(parsedPayload instanceof JsonNode)) {
+            return null;
+        }
+        String referenceId = ((JsonNode) parsedPayload).path("kogitoReferenceId").asText(null);
+        return referenceId == null || referenceId.isEmpty() ? null : referenceId;
+    }
+
+    /**
+     * Consumes all the accepted events in a single unit of work, the process instances they refer to are loaded at once
+     * and the events referring to the same instance are applied to it in order. If the unit of work fails, the events
+     * are consumed one by one so a failing event does not prevent the others from being consumed. Failures to store
+     * the changes are thrown, so the messages are not acknowledged.
+     */
+    @Override
+    public void consume(Application application, Process<M> process, List<String> payloads, List<Object> parsedPayloads, String trigger) {
+        List<T> cloudEvents = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            Object parsedPayload = parsedPayloads.get(i);
+            T cloudEvent = parsedPayload instanceof JsonNode ? bind(payloads.get(i), (JsonNode) parsedPayload, trigger) : read(payloads.get(i), trigger);
+            if (cloudEvent != null) {
+                cloudEvents.add(cloudEvent);
             }
-            UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
-                if (cloudEvent.getKogitoReferenceId() != null && !cloudEvent.getKogitoReferenceId().isEmpty()) {
-                    logger.debug("Received message with reference id '{}' going to use it to send signal '{}'",
-                                 cloudEvent.getKogitoReferenceId(),
-                                 trigger);
-                    Optional<ProcessInstance<M>> instance = process.instances().findById(cloudEvent.getKogitoReferenceId());
-                    if(instance.isPresent()){
-                        instance.get().send(Sig.of("Message-" + trigger,
-                                                   cloudEvent.getData(),
-                                                   cloudEvent.getKogitoProcessinstanceId()));
-                    } else {
-                        logger.warn("Process instance with id '{}' not found for triggering signal '{}'",
-                                    cloudEvent.getKogitoReferenceId(),
-                                    trigger);
-                    }
-                } else {
-                    logger.debug("Received message without reference id, starting new process instance with trigger '{}'",
-                                 trigger);
-                    ProcessInstance<M> pi = process.createInstance(model);
-                    if (cloudEvent.getKogitoStartFromNode() != null && !cloudEvent.getKogitoStartFromNode().isEmpty()) {
-                        pi.startFrom(cloudEvent.getKogitoStartFromNode(), cloudEvent.getKogitoProcessinstanceId());
-                    } else {
-                        pi.start(trigger, cloudEvent.getKogitoProcessinstanceId());
-                    }
+        }
+        if (cloudEvents.isEmpty()) {
+            return;
+        }
+        UnitOfWork uow = application.unitOfWorkManager().newUnitOfWork();
+        uow.start();
+        try {
+            deliverAll(process, cloudEvents, trigger);
+        } catch (RuntimeException e) {
+            uow.abort();
+            logger.warn("Unable to consume {} messages with trigger '{}' at once, consuming them one by one", cloudEvents.size(), trigger, e);
+            for (T cloudEvent : cloudEvents) {
+                try {
+                    consumeEvent(application, process, cloudEvent, trigger);
+                } catch (RuntimeException ex) {
+                    logger.error("Error when consuming message with trigger '{}' for process {}", trigger, process.id(), ex);
                 }
-                return null;
-            });
+            }
+            return;
+        }
+        try {
+            uow.end();
+        } catch (RuntimeException e) {
+            // not retried one by one, as part of the changes might have been stored
+            uow.abort();
+            throw e;
+        }
+    }
+
+    private T read(String payload, String trigger) {
+        try {
+            return accepted(mapper.readValue(payload, cloudEventClass), trigger);
         } catch (JsonProcessingException e) {
-            logger.warn("Consumer for CloudEvent type '{}', trigger '{}': ignoring payload '{}'",
+            logIgnoredPayload(trigger, payload);
+            return null;
+        }
+    }
+
+    private T bind(String payload, JsonNode parsedPayload, String trigger) {
+        String type = parsedPayload.path("type").asText(null);
+        String source = parsedPayload.path("source").asText(null);
+        // checked before binding the data, which is the expensive part of the payload
+        if (ignored(type, source, trigger)) {
+            return null;
+        }
+        try {
+            return mapper.treeToValue(parsedPayload, cloudEventClass);
+        } catch (JsonProcessingException e) {
+            logIgnoredPayload(trigger, payload);
+            return null;
+        }
+    }
+
+    private T accepted(T cloudEvent, String trigger) {
+        return ignored(cloudEvent.getType(), cloudEvent.getSource(), trigger) ? null : cloudEvent;
+    }
+
+    private void consumeEvent(Application application, Process<M> process, T cloudEvent, String trigger) {
+        UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
+            deliver(process, cloudEvent, trigger, id -> process.instances().findById(id));
+            return null;
+        });
+    }
+
+    private void deliverAll(Process<M> process, List<T> cloudEvents, String trigger) {
+        Set<String> referenceIds = new LinkedHashSet<>();
+        for (T cloudEvent : cloudEvents) {
+            if (hasReferenceId(cloudEvent)) {
+                referenceIds.add(cloudEvent.getKogitoReferenceId());
+            }
+        }
+        Map<String, ProcessInstance<M>> instances = process.instances().findByIds(referenceIds, ProcessInstanceReadMode.MUTABLE);
+        for (T cloudEvent : cloudEvents) {
+            try {
+                deliver(process, cloudEvent, trigger, id -> Optional.ofNullable(instances.get(id)));
+            } catch (ProcessInstanceExecutionException e) {
+                // the instance is stored in error along with the other changes of the unit of work
+                logger.warn("Error when consuming message with trigger '{}' for process instance {}", trigger, e.getProcessInstanceId(), e);
+            }
+        }
+    }
+
+    private void deliver(Process<M> process, T cloudEvent, String trigger, Function<String, Optional<ProcessInstance<M>>> instances) {
+        if (hasReferenceId(cloudEvent)) {
+            logger.debug("Received message with reference id '{}' going to use it to send signal '{}'",
+                         cloudEvent.getKogitoReferenceId(),
+                         trigger);
+            Optional<ProcessInstance<M>> instance = instances.apply(cloudEvent.getKogitoReferenceId());
+            if(instance.isPresent()){
+                instance.get().send(Sig.of("Message-" + trigger,
+                                           cloudEvent.getData(),
+                                           cloudEvent.getKogitoProcessinstanceId()));
+            } else {
+                logger.warn("Process instance with id '{}' not found for triggering signal '{}'",
+                            cloudEvent.getKogitoReferenceId(),
+                            trigger);
+            }
+        } else {
+            logger.debug("Received message without reference id, starting new process instance with trigger '{}'",
+                         trigger);
+            ProcessInstance<M> pi = process.createInstance(function.apply(cloudEvent.getData()));
+            if (cloudEvent.getKogitoStartFromNode() != null && !cloudEvent.getKogitoStartFromNode().isEmpty()) {
+                pi.startFrom(cloudEvent.getKogitoStartFromNode(), cloudEvent.getKogitoProcessinstanceId());
+            } else {
+                pi.start(trigger, cloudEvent.getKogitoProcessinstanceId());
+            }
+        }
+    }
+
+    private static boolean hasReferenceId(AbstractProcessDataEvent<?> cloudEvent) {
+        return cloudEvent.getKogitoReferenceId() != null && !cloudEvent.getKogitoReferenceId().isEmpty();
+    }
+
+    // currently we filter out messages on the receiving end; for strategy see https://issues.redhat.com/browse/KOGITO-3591
+    private boolean ignored(String type, String source, String trigger) {
+        String simpleName = cloudEventClass.getSimpleName();
+        if (ignoredMessageType(type, source, simpleName) && ignoredMessageType(type, source, trigger)) {
+            logger.warn("Consumer for CloudEvent type '{}', trigger '{}': ignoring message with type '{}',  source '{}'",
                         simpleName,
                         trigger,
-                        payload);
+                        type,
+                        source);
+            return true;
         }
+        return false;
+    }
+
+    private void logIgnoredPayload(String trigger, String payload) {
+        logger.warn("Consumer for CloudEvent type '{}', trigger '{}': ignoring payload '{}'",
+                    cloudEventClass.getSimpleName(),
+                    trigger,
+                    payload);
     }
 
-    private boolean ignoredMessageType(T cloudEvent, String type) {
-        return !type.equals(cloudEvent.getType()) && !type.equals(cloudEvent.getSource());
+    private static boolean ignoredMessageType(String eventType, String eventSource, String type) {
+        return !type.equals(eventType) && !type.equals(eventSource);
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.event.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.kie.kogito.event.MessageBatch;
+import org.kie.kogito.services.event.impl.AbstractMessageConsumer;
+import org.kie.kogito.services.event.impl.PartitionedExecutor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single subscriber of the incoming messages dispatching them to the message consumers of the application.
+ * Every message is parsed once and handed over, by its CloudEvent type or source, only to the consumers accepting it,
+ * so the data of a message is bound to the event classes once, whatever the number of consumers.
+ * <p>
+ * Consumers not using CloudEvents cannot be routed and receive every message.
+ * <p>
+ * Messages can also be received in batches through {@link #batchSubscriber()}, each consumer then consumes all
+ * the messages of a batch it accepts at once and the batch is completed once all consumers are done. The messages
+ * of a consumer that failed are reported as failed to the incoming stream, the batch is not redelivered as the
+ * other consumers already committed their changes.
+ * <p>
+ * Messages received one by one can be consumed in parallel on the lanes of a {@link PartitionedExecutor} shared by
+ * the consumers, messages referring to the same process instance are then consumed in order on the same lane.
+ */
+public class CloudEventDispatcher implements Subscriber<String> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudEventDispatcher.class);
+
+    private final ObjectReader reader;
+    private final Map<String, List<AbstractMessageConsumer<?, ?, ?>>> consumersByType = new ConcurrentHashMap<>();
+    private final List<AbstractMessageConsumer<?, ?, ?>> unroutedConsumers = new CopyOnWriteArrayList<>();
+    private final List<AbstractMessageConsumer<?, ?, ?>> consumers = new CopyOnWriteArrayList<>();
+    private volatile PartitionedExecutor executor;
+
+    public CloudEventDispatcher() {
+        this(DefaultEventConsumerFactory.defaultMapper());
+    }
+
+    public CloudEventDispatcher(ObjectMapper mapper) {
+        // keeps decimals as they are in the payload, as the consumers would when parsing it themselves
+        this.reader = mapper.reader(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    public void register(AbstractMessageConsumer<?, ?, ?> consumer) {
+        consumer.setExecutor(executor);
+        consumers.add(consumer);
+        Set<String> types = consumer.acceptedEventTypes();
+        if (types.isEmpty()) {
+            unroutedConsumers.add(consumer);
+        }
+        for (String type : types) {
+            consumersByType.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(consumer);
+        }
+    }
+
+    /**
+     * Makes the registered consumers consume the messages received one by one on the lanes of given executor.
+     *
+     * @param executor executor shared by the consumers, null to consume the messages on the receiving thread
+     */
+    public void setExecutor(PartitionedExecutor executor) {
+        this.executor = executor;
+        consumers.forEach(consumer -> consumer.setExecutor(executor));
+    }
+
+    /**
+     * @return executor the messages are consumed on, null if they are consumed on the receiving thread
+     */
+    public PartitionedExecutor executor() {
+        return executor;
+    }
+
+    public void dispatch(String payload) {
+        JsonNode event = parse(payload);
+        if (event == null || !event.isObject()) {
+            logger.warn("Dispatcher of incoming messages: ignoring payload '{}'", payload);
+            // consumers not using CloudEvents report the payload they cannot consume themselves
+            unroutedConsumers.forEach(consumer -> consumer.consume(payload));
+            return;
+        }
+        Collection<AbstractMessageConsumer<?, ?, ?>> consumers = consumers(event);
+        if (consumers.isEmpty()) {
+            logger.debug("No consumer for message with type '{}', source '{}'", event.path("type").asText(null), event.path("source").asText(null));
+        }
+        for (AbstractMessageConsumer<?, ?, ?> consumer : consumers) {
+            consumer.consume(payload, event);
+        }
+    }
+
+    /**
+     * Dispatches messages received together, each consumer receives all the messages of the batch it accepts at once.
+     *
+     * @throws RuntimeException the failure of the first consumer that failed, once all the consumers are done
+     */
+    public void dispatch(List<String> payloads) {
+        RuntimeException failure = null;
+        for (RuntimeException e : new LinkedHashSet<>(consume(payloads).values())) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return failure of each message that a consumer failed to consume, by index in the payloads
+     */
+    private Map<Integer, RuntimeException> consume(List<String> payloads) {
+        Map<AbstractMessageConsumer<?, ?, ?>, Messages> messagesByConsumer = new LinkedHashMap<>();
+        for (int i = 0; i < payloads.size(); i++) {
+            String payload = payloads.get(i);
+            JsonNode event = parse(payload);
+            if (event == null || !event.isObject()) {
+                logger.warn("Dispatcher of incoming messages: ignoring payload '{}'", payload);
+                for (AbstractMessageConsumer<?, ?, ?> consumer : unroutedConsumers) {
+                    messagesByConsumer.computeIfAbsent(consumer, k -> new Messages()).add(i, payload, null);
+                }
+                continue;
+            }
+            for (AbstractMessageConsumer<?, ?, ?> consumer : consumers(event)) {
+                messagesByConsumer.computeIfAbsent(consumer, k -> new Messages()).add(i, payload, event);
+            }
+        }
+        Map<Integer, RuntimeException> failures = new TreeMap<>();
+        for (Map.Entry<AbstractMessageConsumer<?, ?, ?>, Messages> entry : messagesByConsumer.entrySet()) {
+            Messages messages = entry.getValue();
+            try {
+                entry.getKey().consume(messages.payloads, messages.parsedPayloads);
+            } catch (RuntimeException e) {
+                // the other consumers are not affected, only the messages of the failed one are reported
+                for (Integer index : messages.indexes) {
+                    failures.putIfAbsent(index, e);
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Subscriber of the batches of incoming messages, requesting the next batch once the previous one is consumed.
+     */
+    public Subscriber<MessageBatch> batchSubscriber() {
+        return new BatchSubscriber();
+    }
+
+    private JsonNode parse(String payload) {
+        try {
+            return reader.readTree(payload);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private Collection<AbstractMessageConsumer<?, ?, ?>> consumers(JsonNode event) {
+        List<AbstractMessageConsumer<?, ?, ?>> byType = consumersByType.getOrDefault(event.path("type").asText(), Collections.emptyList());
+        List<AbstractMessageConsumer<?, ?, ?>> bySource = consumersByType.getOrDefault(event.path("source").asText(), Collections.emptyList());
+        if (bySource.isEmpty() && unroutedConsumers.isEmpty()) {
+            return byType;
+        }
+        // a consumer accepting both the type and the source of a message consumes it once
+        Set<AbstractMessageConsumer<?, ?, ?>> consumers = new LinkedHashSet<>(byType);
+        consumers.addAll(bySource);
+        consumers.addAll(unroutedConsumers);
+        return consumers;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String payload) {
+        try {
+            dispatch(payload);
+        } catch (RuntimeException e) {
+            // a failing message must not cancel the subscription of all the consumers
+            logger.error("Error when dispatching message '{}'", payload, e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.error("Incoming messages stream failed", t);
+    }
+
+    @Override
+    public void onComplete() {
+        logger.debug("Incoming messages stream completed");
+    }
+
+    private static class Messages {
+
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<String> payloads = new ArrayList<>();
+        private final List<Object> parsedPayloads = new ArrayList<>();
+
+        void add(int index, String payload, Object parsedPayload) {
+            indexes.add(index);
+            payloads.add(payload);
+            parsedPayloads.add(parsedPayload);
+        }
+    }
+
+    private class BatchSubscriber implements Subscriber<MessageBatch> {
+
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(MessageBatch batch) {
+            try {
+                Map<Integer, RuntimeException> failures = consume(batch.payloads());
+                if (!failures.isEmpty()) {
+                    logger.error("Unable to consume {} of {} messages, they are reported to the incoming stream as failed",
+                                 failures.size(), batch.payloads().size(), failures.values().iterator().next());
+                }
+                batch.complete(new TreeMap<>(failures));
+            } catch (RuntimeException e) {
+                // the batch is left unacknowledged, a failing batch must not cancel the subscription
+                logger.error("Error when completing batch of {} messages", batch.payloads().size(), e);
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            CloudEventDispatcher.this.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            CloudEventDispatcher.this.onComplete();
+        }
+    }
+}
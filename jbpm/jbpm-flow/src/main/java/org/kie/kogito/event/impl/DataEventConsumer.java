@@ -17,6 +17,7 @@ package org.kie.kogito.event.impl;
 import java.util.function.Function;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.kie.kogito.Application;
 import org.kie.kogito.Model;
@@ -42,19 +43,31 @@ public class DataEventConsumer<M extends Model, D> extends JacksonEventConsumer<
     @Override
     public void consume(Application application, Process<M> process, String payload, String trigger) {
         try {
-            D eventData = mapper.readValue(payload, dataEventClass);
-            M model = function.apply(eventData);
-            UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
-                logger.debug(
-                    "Received message without reference id, staring new process instance with trigger '{}'",
-                    trigger);
-                ProcessInstance<M> pi = process.createInstance(model);
-                pi.start(trigger, null);
-                return null;
-            });
+            consumeEvent(application, process, mapper.readValue(payload, dataEventClass), trigger);
         } catch (JsonProcessingException e) {
             logger.error("Error when consuming message for process {}", process.id(), e);
         }
     }
 
+    @Override
+    protected void consume(Application application, Process<M> process, String payload, JsonNode parsedPayload, String trigger) {
+        try {
+            consumeEvent(application, process, mapper.treeToValue(parsedPayload, dataEventClass), trigger);
+        } catch (JsonProcessingException e) {
+            logger.error("Error when consuming message for process {}", process.id(), e);
+        }
+    }
+
+    private void consumeEvent(Application application, Process<M> process, D eventData, String trigger) {
+        M model = function.apply(eventData);
+        UnitOfWorkExecutor.executeInUnitOfWork(application.unitOfWorkManager(), () -> {
+            logger.debug(
+                "Received message without reference id, staring new process instance with trigger '{}'",
+                trigger);
+            ProcessInstance<M> pi = process.createInstance(model);
+            pi.start(trigger, null);
+            return null;
+        });
+    }
+
 }
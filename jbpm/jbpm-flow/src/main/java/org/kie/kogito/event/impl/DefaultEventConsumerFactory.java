@@ -35,12 +35,16 @@ public class DefaultEventConsumerFactory implements EventConsumerFactory {
 
     public DefaultEventConsumerFactory(ObjectMapper mapper) {
         if(mapper == null) {
-            this.mapper = new ObjectMapper().setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+            this.mapper = defaultMapper();
         } else {
             this.mapper = mapper;
         }
     }
 
+    static ObjectMapper defaultMapper() {
+        return new ObjectMapper().setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+    }
+
     public <M extends Model, D, T extends AbstractProcessDataEvent<D>> EventConsumer<M> get(Function<D, M> function,
             Class<D> dataEventClass, Class<T> cloudEventClass, Optional<Boolean> cloudEvents) {
         return cloudEvents.orElse(true)
@@ -14,8 +14,11 @@
  */
 package org.kie.kogito.event.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.kie.kogito.Application;
 import org.kie.kogito.Model;
+import org.kie.kogito.process.Process;
 import org.kie.kogito.services.event.EventConsumer;
 
 public abstract class JacksonEventConsumer<M extends Model> implements EventConsumer<M> {
@@ -25,4 +28,18 @@ public abstract class JacksonEventConsumer<M extends Model> implements EventCons
     public JacksonEventConsumer(ObjectMapper mapper) {
         this.mapper = mapper;
     }
+
+    @Override
+    public void consume(Application application, Process<M> process, String payload, Object parsedPayload, String trigger) {
+        if (parsedPayload instanceof JsonNode) {
+            consume(application, process, payload, (JsonNode) parsedPayload, trigger);
+        } else {
+            consume(application, process, payload, trigger);
+        }
+    }
+
+    /**
+     * Consumes a payload parsed into a tree, so it is bound to the event classes only by the consumers accepting it.
+     */
+    protected abstract void consume(Application application, Process<M> process, String payload, JsonNode parsedPayload, String trigger);
 }
@@ -15,9 +15,12 @@
 
 package org.kie.kogito.process.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,22 +29,31 @@ import java.util.stream.StreamSupport;
 import org.kie.api.event.process.ProcessEventListener;
 import org.kie.kogito.event.EventPublisher;
 import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.outbox.Outbox;
 import org.kie.kogito.process.ProcessConfig;
 import org.kie.kogito.process.ProcessEventListenerConfig;
 import org.kie.kogito.process.WorkItemHandlerConfig;
+import org.kie.kogito.services.outbox.OutboxEventPublisher;
+import org.kie.kogito.services.outbox.OutboxJobsService;
+import org.kie.kogito.services.outbox.OutboxRelay;
+import org.kie.kogito.services.uow.CoalescingUnitOfWorkFactory;
 import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
 import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.services.uow.ProcessInstanceWriteCoalescer;
 import org.kie.kogito.signal.SignalManagerHub;
 import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.services.jobs.impl.BatchingJobsService;
 import org.kie.services.signal.DefaultSignalManagerHub;
 
-public abstract class AbstractProcessConfig implements ProcessConfig {
+public abstract class AbstractProcessConfig implements ProcessConfig, AutoCloseable {
 
     private final WorkItemHandlerConfig workItemHandlerConfig;
     private final SignalManagerHub signalManagerHub = new DefaultSignalManagerHub();
     private final ProcessEventListenerConfig processEventListenerConfig;
     private final UnitOfWorkManager unitOfWorkManager;
     private final JobsService jobsService;
+    private final OutboxRelay outboxRelay;
+    private final CoalescingUnitOfWorkFactory coalescingUnitOfWorkFactory;
 
     protected AbstractProcessConfig(
             Iterable<WorkItemHandlerConfig> workItemHandlerConfig,
@@ -51,15 +63,107 @@ public abstract class AbstractProcessConfig implements ProcessConfig {
             Iterable<JobsService> jobsService,
             Iterable<EventPublisher> eventPublishers,
             String kogitoService) {
+        this(workItemHandlerConfig,
+             processEventListenerConfigs,
+             processEventListeners,
+             unitOfWorkManager,
+             jobsService,
+             eventPublishers,
+             Collections.emptyList(),
+             kogitoService);
+    }
+
+    /**
+     * When an outbox is given, events and process instance job requests are stored in it as part
+     * of the unit of work and delivered to the publishers and jobs service by a background relay.
+     */
+    protected AbstractProcessConfig(
+            Iterable<WorkItemHandlerConfig> workItemHandlerConfig,
+            Iterable<ProcessEventListenerConfig> processEventListenerConfigs,
+            Iterable<ProcessEventListener> processEventListeners,
+            Iterable<UnitOfWorkManager> unitOfWorkManager,
+            Iterable<JobsService> jobsService,
+            Iterable<EventPublisher> eventPublishers,
+            Iterable<Outbox> outbox,
+            String kogitoService) {
+        this(workItemHandlerConfig,
+             processEventListenerConfigs,
+             processEventListeners,
+             unitOfWorkManager,
+             jobsService,
+             eventPublishers,
+             outbox,
+             false,
+             kogitoService);
+    }
+
+    /**
+     * When batching of jobs is enabled and no outbox is given, process instance job requests made during
+     * a unit of work are sent to the jobs service in one call once the unit of work ends.
+     */
+    protected AbstractProcessConfig(
+            Iterable<WorkItemHandlerConfig> workItemHandlerConfig,
+            Iterable<ProcessEventListenerConfig> processEventListenerConfigs,
+            Iterable<ProcessEventListener> processEventListeners,
+            Iterable<UnitOfWorkManager> unitOfWorkManager,
+            Iterable<JobsService> jobsService,
+            Iterable<EventPublisher> eventPublishers,
+            Iterable<Outbox> outbox,
+            boolean batchJobs,
+            String kogitoService) {
+        this(workItemHandlerConfig,
+             processEventListenerConfigs,
+             processEventListeners,
+             unitOfWorkManager,
+             jobsService,
+             eventPublishers,
+             outbox,
+             batchJobs,
+             0,
+             kogitoService);
+    }
+
+    /**
+     * When a write coalescing window in milliseconds is given and no unit of work manager is provided,
+     * writes of process instances made by concurrent units of work within the window are stored together,
+     * see {@link CoalescingUnitOfWorkFactory}.
+     */
+    protected AbstractProcessConfig(
+            Iterable<WorkItemHandlerConfig> workItemHandlerConfig,
+            Iterable<ProcessEventListenerConfig> processEventListenerConfigs,
+            Iterable<ProcessEventListener> processEventListeners,
+            Iterable<UnitOfWorkManager> unitOfWorkManager,
+            Iterable<JobsService> jobsService,
+            Iterable<EventPublisher> eventPublishers,
+            Iterable<Outbox> outbox,
+            boolean batchJobs,
+            long writeCoalescingWindow,
+            String kogitoService) {
 
         this.workItemHandlerConfig = orDefault(workItemHandlerConfig, DefaultWorkItemHandlerConfig::new);
         this.processEventListenerConfig = merge(processEventListenerConfigs, processEventListeners);
+        CoalescingUnitOfWorkFactory coalescingFactory = writeCoalescingWindow > 0 && !unitOfWorkManager.iterator().hasNext()
+                ? new CoalescingUnitOfWorkFactory(writeCoalescingWindow, TimeUnit.MILLISECONDS, ProcessInstanceWriteCoalescer.DEFAULT_MAX_BATCH_SIZE)
+                : null;
+        this.coalescingUnitOfWorkFactory = coalescingFactory;
         this.unitOfWorkManager = orDefault(unitOfWorkManager,
                                            () -> new DefaultUnitOfWorkManager(
-                                                   new CollectingUnitOfWorkFactory()));
-        this.jobsService = orDefault(jobsService, () -> null);
-
-        eventPublishers.forEach(publisher -> unitOfWorkManager().eventManager().addPublisher(publisher));
+                                                   coalescingFactory == null ? new CollectingUnitOfWorkFactory() : coalescingFactory));
+        JobsService configuredJobsService = orDefault(jobsService, () -> null);
+        Outbox configuredOutbox = orDefault(outbox, () -> null);
+
+        if (configuredOutbox == null) {
+            this.jobsService = configuredJobsService == null || !batchJobs ? configuredJobsService : new BatchingJobsService(this.unitOfWorkManager, configuredJobsService);
+            this.outboxRelay = null;
+            eventPublishers.forEach(publisher -> unitOfWorkManager().eventManager().addPublisher(publisher));
+        } else {
+            List<EventPublisher> publishers = new ArrayList<>();
+            eventPublishers.forEach(publishers::add);
+            this.jobsService = configuredJobsService == null ? null : new OutboxJobsService(configuredOutbox, this.unitOfWorkManager, configuredJobsService);
+            this.outboxRelay = new OutboxRelay(configuredOutbox, publishers, configuredJobsService);
+            this.outboxRelay.start(OutboxRelay.DEFAULT_INTERVAL_MS);
+            unitOfWorkManager().eventManager().addPublisher(new OutboxEventPublisher(configuredOutbox, publishers));
+        }
         unitOfWorkManager().eventManager().setService(kogitoService);
     }
 
@@ -88,6 +192,23 @@ public abstract class AbstractProcessConfig implements ProcessConfig {
         return jobsService;
     }
 
+    /**
+     * @return relay delivering outbox entries or null when no outbox is configured
+     */
+    public OutboxRelay outboxRelay() {
+        return outboxRelay;
+    }
+
+    /**
+     * Stops the writers of coalesced process instance writes, batches already collected are still written.
+     */
+    @Override
+    public void close() {
+        if (coalescingUnitOfWorkFactory != null) {
+            coalescingUnitOfWorkFactory.close();
+        }
+    }
+
     public org.kie.kogito.Addons addons() {
         return new org.kie.kogito.Addons(Arrays.asList());
     }
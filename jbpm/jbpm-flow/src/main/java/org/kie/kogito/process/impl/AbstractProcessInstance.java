@@ -29,7 +29,9 @@ import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.InternalProcessRuntime;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.ruleflow.core.RuleFlowProcess;
 import org.jbpm.workflow.instance.NodeInstance;
 import org.jbpm.workflow.instance.NodeInstanceContainer;
@@ -53,6 +55,7 @@ import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessError;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
+import org.kie.kogito.process.ProcessInstanceWrite;
 import org.kie.kogito.process.Signal;
 import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.flexible.AdHocFragment;
@@ -77,10 +80,15 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
 
     protected ProcessError processError;
 
+    protected long version;
+
     protected Supplier<WorkflowProcessInstance> reloadSupplier;
 
     protected CompletionEventListener completionEventListener;
 
+    // variables the model is bound to once it is accessed, so variables are unmarshalled only when used
+    private Map<String, Object> unboundVariables;
+
     public AbstractProcessInstance(AbstractProcess<T> process, T variables, ProcessRuntime rt) {
         this(process, variables, null, rt);
     }
@@ -108,7 +116,7 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         this.process = process;
         this.variables = variables;
         syncProcessInstance((WorkflowProcessInstance) wpi);
-        unbind(variables, processInstance.getVariables());
+        unbindLazily(processInstance);
     }
 
     public AbstractProcessInstance(AbstractProcess<T> process, T variables, ProcessRuntime rt, org.kie.api.runtime.process.WorkflowProcessInstance wpi) {
@@ -133,7 +141,7 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
             }
         }
 
-        unbind(variables, processInstance.getVariables());
+        unbindLazily(processInstance);
     }
 
     private void addCompletionEventListener() {
@@ -177,6 +185,19 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         return processInstance;
     }
 
+    /**
+     * Version of the stored process instance this instance was loaded from or last written as, used by
+     * persistence implementations for optimistic locking; 0 when not versioned.
+     */
+    @Override
+    public long version() {
+        return version;
+    }
+
+    public void internalSetVersion(long version) {
+        this.version = version;
+    }
+
     public void internalRemoveProcessInstance(Supplier<WorkflowProcessInstance> reloadSupplier) {
         this.reloadSupplier = reloadSupplier;
         this.status = processInstance.getState();
@@ -210,8 +231,8 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         this.id = processInstance.getId();
         addCompletionEventListener();
         org.kie.api.runtime.process.ProcessInstance processInstance = getProcessRuntime().startProcessInstance(this.id, trigger);
-        addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).create(pi.id(), pi));
-        unbind(variables, processInstance.getVariables());
+        addToUnitOfWork(ProcessInstanceWrite.Type.CREATE);
+        unbindLazily((WorkflowProcessInstance) processInstance);
         if (this.processInstance != null) {
             this.status = this.processInstance.getState();
         }
@@ -222,13 +243,20 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         ((InternalProcessRuntime) getProcessRuntime()).getUnitOfWorkManager().currentUnitOfWork().intercept(new ProcessInstanceWorkUnit(this, action));
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected void addToUnitOfWork(ProcessInstanceWrite.Type type) {
+        ProcessInstanceWrite<T> write = new ProcessInstanceWrite<>(type, id(), this);
+        ((InternalProcessRuntime) getProcessRuntime()).getUnitOfWorkManager().currentUnitOfWork()
+                .intercept(new ProcessInstanceWorkUnit(this, write, pi -> write.perform((MutableProcessInstances<T>) process.instances())));
+    }
+
     @Override
     public void abort() {
         String pid = processInstance().getId();
-        unbind(variables, processInstance().getVariables());
+        unbindLazily(processInstance());
         getProcessRuntime().abortProcessInstance(pid);
         this.status = processInstance.getState();
-        addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).remove(pi.id()));
+        addToUnitOfWork(ProcessInstanceWrite.Type.REMOVE);
     }
 
     private ProcessRuntime getProcessRuntime() {
@@ -255,9 +283,23 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
 
     @Override
     public T variables() {
+        if (unboundVariables != null) {
+            Map<String, Object> vmap = unboundVariables;
+            unboundVariables = null;
+            unbind(variables, new HashMap<>(vmap));
+        }
         return variables;
     }
 
+    /**
+     * Binds variables of given process instance to the model once it is accessed. The variable scope view
+     * remains valid once the process instance is disconnected and unmarshalls only the variables it reads.
+     */
+    private void unbindLazily(WorkflowProcessInstance pi) {
+        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) pi.getContextInstance(VariableScope.VARIABLE_SCOPE);
+        unboundVariables = variableScopeInstance == null ? pi.getVariables() : variableScopeInstance.getVariables();
+    }
+
     @Override
     public int status() {
         return this.status;
@@ -290,8 +332,8 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         for (Entry<String, Object> entry : map.entrySet()) {
             processInstance().setVariable(entry.getKey(), entry.getValue());
         }
-        this.variables.update(map);
-        addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).update(pi.id(), pi));
+        variables().update(map);
+        addToUnitOfWork(ProcessInstanceWrite.Type.UPDATE);
         return variables;
     }
 
@@ -320,7 +362,7 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
             processInstance.setReferenceId(referenceId);
         }
         triggerNode(nodeId);
-        unbind(variables, processInstance.getVariables());
+        unbindLazily(processInstance);
         if (processInstance != null) {
             this.status = processInstance.getState();
         }
@@ -341,7 +383,7 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
 
         nodeInstanceContainerNode.getNodeInstance(node).trigger(null, org.jbpm.workflow.core.Node.CONNECTION_DEFAULT_TYPE);
 
-        addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).update(pi.id(), pi));
+        addToUnitOfWork(ProcessInstanceWrite.Type.UPDATE);
     }
 
     @Override
@@ -453,11 +495,11 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
         if (processInstance.getState() != ProcessInstance.STATE_ACTIVE && processInstance.getState() != ProcessInstance.STATE_ERROR) {
             removeCompletionListener();
             syncProcessInstance(processInstance);
-            addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).remove(pi.id()));
+            addToUnitOfWork(ProcessInstanceWrite.Type.REMOVE);
         } else {
-            addToUnitOfWork(pi -> ((MutableProcessInstances<T>) process.instances()).update(pi.id(), pi));
+            addToUnitOfWork(ProcessInstanceWrite.Type.UPDATE);
         }
-        unbind(this.variables, processInstance().getVariables());
+        unbindLazily(processInstance());
         this.status = processInstance.getState();
     }
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory index of process instance ids keyed by the event type they are waiting on.
+ */
+public class EventSubscriptionIndex {
+
+    private final Map<String, Set<String>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    public void subscribe(String id, Set<String> eventTypes) {
+        unsubscribe(id);
+        if (eventTypes.isEmpty()) {
+            return;
+        }
+        subscriptions.put(id, eventTypes);
+        for (String eventType : eventTypes) {
+            subscribers.compute(eventType, (k, ids) -> {
+                Set<String> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                updated.add(id);
+                return updated;
+            });
+        }
+    }
+
+    public void unsubscribe(String id) {
+        Set<String> eventTypes = subscriptions.remove(id);
+        if (eventTypes == null) {
+            return;
+        }
+        for (String eventType : eventTypes) {
+            subscribers.computeIfPresent(eventType, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public Set<String> subscribers(String eventType) {
+        Set<String> ids = new LinkedHashSet<>(subscribers.getOrDefault(eventType, Collections.emptySet()));
+        ids.addAll(subscribers.getOrDefault(ProcessInstanceEventTypes.ANY_EVENT, Collections.emptySet()));
+        return ids;
+    }
+
+    public void clear() {
+        subscribers.clear();
+        subscriptions.clear();
+    }
+}
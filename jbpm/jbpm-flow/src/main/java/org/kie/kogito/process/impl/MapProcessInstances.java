@@ -16,8 +16,10 @@
 package org.kie.kogito.process.impl;
 
 import java.util.Collection;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.ProcessInstance;
@@ -27,6 +29,7 @@ import org.kie.kogito.process.ProcessInstanceReadMode;
 class MapProcessInstances<T> implements MutableProcessInstances<T> {
 
     private final ConcurrentHashMap<String, ProcessInstance<T>> instances = new ConcurrentHashMap<>();
+    private final EventSubscriptionIndex subscriptions = new EventSubscriptionIndex();
 
     @Override
     public Integer size() {
@@ -43,6 +46,24 @@ class MapProcessInstances<T> implements MutableProcessInstances<T> {
         return instances.values();
     }
 
+    @Override
+    public Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode, int page, int size) {
+        return instances.values()
+                .stream()
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        return subscriptions.subscribers(eventType)
+                .stream()
+                .map(instances::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void create(String id, ProcessInstance<T> instance) {
         if (isActive(instance)) {
@@ -50,6 +71,7 @@ class MapProcessInstances<T> implements MutableProcessInstances<T> {
             if (existing != null) {
                 throw new ProcessInstanceDuplicatedException(id);
             }
+            subscriptions.subscribe(id, ProcessInstanceEventTypes.of(instance));
         }
     }
 
@@ -57,12 +79,14 @@ class MapProcessInstances<T> implements MutableProcessInstances<T> {
     public void update(String id, ProcessInstance<T> instance) {
         if (isActive(instance)) {
             instances.put(id, instance);
+            subscriptions.subscribe(id, ProcessInstanceEventTypes.of(instance));
         }
     }
 
     @Override
     public void remove(String id) {
         instances.remove(id);
+        subscriptions.unsubscribe(id);
     }
 
     @Override
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jbpm.workflow.core.WorkflowProcess;
+import org.jbpm.workflow.core.node.EventNode;
+import org.kie.api.definition.process.Node;
+import org.kie.kogito.process.EventDescription;
+import org.kie.kogito.process.ProcessInstance;
+
+/**
+ * Computes the event types a process instance is currently waiting on, used by
+ * persistence implementations to maintain an index of signal subscribers.
+ * <p>
+ * Whenever the exact set of accepted events cannot be determined (dynamic processes
+ * or event types given as expressions) the instance is subscribed to {@link #ANY_EVENT}
+ * so that it is still selected for every broadcast signal.
+ */
+public final class ProcessInstanceEventTypes {
+
+    public static final String ANY_EVENT = "*";
+
+    private static final String EXPRESSION_START = "#{";
+
+    private ProcessInstanceEventTypes() {
+    }
+
+    public static Set<String> of(ProcessInstance<?> instance) {
+        if (instance.status() != ProcessInstance.STATE_ACTIVE) {
+            return Collections.emptySet();
+        }
+        Set<String> eventTypes = new LinkedHashSet<>();
+        for (EventDescription<?> description : instance.events()) {
+            add(eventTypes, description.getEvent());
+        }
+        if (instance.process() instanceof AbstractProcess) {
+            org.kie.api.definition.process.Process definition = ((AbstractProcess<?>) instance.process()).process();
+            if (definition instanceof WorkflowProcess) {
+                WorkflowProcess workflowProcess = (WorkflowProcess) definition;
+                if (workflowProcess.isDynamic()) {
+                    eventTypes.add(ANY_EVENT);
+                }
+                for (Node node : workflowProcess.getNodes()) {
+                    // event nodes without incoming connections are triggered by any active instance
+                    if (node instanceof EventNode && node.getIncomingConnections().isEmpty()) {
+                        add(eventTypes, ((EventNode) node).getType());
+                    }
+                }
+            }
+        }
+        return eventTypes;
+    }
+
+    public static boolean matches(Collection<String> eventTypes, String eventType) {
+        return eventTypes.contains(eventType) || eventTypes.contains(ANY_EVENT);
+    }
+
+    private static void add(Set<String> eventTypes, String eventType) {
+        if (eventType == null || eventType.contains(EXPRESSION_START)) {
+            eventTypes.add(ANY_EVENT);
+        } else {
+            eventTypes.add(eventType);
+        }
+    }
+}
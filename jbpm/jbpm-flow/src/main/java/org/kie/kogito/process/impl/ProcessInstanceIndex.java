@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.kie.kogito.process.ProcessInstanceQuery;
+
+/**
+ * In memory index of process instance ids keyed by their status and values of indexed variables,
+ * see {@link ProcessInstanceIndexes}.
+ */
+public class ProcessInstanceIndex {
+
+    private final Map<String, Set<String>> instances = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> entries = new ConcurrentHashMap<>();
+
+    public void index(String id, int status, Map<String, String> variables) {
+        index(id, ProcessInstanceIndexes.keys(status, variables));
+    }
+
+    public void index(String id, Set<String> keys) {
+        remove(id);
+        entries.put(id, keys);
+        for (String key : keys) {
+            instances.compute(key, (k, ids) -> {
+                Set<String> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                updated.add(id);
+                return updated;
+            });
+        }
+    }
+
+    public void remove(String id) {
+        Set<String> keys = entries.remove(id);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            instances.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public Set<String> find(ProcessInstanceQuery query) {
+        Set<String> ids = null;
+        for (String key : ProcessInstanceIndexes.keys(query)) {
+            Set<String> matching = instances.getOrDefault(key, Collections.emptySet());
+            if (ids == null) {
+                ids = new LinkedHashSet<>(matching);
+            } else {
+                ids.retainAll(matching);
+            }
+            if (ids.isEmpty()) {
+                return ids;
+            }
+        }
+        return ids == null ? new LinkedHashSet<>(entries.keySet()) : ids;
+    }
+
+    /**
+     * @return index keys of given instance or null if it is not indexed
+     */
+    public Set<String> keys(String id) {
+        return entries.get(id);
+    }
+
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public void clear() {
+        instances.clear();
+        entries.clear();
+    }
+}
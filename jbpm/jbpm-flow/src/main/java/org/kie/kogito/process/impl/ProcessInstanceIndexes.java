@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jbpm.process.core.ContextContainer;
+import org.jbpm.process.core.context.variable.Variable;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.kie.kogito.MapOutput;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceQuery;
+
+/**
+ * Computes the values persistence implementations index to resolve {@link ProcessInstanceQuery}
+ * without loading process instances: the status of the instance and the values of process
+ * variables tagged with {@link Variable#INDEXED_TAG}.
+ * <p>
+ * Index entries are also represented as keys in the form <code>status:&lt;status&gt;</code> and
+ * <code>variable:&lt;name&gt;=&lt;value&gt;</code>, an instance matches a query when it has all the
+ * keys of the query.
+ * <p>
+ * Every instance has a status, so indexing it puts all instances of a process in the index. It can be
+ * turned off with the <code>kogito.persistence.index.status</code> system property, queries by status
+ * then filter the instances instead and processes without indexed variables are not indexed at all.
+ */
+public final class ProcessInstanceIndexes {
+
+    public static final String STATUS_INDEX_PROPERTY = "kogito.persistence.index.status";
+
+    private static final String STATUS_KEY = "status:";
+    private static final String VARIABLE_KEY = "variable:";
+    private static final boolean STATUS_INDEXED = Boolean.parseBoolean(System.getProperty(STATUS_INDEX_PROPERTY, "true"));
+
+    private ProcessInstanceIndexes() {
+    }
+
+    public static Set<String> indexedVariables(Process<?> process) {
+        if (!(process instanceof AbstractProcess)) {
+            return Collections.emptySet();
+        }
+        org.kie.api.definition.process.Process definition = ((AbstractProcess<?>) process).process();
+        if (!(definition instanceof ContextContainer)) {
+            return Collections.emptySet();
+        }
+        VariableScope variableScope = (VariableScope) ((ContextContainer) definition).getDefaultContext(VariableScope.VARIABLE_SCOPE);
+        if (variableScope == null) {
+            return Collections.emptySet();
+        }
+        Set<String> indexed = new LinkedHashSet<>();
+        for (Variable variable : variableScope.getVariables()) {
+            if (variable.hasTag(Variable.INDEXED_TAG)) {
+                indexed.add(variable.getName());
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * @return values of indexed variables of given instance, variables without value are left out
+     */
+    public static Map<String, String> of(ProcessInstance<?> instance) {
+        Set<String> indexed = indexedVariables(instance.process());
+        if (indexed.isEmpty() || !(instance.variables() instanceof MapOutput)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> variables = ((MapOutput) instance.variables()).toMap();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String name : indexed) {
+            String value = ProcessInstanceQuery.indexValue(variables.get(name));
+            if (value != null) {
+                values.put(name, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return true if instances of given process have index keys, otherwise the index does not need to be maintained
+     */
+    public static boolean isIndexed(Process<?> process) {
+        return STATUS_INDEXED || !indexedVariables(process).isEmpty();
+    }
+
+    /**
+     * @return true if the status and all variables used by the query are indexed for given process
+     */
+    public static boolean isIndexed(Process<?> process, ProcessInstanceQuery query) {
+        if (query.status() != null && !STATUS_INDEXED) {
+            return false;
+        }
+        return query.variables().isEmpty() || indexedVariables(process).containsAll(query.variables().keySet());
+    }
+
+    public static Set<String> keys(int status, Map<String, String> variables) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (STATUS_INDEXED) {
+            keys.add(statusKey(status));
+        }
+        variables.forEach((name, value) -> keys.add(variableKey(name, value)));
+        return keys;
+    }
+
+    public static Set<String> keys(ProcessInstanceQuery query) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (query.status() != null) {
+            keys.add(statusKey(query.status()));
+        }
+        query.variables().forEach((name, value) -> keys.add(variableKey(name, value)));
+        return keys;
+    }
+
+    private static String statusKey(int status) {
+        return STATUS_KEY + status;
+    }
+
+    private static String variableKey(String name, String value) {
+        return VARIABLE_KEY + name + "=" + value;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Local cache of stored process instances placed in front of a remote store, so reading a process
+ * instance that did not change since it was last read does not go over the network.
+ * <p>
+ * Entries hold the stored form of a process instance (never the unmarshalled instance as it is mutable)
+ * together with its version. The least recently used entry is evicted once the maximum size is reached
+ * and entries expire after the given time since they were cached. Stores invalidate entries on every write
+ * and whenever they are notified about a change made by another node, the expiration bounds how long
+ * a missed notification can cause a stale read; writes are still guarded by the version check.
+ * <p>
+ * An entry read from the store is cached only if the same process instance was not invalidated since
+ * the read started (see {@link #stamp()}), so a read racing with a change notification never caches
+ * the old state. Invalidations are remembered for as many process instances as the cache holds, reads
+ * started before the oldest remembered invalidation are not cached.
+ *
+ * @param <V> stored form of process instances
+ */
+public class ProcessInstanceNearCache<V> {
+
+    private final long expireAfterWrite;
+    private final LongSupplier clock;
+    private final Map<String, CachedEntry<V>> entries;
+    // sequence number of the last invalidation of recently invalidated process instances, oldest first
+    private final Map<String, Long> invalidated;
+    private long invalidations;
+    // invalidations up to this one are not remembered anymore
+    private long forgotten;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize maximum number of cached process instances
+     * @param expireAfterWrite time after which a cached process instance is read from the store again,
+     * zero or negative for no expiration
+     * @param unit unit of the expiration time
+     */
+    public ProcessInstanceNearCache(int maxSize, long expireAfterWrite, TimeUnit unit) {
+        this(maxSize, unit.toNanos(expireAfterWrite), System::nanoTime);
+    }
+
+    ProcessInstanceNearCache(int maxSize, long expireAfterWrite, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size of near cache must be positive, was " + maxSize);
+        }
+        this.expireAfterWrite = expireAfterWrite;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CachedEntry<V>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -2424937416473520591L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedEntry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.invalidated = new LinkedHashMap<String, Long>() {
+
+            private static final long serialVersionUID = 6502370845062462345L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > maxSize) {
+                    forgotten = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return cached process instance or null if it is not cached or expired
+     */
+    public synchronized V get(String id) {
+        CachedEntry<V> entry = entries.get(id);
+        if (entry != null && expireAfterWrite > 0 && clock.getAsLong() - entry.cachedAt >= expireAfterWrite) {
+            entries.remove(id);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Returns the stamp to be passed to {@link #put(String, long, Object, long)} for process instances
+     * read from the store after this call.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches given process instance unless it was invalidated since the stamp was taken
+     * or a newer version is already cached.
+     *
+     * @param id id of the process instance
+     * @param version version of the process instance in the store
+     * @param value stored form of the process instance
+     * @param stamp value of {@link #stamp()} taken before the process instance was read or written
+     * @return true if the given version of the process instance is cached
+     */
+    public synchronized boolean put(String id, long version, V value, long stamp) {
+        Long invalidatedAt = invalidated.get(id);
+        if (forgotten > stamp || (invalidatedAt != null && invalidatedAt > stamp)) {
+            return false;
+        }
+        CachedEntry<V> current = entries.get(id);
+        if (current != null && current.version > version) {
+            return false;
+        }
+        entries.put(id, new CachedEntry<>(version, value, clock.getAsLong()));
+        return true;
+    }
+
+    public synchronized void invalidate(String id) {
+        invalidations++;
+        // removed first so the process instance becomes the most recently invalidated one
+        invalidated.remove(id);
+        invalidated.put(id, invalidations);
+        entries.remove(id);
+    }
+
+    /**
+     * Invalidates given process instance unless the given version is the cached one, used for change
+     * notifications that might refer to a change already known to this node.
+     */
+    public synchronized void invalidate(String id, long version) {
+        CachedEntry<V> current = entries.get(id);
+        if (current == null || current.version != version) {
+            invalidate(id);
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        forgotten = invalidations;
+        invalidated.clear();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private static class CachedEntry<V> {
+
+        private final long version;
+        private final V value;
+        private final long cachedAt;
+
+        private CachedEntry(long version, V value, long cachedAt) {
+            this.version = version;
+            this.value = value;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+import org.kie.kogito.process.MutableProcessInstances;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+import org.kie.kogito.process.ProcessInstanceOptimisticLockingException;
+import org.kie.kogito.process.ProcessInstanceQuery;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstanceSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process instances stored in two tiers: a hot store holding the working set (e.g. a data grid or memory)
+ * and a cheaper cold store (e.g. file system or a database). Instances not written for longer than the
+ * idle time are moved to the cold store by {@link #evictIdle()} and moved back on the first mutable read
+ * or write, reads made only to display instances are served from the cold store directly.
+ * <p>
+ * Idle time is tracked by each node for the instances it wrote, instances written by other nodes or before
+ * a restart are considered accessed when an eviction first sees them. When the hot store is versioned, an
+ * instance looking idle is moved only once it kept the same version for the idle time, so instances kept busy
+ * by other nodes stay in the hot store, and it is removed from the hot store only if still at the version
+ * that was copied, otherwise the eviction is undone. Instances are copied between the stores without the
+ * version of the store they come from, the store they are copied to applies its own.
+ *
+ * @param <T> type of the process variables
+ */
+public class TieredProcessInstances<T> implements MutableProcessInstances<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredProcessInstances.class);
+    private static final long UNKNOWN_VERSION = -1;
+
+    private final MutableProcessInstances<T> hot;
+    private final MutableProcessInstances<T> cold;
+    private final long idleTime;
+    private final LongSupplier clock;
+    // last write of instances in the hot store made or seen by this node
+    private final Map<String, Access> lastAccess = new ConcurrentHashMap<>();
+
+    /**
+     * Keeps the working set in memory, idle instances are moved to the given cold store.
+     */
+    public TieredProcessInstances(MutableProcessInstances<T> cold, long idleTime, TimeUnit unit) {
+        this(new MapProcessInstances<>(), cold, idleTime, unit);
+    }
+
+    /**
+     * @param hot store of the instances in use
+     * @param cold store of the idle instances
+     * @param idleTime time since the last write after which an instance is moved to the cold store
+     * @param unit unit of the idle time
+     */
+    public TieredProcessInstances(MutableProcessInstances<T> hot, MutableProcessInstances<T> cold, long idleTime, TimeUnit unit) {
+        this(hot, cold, unit.toNanos(idleTime), System::nanoTime);
+    }
+
+    TieredProcessInstances(MutableProcessInstances<T> hot, MutableProcessInstances<T> cold, long idleTime, LongSupplier clock) {
+        this.hot = hot;
+        this.cold = cold;
+        this.idleTime = idleTime;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@link #evictIdle()} periodically on given executor.
+     */
+    public ScheduledFuture<?> scheduleEviction(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdle();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to move idle process instances to the cold store", e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Moves instances idle for longer than the idle time from the hot to the cold store.
+     *
+     * @return number of moved instances
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        for (ProcessInstanceSummary summary : hot.summaries()) {
+            lastAccess.putIfAbsent(summary.id(), new Access(now, UNKNOWN_VERSION));
+        }
+        int evicted = 0;
+        for (Map.Entry<String, Access> entry : lastAccess.entrySet()) {
+            if (now - entry.getValue().time >= idleTime && evict(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean evict(String id, Access accessed) {
+        Optional<ProcessInstance<T>> found = hot.findById(id, ProcessInstanceReadMode.MUTABLE);
+        if (!found.isPresent()) {
+            lastAccess.remove(id, accessed);
+            return false;
+        }
+        ProcessInstance<T> instance = found.get();
+        long version = version(instance);
+        if (version != 0 && version != accessed.version) {
+            // written since this node last saw it, possibly by another node, it must stay at this version for the idle time
+            lastAccess.replace(id, accessed, new Access(clock.getAsLong(), version));
+            return false;
+        }
+        if (cold.exists(id)) {
+            // left over by an eviction interrupted before it removed the hot instance
+            cold.remove(id);
+        }
+        setVersion(instance, 0);
+        cold.create(id, instance);
+        if (!lastAccess.remove(id, accessed)) {
+            // written while it was being moved, the hot instance is the current one
+            cold.remove(id);
+            return false;
+        }
+        setVersion(instance, version);
+        try {
+            hot.removeIfUnchanged(id, instance);
+        } catch (ProcessInstanceOptimisticLockingException e) {
+            // written by another node while it was being moved, the hot instance is the current one
+            cold.remove(id);
+            touch(id);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<ProcessInstance<T>> findById(String id, ProcessInstanceReadMode mode) {
+        Optional<ProcessInstance<T>> instance = hot.findById(id, mode);
+        if (instance.isPresent() || mode == ProcessInstanceReadMode.READ_ONLY) {
+            return instance.isPresent() ? instance : cold.findById(id, mode);
+        }
+        Optional<ProcessInstance<T>> idle = cold.findById(id, mode);
+        if (!idle.isPresent()) {
+            return idle;
+        }
+        rehydrate(id, idle.get());
+        return hot.findById(id, mode);
+    }
+
+    private void rehydrate(String id, ProcessInstance<T> instance) {
+        setVersion(instance, 0);
+        try {
+            hot.create(id, instance);
+            touch(id);
+        } catch (ProcessInstanceDuplicatedException e) {
+            // moved back by another node, the hot instance is the current one
+        }
+        cold.remove(id);
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode) {
+        List<ProcessInstance<T>> values = new ArrayList<>(hot.values(mode));
+        values.addAll(cold.values(mode));
+        return values;
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> values(ProcessInstanceReadMode mode, int page, int size) {
+        return page(page, size, (p, s) -> hot.values(mode, p, s), (p, s) -> cold.values(mode, p, s));
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> query(ProcessInstanceQuery query, ProcessInstanceReadMode mode) {
+        List<ProcessInstance<T>> instances = new ArrayList<>(hot.query(query, mode));
+        instances.addAll(cold.query(query, mode));
+        return instances;
+    }
+
+    @Override
+    public Collection<ProcessInstanceSummary> summaries(int page, int size) {
+        return page(page, size, hot::summaries, cold::summaries);
+    }
+
+    /**
+     * Pages over the hot instances followed by the cold ones.
+     */
+    private <R> List<R> page(int page, int size, BiFunction<Integer, Integer, Collection<R>> hotPage, BiFunction<Integer, Integer, Collection<R>> coldPage) {
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        long skip = (long) page * size;
+        int hotSize = hot.size();
+        List<R> result = new ArrayList<>();
+        if (skip < hotSize) {
+            result.addAll(hotPage.apply(page, size));
+        }
+        int needed = size - result.size();
+        if (needed > 0) {
+            // cold pages are not aligned with the requested one, at most two of them cover it
+            long coldSkip = Math.max(0, skip - hotSize);
+            int first = (int) (coldSkip / size);
+            int offset = (int) (coldSkip % size);
+            List<R> cold = new ArrayList<>(coldPage.apply(first, size));
+            if (offset + needed > size && cold.size() == size) {
+                cold.addAll(coldPage.apply(first + 1, size));
+            }
+            result.addAll(cold.subList(Math.min(offset, cold.size()), Math.min(offset + needed, cold.size())));
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<ProcessInstance<T>> waitingForEventType(String eventType, ProcessInstanceReadMode mode) {
+        List<ProcessInstance<T>> instances = new ArrayList<>(hot.waitingForEventType(eventType, mode));
+        instances.addAll(cold.waitingForEventType(eventType, mode));
+        return instances;
+    }
+
+    @Override
+    public void create(String id, ProcessInstance<T> instance) {
+        if (cold.exists(id)) {
+            throw new ProcessInstanceDuplicatedException(id);
+        }
+        hot.create(id, instance);
+        touch(id);
+    }
+
+    @Override
+    public void update(String id, ProcessInstance<T> instance) {
+        if (!hot.exists(id) && cold.exists(id)) {
+            // instance read before it was moved to the cold store or read from it in bulk
+            rehydrate(id, instance);
+        } else {
+            hot.update(id, instance);
+            touch(id);
+        }
+    }
+
+    private void touch(String id) {
+        lastAccess.put(id, new Access(clock.getAsLong(), UNKNOWN_VERSION));
+    }
+
+    @Override
+    public void remove(String id) {
+        lastAccess.remove(id);
+        hot.remove(id);
+        if (cold.exists(id)) {
+            cold.remove(id);
+        }
+    }
+
+    @Override
+    public void removeIfUnchanged(String id, ProcessInstance<T> instance) {
+        lastAccess.remove(id);
+        if (hot.exists(id)) {
+            hot.removeIfUnchanged(id, instance);
+        } else {
+            cold.removeIfUnchanged(id, instance);
+        }
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return hot.exists(id) || cold.exists(id);
+    }
+
+    @Override
+    public boolean isActive(ProcessInstance<T> instance) {
+        return hot.isActive(instance);
+    }
+
+    @Override
+    public Integer size() {
+        return hot.size() + cold.size();
+    }
+
+    private static long version(ProcessInstance<?> instance) {
+        return instance instanceof AbstractProcessInstance ? ((AbstractProcessInstance<?>) instance).version() : 0;
+    }
+
+    private static void setVersion(ProcessInstance<?> instance, long version) {
+        if (instance instanceof AbstractProcessInstance) {
+            ((AbstractProcessInstance<?>) instance).internalSetVersion(version);
+        }
+    }
+
+    /**
+     * Last write of an instance made or seen by this node, with the version it was seen at when known.
+     */
+    private static final class Access {
+
+        private final long time;
+        private final long version;
+
+        private Access(long time, long version) {
+            this.time = time;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.Application;
+import org.kie.kogito.Model;
+import org.kie.kogito.event.MessageBatch;
+import org.kie.kogito.process.Process;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+import org.kie.kogito.process.ProcessInstances;
+import org.kie.kogito.services.event.AbstractProcessDataEvent;
+import org.kie.kogito.services.event.EventConsumerFactory;
+import org.kie.kogito.services.event.impl.AbstractMessageConsumer;
+import org.kie.kogito.services.event.impl.PartitionedExecutor;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CloudEventDispatcherTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudEventDispatcherTest.class);
+
+    public static class DummyEvent {
+
+        private String dummyField;
+
+        public String getDummyField() {
+            return dummyField;
+        }
+    }
+
+    public static class DummyModel implements Model {
+
+        private DummyEvent dummyEvent;
+
+        public DummyModel(DummyEvent dummyEvent) {
+            this.dummyEvent = dummyEvent;
+        }
+
+        @Override
+        public void fromMap(Map<String, Object> params) {
+            this.dummyEvent = (DummyEvent) params.get("dummyEvent");
+        }
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Collections.singletonMap("dummyEvent", dummyEvent);
+        }
+
+        @Override
+        public void update(Map<String, Object> params) {
+            fromMap(params);
+        }
+    }
+
+    public static class DummyCloudEvent extends AbstractProcessDataEvent<DummyEvent> {
+    }
+
+    private static class DummyMessageConsumer extends AbstractMessageConsumer<DummyModel, DummyEvent, DummyCloudEvent> {
+
+        DummyMessageConsumer(Application application, Process<DummyModel> process, String trigger, EventConsumerFactory factory, boolean cloudEvents) {
+            super(application, process, DummyEvent.class, DummyCloudEvent.class, trigger, factory, Optional.of(cloudEvents));
+        }
+
+        @Override
+        protected Model eventToModel(DummyEvent event) {
+            return new DummyModel(event);
+        }
+    }
+
+    // counts the payloads bound to event classes
+    private static class CountingObjectMapper extends ObjectMapper {
+
+        private final AtomicInteger bound = new AtomicInteger();
+
+        CountingObjectMapper() {
+            super(DefaultEventConsumerFactory.defaultMapper());
+        }
+
+        @Override
+        public <T> T readValue(String content, Class<T> valueType) throws JsonProcessingException {
+            bound.incrementAndGet();
+            return super.readValue(content, valueType);
+        }
+
+        @Override
+        public <T> T treeToValue(TreeNode n, Class<T> valueType) throws JsonProcessingException {
+            bound.incrementAndGet();
+            return super.treeToValue(n, valueType);
+        }
+    }
+
+    private Application application;
+    private CountingObjectMapper mapper;
+    private EventConsumerFactory factory;
+    private CloudEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setup() {
+        application = mock(Application.class);
+        when(application.unitOfWorkManager()).thenReturn(new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()));
+        mapper = new CountingObjectMapper();
+        factory = new DefaultEventConsumerFactory(mapper);
+        dispatcher = new CloudEventDispatcher(mapper);
+    }
+
+    @Test
+    void testMessageDispatchedByType() {
+        Process<DummyModel> first = process();
+        Process<DummyModel> second = process();
+        dispatcher.register(new DummyMessageConsumer(application, first, "first", factory, true));
+        dispatcher.register(new DummyMessageConsumer(application, second, "second", factory, true));
+
+        dispatcher.dispatch(payload("second"));
+
+        verify(first, never()).createInstance(any());
+        verify(second).createInstance(any());
+        assertThat(mapper.bound).hasValue(1);
+    }
+
+    @Test
+    void testMessageDispatchedBySource() {
+        Process<DummyModel> process = process();
+        dispatcher.register(new DummyMessageConsumer(application, process, "trigger", factory, true));
+
+        dispatcher.dispatch("{\"type\": \"other\", \"source\": \"trigger\", \"data\": {\"dummyField\": \"pepe\"}}");
+        dispatcher.dispatch(payload("unknown"));
+
+        verify(process).createInstance(any());
+        assertThat(mapper.bound).hasValue(1);
+    }
+
+    @Test
+    void testDataEventsDispatchedToEveryDataConsumer() {
+        Process<DummyModel> cloudEvents = process();
+        Process<DummyModel> dataEvents = process();
+        dispatcher.register(new DummyMessageConsumer(application, cloudEvents, "trigger", factory, true));
+        dispatcher.register(new DummyMessageConsumer(application, dataEvents, "trigger", factory, false));
+
+        dispatcher.dispatch("{\"dummyField\": \"pepe\"}");
+        dispatcher.onNext("not json");
+
+        verify(cloudEvents, never()).createInstance(any());
+        verify(dataEvents).createInstance(any());
+    }
+
+    @Test
+    void testBatchConsumedInOneUnitOfWork() {
+        UnitOfWorkManager uowManager = spy(new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()));
+        when(application.unitOfWorkManager()).thenReturn(uowManager);
+        Process<DummyModel> process = process();
+        ProcessInstance<DummyModel> instance = instance(process);
+        dispatcher.register(new DummyMessageConsumer(application, process, "trigger", factory, true));
+
+        AtomicInteger acks = new AtomicInteger();
+        Subscriber<MessageBatch> subscriber = dispatcher.batchSubscriber();
+        subscriber.onSubscribe(mock(Subscription.class));
+        subscriber.onNext(new MessageBatch(Arrays.asList(signal("trigger", "1"), payload("trigger"), signal("trigger", "1"), payload("other")),
+                                           failures -> {
+                                               assertThat(failures).isEmpty();
+                                               acks.incrementAndGet();
+                                           }));
+
+        // messages to the same instance are coalesced into a single load
+        verify(process.instances()).findByIds(eq(Collections.singleton("1")), eq(ProcessInstanceReadMode.MUTABLE));
+        verify(instance, times(2)).send(any());
+        verify(process).createInstance(any());
+        verify(uowManager).newUnitOfWork();
+        assertThat(acks).hasValue(1);
+    }
+
+    @Test
+    void testFailedBatchConsumedMessageByMessage() {
+        UnitOfWorkManager uowManager = spy(new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()));
+        when(application.unitOfWorkManager()).thenReturn(uowManager);
+        Process<DummyModel> process = process();
+        ProcessInstance<DummyModel> instance = instance(process);
+        doThrow(new IllegalStateException("failing signal")).when(instance).send(any());
+        dispatcher.register(new DummyMessageConsumer(application, process, "trigger", factory, true));
+
+        dispatcher.dispatch(Arrays.asList(payload("trigger"), signal("trigger", "1")));
+
+        // the start is undone with the batch and done again on its own
+        verify(process, times(2)).createInstance(any());
+        verify(instance, times(2)).send(any());
+        verify(uowManager, times(3)).newUnitOfWork();
+    }
+
+    @Test
+    void testOnlyMessagesOfFailedConsumerReported() {
+        Process<DummyModel> process = process();
+        dispatcher.register(new DummyMessageConsumer(application, process, "trigger", factory, true));
+        dispatcher.register(new DummyMessageConsumer(application, process(), "other", factory, true) {
+
+            @Override
+            public void consume(List<String> payloads, List<Object> parsedPayloads) {
+                throw new IllegalStateException("failing consumer");
+            }
+        });
+
+        List<Map<Integer, Throwable>> completions = new ArrayList<>();
+        Subscriber<MessageBatch> subscriber = dispatcher.batchSubscriber();
+        subscriber.onSubscribe(mock(Subscription.class));
+        subscriber.onNext(new MessageBatch(Arrays.asList(payload("trigger"), payload("other"), payload("trigger")), completions::add));
+
+        // the consumer that succeeded is not handed the batch again
+        verify(process, times(2)).createInstance(any());
+        assertThat(completions).hasSize(1);
+        assertThat(completions.get(0)).containsOnlyKeys(1);
+        assertThat(completions.get(0).get(1)).hasMessage("failing consumer");
+    }
+
+    @Test
+    void testMessagesConsumedOnLanes() {
+        Process<DummyModel> process = process();
+        ProcessInstance<DummyModel> instance = instance(process);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName())).when(instance).send(any());
+        PartitionedExecutor executor = new PartitionedExecutor("lane", 2, 10);
+        dispatcher.setExecutor(executor);
+        dispatcher.register(new DummyMessageConsumer(application, process, "trigger", factory, true));
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(signal("trigger", "1"));
+        }
+        dispatcher.dispatch(payload("trigger"));
+        executor.close();
+
+        verify(process).createInstance(any());
+        // messages to the same instance are consumed on the same lane
+        assertThat(threads).hasSize(3).allMatch(threads.get(0)::equals);
+        assertThat(threads.get(0)).startsWith("lane-");
+        assertThat(executor.executedTasks()).isEqualTo(4);
+    }
+
+    @Test
+    void testDispatchPerConsumers() {
+        int messages = 500;
+        for (int consumers : new int[] { 1, 10, 40 }) {
+            List<DummyMessageConsumer> registered = new ArrayList<>();
+            CloudEventDispatcher shared = new CloudEventDispatcher(mapper);
+            for (int i = 0; i < consumers; i++) {
+                DummyMessageConsumer consumer = new DummyMessageConsumer(application, process(), "trigger" + i, factory, true);
+                registered.add(consumer);
+                shared.register(consumer);
+            }
+            String payload = payload("trigger0");
+
+            mapper.bound.set(0);
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                for (DummyMessageConsumer consumer : registered) {
+                    consumer.consume(payload);
+                }
+            }
+            long perConsumer = (System.nanoTime() - start) / messages;
+            int boundPerConsumer = mapper.bound.getAndSet(0);
+
+            start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                shared.dispatch(payload);
+            }
+            long dispatched = (System.nanoTime() - start) / messages;
+
+            LOGGER.info("{} consumers: {} ns per message parsed by every consumer, {} ns per message dispatched", consumers, perConsumer, dispatched);
+            assertThat(boundPerConsumer).isEqualTo(consumers * messages);
+            assertThat(mapper.bound).hasValue(messages);
+        }
+    }
+
+    private static String payload(String type) {
+        return "{ \"specversion\": \"0.3\"," +
+               "\"id\": \"21627e26-31eb-43e7-8343-92a696fd96b1\"," +
+               "\"source\": \"\"," +
+               "\"type\": \"" + type + "\"," +
+               "\"time\": \"2019-10-01T12:02:23.812262+02:00[Europe/Warsaw]\"," +
+               "\"kogitoProcessinstanceId\": \"1\"," +
+               "\"data\": {\"dummyField\" : \"pepe\"}}";
+    }
+
+    private static String signal(String type, String referenceId) {
+        return "{\"type\": \"" + type + "\", \"source\": \"\", \"kogitoReferenceId\": \"" + referenceId + "\"," +
+               "\"data\": {\"dummyField\" : \"pepe\"}}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProcessInstance<DummyModel> instance(Process<DummyModel> process) {
+        ProcessInstances<DummyModel> instances = mock(ProcessInstances.class);
+        ProcessInstance<DummyModel> instance = mock(ProcessInstance.class);
+        when(process.instances()).thenReturn(instances);
+        when(instances.findById(anyString())).thenReturn(Optional.of(instance));
+        when(instances.findByIds(any(), any())).thenReturn(Collections.singletonMap("1", instance));
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Process<DummyModel> process() {
+        Process<DummyModel> process = mock(Process.class);
+        when(process.createInstance(Mockito.any(DummyModel.class))).thenReturn(mock(ProcessInstance.class));
+        return process;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSubscriptionIndexTest {
+
+    @Test
+    void testSubscribeAndUnsubscribe() {
+        EventSubscriptionIndex index = new EventSubscriptionIndex();
+        index.subscribe("1", new LinkedHashSet<>(Arrays.asList("signal1", "signal2")));
+        index.subscribe("2", Collections.singleton("signal2"));
+
+        assertThat(index.subscribers("signal1")).containsExactly("1");
+        assertThat(index.subscribers("signal2")).containsExactlyInAnyOrder("1", "2");
+        assertThat(index.subscribers("signal3")).isEmpty();
+
+        index.subscribe("1", Collections.singleton("signal3"));
+        assertThat(index.subscribers("signal1")).isEmpty();
+        assertThat(index.subscribers("signal2")).containsExactly("2");
+        assertThat(index.subscribers("signal3")).containsExactly("1");
+
+        index.unsubscribe("2");
+        assertThat(index.subscribers("signal2")).isEmpty();
+    }
+
+    @Test
+    void testAnyEventSubscription() {
+        EventSubscriptionIndex index = new EventSubscriptionIndex();
+        index.subscribe("1", Collections.singleton("signal1"));
+        index.subscribe("2", Collections.singleton(ProcessInstanceEventTypes.ANY_EVENT));
+
+        assertThat(index.subscribers("signal1")).containsExactlyInAnyOrder("1", "2");
+        assertThat(index.subscribers("other")).containsExactly("2");
+
+        index.subscribe("2", Collections.emptySet());
+        assertThat(index.subscribers("other")).isEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceQuery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessInstanceIndexTest {
+
+    @Test
+    void testFindByStatusAndVariables() {
+        ProcessInstanceIndex index = new ProcessInstanceIndex();
+        index.index("1", ProcessInstance.STATE_ACTIVE, Collections.singletonMap("customerId", "42"));
+        index.index("2", ProcessInstance.STATE_ERROR, Collections.singletonMap("customerId", "42"));
+        index.index("3", ProcessInstance.STATE_ERROR, Collections.singletonMap("customerId", "7"));
+
+        assertThat(index.find(ProcessInstanceQuery.create())).containsExactlyInAnyOrder("1", "2", "3");
+        assertThat(index.find(ProcessInstanceQuery.create().withStatus(ProcessInstance.STATE_ERROR))).containsExactlyInAnyOrder("2", "3");
+        assertThat(index.find(ProcessInstanceQuery.create().withVariable("customerId", 42))).containsExactlyInAnyOrder("1", "2");
+        assertThat(index.find(ProcessInstanceQuery.create().withStatus(ProcessInstance.STATE_ERROR).withVariable("customerId", 42))).containsExactly("2");
+        assertThat(index.find(ProcessInstanceQuery.create().withVariable("customerId", 1))).isEmpty();
+    }
+
+    @Test
+    void testReindexAndRemove() {
+        ProcessInstanceIndex index = new ProcessInstanceIndex();
+        index.index("1", ProcessInstance.STATE_ACTIVE, Collections.singletonMap("customerId", "42"));
+
+        index.index("1", ProcessInstance.STATE_ERROR, Collections.singletonMap("customerId", "43"));
+        assertThat(index.find(ProcessInstanceQuery.create().withVariable("customerId", 42))).isEmpty();
+        assertThat(index.find(ProcessInstanceQuery.create().withStatus(ProcessInstance.STATE_ACTIVE))).isEmpty();
+        assertThat(index.find(ProcessInstanceQuery.create().withVariable("customerId", 43))).containsExactly("1");
+
+        index.remove("1");
+        assertThat(index.find(ProcessInstanceQuery.create())).isEmpty();
+        assertThat(index.keys("1")).isNull();
+    }
+}
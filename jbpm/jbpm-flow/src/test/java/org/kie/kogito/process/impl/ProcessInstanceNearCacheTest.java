@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessInstanceNearCacheTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    @Test
+    void testGetPutAndInvalidate() {
+        ProcessInstanceNearCache<String> cache = new ProcessInstanceNearCache<>(10, 0, time::get);
+        assertThat(cache.get("1")).isNull();
+
+        cache.put("1", 1, "first", cache.stamp());
+        assertThat(cache.get("1")).isEqualTo("first");
+
+        // an older version never replaces a newer one
+        cache.put("1", 2, "second", cache.stamp());
+        cache.put("1", 1, "first", cache.stamp());
+        assertThat(cache.get("1")).isEqualTo("second");
+
+        // notification of the cached version keeps the entry
+        cache.invalidate("1", 2);
+        assertThat(cache.get("1")).isEqualTo("second");
+
+        cache.invalidate("1", 3);
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.hits()).isEqualTo(3);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void testReadRacingWithInvalidationIsNotCached() {
+        ProcessInstanceNearCache<String> cache = new ProcessInstanceNearCache<>(10, 0, time::get);
+        long stamp = cache.stamp();
+        cache.invalidate("1");
+        cache.put("1", 1, "stale", stamp);
+        assertThat(cache.get("1")).isNull();
+    }
+
+    @Test
+    void testReadRacingWithInvalidationOfOtherInstanceIsCached() {
+        ProcessInstanceNearCache<String> cache = new ProcessInstanceNearCache<>(2, 0, time::get);
+        long stamp = cache.stamp();
+        cache.invalidate("2");
+        assertThat(cache.put("1", 1, "one", stamp)).isTrue();
+        assertThat(cache.get("1")).isEqualTo("one");
+
+        // invalidations of more instances than the cache holds are not all remembered
+        stamp = cache.stamp();
+        cache.invalidate("2");
+        cache.invalidate("3");
+        cache.invalidate("4");
+        assertThat(cache.put("5", 1, "five", stamp)).isFalse();
+
+        stamp = cache.stamp();
+        cache.clear();
+        assertThat(cache.put("1", 1, "one", stamp)).isFalse();
+    }
+
+    @Test
+    void testEviction() {
+        ProcessInstanceNearCache<String> cache = new ProcessInstanceNearCache<>(2, 10, time::get);
+        cache.put("1", 1, "one", cache.stamp());
+        cache.put("2", 1, "two", cache.stamp());
+        cache.get("1");
+        cache.put("3", 1, "three", cache.stamp());
+
+        // least recently used entry is evicted
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("2")).isNull();
+        assertThat(cache.get("1")).isEqualTo("one");
+
+        time.addAndGet(10);
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.get("3")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+}
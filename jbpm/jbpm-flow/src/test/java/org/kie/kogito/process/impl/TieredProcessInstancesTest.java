@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceReadMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TieredProcessInstancesTest {
+
+    private static final long IDLE_TIME = 100;
+
+    private final AtomicLong time = new AtomicLong();
+    private MapProcessInstances<Object> hot;
+    private MapProcessInstances<Object> cold;
+    private TieredProcessInstances<Object> instances;
+
+    @BeforeEach
+    void setup() {
+        hot = new MapProcessInstances<>();
+        cold = new MapProcessInstances<>();
+        instances = new TieredProcessInstances<>(hot, cold, IDLE_TIME, time::get);
+    }
+
+    @Test
+    void testIdleInstanceMovedToColdStoreAndBack() {
+        instances.create("1", instance("1"));
+        time.addAndGet(IDLE_TIME / 2);
+        instances.create("2", instance("2"));
+
+        time.addAndGet(IDLE_TIME / 2);
+        assertThat(instances.evictIdle()).isOne();
+        assertThat(hot.exists("1")).isFalse();
+        assertThat(cold.exists("1")).isTrue();
+        assertThat(instances.exists("1")).isTrue();
+        assertThat(instances.size()).isEqualTo(2);
+
+        // reading for display does not move the instance back
+        assertThat(instances.findById("1", ProcessInstanceReadMode.READ_ONLY)).isPresent();
+        assertThat(cold.exists("1")).isTrue();
+
+        assertThat(instances.findById("1", ProcessInstanceReadMode.MUTABLE)).isPresent();
+        assertThat(hot.exists("1")).isTrue();
+        assertThat(cold.exists("1")).isFalse();
+
+        // the moved back instance is idle again only after the idle time
+        time.addAndGet(IDLE_TIME / 2);
+        assertThat(instances.evictIdle()).isOne();
+        assertThat(cold.exists("2")).isTrue();
+        assertThat(hot.exists("1")).isTrue();
+    }
+
+    @Test
+    void testUpdateOfColdInstance() {
+        ProcessInstance<Object> instance = instance("1");
+        instances.create("1", instance);
+        time.addAndGet(IDLE_TIME);
+        instances.evictIdle();
+
+        instances.update("1", instance);
+        assertThat(hot.exists("1")).isTrue();
+        assertThat(cold.exists("1")).isFalse();
+
+        instances.remove("1");
+        assertThat(instances.exists("1")).isFalse();
+        assertThat(instances.evictIdle()).isZero();
+    }
+
+    @Test
+    void testInstancesNotWrittenByThisNodeAreEvictedOnceIdle() {
+        hot.create("1", instance("1"));
+        assertThat(instances.evictIdle()).isZero();
+        time.addAndGet(IDLE_TIME);
+        assertThat(instances.evictIdle()).isOne();
+        assertThat(cold.exists("1")).isTrue();
+    }
+
+    @Test
+    void testPagesSpanBothStores() {
+        for (int i = 0; i < 5; i++) {
+            cold.create("cold" + i, instance("cold" + i));
+        }
+        for (int i = 0; i < 3; i++) {
+            instances.create("hot" + i, instance("hot" + i));
+        }
+
+        assertThat(instances.values(ProcessInstanceReadMode.READ_ONLY, 0, 2)).hasSize(2);
+        List<String> ids = new ArrayList<>();
+        for (int page = 0; page < 4; page++) {
+            instances.summaries(page, 2).forEach(summary -> ids.add(summary.id()));
+        }
+        assertThat(ids).hasSize(8).doesNotHaveDuplicates().startsWith(hot.values().stream().map(ProcessInstance::id).toArray(String[]::new));
+        assertThat(instances.summaries(4, 2)).isEmpty();
+        assertThat(instances.summaries()).hasSize(8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProcessInstance<Object> instance(String id) {
+        ProcessInstance<Object> instance = mock(ProcessInstance.class);
+        when(instance.id()).thenReturn(id);
+        when(instance.status()).thenReturn(ProcessInstance.STATE_ACTIVE);
+        return instance;
+    }
+}
@@ -172,7 +172,8 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         }
 
         VariableScopeInstance variableScopeInstance = (VariableScopeInstance) workFlow.getContextInstance( VariableScope.VARIABLE_SCOPE );
-        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
+        // variables not accessed since the instance was loaded are written without unmarshalling them
+        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.internalGetVariables().entrySet() );
         Collections.sort( variables,
                           new Comparator<Map.Entry<String, Object>>() {
                               public int compare(Map.Entry<String, Object> o1,
@@ -182,7 +183,9 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                           } );
 
         for ( Map.Entry<String, Object> variable : variables ) {
-            if ( variable.getValue() != null ) {
+            if ( variable.getValue() instanceof ProtobufMarshalledVariable ) {
+                _instance.addVariable( ((ProtobufMarshalledVariable) variable.getValue()).toVariable( context, variable.getKey() ) );
+            } else if ( variable.getValue() != null ) {
                 _instance.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
             }
         }
@@ -806,7 +809,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                     .getContextInstance( variableScope );
             for ( JBPMMessages.Variable _variable : _instance.getVariableList() ) {
                 try {
-                    Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable );
+                    Object _value = ProtobufProcessMarshaller.unmarshallLazyVariableValue( context, _variable );
                     variableScopeInstance.internalSetVariable( _variable.getName(), 
                                                                _value );
                 } catch ( ClassNotFoundException e ) {
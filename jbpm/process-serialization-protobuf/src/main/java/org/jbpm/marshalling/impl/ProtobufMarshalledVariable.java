@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.marshalling.impl;
+
+import java.io.IOException;
+
+import com.google.protobuf.ByteString;
+import org.drools.core.marshalling.impl.MarshallerWriteContext;
+import org.jbpm.process.instance.context.variable.MarshalledVariable;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+
+/**
+ * Variable value as read from the marshalled process instance. Only used with strategies that don't keep
+ * state in the marshalling context, so the value can be unmarshalled later or written again as it is.
+ */
+class ProtobufMarshalledVariable implements MarshalledVariable {
+
+    private final String name;
+    private final ObjectMarshallingStrategy strategy;
+    private final String dataType;
+    private final ByteString value;
+    private final ClassLoader classLoader;
+
+    ProtobufMarshalledVariable(String name, ObjectMarshallingStrategy strategy, String dataType, ByteString value, ClassLoader classLoader) {
+        this.name = name;
+        this.strategy = strategy;
+        this.dataType = dataType;
+        this.value = value;
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public Object unmarshall() {
+        try {
+            return strategy.unmarshal(dataType, null, null, value.toByteArray(), classLoader);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Could not reload variable " + name, e);
+        }
+    }
+
+    /**
+     * @return the variable with its original value, registering its strategy in given context
+     */
+    JBPMMessages.Variable toVariable(MarshallerWriteContext context, String name) {
+        return JBPMMessages.Variable.newBuilder()
+                .setName(name)
+                .setStrategyIndex(context.getStrategyIndex(strategy))
+                .setDataType(dataType)
+                .setValue(value)
+                .build();
+    }
+}
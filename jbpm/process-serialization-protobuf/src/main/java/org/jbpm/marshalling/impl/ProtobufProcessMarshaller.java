@@ -258,6 +258,29 @@ public class ProtobufProcessMarshaller
         return value;
     }
 
+    /**
+     * Unmarshalls the value of given variable once it is accessed when its strategy does not keep state
+     * in the reader context, otherwise the value is unmarshalled right away.
+     *
+     * @see org.jbpm.process.instance.context.variable.MarshalledVariable
+     */
+    public static Object unmarshallLazyVariableValue(MarshallerReaderContext context,
+                                                     JBPMMessages.Variable _variable) throws IOException,
+                                                                                     ClassNotFoundException {
+        if(_variable.getValue() == null || _variable.getValue().isEmpty()){
+            return null;
+        }
+        ObjectMarshallingStrategy strategy = context.getUsedStrategies().get( _variable.getStrategyIndex() );
+        if ( context.getStrategyContexts().get( strategy ) != null ) {
+            return unmarshallVariableValue( context, _variable );
+        }
+        return new ProtobufMarshalledVariable( _variable.getName(),
+                                               strategy,
+                                               _variable.getDataType(),
+                                               _variable.getValue(),
+                                               (context.getKnowledgeBase() == null)?null:context.getKnowledgeBase().getRootClassLoader() );
+    }
+
 	public static Map<String, Object> unmarshallVariableContainerValue(MarshallerReaderContext context, JBPMMessages.VariableContainer _variableContiner)
 			throws IOException, ClassNotFoundException {
 		Map<String, Object> variables = new HashMap<String, Object>();
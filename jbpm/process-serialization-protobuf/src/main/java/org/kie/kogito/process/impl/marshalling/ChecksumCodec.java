@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Prefixes data with its CRC32 checksum, so data corrupted in the store fails to be read
+ * instead of being unmarshalled into a wrong process instance.
+ */
+public class ChecksumCodec implements ProcessInstanceCodec {
+
+    static final byte ID = 2;
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data, int offset, int length) {
+        byte[] encoded = new byte[Integer.BYTES + length];
+        ByteBuffer.wrap(encoded).putInt(checksum(data, offset, length));
+        System.arraycopy(data, offset, encoded, Integer.BYTES, length);
+        return encoded;
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) {
+        int expected = ByteBuffer.wrap(data, offset, length).getInt();
+        if (checksum(data, offset + Integer.BYTES, length - Integer.BYTES) != expected) {
+            throw new IllegalStateException("Checksum of process instance data does not match, the data is corrupted");
+        }
+        return Arrays.copyOfRange(data, offset + Integer.BYTES, offset + length);
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
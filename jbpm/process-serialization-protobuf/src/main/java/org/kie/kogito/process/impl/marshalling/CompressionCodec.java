@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of data larger than a threshold. Encoded data holds the original length
+ * followed by the compressed data, it is left uncompressed if compression does not make it smaller.
+ */
+public class CompressionCodec implements ProcessInstanceCodec {
+
+    static final byte ID = 1;
+
+    private final int threshold;
+    private final int level;
+
+    /**
+     * Codec used to decode data only, it does not compress anything.
+     */
+    CompressionCodec() {
+        this(Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param threshold minimum size in bytes of the data to compress
+     */
+    public CompressionCodec(int threshold) {
+        this(threshold, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param threshold minimum size in bytes of the data to compress
+     * @param level compression level, see {@link Deflater}
+     */
+    public CompressionCodec(int threshold, int level) {
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data, int offset, int length) {
+        if (length < threshold) {
+            return null;
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            // compressed data larger than the original one is not worth storing
+            byte[] encoded = new byte[Integer.BYTES + length];
+            ByteBuffer.wrap(encoded).putInt(length);
+            int written = Integer.BYTES;
+            while (!deflater.finished() && written < encoded.length) {
+                written += deflater.deflate(encoded, written, encoded.length - written);
+            }
+            return deflater.finished() && written < length ? Arrays.copyOf(encoded, written) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) {
+        int decodedLength = ByteBuffer.wrap(data, offset, length).getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset + Integer.BYTES, length - Integer.BYTES);
+            byte[] decoded = new byte[decodedLength];
+            int read = 0;
+            while (read < decodedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(decoded, read, decodedLength - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != decodedLength) {
+                throw new IllegalStateException("Compressed process instance data is truncated");
+            }
+            return decoded;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed process instance data is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
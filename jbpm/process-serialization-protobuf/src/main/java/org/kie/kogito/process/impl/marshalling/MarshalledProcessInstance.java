@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process instance marshalled with its variables stored as separate entries. Variables are
+ * identified by a reference derived from their content, so only variables that changed since
+ * the process instance was loaded need to be written and the references they replace removed.
+ */
+public class MarshalledProcessInstance {
+
+    private final byte[] processInstance;
+    private final Map<String, byte[]> variables;
+    private final Set<String> removedVariables;
+
+    public MarshalledProcessInstance(byte[] processInstance, Map<String, byte[]> variables, Set<String> removedVariables) {
+        this.processInstance = processInstance;
+        this.variables = variables;
+        this.removedVariables = removedVariables;
+    }
+
+    /**
+     * @return process instance data referencing its variables
+     */
+    public byte[] getProcessInstance() {
+        return processInstance;
+    }
+
+    /**
+     * @return variables that were added or changed, keyed by their reference
+     */
+    public Map<String, byte[]> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return references of variables that are no longer used by the process instance
+     */
+    public Set<String> getRemovedVariables() {
+        return removedVariables;
+    }
+}
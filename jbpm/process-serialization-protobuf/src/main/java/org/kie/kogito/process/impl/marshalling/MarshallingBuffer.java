@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Growable output buffer reused by marshalling on the same thread, so marshalling a process instance
+ * does not grow a new array from scratch every time. Its content can be handed over without copying.
+ */
+class MarshallingBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 4096;
+    // larger buffers are dropped once released so rare big instances don't stay in memory per thread
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private boolean inUse;
+
+    MarshallingBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * @return false if the buffer is already in use (marshalling nested on the same thread)
+     */
+    boolean acquire() {
+        if (inUse) {
+            return false;
+        }
+        inUse = true;
+        reset();
+        return true;
+    }
+
+    void release() {
+        inUse = false;
+        reset();
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+    }
+
+    /**
+     * @return backing array holding the content in its first {@link #size()} bytes, valid until the buffer is released
+     */
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * @return read only view of the content, valid until the buffer is released
+     */
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+/**
+ * Transformation of marshalled process instance data (e.g. compression, checksums or encryption)
+ * applied by {@link ProcessInstanceCodecs} before the data is stored and reverted once it is read.
+ */
+public interface ProcessInstanceCodec {
+
+    /**
+     * @return identifier written in the header of encoded data, unique among the codecs of a chain
+     */
+    byte id();
+
+    /**
+     * @return encoded data, or null if the codec is not worth applying to given data (e.g. too small to compress)
+     */
+    byte[] encode(byte[] data, int offset, int length);
+
+    byte[] decode(byte[] data, int offset, int length);
+}
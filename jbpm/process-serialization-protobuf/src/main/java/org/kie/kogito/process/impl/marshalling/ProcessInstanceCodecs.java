@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chain of codecs applied in order to marshalled process instances and their separately stored variables.
+ * Every applied codec prefixes its output with a three bytes header (two magic bytes and the codec id),
+ * so data is decoded by the codecs that encoded it and data stored without codecs is still readable.
+ * <p>
+ * Data written by the built-in codecs can be decoded even if they are no longer part of the chain.
+ */
+public class ProcessInstanceCodecs {
+
+    public static final ProcessInstanceCodecs NONE = new ProcessInstanceCodecs(Collections.emptyList());
+
+    // marshalled data starts with the object stream magic (0xACED) or a protobuf tag, never with these bytes
+    private static final byte MAGIC_0 = 'K';
+    private static final byte MAGIC_1 = 'C';
+    private static final int HEADER_SIZE = 3;
+
+    private final List<ProcessInstanceCodec> codecs;
+    private final Map<Byte, ProcessInstanceCodec> decoders = new HashMap<>();
+
+    public ProcessInstanceCodecs(ProcessInstanceCodec... codecs) {
+        this(Arrays.asList(codecs));
+    }
+
+    public ProcessInstanceCodecs(List<ProcessInstanceCodec> codecs) {
+        this.codecs = new ArrayList<>(codecs);
+        decoders.put(CompressionCodec.ID, new CompressionCodec());
+        decoders.put(ChecksumCodec.ID, new ChecksumCodec());
+        for (ProcessInstanceCodec codec : codecs) {
+            decoders.put(codec.id(), codec);
+        }
+    }
+
+    /**
+     * @param compressionThreshold minimum size in bytes of compressed data, zero or less disables compression
+     * @param checksum true to verify stored data with a checksum
+     */
+    public static ProcessInstanceCodecs of(int compressionThreshold, boolean checksum) {
+        List<ProcessInstanceCodec> codecs = new ArrayList<>();
+        if (compressionThreshold > 0) {
+            codecs.add(new CompressionCodec(compressionThreshold));
+        }
+        if (checksum) {
+            // the checksum covers the stored, possibly compressed, data so corruption is detected before inflating it
+            codecs.add(new ChecksumCodec());
+        }
+        return codecs.isEmpty() ? NONE : new ProcessInstanceCodecs(codecs);
+    }
+
+    public boolean isEmpty() {
+        return codecs.isEmpty();
+    }
+
+    public byte[] encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    public byte[] encode(byte[] data, int offset, int length) {
+        byte[] encoded = null;
+        for (ProcessInstanceCodec codec : codecs) {
+            byte[] output = encoded == null ? codec.encode(data, offset, length) : codec.encode(encoded, 0, encoded.length);
+            if (output != null) {
+                encoded = new byte[HEADER_SIZE + output.length];
+                encoded[0] = MAGIC_0;
+                encoded[1] = MAGIC_1;
+                encoded[2] = codec.id();
+                System.arraycopy(output, 0, encoded, HEADER_SIZE, output.length);
+            }
+        }
+        return encoded == null ? Arrays.copyOfRange(data, offset, offset + length) : encoded;
+    }
+
+    public byte[] decode(byte[] data) {
+        while (isEncoded(data)) {
+            ProcessInstanceCodec codec = decoders.get(data[2]);
+            if (codec == null) {
+                throw new IllegalStateException("Process instance data encoded by unknown codec " + data[2]);
+            }
+            data = codec.decode(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        }
+        return data;
+    }
+
+    private static boolean isEncoded(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+}
@@ -16,20 +16,39 @@
 package org.kie.kogito.process.impl.marshalling;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ExtensionRegistry;
 import org.drools.core.impl.EnvironmentImpl;
 import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
 import org.drools.core.marshalling.impl.MarshallerReaderContext;
 import org.drools.core.marshalling.impl.SerializablePlaceholderResolverStrategy;
 import org.drools.serialization.protobuf.PersisterHelper;
+import org.drools.serialization.protobuf.ProtobufMessages.Header;
 import org.jbpm.marshalling.impl.JBPMMessages;
 import org.jbpm.marshalling.impl.KogitoMarshallerReaderContext;
 import org.jbpm.marshalling.impl.KogitoProcessMarshallerWriteContext;
 import org.drools.core.marshalling.impl.KogitoSerializablePlaceholderResolverStrategy;
 import org.jbpm.marshalling.impl.ProcessMarshallerRegistry;
 import org.jbpm.marshalling.impl.ProtobufRuleFlowProcessInstanceMarshaller;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.MarshalledVariable;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.workflow.instance.WorkflowProcessInstance;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
 import org.kie.api.runtime.Environment;
@@ -41,7 +60,16 @@ import org.kie.kogito.process.impl.AbstractProcessInstance;
 
 public class ProcessInstanceMarshaller {
 
+    // strategy index of variables whose value is the reference of a separately stored variable
+    private static final int EXTERNAL_VARIABLE = -1;
+    private static final String EXTERNAL_VARIABLES = "ExternalVariables";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MarshallingBuffer> BUFFERS = ThreadLocal.withInitial(MarshallingBuffer::new);
+
     private Environment env = new EnvironmentImpl();
+    private ProcessInstanceCodecs codecs = ProcessInstanceCodecs.NONE;
+    // processes known to the reader context, kept for the last process as a marshaller usually serves just one
+    private volatile Map<String, org.kie.api.definition.process.Process> processes = Collections.emptyMap();
 
     public ProcessInstanceMarshaller(ObjectMarshallingStrategy... strategies) {
         ObjectMarshallingStrategy[] strats = null;
@@ -60,13 +88,109 @@ public class ProcessInstanceMarshaller {
         env.set(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, strats);
     }
 
+    /**
+     * Sets the codecs applied to the marshalled data, data written with other codecs or without any
+     * is still unmarshalled as long as its codecs are known (see {@link ProcessInstanceCodecs}).
+     */
+    public ProcessInstanceMarshaller withCodecs(ProcessInstanceCodecs codecs) {
+        this.codecs = codecs;
+        return this;
+    }
+
     public byte[] marshallProcessInstance(ProcessInstance<?> processInstance) {
+        WorkflowProcessInstance pi = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        return marshallProcessInstance(pi, null);
+    }
 
+    /**
+     * Marshalls given process instance into a buffer reused by the calling thread and passes its content
+     * to the writer, so it can be stored (e.g. written to a file channel) without being copied.
+     * The buffer must not be used once the writer returns.
+     */
+    public void marshallProcessInstance(ProcessInstance<?> processInstance, Consumer<ByteBuffer> writer) {
         WorkflowProcessInstance pi = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        MarshallingBuffer buffer = acquireBuffer();
+        try {
+            marshallProcessInstance(pi, null, buffer);
+            writer.accept(codecs.isEmpty() ? buffer.toByteBuffer() : ByteBuffer.wrap(codecs.encode(buffer.array(), 0, buffer.size())));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Marshalls given process instance without the values of its top level variables, that are
+     * returned as separate entries instead. Only variables that differ from the ones the process
+     * instance was loaded with (see {@link #unmarshallWorkflowProcessInstance(byte[], Process, Function)})
+     * are returned, so unchanged variables don't need to be written again. Variables neither accessed
+     * nor set since then keep their reference, so they are not digested again.
+     */
+    @SuppressWarnings("unchecked")
+    public MarshalledProcessInstance marshallProcessInstanceAndVariables(ProcessInstance<?> processInstance) {
+        WorkflowProcessInstance pi = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        Map<String, ExternalVariable> loaded = (Map<String, ExternalVariable>) pi.getMetaData().getOrDefault(EXTERNAL_VARIABLES, Collections.emptyMap());
+
+        ExternalVariables external = new ExternalVariables(untouched(pi, loaded));
+        byte[] data = marshallProcessInstance(pi, external);
+        pi.setMetaData(EXTERNAL_VARIABLES, external.externalized);
+
+        Set<String> loadedReferences = references(loaded);
+        Set<String> removed = new HashSet<>(loadedReferences);
+        removed.removeAll(references(external.externalized));
+        Map<String, byte[]> variables = external.data;
+        variables.keySet().removeAll(loadedReferences);
+        if (!codecs.isEmpty()) {
+            variables.replaceAll((reference, variable) -> codecs.encode(variable));
+        }
+        return new MarshalledProcessInstance(data, variables, removed);
+    }
+
+    /**
+     * Returns the loaded variables that are still in their marshalled form and no change event was fired for.
+     */
+    private static Map<String, ExternalVariable> untouched(WorkflowProcessInstance pi, Map<String, ExternalVariable> loaded) {
+        VariableScopeInstance scope = (VariableScopeInstance) pi.getContextInstance(VariableScope.VARIABLE_SCOPE);
+        if (scope == null) {
+            return Collections.emptyMap();
+        }
+        Set<String> changed = scope.internalPollChangedVariables();
+        if (loaded.isEmpty()) {
+            return loaded;
+        }
+        Map<String, Object> values = scope.internalGetVariables();
+        Map<String, ExternalVariable> untouched = new HashMap<>();
+        loaded.forEach((name, variable) -> {
+            if (!changed.contains(name) && values.get(name) instanceof MarshalledVariable) {
+                untouched.put(name, variable);
+            }
+        });
+        return untouched;
+    }
+
+    private static Set<String> references(Map<String, ExternalVariable> variables) {
+        Set<String> references = new HashSet<>();
+        variables.values().forEach(variable -> references.add(variable.reference));
+        return references;
+    }
+
+    private byte[] marshallProcessInstance(WorkflowProcessInstance pi, ExternalVariables externalVariables) {
+        MarshallingBuffer buffer = acquireBuffer();
+        try {
+            marshallProcessInstance(pi, externalVariables, buffer);
+            return codecs.isEmpty() ? buffer.toByteArray() : codecs.encode(buffer.array(), 0, buffer.size());
+        } finally {
+            buffer.release();
+        }
+    }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    private static MarshallingBuffer acquireBuffer() {
+        MarshallingBuffer buffer = BUFFERS.get();
+        return buffer.acquire() ? buffer : new MarshallingBuffer();
+    }
 
-            KogitoProcessMarshallerWriteContext context = new KogitoProcessMarshallerWriteContext(baos,
+    private void marshallProcessInstance(WorkflowProcessInstance pi, ExternalVariables externalVariables, OutputStream output) {
+        try {
+            KogitoProcessMarshallerWriteContext context = new KogitoProcessMarshallerWriteContext(output,
                                                                                             null,
                                                                                             null,
                                                                                             null,
@@ -83,20 +207,22 @@ public class ProcessInstanceMarshaller {
             Object result = marshaller.writeProcessInstance(context, pi);
             if (marshaller instanceof ProtobufRuleFlowProcessInstanceMarshaller && result != null) {
                 JBPMMessages.ProcessInstance _instance = (JBPMMessages.ProcessInstance) result;
+                if (externalVariables != null) {
+                    _instance = externalizeVariables(_instance, externalVariables);
+                }
                 PersisterHelper.writeToStreamWithHeader(context, _instance);
             }
             context.close();
             pi.disconnect();
-            return baos.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("Error while marshalling process instance", e);
         }
     }
 
     public WorkflowProcessInstance unmarshallWorkflowProcessInstance(byte[] data, Process<?> process) {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(codecs.decode(data))) {
             MarshallerReaderContext context = new KogitoMarshallerReaderContext(bais,
-                                                                                Collections.singletonMap(process.id(), ((AbstractProcess<?>) process).process()),
+                                                                                processes(process),
                                                                                 null, null, null, this.env );
             String processInstanceType = context.readUTF();
 
@@ -111,6 +237,76 @@ public class ProcessInstanceMarshaller {
         }
     }
 
+    /**
+     * Unmarshalls process instance marshalled by {@link #marshallProcessInstanceAndVariables(ProcessInstance)},
+     * variables are resolved by given function that receives references of the variables and returns
+     * their data keyed by reference.
+     */
+    public WorkflowProcessInstance unmarshallWorkflowProcessInstance(byte[] data, Process<?> process, Function<Set<String>, Map<String, byte[]>> variablesLoader) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(codecs.decode(data))) {
+            MarshallerReaderContext context = new KogitoMarshallerReaderContext(bais,
+                                                                                processes(process),
+                                                                                null, null, null, this.env );
+            String processInstanceType = context.readUTF();
+
+            org.jbpm.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller(processInstanceType);
+
+            Map<String, ExternalVariable> loaded = new HashMap<>();
+            if (marshaller instanceof ProtobufRuleFlowProcessInstanceMarshaller) {
+                ExtensionRegistry registry = PersisterHelper.buildRegistry(context, null);
+                Header _header = PersisterHelper.readFromStreamWithHeaderPreloaded(context, registry);
+                JBPMMessages.ProcessInstance _instance = JBPMMessages.ProcessInstance.parseFrom(_header.getPayload(), registry);
+                Set<String> references = externalVariableReferences(_instance);
+                if (!references.isEmpty()) {
+                    _instance = internalizeVariables(_instance, variablesLoader.apply(references), loaded);
+                }
+                context.setParameterObject(_instance);
+            }
+
+            WorkflowProcessInstance pi = (WorkflowProcessInstance) marshaller.readProcessInstance(context);
+            pi.setMetaData(EXTERNAL_VARIABLES, loaded);
+
+            context.close();
+            return pi;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while unmarshalling process instance", e);
+        }
+    }
+
+    /**
+     * Returns references of the variables stored separately from given process instance data.
+     */
+    public Set<String> externalVariableReferences(byte[] data, Process<?> process) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(codecs.decode(data))) {
+            MarshallerReaderContext context = new KogitoMarshallerReaderContext(bais,
+                                                                                processes(process),
+                                                                                null, null, null, this.env );
+            String processInstanceType = context.readUTF();
+            if (!(ProcessMarshallerRegistry.INSTANCE.getMarshaller(processInstanceType) instanceof ProtobufRuleFlowProcessInstanceMarshaller)) {
+                return Collections.emptySet();
+            }
+            ExtensionRegistry registry = PersisterHelper.buildRegistry(context, null);
+            Header _header = PersisterHelper.readFromStreamWithHeaderPreloaded(context, registry);
+            Set<String> references = externalVariableReferences(JBPMMessages.ProcessInstance.parseFrom(_header.getPayload(), registry));
+            context.close();
+            return references;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while unmarshalling process instance", e);
+        }
+    }
+
+    private Map<String, org.kie.api.definition.process.Process> processes(Process<?> process) {
+        org.kie.api.definition.process.Process definition = ((AbstractProcess<?>) process).process();
+        Map<String, org.kie.api.definition.process.Process> current = processes;
+        if (current.get(process.id()) != definition) {
+            current = Collections.singletonMap(process.id(), definition);
+            processes = current;
+        }
+        return current;
+    }
+
     public ProcessInstance unmarshallProcessInstance(byte[] data, Process process) {
         return ((AbstractProcess) process).createInstance(unmarshallWorkflowProcessInstance(data, process));
     }
@@ -118,4 +314,115 @@ public class ProcessInstanceMarshaller {
     public ProcessInstance unmarshallReadOnlyProcessInstance(byte[] data, Process process) {
         return ((AbstractProcess) process).createReadOnlyInstance(unmarshallWorkflowProcessInstance(data, process));
     }
+
+    public ProcessInstance unmarshallProcessInstance(byte[] data, Process process, Function<Set<String>, Map<String, byte[]>> variablesLoader) {
+        return ((AbstractProcess) process).createInstance(unmarshallWorkflowProcessInstance(data, process, variablesLoader));
+    }
+
+    public ProcessInstance unmarshallReadOnlyProcessInstance(byte[] data, Process process, Function<Set<String>, Map<String, byte[]>> variablesLoader) {
+        return ((AbstractProcess) process).createReadOnlyInstance(unmarshallWorkflowProcessInstance(data, process, variablesLoader));
+    }
+
+    /**
+     * Replaces the variables of given process instance by references to separately stored entries.
+     * Untouched variables written with the same strategy index are written exactly as they were loaded,
+     * so they keep their reference, other variables are referenced by the digest of their data.
+     */
+    protected JBPMMessages.ProcessInstance externalizeVariables(JBPMMessages.ProcessInstance _instance, ExternalVariables variables) {
+        JBPMMessages.ProcessInstance.Builder _builder = _instance.toBuilder().clearVariable();
+        for (JBPMMessages.Variable _variable : _instance.getVariableList()) {
+            ExternalVariable external = variables.untouched.get(_variable.getName());
+            if (external == null || external.strategyIndex != _variable.getStrategyIndex()) {
+                byte[] variable = _variable.toByteArray();
+                // variable data includes its name so the reference is unique within the process instance
+                external = new ExternalVariable(digest(variable), _variable.getStrategyIndex());
+                variables.data.put(external.reference, variable);
+            }
+            variables.externalized.put(_variable.getName(), external);
+            _builder.addVariable(JBPMMessages.Variable.newBuilder()
+                                         .setName(_variable.getName())
+                                         .setStrategyIndex(EXTERNAL_VARIABLE)
+                                         .setValue(ByteString.copyFrom(external.reference, StandardCharsets.UTF_8)));
+        }
+        return _builder.build();
+    }
+
+    /**
+     * Replaces the variable references of given process instance by the variables they reference.
+     *
+     * @param loaded receives the references of the resolved variables by name
+     */
+    protected JBPMMessages.ProcessInstance internalizeVariables(JBPMMessages.ProcessInstance _instance, Map<String, byte[]> variables, Map<String, ExternalVariable> loaded) throws IOException {
+        JBPMMessages.ProcessInstance.Builder _builder = _instance.toBuilder().clearVariable();
+        for (JBPMMessages.Variable _variable : _instance.getVariableList()) {
+            if (_variable.getStrategyIndex() == EXTERNAL_VARIABLE) {
+                String reference = _variable.getValue().toString(StandardCharsets.UTF_8);
+                byte[] variable = variables.get(reference);
+                if (variable == null) {
+                    throw new IllegalStateException("Variable '" + _variable.getName() + "' of process instance " + _instance.getId() + " not found");
+                }
+                JBPMMessages.Variable _internal = JBPMMessages.Variable.parseFrom(codecs.decode(variable));
+                loaded.put(_variable.getName(), new ExternalVariable(reference, _internal.getStrategyIndex()));
+                _builder.addVariable(_internal);
+            } else {
+                _builder.addVariable(_variable);
+            }
+        }
+        return _builder.build();
+    }
+
+    protected Set<String> externalVariableReferences(JBPMMessages.ProcessInstance _instance) {
+        Set<String> references = new LinkedHashSet<>();
+        for (JBPMMessages.Variable _variable : _instance.getVariableList()) {
+            if (_variable.getStrategyIndex() == EXTERNAL_VARIABLE) {
+                references.add(_variable.getValue().toString(StandardCharsets.UTF_8));
+            }
+        }
+        return references;
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reference of a separately stored variable and the strategy index its data was written with.
+     */
+    protected static final class ExternalVariable {
+
+        private final String reference;
+        private final int strategyIndex;
+
+        private ExternalVariable(String reference, int strategyIndex) {
+            this.reference = reference;
+            this.strategyIndex = strategyIndex;
+        }
+    }
+
+    /**
+     * Variables externalized while a process instance is marshalled.
+     */
+    protected static final class ExternalVariables {
+
+        // loaded variables that can keep their reference
+        private final Map<String, ExternalVariable> untouched;
+        // every externalized variable by name
+        private final Map<String, ExternalVariable> externalized = new HashMap<>();
+        // data of the variables whose reference was computed, by reference
+        private final Map<String, byte[]> data = new LinkedHashMap<>();
+
+        private ExternalVariables(Map<String, ExternalVariable> untouched) {
+            this.untouched = untouched;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.codegen.process;
+
+import org.kie.kogito.codegen.TemplatedGenerator;
+import org.kie.kogito.codegen.context.KogitoBuildContext;
+
+/**
+ * Generates the single subscriber of the incoming messages that dispatches them to the generated message consumers.
+ */
+public class MessageDispatcherGenerator {
+
+    private static final String CLASS_NAME = "MessageDispatcher";
+
+    private final TemplatedGenerator generator;
+
+    public MessageDispatcherGenerator(KogitoBuildContext context) {
+        this.generator = TemplatedGenerator.builder()
+                .build(context, CLASS_NAME);
+    }
+
+    public String generatedFilePath() {
+        return generator.generatedFilePath();
+    }
+
+    public String generate() {
+        return generator.compilationUnitOrThrow("Cannot generate message dispatcher").toString();
+    }
+}
@@ -384,6 +384,13 @@ public class ProcessCodegen extends AbstractGenerator {
                       messageConsumerGenerator.generate());
         }
 
+        // consumers with dependency injection receive the incoming messages from a single dispatcher
+        if (!megs.isEmpty() && context().hasDI()) {
+            MessageDispatcherGenerator messageDispatcherGenerator = new MessageDispatcherGenerator(context());
+            storeFile(MESSAGE_CONSUMER_TYPE, messageDispatcherGenerator.generatedFilePath(),
+                      messageDispatcherGenerator.generate());
+        }
+
         for (MessageProducerGenerator messageProducerGenerator : mpgs) {
             storeFile(MESSAGE_PRODUCER_TYPE, messageProducerGenerator.generatedFilePath(),
                       messageProducerGenerator.generate());
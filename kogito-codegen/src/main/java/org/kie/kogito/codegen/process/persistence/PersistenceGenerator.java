@@ -32,13 +32,17 @@ import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.NullLiteralExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.SimpleName;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.SuperExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
@@ -49,6 +53,7 @@ import org.kie.kogito.codegen.ApplicationSection;
 import org.kie.kogito.codegen.BodyDeclarationComparator;
 import org.kie.kogito.codegen.GeneratedFile;
 import org.kie.kogito.codegen.GeneratedFileType;
+import org.kie.kogito.codegen.TemplatedGenerator;
 import org.kie.kogito.codegen.context.KogitoBuildContext;
 import org.kie.kogito.codegen.context.QuarkusKogitoBuildContext;
 import org.kie.kogito.codegen.context.SpringBootKogitoBuildContext;
@@ -65,8 +70,25 @@ public class PersistenceGenerator extends AbstractGenerator {
 
     protected static final String TEMPLATE_NAME = "templateName";
     protected static final String PATH_NAME = "path";
+    protected static final String SPLIT_VARIABLES_NAME = "splitVariables";
+    protected static final String NEAR_CACHE_SIZE_NAME = "nearCacheSize";
+    protected static final String NEAR_CACHE_EXPIRATION_NAME = "nearCacheExpiration";
+    protected static final String LOG_STRUCTURED_NAME = "logStructured";
+    protected static final String SYNC_NAME = "sync";
+    protected static final String COMPRESSION_THRESHOLD_NAME = "compressionThreshold";
+    protected static final String CHECKSUM_NAME = "checksum";
+    protected static final String CLOSE_NAME = "close";
 
     private static final String KOGITO_PERSISTENCE_FS_PATH_PROP = "kogito.persistence.filesystem.path";
+    private static final String KOGITO_PERSISTENCE_FS_LOG_STRUCTURED_PROP = "kogito.persistence.filesystem.log-structured";
+    private static final String KOGITO_PERSISTENCE_FS_SYNC_PROP = "kogito.persistence.filesystem.sync";
+    private static final String KOGITO_PERSISTENCE_FS_JOBS_PROP = "kogito.persistence.filesystem.jobs";
+    private static final String KOGITO_PERSISTENCE_OUTBOX_PROP = "kogito.persistence.outbox";
+    private static final String KOGITO_PERSISTENCE_INFINISPAN_SPLIT_VARIABLES_PROP = "kogito.persistence.infinispan.split-variables";
+    private static final String KOGITO_PERSISTENCE_NEAR_CACHE_SIZE_PROP = "kogito.persistence.near-cache.max-size";
+    private static final String KOGITO_PERSISTENCE_NEAR_CACHE_EXPIRATION_PROP = "kogito.persistence.near-cache.expiration";
+    private static final String KOGITO_PERSISTENCE_COMPRESSION_THRESHOLD_PROP = "kogito.persistence.compression-threshold";
+    private static final String KOGITO_PERSISTENCE_CHECKSUM_PROP = "kogito.persistence.checksum";
     
     private static final String KOGITO_PROCESS_INSTANCE_FACTORY_PACKAGE= "org.kie.kogito.persistence.KogitoProcessInstancesFactory";
     private static final String KOGITO_PROCESS_INSTANCE_FACTORY_IMPL= "KogitoProcessInstancesFactoryImpl";
@@ -75,6 +97,7 @@ public class PersistenceGenerator extends AbstractGenerator {
     private static final String QUARKUS_PERSISTENCE_MONGODB_NAME_PROP = "quarkus.mongodb.database";
     private static final String SPRINGBOOT_PERSISTENCE_MONGODB_NAME_PROP = "spring.data.mongodb.database";
     private static final String OR_ELSE = "orElse";
+    private static final String PRE_DESTROY_ANNOTATION = "javax.annotation.PreDestroy";
 
     private final ProtoGenerator protoGenerator;
 
@@ -94,16 +117,29 @@ public class PersistenceGenerator extends AbstractGenerator {
             return Collections.emptyList();
         }
 
+        Collection<GeneratedFile> generatedFiles;
         switch (persistenceType()) {
             case INFINISPAN_PERSISTENCE_TYPE:
-                return infinispanBasedPersistence();
+                generatedFiles = infinispanBasedPersistence();
+                break;
             case FILESYSTEM_PERSISTENCE_TYPE:
-                return fileSystemBasedPersistence();
+                generatedFiles = fileSystemBasedPersistence();
+                break;
             case MONGODB_PERSISTENCE_TYPE:
-                return mongodbBasedPersistence();
+                generatedFiles = mongodbBasedPersistence();
+                break;
             default:
                 throw new IllegalArgumentException("Unknown persistenceType " + persistenceType());
         }
+        // events and job requests are stored in the outbox of the persistence and relayed in background
+        if (context().hasDI() && isEnabled(KOGITO_PERSISTENCE_OUTBOX_PROP)) {
+            generatedFiles.add(producer("OutboxProducer"));
+        }
+        return generatedFiles;
+    }
+
+    private boolean isEnabled(String property) {
+        return Boolean.parseBoolean(context().getApplicationProperty(property).orElse("false"));
     }
 
     public String persistenceType() {
@@ -146,6 +182,28 @@ public class PersistenceGenerator extends AbstractGenerator {
 
             persistenceProviderClazz.addMember(templateNameField);
             persistenceProviderClazz.addMember(templateNameMethod);
+
+            FieldDeclaration splitVariablesField = new FieldDeclaration().addVariable(new VariableDeclarator()
+                    .setType(new ClassOrInterfaceType(null, new SimpleName(Optional.class.getCanonicalName()), NodeList.nodeList(new ClassOrInterfaceType(null, Boolean.class.getCanonicalName()))))
+                    .setName(SPLIT_VARIABLES_NAME));
+            context().getDependencyInjectionAnnotator().withConfigInjection(splitVariablesField, KOGITO_PERSISTENCE_INFINISPAN_SPLIT_VARIABLES_PROP);
+            // allow to store process variables as separate cache entries
+            BlockStmt splitVariablesMethodBody = new BlockStmt();
+            splitVariablesMethodBody.addStatement(new ReturnStmt(new MethodCallExpr(new NameExpr(SPLIT_VARIABLES_NAME), OR_ELSE).addArgument(new BooleanLiteralExpr(false))));
+
+            MethodDeclaration splitVariablesMethod = new MethodDeclaration()
+                    .addModifier(Keyword.PUBLIC)
+                    .setName("splitVariables")
+                    .setType(boolean.class)
+                    .setBody(splitVariablesMethodBody);
+
+            persistenceProviderClazz.addMember(splitVariablesField);
+            persistenceProviderClazz.addMember(splitVariablesMethod);
+
+            addNearCacheConfig(persistenceProviderClazz);
+            addCodecsConfig(persistenceProviderClazz);
+            // remove the listeners of the near caches from the remote caches when the application shuts down
+            addCloseMethod(persistenceProviderClazz);
         }
         List<String> variableMarshallers = new ArrayList<>();
 
@@ -244,6 +302,18 @@ public class PersistenceGenerator extends AbstractGenerator {
 
             persistenceProviderClazz.addMember(pathField);
             persistenceProviderClazz.addMember(pathMethod);
+
+            // allow to switch to the log structured storage of process instances
+            addConfigMethod(persistenceProviderClazz, LOG_STRUCTURED_NAME, Boolean.class, boolean.class,
+                            KOGITO_PERSISTENCE_FS_LOG_STRUCTURED_PROP, new BooleanLiteralExpr(false));
+            addConfigMethod(persistenceProviderClazz, SYNC_NAME, Boolean.class, boolean.class,
+                            KOGITO_PERSISTENCE_FS_SYNC_PROP, new BooleanLiteralExpr(true));
+            addCodecsConfig(persistenceProviderClazz);
+
+            // opt in to keep process instance timers next to the instances instead of an external jobs service
+            if (isEnabled(KOGITO_PERSISTENCE_FS_JOBS_PROP)) {
+                generatedFiles.add(producer("FileSystemJobsServiceProducer"));
+            }
         }
 
         generatePersistenceProviderClazz(persistenceProviderClazz, compilationUnit)
@@ -252,6 +322,16 @@ public class PersistenceGenerator extends AbstractGenerator {
         return generatedFiles;
     }
 
+    private GeneratedFile producer(String templateName) {
+        TemplatedGenerator generator = TemplatedGenerator.builder()
+                .withTemplateBasePath(MarshallerGenerator.TEMPLATE_PERSISTENCE_FOLDER)
+                .build(context(), templateName);
+        CompilationUnit producer = generator.compilationUnitOrThrow("Cannot generate " + templateName);
+        return new GeneratedFile(GeneratedFileType.SOURCE,
+                                 generator.generatedFilePath(),
+                                 producer.toString());
+    }
+
     private Collection<GeneratedFile> mongodbBasedPersistence() {
         Collection<GeneratedFile> generatedFiles = new ArrayList<>();
         ClassOrInterfaceDeclaration persistenceProviderClazz = new ClassOrInterfaceDeclaration()
@@ -292,6 +372,10 @@ public class PersistenceGenerator extends AbstractGenerator {
             persistenceProviderClazz.addMember(dbNameField);
             persistenceProviderClazz.addMember(dbNameMethod);
 
+            addNearCacheConfig(persistenceProviderClazz);
+
+            // stop watching the change streams of the near caches when the application shuts down
+            addCloseMethod(persistenceProviderClazz);
         }
         generatePersistenceProviderClazz(persistenceProviderClazz, compilationUnit)
                 .ifPresent(generatedFiles::add);
@@ -299,6 +383,48 @@ public class PersistenceGenerator extends AbstractGenerator {
         return generatedFiles;
     }
 
+    // allow to enable the near cache of process instances in front of remote stores
+    private void addNearCacheConfig(ClassOrInterfaceDeclaration persistenceProviderClazz) {
+        addConfigMethod(persistenceProviderClazz, NEAR_CACHE_SIZE_NAME, Integer.class, int.class,
+                        KOGITO_PERSISTENCE_NEAR_CACHE_SIZE_PROP, new IntegerLiteralExpr("0"));
+        addConfigMethod(persistenceProviderClazz, NEAR_CACHE_EXPIRATION_NAME, Long.class, long.class,
+                        KOGITO_PERSISTENCE_NEAR_CACHE_EXPIRATION_PROP, new LongLiteralExpr("60L"));
+    }
+
+    // allow to compress and checksum the marshalled process instances
+    private void addCodecsConfig(ClassOrInterfaceDeclaration persistenceProviderClazz) {
+        addConfigMethod(persistenceProviderClazz, COMPRESSION_THRESHOLD_NAME, Integer.class, int.class,
+                        KOGITO_PERSISTENCE_COMPRESSION_THRESHOLD_PROP, new IntegerLiteralExpr("0"));
+        addConfigMethod(persistenceProviderClazz, CHECKSUM_NAME, Boolean.class, boolean.class,
+                        KOGITO_PERSISTENCE_CHECKSUM_PROP, new BooleanLiteralExpr(false));
+    }
+
+    private void addCloseMethod(ClassOrInterfaceDeclaration persistenceProviderClazz) {
+        persistenceProviderClazz.addMethod(CLOSE_NAME, Keyword.PUBLIC)
+                .addAnnotation(PRE_DESTROY_ANNOTATION)
+                .setBody(new BlockStmt().addStatement(new MethodCallExpr(new SuperExpr(), CLOSE_NAME)));
+    }
+
+    private void addConfigMethod(ClassOrInterfaceDeclaration persistenceProviderClazz, String name, Class<?> fieldType, Class<?> methodType,
+                                 String property, Expression defaultValue) {
+        FieldDeclaration field = new FieldDeclaration().addVariable(new VariableDeclarator()
+                .setType(new ClassOrInterfaceType(null, new SimpleName(Optional.class.getCanonicalName()), NodeList.nodeList(new ClassOrInterfaceType(null, fieldType.getCanonicalName()))))
+                .setName(name));
+        context().getDependencyInjectionAnnotator().withConfigInjection(field, property);
+
+        BlockStmt methodBody = new BlockStmt();
+        methodBody.addStatement(new ReturnStmt(new MethodCallExpr(new NameExpr(name), OR_ELSE).addArgument(defaultValue)));
+
+        MethodDeclaration method = new MethodDeclaration()
+                .addModifier(Keyword.PUBLIC)
+                .setName(name)
+                .setType(methodType)
+                .setBody(methodBody);
+
+        persistenceProviderClazz.addMember(field);
+        persistenceProviderClazz.addMember(method);
+    }
+
     private ConstructorDeclaration createConstructorForClazz(ClassOrInterfaceDeclaration persistenceProviderClazz) {
         ConstructorDeclaration constructor = persistenceProviderClazz.addConstructor(Keyword.PUBLIC);
         List<Expression> paramNames = new ArrayList<>();
@@ -1,13 +1,11 @@
 package $Package$;
 
-import io.smallrye.mutiny.Multi;
 import org.kie.kogito.Application;
 import org.kie.kogito.conf.ConfigBean;
-import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.impl.CloudEventDispatcher;
 import org.kie.kogito.event.impl.DefaultEventConsumerFactory;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.services.event.impl.AbstractMessageConsumer;
-import org.reactivestreams.Publisher;
 
 @io.quarkus.runtime.Startup
 public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $DataType$, $DataEventType$> {
@@ -22,7 +20,7 @@ public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $Data
     ConfigBean configBean;
 
     @javax.inject.Inject
-    @javax.inject.Named(KogitoEventStreams.PUBLISHER) Publisher<String> eventPublisher;
+    CloudEventDispatcher dispatcher;
 
     @javax.annotation.PostConstruct
     void init() {
@@ -34,9 +32,7 @@ public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $Data
               new DefaultEventConsumerFactory(),
               configBean.useCloudEvents());
 
-        Multi.createFrom().publisher(eventPublisher)
-                .subscribe()
-                .with(this::consume);
+        dispatcher.register(this);
     }
 
     protected $Type$ eventToModel($DataType$ event) {
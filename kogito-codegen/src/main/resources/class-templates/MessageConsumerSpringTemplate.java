@@ -2,12 +2,10 @@ package $Package$;
 
 import org.kie.kogito.Application;
 import org.kie.kogito.conf.ConfigBean;
-import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.impl.CloudEventDispatcher;
 import org.kie.kogito.event.impl.DefaultEventConsumerFactory;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.services.event.impl.AbstractMessageConsumer;
-import org.reactivestreams.Publisher;
-import reactor.core.publisher.Flux;
 
 @org.springframework.stereotype.Component()
 public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $DataType$, $DataEventType$> {
@@ -17,7 +15,7 @@ public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $Data
             Application application,
             @org.springframework.beans.factory.annotation.Qualifier("$ProcessName$") Process<$Type$> process,
             ConfigBean configBean,
-            @org.springframework.beans.factory.annotation.Qualifier(KogitoEventStreams.PUBLISHER) Publisher<String> eventPublisher) {
+            CloudEventDispatcher dispatcher) {
         super(application,
               process,
               $DataType$.class,
@@ -26,8 +24,7 @@ public class $Type$MessageConsumer extends AbstractMessageConsumer<$Type$, $Data
               new DefaultEventConsumerFactory(),
               configBean.useCloudEvents());
 
-        Flux.from(eventPublisher)
-                .subscribe(this::consume);
+        dispatcher.register(this);
     }
 
     protected $Type$ eventToModel($DataType$ event) {
@@ -0,0 +1,48 @@
+package $Package$;
+
+import java.util.Optional;
+
+import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.MessageBatch;
+import org.kie.kogito.event.impl.CloudEventDispatcher;
+import org.kie.kogito.services.event.impl.PartitionedExecutor;
+import org.reactivestreams.Publisher;
+
+@javax.enterprise.context.ApplicationScoped
+public class MessageDispatcher extends CloudEventDispatcher {
+
+    @javax.inject.Inject
+    @javax.inject.Named(KogitoEventStreams.PUBLISHER) javax.enterprise.inject.Instance<Publisher<String>> eventPublisher;
+
+    @javax.inject.Inject
+    @javax.inject.Named(KogitoEventStreams.BATCH_PUBLISHER) javax.enterprise.inject.Instance<Publisher<MessageBatch>> batchPublisher;
+
+    @javax.inject.Inject
+    @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.addon.cloudevents.batch-size") Optional<Integer> batchSize;
+
+    @javax.inject.Inject
+    @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.addon.cloudevents.lanes") Optional<Integer> lanes;
+
+    @javax.inject.Inject
+    @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.addon.cloudevents.lane-capacity") Optional<Integer> laneCapacity;
+
+    @javax.annotation.PostConstruct
+    void init() {
+        if (lanes.orElse(0) > 0) {
+            setExecutor(new PartitionedExecutor("kogito-message-consumer", lanes.get(), laneCapacity.orElse(100)));
+        }
+        // only the selected stream is looked up, so the incoming channel has a single subscriber
+        if (batchSize.orElse(1) > 1) {
+            batchPublisher.get().subscribe(batchSubscriber());
+        } else {
+            eventPublisher.get().subscribe(this);
+        }
+    }
+
+    @javax.annotation.PreDestroy
+    void close() {
+        if (executor() != null) {
+            executor().close();
+        }
+    }
+}
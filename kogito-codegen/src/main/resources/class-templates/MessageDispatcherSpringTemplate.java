@@ -0,0 +1,36 @@
+package $Package$;
+
+import org.kie.kogito.event.KogitoEventStreams;
+import org.kie.kogito.event.MessageBatch;
+import org.kie.kogito.event.impl.CloudEventDispatcher;
+import org.kie.kogito.services.event.impl.PartitionedExecutor;
+import org.reactivestreams.Publisher;
+
+@org.springframework.stereotype.Component()
+public class MessageDispatcher extends CloudEventDispatcher {
+
+    @org.springframework.beans.factory.annotation.Autowired()
+    MessageDispatcher(
+            @org.springframework.beans.factory.annotation.Qualifier(KogitoEventStreams.PUBLISHER) Publisher<String> eventPublisher,
+            @org.springframework.beans.factory.annotation.Qualifier(KogitoEventStreams.BATCH_PUBLISHER) Publisher<MessageBatch> batchPublisher,
+            @org.springframework.beans.factory.annotation.Value("${kogito.addon.cloudevents.batch-size:1}") int batchSize,
+            @org.springframework.beans.factory.annotation.Value("${kogito.addon.cloudevents.lanes:0}") int lanes,
+            @org.springframework.beans.factory.annotation.Value("${kogito.addon.cloudevents.lane-capacity:100}") int laneCapacity) {
+        if (lanes > 0) {
+            setExecutor(new PartitionedExecutor("kogito-message-consumer", lanes, laneCapacity));
+        }
+        // the streams receive records only once subscribed, only the selected one is
+        if (batchSize > 1) {
+            batchPublisher.subscribe(batchSubscriber());
+        } else {
+            eventPublisher.subscribe(this);
+        }
+    }
+
+    @javax.annotation.PreDestroy
+    void close() {
+        if (executor() != null) {
+            executor().close();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -25,6 +26,7 @@ import org.kie.kogito.Application;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceExecutionException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.workitem.Policies;
@@ -65,12 +67,29 @@ public class $Type$ReactiveResource {
 
     @GET()
     @Produces(MediaType.APPLICATION_JSON)
-    public CompletionStage<List<$Type$Output>> getResources_$name$() {
+    public CompletionStage<List<$Type$Output>> getResources_$name$(@QueryParam("page") @DefaultValue("0") int page,
+                                                                   @QueryParam("size") @DefaultValue("10") int size,
+                                                                   @QueryParam("status") Integer status,
+                                                                   @QueryParam("filter") List<String> filters) {
+        if (page < 0 || size < 0) {
+            throw new BadRequestException("Page and size must not be negative");
+        }
+        ProcessInstanceQuery query = ProcessInstanceQuery.of(status, filters);
+        if (query.isEmpty()) {
+            return CompletableFuture
+                .supplyAsync(
+                    () -> process
+                        .instances()
+                        .values(page, size)
+                        .stream()
+                        .map(pi -> pi.variables().toOutput())
+                        .collect(Collectors.toList()));
+        }
         return CompletableFuture
             .supplyAsync(
                 () -> process
                     .instances()
-                    .values()
+                    .query(query, page, size)
                     .stream()
                     .map(pi -> pi.variables().toOutput())
                     .collect(Collectors.toList()));
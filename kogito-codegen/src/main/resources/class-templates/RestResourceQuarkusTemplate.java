@@ -1,9 +1,11 @@
 package com.myspace.demo;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -30,6 +32,7 @@ import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.ProcessInstanceExecutionException;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.workitem.Policies;
@@ -71,10 +74,27 @@ public class $Type$Resource {
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<$Type$Output> getResources_$name$() {
-        return process.instances().values().stream()
-                      .map(pi -> pi.variables().toOutput())
-                      .collect(Collectors.toList());
+    public List<$Type$Output> getResources_$name$(@QueryParam("page") Integer page,
+                                                  @QueryParam("size") Integer size,
+                                                  @QueryParam("status") Integer status,
+                                                  @QueryParam("filter") List<String> filters) {
+        if ((page != null && page < 0) || (size != null && size < 0)) {
+            throw new BadRequestException("Page and size must not be negative");
+        }
+        ProcessInstanceQuery query = ProcessInstanceQuery.of(status, filters);
+        // all instances are returned unless a page is requested
+        boolean paged = page != null || size != null;
+        int pageIndex = page == null ? 0 : page;
+        int pageSize = size == null ? 10 : size;
+        Collection<ProcessInstance<$Type$>> instances;
+        if (query.isEmpty()) {
+            instances = paged ? process.instances().values(pageIndex, pageSize) : process.instances().values();
+        } else {
+            instances = paged ? process.instances().query(query, pageIndex, pageSize) : process.instances().query(query);
+        }
+        return instances.stream()
+                        .map(pi -> pi.variables().toOutput())
+                        .collect(Collectors.toList());
     }
 
     @GET
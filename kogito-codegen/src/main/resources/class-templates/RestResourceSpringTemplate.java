@@ -17,6 +17,7 @@
 package com.myspace.demo;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 
 import java.util.Map;
@@ -28,6 +29,7 @@ import org.jbpm.util.JsonSchemaUtil;
 import org.kie.kogito.Application;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceQuery;
 import org.kie.kogito.process.ProcessInstanceReadMode;
 import org.kie.kogito.process.impl.Sig;
 import org.kie.kogito.process.ProcessInstanceExecutionException;
@@ -51,6 +53,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -85,10 +88,25 @@ public class $Type$Resource {
     }
 
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<$Type$Output> getResources_$name$() {
-        return process.instances()
-                .values()
-                .stream()
+    public List<$Type$Output> getResources_$name$(@RequestParam(value = "page", required = false) Integer page,
+                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                  @RequestParam(value = "status", required = false) Integer status,
+                                                  @RequestParam(value = "filter", required = false) List<String> filters) {
+        if ((page != null && page < 0) || (size != null && size < 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page and size must not be negative");
+        }
+        ProcessInstanceQuery query = ProcessInstanceQuery.of(status, filters);
+        // all instances are returned unless a page is requested
+        boolean paged = page != null || size != null;
+        int pageIndex = page == null ? 0 : page;
+        int pageSize = size == null ? 10 : size;
+        Collection<ProcessInstance<$Type$>> instances;
+        if (query.isEmpty()) {
+            instances = paged ? process.instances().values(pageIndex, pageSize) : process.instances().values();
+        } else {
+            instances = paged ? process.instances().query(query, pageIndex, pageSize) : process.instances().query(query);
+        }
+        return instances.stream()
                 .map(pi -> pi.variables().toOutput())
                 .collect(Collectors.toList());
     }
@@ -3,6 +3,7 @@ import java.util.List;
 import org.kie.api.event.process.ProcessEventListener;
 import org.kie.kogito.event.EventPublisher;
 import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.outbox.Outbox;
 import org.kie.kogito.process.ProcessEventListenerConfig;
 import org.kie.kogito.process.WorkItemHandlerConfig;
 import org.kie.kogito.signal.SignalManagerHub;
@@ -22,7 +23,11 @@ public class ProcessConfig extends org.kie.kogito.process.impl.AbstractProcessCo
             Instance<ProcessEventListenerConfig> processEventListenerConfigs,
             Instance<ProcessEventListener> processEventListeners,
             Instance<EventPublisher> eventPublishers,
-            ConfigBean configBean) {
+            Instance<Outbox> outbox,
+            ConfigBean configBean,
+            @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.jobs-service.batch") java.util.Optional<Boolean> batchJobs,
+            @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.events.processinstances.delta") java.util.Optional<Boolean> deltaEvents,
+            @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.persistence.write-coalescing.window") java.util.Optional<Long> writeCoalescingWindow) {
 
         super(workItemHandlerConfig,
               processEventListenerConfigs,
@@ -30,7 +35,17 @@ public class ProcessConfig extends org.kie.kogito.process.impl.AbstractProcessCo
               unitOfWorkManager,
               jobsService,
               eventPublishers,
+              outbox,
+              batchJobs.orElse(false),
+              writeCoalescingWindow.orElse(0L),
               configBean.getServiceUrl());
+        unitOfWorkManager().eventManager().setDeltaEvents(deltaEvents.orElse(false));
+    }
+
+    @javax.annotation.PreDestroy
+    @Override
+    public void close() {
+        super.close();
     }
 
 }
@@ -3,6 +3,7 @@ import java.util.List;
 import org.kie.api.event.process.ProcessEventListener;
 import org.kie.kogito.event.EventPublisher;
 import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.outbox.Outbox;
 import org.kie.kogito.process.ProcessEventListenerConfig;
 import org.kie.kogito.process.WorkItemHandlerConfig;
 import org.kie.kogito.signal.SignalManagerHub;
@@ -20,7 +21,11 @@ public class ProcessConfig extends org.kie.kogito.process.impl.AbstractProcessCo
             List<ProcessEventListenerConfig> processEventListenerConfigs,
             List<ProcessEventListener> processEventListeners,
             List<EventPublisher> eventPublishers,
-            ConfigBean configBean) {
+            List<Outbox> outbox,
+            ConfigBean configBean,
+            @org.springframework.beans.factory.annotation.Value("${kogito.jobs-service.batch:false}") boolean batchJobs,
+            @org.springframework.beans.factory.annotation.Value("${kogito.events.processinstances.delta:false}") boolean deltaEvents,
+            @org.springframework.beans.factory.annotation.Value("${kogito.persistence.write-coalescing.window:0}") long writeCoalescingWindow) {
 
         super(workItemHandlerConfig,
               processEventListenerConfigs,
@@ -28,6 +33,16 @@ public class ProcessConfig extends org.kie.kogito.process.impl.AbstractProcessCo
               unitOfWorkManager,
               jobsService,
               eventPublishers,
+              outbox,
+              batchJobs,
+              writeCoalescingWindow,
               configBean.getServiceUrl());
+        unitOfWorkManager().eventManager().setDeltaEvents(deltaEvents);
+    }
+
+    @javax.annotation.PreDestroy
+    @Override
+    public void close() {
+        super.close();
     }
 }
@@ -0,0 +1,26 @@
+import java.nio.file.Paths;
+
+import javax.enterprise.inject.Instance;
+
+import org.kie.kogito.Application;
+import org.kie.kogito.persistence.filesystem.FileSystemJobsService;
+
+@javax.enterprise.context.ApplicationScoped
+public class FileSystemJobsServiceProducer {
+
+    @org.eclipse.microprofile.config.inject.ConfigProperty(name = "kogito.persistence.filesystem.path", defaultValue = "/tmp")
+    String path;
+
+    @javax.inject.Inject
+    Instance<Application> application;
+
+    @javax.enterprise.inject.Produces
+    @javax.inject.Singleton
+    public FileSystemJobsService jobsService() {
+        return new FileSystemJobsService(Paths.get(path), application::get);
+    }
+
+    public void close(@javax.enterprise.inject.Disposes FileSystemJobsService jobsService) {
+        jobsService.close();
+    }
+}
@@ -0,0 +1,17 @@
+import java.nio.file.Paths;
+
+import org.kie.kogito.Application;
+import org.kie.kogito.persistence.filesystem.FileSystemJobsService;
+import org.springframework.beans.factory.ObjectProvider;
+
+@org.springframework.context.annotation.Configuration
+public class FileSystemJobsServiceProducer {
+
+    @org.springframework.beans.factory.annotation.Value("${kogito.persistence.filesystem.path:/tmp}")
+    String path;
+
+    @org.springframework.context.annotation.Bean(destroyMethod = "close")
+    public FileSystemJobsService jobsService(ObjectProvider<Application> application) {
+        return new FileSystemJobsService(Paths.get(path), application::getObject);
+    }
+}
@@ -0,0 +1,12 @@
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
+
+@javax.enterprise.context.ApplicationScoped
+public class OutboxProducer {
+
+    @javax.enterprise.inject.Produces
+    @javax.inject.Singleton
+    public Outbox outbox(KogitoProcessInstancesFactory processInstancesFactory) {
+        return processInstancesFactory.createOutbox();
+    }
+}
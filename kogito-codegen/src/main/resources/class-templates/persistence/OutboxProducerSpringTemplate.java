@@ -0,0 +1,11 @@
+import org.kie.kogito.outbox.Outbox;
+import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
+
+@org.springframework.context.annotation.Configuration
+public class OutboxProducer {
+
+    @org.springframework.context.annotation.Bean
+    public Outbox outbox(KogitoProcessInstancesFactory processInstancesFactory) {
+        return processInstancesFactory.createOutbox();
+    }
+}
@@ -30,7 +30,13 @@ public class $unit$Query$name$Endpoint {
     @Consumes(MediaType.APPLICATION_JSON)
     public List<$ReturnType$> executeQuery($UnitTypeDTO$ unitDTO) {
         RuleUnitInstance<$UnitType$> instance = ruleUnit.createInstance();
-        return instance.executeQuery($unit$Query$name$.class);
+        List<$ReturnType$> response;
+        try {
+            response = instance.executeQuery($unit$Query$name$.class);
+        } finally {
+            instance.dispose();
+        }
+        return response;
     }
 
     @POST()
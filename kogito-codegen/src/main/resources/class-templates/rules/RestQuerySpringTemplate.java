@@ -31,7 +31,13 @@ public class $unit$Query$name$Endpoint {
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
     public List<$ReturnType$> executeQuery(@RequestBody(required = true) $UnitTypeDTO$ unitDTO) {
         RuleUnitInstance<$UnitType$> instance = ruleUnit.createInstance();
-        return instance.executeQuery($unit$Query$name$.class);
+        List<$ReturnType$> response;
+        try {
+            response = instance.executeQuery($unit$Query$name$.class);
+        } finally {
+            instance.dispose();
+        }
+        return response;
     }
 
     @PostMapping(value = "/first", produces = MediaType.APPLICATION_JSON_VALUE, consumes =
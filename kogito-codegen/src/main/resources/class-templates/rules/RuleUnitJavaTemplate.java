@@ -12,6 +12,9 @@ import org.kie.kogito.rules.units.impl.AbstractRuleUnit;
 
 public class $Name$ extends AbstractRuleUnit<$ModelName$> {
 
+    private volatile org.drools.core.impl.InternalKnowledgeBase kieBase;
+    private volatile KieSessionsPool sessionsPool;
+
     public $Name$(org.kie.kogito.Application app) {
         super($ModelName$.class.getCanonicalName(), app);
     }
@@ -20,18 +23,37 @@ public class $Name$ extends AbstractRuleUnit<$ModelName$> {
         return new $InstanceName$( this, value, createLegacySession());
     }
 
+    private org.drools.core.impl.InternalKnowledgeBase kieBase() {
+        if (kieBase == null) {
+            synchronized (this) {
+                if (kieBase == null) {
+                    int sessionPoolSize = $SessionPoolSize$;
+                    RuleBaseConfiguration ruleBaseConfig = new RuleBaseConfiguration();
+                    ruleBaseConfig.setEventProcessingMode($EventProcessingMode$);
+                    ruleBaseConfig.setSessionPoolSize(sessionPoolSize);
+                    org.drools.core.impl.InternalKnowledgeBase kb =
+                            org.drools.modelcompiler.builder.KieBaseBuilder.createKieBaseFromModel(
+                                    new $RuleModelName$(), ruleBaseConfig);
+                    if (sessionPoolSize > 0) {
+                        sessionsPool = kb.newKieSessionsPool(sessionPoolSize);
+                    }
+                    kieBase = kb;
+                }
+            }
+        }
+        return kieBase;
+    }
+
     private KieSession createLegacySession() {
-        RuleBaseConfiguration ruleBaseConfig = new RuleBaseConfiguration();
-        ruleBaseConfig.setEventProcessingMode($EventProcessingMode$);
-        ruleBaseConfig.setSessionPoolSize($SessionPoolSize$);
-        org.drools.core.impl.InternalKnowledgeBase kb =
-                org.drools.modelcompiler.builder.KieBaseBuilder.createKieBaseFromModel(
-                        new $RuleModelName$(), ruleBaseConfig);
+        org.drools.core.impl.InternalKnowledgeBase kb = kieBase();
 
         SessionConfigurationImpl sessionConfig = new SessionConfigurationImpl();
         sessionConfig.setClockType($ClockType$);
 
-        KieSession ks = kb.newKieSession(sessionConfig, new EnvironmentImpl());
+        // pooled sessions are reset and given back to the pool when the rule unit instance is disposed
+        KieSession ks = sessionsPool != null ?
+                sessionsPool.newKieSession(sessionConfig) :
+                kb.newKieSession(sessionConfig, new EnvironmentImpl());
         ((org.drools.core.impl.KogitoStatefulKnowledgeSessionImpl)ks).setStateless( /*$IsStateful$*/ true );
         ((org.drools.core.impl.KogitoStatefulKnowledgeSessionImpl)ks).setApplication( app );
 
@@ -39,8 +61,15 @@ public class $Name$ extends AbstractRuleUnit<$ModelName$> {
         if (config != null) {
             RuleEventListenerConfig ruleEventListenerConfig = config.get(org.kie.kogito.rules.RuleConfig.class)
                     .ruleEventListeners();
-            ruleEventListenerConfig.agendaListeners().forEach(ks::addEventListener);
-            ruleEventListenerConfig.ruleRuntimeListeners().forEach(ks::addEventListener);
+            // a pooled session may already have the listeners registered
+            ruleEventListenerConfig.agendaListeners().forEach(l -> {
+                ks.removeEventListener(l);
+                ks.addEventListener(l);
+            });
+            ruleEventListenerConfig.ruleRuntimeListeners().forEach(l -> {
+                ks.removeEventListener(l);
+                ks.addEventListener(l);
+            });
         }
         return ks;
     }
@@ -67,6 +67,7 @@ public class AbstractCodegenTest {
     }
     private TestClassLoader classloader;
     private AddonsConfig addonsConfig = AddonsConfig.DEFAULT;
+    private Map<String, String> applicationProperties = new HashMap<>();
 
     private static final JavaCompiler JAVA_COMPILER = JavaCompilerFactory.loadCompiler( JavaConfiguration.CompilerType.NATIVE, "11");
     private static final String TEST_JAVA = "src/test/java/";
@@ -180,6 +181,7 @@ public class AbstractCodegenTest {
                 .withPackageName(packageName)
                 .withAddonsConfig(addonsConfig)
                 .build();
+        applicationProperties.forEach(context::setApplicationProperty);
 
         ApplicationGenerator appGen =
                 new ApplicationGenerator(context);
@@ -251,6 +253,16 @@ public class AbstractCodegenTest {
         this.addonsConfig = addonsConfig;
     }
 
+    /**
+     * Use this setter to add an application property to the ones of the test resources
+     * NOTE: this setter has only effect if invoked before any of the generate*() methods
+     * @param key
+     * @param value
+     */
+    protected void setApplicationProperty(String key, String value) {
+        applicationProperties.put(key, value);
+    }
+
     private static class TestClassLoader extends URLClassLoader {
 
         private final Map<String, byte[]> extraClassDefs;
@@ -16,11 +16,13 @@
 
 package org.kie.kogito.codegen;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.KieSession;
 import org.kie.api.time.SessionPseudoClock;
 import org.kie.kogito.Application;
 import org.kie.kogito.codegen.data.Address;
@@ -39,11 +41,13 @@ import org.kie.kogito.rules.RuleUnit;
 import org.kie.kogito.rules.RuleUnitInstance;
 import org.kie.kogito.rules.RuleUnitQuery;
 import org.kie.kogito.rules.RuleUnits;
+import org.kie.kogito.rules.units.AbstractRuleUnitInstance;
 
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -134,6 +138,38 @@ public class RuleUnitCompilerTest extends AbstractCodegenTest {
         assertTrue( results.containsAll( asList("Mario", "Marilena") ) );
     }
 
+    @Test
+    public void testRuleUnitQueryWithDisposedInstances() throws Exception {
+        setApplicationProperty("kogito.rules.\"" + AdultUnit.class.getCanonicalName() + "\".sessions-pool", "1");
+        Application application = generateCodeRulesOnly("org/kie/kogito/codegen/unit/RuleUnitQuery.drl");
+
+        RuleUnit<AdultUnit> unit = application.get(RuleUnits.class).create(AdultUnit.class);
+        Class<? extends RuleUnitQuery<List<String>>> queryClass = (Class<? extends RuleUnitQuery<List<String>>>) application.getClass()
+                .getClassLoader().loadClass( "org.kie.kogito.codegen.unit.AdultUnitQueryFindAdults" );
+
+        AdultUnit adults = new AdultUnit();
+        adults.getPersons().add(new Person( "Mario", 45 ));
+        adults.getPersons().add(new Person( "Sofia", 7 ));
+        RuleUnitInstance<AdultUnit> instance = unit.createInstance(adults);
+        assertEquals( asList("Mario"), instance.executeQuery( queryClass ) );
+        KieSession session = session(instance);
+        instance.dispose();
+
+        // the disposed session is reset and given back to the pool, so facts of the previous instance are gone
+        AdultUnit others = new AdultUnit();
+        others.getPersons().add(new Person( "Marilena", 47 ));
+        RuleUnitInstance<AdultUnit> other = unit.createInstance(others);
+        assertSame( session, session(other) );
+        assertEquals( asList("Marilena"), other.executeQuery( queryClass ) );
+        other.dispose();
+    }
+
+    private static KieSession session(RuleUnitInstance<?> instance) throws ReflectiveOperationException {
+        Field runtime = AbstractRuleUnitInstance.class.getDeclaredField("runtime");
+        runtime.setAccessible(true);
+        return (KieSession) runtime.get(instance);
+    }
+
     @Test
     public void testRuleUnitQueryOnPrimitive() throws Exception {
         Application application = generateCodeRulesOnly("org/kie/kogito/codegen/unit/RuleUnitQuery.drl");
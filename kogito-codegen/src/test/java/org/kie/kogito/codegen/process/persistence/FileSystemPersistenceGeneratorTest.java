@@ -82,4 +82,44 @@ class FileSystemPersistenceGeneratorTest {
         assertThat(fieldDeclaration.get().getVariables()).hasSize(1);
         assertThat(fieldDeclaration.get().getVariables().get(0).getName().asString()).isEqualTo(PATH_NAME);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testJobsServiceProducer() {
+        context.setApplicationProperty("kogito.persistence.type", FILESYSTEM_PERSISTENCE_TYPE);
+        context.setApplicationProperty("kogito.persistence.filesystem.jobs", "true");
+
+        ReflectionProtoGenerator protoGenerator = ReflectionProtoGenerator.builder().build(Collections.singleton(GeneratedPOJO.class));
+        PersistenceGenerator persistenceGenerator = new PersistenceGenerator(
+                context,
+                protoGenerator);
+        Collection<GeneratedFile> generatedFiles = persistenceGenerator.generate();
+
+        assertThat(generatedFiles).hasSize(2);
+
+        String producerPath = this.getClass().getPackage().getName().replace('.', '/') + "/FileSystemJobsServiceProducer.java";
+        Optional<GeneratedFile> producer = generatedFiles.stream()
+                .filter(gf -> gf.relativePath().equals(producerPath))
+                .findFirst();
+
+        assertThat(producer).isNotEmpty();
+
+        final ClassOrInterfaceDeclaration classDeclaration = parse(new ByteArrayInputStream(producer.get().contents()))
+                .findFirst(ClassOrInterfaceDeclaration.class)
+                .orElseThrow(() -> new NoSuchElementException("Compilation unit doesn't contain a class or interface declaration!"));
+
+        assertThat(classDeclaration.findFirst(MethodDeclaration.class, d -> d.getName().getIdentifier().equals("jobsService"))).isNotEmpty();
+        assertThat(classDeclaration.findFirst(MethodDeclaration.class, d -> d.getName().getIdentifier().equals("close"))).isNotEmpty();
+    }
+
+    @Test
+    void testOutboxProducer() {
+        context.setApplicationProperty("kogito.persistence.type", FILESYSTEM_PERSISTENCE_TYPE);
+        context.setApplicationProperty("kogito.persistence.outbox", "true");
+
+        ReflectionProtoGenerator protoGenerator = ReflectionProtoGenerator.builder().build(Collections.singleton(GeneratedPOJO.class));
+        Collection<GeneratedFile> generatedFiles = new PersistenceGenerator(context, protoGenerator).generate();
+
+        String producerPath = this.getClass().getPackage().getName().replace('.', '/') + "/OutboxProducer.java";
+        assertThat(generatedFiles).extracting(GeneratedFile::relativePath).contains(producerPath);
+    }
+}
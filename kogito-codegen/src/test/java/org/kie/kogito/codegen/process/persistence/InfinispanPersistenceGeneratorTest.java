@@ -84,5 +84,10 @@ class InfinispanPersistenceGeneratorTest {
 
         assertThat(methodDeclaration.getBody()).isNotEmpty();
         assertThat(methodDeclaration.getBody().get().toString()).contains(expectedMarshaller);
+
+        final MethodDeclaration closeDeclaration = classDeclaration
+                .findFirst(MethodDeclaration.class, d -> d.getName().getIdentifier().equals("close"))
+                .orElseThrow(() -> new NoSuchElementException("Class declaration doesn't contain a method named \"close\"!"));
+        assertThat(closeDeclaration.getAnnotationByName("PreDestroy")).isPresent();
     }
 }
\ No newline at end of file
@@ -83,5 +83,8 @@ class MongoDBPersistenceGeneratorTest {
 
         final ReturnStmt returnStmt = (ReturnStmt) body.getStatements().get(0);
         assertThat(returnStmt.toString()).contains("kogito");
+
+        final MethodDeclaration closeDeclaration = classDeclaration.findFirst(MethodDeclaration.class, d -> d.getName().getIdentifier().equals("close")).orElseThrow(() -> new NoSuchElementException("Class declaration doesn't contain a method named \"close\"!"));
+        assertTrue(closeDeclaration.getAnnotationByName("PreDestroy").isPresent());
     }
 }